@@ -0,0 +1,143 @@
+package com.devStudy.chat.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.devStudy.chat.dao.ChatMessageRepository;
+import com.devStudy.chat.dao.UserRepository;
+import com.devStudy.chat.dto.DTOMapper;
+import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.model.ChatMessage;
+import com.devStudy.chat.model.User;
+
+/**
+ * Données et faux repositories en mémoire partagés par les benchmarks (aucune base de données n'est nécessaire)
+ */
+public final class BenchmarkFixtures {
+
+	private BenchmarkFixtures() {}
+
+	public static User user(long id) {
+		User user = new User();
+		user.setId(id);
+		user.setFirstName("First" + id);
+		user.setLastName("Last" + id);
+		user.setMail("user" + id + "@example.com");
+		user.setActive(true);
+		return user;
+	}
+
+	public static UserDTO userDTO(long id) {
+		return DTOMapper.toUserDTO(user(id));
+	}
+
+	/**
+	 * Historique d'un chatroom trié par date croissante, réparti sur plusieurs jours
+	 */
+	public static List<ChatMessage> chatHistory(long chatroomId, int size, int users, int messagesPerDay) {
+		List<ChatMessage> messages = new ArrayList<>(size);
+		long start = new Date(124, 4, 1, 8, 0).getTime();
+		for (int i = 0; i < size; i++) {
+			ChatMessage message = new ChatMessage();
+			message.setChatroomId(chatroomId);
+			message.setUser(userDTO(1 + i % users));
+			message.setContent("Message number " + i + " of the benchmark history");
+			message.setTimestamp(new Date(start
+					+ TimeUnit.DAYS.toMillis(i / messagesPerDay)
+					+ TimeUnit.MINUTES.toMillis(i % messagesPerDay)));
+			messages.add(message);
+		}
+		return messages;
+	}
+
+	/**
+	 * Faux ChatMessageRepository : seules les requêtes findByChatroomId sont servies, depuis la liste donnée,
+	 * les insertions sont acceptées sans être conservées
+	 */
+	public static ChatMessageRepository chatMessageRepository(List<ChatMessage> history) {
+		return (ChatMessageRepository) Proxy.newProxyInstance(
+				ChatMessageRepository.class.getClassLoader(),
+				new Class<?>[] { ChatMessageRepository.class },
+				(proxy, method, args) -> {
+					if (method.getName().equals("insert")) {
+						return args[0];
+					}
+					if (!method.getName().equals("findByChatroomId")) {
+						throw new UnsupportedOperationException(method.getName());
+					}
+					if (args.length == 1) {
+						return history;
+					}
+					Pageable pageable = (Pageable) args[1];
+					int from = (int) Math.min(pageable.getOffset(), history.size());
+					int to = Math.min(from + pageable.getPageSize(), history.size());
+					return new PageImpl<>(history.subList(from, to), pageable, history.size());
+				});
+	}
+
+	/**
+	 * Faux UserRepository : seul le chargement par lots ordonnés par id (findByAdminAndIdGreaterThanOrderByIdAsc) est servi,
+	 * depuis la liste donnée triée par id
+	 */
+	public static UserRepository userRepository(List<User> users) {
+		return (UserRepository) Proxy.newProxyInstance(
+				UserRepository.class.getClassLoader(),
+				new Class<?>[] { UserRepository.class },
+				(proxy, method, args) -> {
+					if (!method.getName().equals("findByAdminAndIdGreaterThanOrderByIdAsc")) {
+						throw new UnsupportedOperationException(method.getName());
+					}
+					long afterId = (Long) args[1];
+					Limit limit = (Limit) args[2];
+					return users.stream().filter(user -> user.getId() > afterId).limit(limit.max()).toList();
+				});
+	}
+
+	/**
+	 * Faux StringRedisTemplate : chaque exécution de script renvoie le numéro suivant (compteur de séquence des messages)
+	 */
+	public static StringRedisTemplate sequenceRedisTemplate() {
+		AtomicLong sequence = new AtomicLong();
+		return new StringRedisTemplate() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+				return (T) Long.valueOf(sequence.incrementAndGet());
+			}
+		};
+	}
+
+	/**
+	 * Fausse session WebSocket toujours ouverte, les messages envoyés sont ignorés
+	 */
+	public static WebSocketSession webSocketSession(String id, Map<String, Object> attributes) {
+		return (WebSocketSession) Proxy.newProxyInstance(
+				WebSocketSession.class.getClassLoader(),
+				new Class<?>[] { WebSocketSession.class },
+				(proxy, method, args) -> switch (method.getName()) {
+					case "getId", "toString" -> id;
+					case "getAttributes" -> attributes;
+					case "isOpen" -> true;
+					case "sendMessage", "close" -> null;
+					case "hashCode" -> System.identityHashCode(proxy);
+					case "equals" -> proxy == args[0];
+					default -> throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+	public static RedisScript<Long> chatroomSeqNextScript() {
+		return RedisScript.of("return redis.call('INCR', KEYS[1])", Long.class);
+	}
+}
@@ -0,0 +1,30 @@
+package com.devStudy.chat.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Point d'entrée des benchmarks JMH (profil Maven "benchmarks"), chaque suite est lancée avec le GCProfiler
+ * pour suivre les allocations (gc.alloc.rate.norm = octets alloués par opération).
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.include=JwtTokenServiceBenchmark
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : ".*";
+		Options options = new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result(args.length > 1 ? args[1] : "jmh-result.json")
+				.build();
+		new Runner(options).run();
+	}
+}
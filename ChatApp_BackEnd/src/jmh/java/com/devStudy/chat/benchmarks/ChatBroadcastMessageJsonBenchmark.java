@@ -0,0 +1,59 @@
+package com.devStudy.chat.benchmarks;
+
+import static com.devStudy.chat.service.utils.ConstantValues.MESSAGE_TEXT;
+import static com.devStudy.chat.service.utils.ConstantValues.TO_ALL_IN_CHATROOM;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.devStudy.chat.websocket.distributed.DistributedChatWebSocketHandler.ChatBroadcastMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * (Dé)sérialisation Jackson d'un ChatBroadcastMessage, publié sur Redis par ChatMessageBroker
+ * et relu par chaque instance abonnée au chatroom
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatBroadcastMessageJsonBenchmark {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private ChatBroadcastMessage message;
+	private byte[] json;
+
+	@Setup
+	public void setUp() throws JsonProcessingException {
+		String frame = "{\n  \"user\" : {\n    \"id\" : 1,\n    \"username\" : \"Last1 First1\"\n  },\n"
+				+ "  \"messageType\" : 0,\n  \"message\" : \"Hello everyone, this is a benchmark message\",\n"
+				+ "  \"timestamp\" : \"18:00\"\n}";
+		message = new ChatBroadcastMessage(MESSAGE_TEXT, TO_ALL_IN_CHATROOM, frame,
+				BenchmarkFixtures.userDTO(1L), "18:00", "4c5a2f0e-benchmark", System.currentTimeMillis());
+		json = mapper.writeValueAsBytes(message);
+	}
+
+	@Benchmark
+	public String serialize() throws JsonProcessingException {
+		return mapper.writeValueAsString(message);
+	}
+
+	@Benchmark
+	public ChatBroadcastMessage deserialize() throws Exception {
+		return mapper.readValue(json, ChatBroadcastMessage.class);
+	}
+}
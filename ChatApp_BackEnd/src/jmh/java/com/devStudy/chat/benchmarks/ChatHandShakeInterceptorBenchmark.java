@@ -0,0 +1,90 @@
+package com.devStudy.chat.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.util.UriTemplate;
+
+import com.devStudy.chat.model.User;
+import com.devStudy.chat.service.utils.ChatHandShakeInterceptor;
+
+/**
+ * Reconnect storm : handshakes WebSocket (un sur 10 avec un id utilisateur falsifié) à travers ChatHandShakeInterceptor,
+ * comparés avec l'ancienne implémentation qui créait un UriTemplate par handshake
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatHandShakeInterceptorBenchmark {
+
+	private static final String CHAT_ENDPOINT = "/ws/chatroom/{chatroomId}/user/{userId}";
+	private static final int CLIENTS = 1024;
+
+	private final ChatHandShakeInterceptor interceptor = new ChatHandShakeInterceptor(CHAT_ENDPOINT);
+	private final MockHttpServletRequest[] requests = new MockHttpServletRequest[CLIENTS];
+	private int next;
+
+	@Setup
+	public void setUp() {
+		for (int i = 0; i < CLIENTS; i++) {
+			long userId = i + 1;
+			// every tenth client reconnects with a forged user id
+			long pathUserId = i % 10 == 0 ? userId + 1 : userId;
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws/chatroom/" + (i % 200) + "/user/" + pathUserId);
+			request.setQueryString("t=" + i);
+			request.addParameter("t", String.valueOf(i));
+			User user = BenchmarkFixtures.user(userId);
+			request.setUserPrincipal(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+			requests[i] = request;
+		}
+	}
+
+	private MockHttpServletRequest nextRequest() {
+		MockHttpServletRequest request = requests[next];
+		next = (next + 1) % CLIENTS;
+		return request;
+	}
+
+	@Benchmark
+	public boolean precompiledTemplate() {
+		return interceptor.beforeHandshake(
+				new ServletServerHttpRequest(nextRequest()),
+				new ServletServerHttpResponse(new MockHttpServletResponse()),
+				null,
+				new HashMap<>());
+	}
+
+	// ancien chemin : UriTemplate compilé à chaque handshake et appliqué à l'URI complète, query string comprise
+	@Benchmark
+	public long legacyUriTemplate() {
+		UriTemplate uriTemplate = new UriTemplate(CHAT_ENDPOINT);
+		Map<String, String> vars = uriTemplate.match(new ServletServerHttpRequest(nextRequest()).getURI().toString());
+		if (vars.isEmpty()) {
+			return -1;
+		}
+		String userId = vars.get("userId");
+		if (userId.contains("?")) {
+			userId = userId.substring(0, userId.indexOf("?"));
+		}
+		return Long.parseLong(vars.get("chatroomId")) + Long.parseLong(userId);
+	}
+}
@@ -0,0 +1,76 @@
+package com.devStudy.chat.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devStudy.chat.dto.ChatMsgDTO;
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.model.User;
+import com.devStudy.chat.service.implementations.ChatMessageService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Construction de l'historique d'un chatroom (ChatMessageService.setResMsgList) à partir d'un faux repository
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatMessageServiceBenchmark {
+
+	private static final long CHATROOM_ID = 1L;
+
+	@Param({ "10", "500" })
+	private int historySize;
+
+	private ChatMessageService chatMessageService;
+
+	@Setup
+	public void setUp() {
+		chatMessageService = new ChatMessageService(
+				BenchmarkFixtures.chatMessageRepository(BenchmarkFixtures.chatHistory(CHATROOM_ID, historySize, 5, 50)),
+				new ChatMetrics(new SimpleMeterRegistry()),
+				BenchmarkFixtures.sequenceRedisTemplate(),
+				BenchmarkFixtures.chatroomSeqNextScript());
+		ReflectionTestUtils.setField(chatMessageService, "DefaultPageSize_Messages", 10);
+
+		// setResMsgList reads the logged user from the security context of the current thread
+		User principal = BenchmarkFixtures.user(1L);
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+	}
+
+	@TearDown
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Benchmark
+	public List<ChatMsgDTO> getChatMessagesByChatroomId() {
+		return chatMessageService.getChatMessagesByChatroomId(CHATROOM_ID);
+	}
+
+	@Benchmark
+	public List<ChatMsgDTO> getChatMessagesByChatroomIdByPage() {
+		return chatMessageService.getChatMessagesByChatroomIdByPage(CHATROOM_ID, 0);
+	}
+}
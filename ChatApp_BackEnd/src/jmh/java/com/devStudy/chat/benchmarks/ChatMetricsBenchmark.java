@@ -0,0 +1,65 @@
+package com.devStudy.chat.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.devStudy.chat.metrics.ChatMetrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+
+/**
+ * Surcoût de l'instrumentation sur le chemin d'un message (un Timer.Sample + le timer de l'insertion Mongo),
+ * comparé au même travail sans métriques ; les timers sont ceux du registre Prometheus exposé en production
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatMetricsBenchmark {
+
+	private PrometheusMeterRegistry registry;
+	private ChatMetrics chatMetrics;
+	private Timer mongoInsertTimer;
+	private Runnable work;
+
+	@Setup
+	public void setUp() {
+		registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+		chatMetrics = new ChatMetrics(registry);
+		mongoInsertTimer = chatMetrics.getMongoInsertTimer();
+		work = () -> Blackhole.consumeCPU(16);
+	}
+
+	@TearDown
+	public void tearDown() {
+		registry.close();
+	}
+
+	@Benchmark
+	public void withoutMetrics() {
+		work.run();
+	}
+
+	@Benchmark
+	public void instrumentedMessage() {
+		Timer.Sample sample = chatMetrics.startSample();
+		mongoInsertTimer.record(work);
+		chatMetrics.recordMessageBroadcast(sample);
+	}
+}
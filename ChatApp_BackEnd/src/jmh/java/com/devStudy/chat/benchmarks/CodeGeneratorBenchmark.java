@@ -0,0 +1,61 @@
+package com.devStudy.chat.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.devStudy.chat.service.implementations.CodeGeneratorService;
+
+/**
+ * Génération des codes de vérification sous charge concurrente :
+ * l'ancienne version (new Random() + String.format à chaque appel), le SecureRandom partagé appelé directement,
+ * et la réserve pré-générée utilisée par VerificationCodeService
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class CodeGeneratorBenchmark {
+
+	private CodeGeneratorService codeGeneratorService;
+
+	@Setup
+	public void setUp() {
+		codeGeneratorService = new CodeGeneratorService(256);
+	}
+
+	@TearDown
+	public void tearDown() {
+		codeGeneratorService.shutdown();
+	}
+
+	@Benchmark
+	public String newRandomAndFormat() {
+		return String.format("%06d", new Random().nextInt(1000000));
+	}
+
+	@Benchmark
+	public String sharedSecureRandom() {
+		return codeGeneratorService.generateCode();
+	}
+
+	@Benchmark
+	public String pooledCode() {
+		return codeGeneratorService.nextCode();
+	}
+}
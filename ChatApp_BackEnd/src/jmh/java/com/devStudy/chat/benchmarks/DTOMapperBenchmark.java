@@ -0,0 +1,68 @@
+package com.devStudy.chat.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.devStudy.chat.dto.ChatroomDTO;
+import com.devStudy.chat.dto.ChatroomWithOwnerAndStatusDTO;
+import com.devStudy.chat.dto.DTOMapper;
+import com.devStudy.chat.dto.ModifyChatroomDTO;
+import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.model.Chatroom;
+import com.devStudy.chat.model.User;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DTOMapperBenchmark {
+
+	private User user;
+	private Chatroom chatroom;
+
+	@Setup
+	public void setUp() {
+		user = BenchmarkFixtures.user(1L);
+		chatroom = new Chatroom();
+		chatroom.setId(10L);
+		chatroom.setTitre("Benchmark chatroom");
+		chatroom.setDescription("Chatroom used by the DTOMapper benchmark");
+		chatroom.setHoraireCommence(LocalDateTime.of(2024, 5, 1, 10, 0));
+		chatroom.setHoraireTermine(LocalDateTime.of(2024, 5, 3, 10, 0));
+		chatroom.setActive(true);
+		chatroom.setCreator(user);
+	}
+
+	@Benchmark
+	public UserDTO toUserDTO() {
+		return DTOMapper.toUserDTO(user);
+	}
+
+	@Benchmark
+	public ChatroomDTO toChatroomDTO() {
+		return DTOMapper.toChatroomDTO(chatroom, true);
+	}
+
+	@Benchmark
+	public ChatroomWithOwnerAndStatusDTO toChatroomWithOwnerAndStatusDTO() {
+		return DTOMapper.toChatroomWithOwnerAndStatusDTO(chatroom, true);
+	}
+
+	@Benchmark
+	public ModifyChatroomDTO toModifyChatroomDTO() {
+		return DTOMapper.toModifyChatroomDTO(chatroom);
+	}
+}
@@ -0,0 +1,164 @@
+package com.devStudy.chat.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.service.implementations.ChatMessageService;
+import com.devStudy.chat.service.utils.UserInfoCache;
+import com.devStudy.chat.websocket.distributed.ChatMessageBroker;
+import com.devStudy.chat.websocket.distributed.ChatSessionRegistryService;
+import com.devStudy.chat.websocket.distributed.DistributedChatWebSocketHandler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Diffusion d'un message texte (DistributedChatWebSocketHandler.handleTextMessage) à tous les membres connectés localement :
+ * expéditeur lu dans les attributs de la session, ou relu dans le registre Redis à chaque message (ancien chemin)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistributedChatWebSocketHandlerBenchmark {
+
+	private static final long CHATROOM_ID = 1L;
+
+	@Param({ "10", "100" })
+	private int usersInChatroom;
+
+	private final GenericJackson2JsonRedisSerializer redisSerializer = new GenericJackson2JsonRedisSerializer();
+	private final List<WebSocketSession> sessions = new ArrayList<>();
+	private final TextMessage message = new TextMessage("Hello everyone, this is a benchmark message");
+
+	private DistributedChatWebSocketHandler handler;
+	private WebSocketSession sender;
+	private WebSocketSession legacySender;
+
+	@Setup
+	public void setUp() {
+		Set<UserDTO> users = new HashSet<>();
+		Map<Long, byte[]> storedUsers = new HashMap<>();
+		for (long id = 1; id <= usersInChatroom; id++) {
+			UserDTO user = BenchmarkFixtures.userDTO(id);
+			users.add(user);
+			storedUsers.put(id, redisSerializer.serialize(user));
+		}
+
+		ChatMetrics chatMetrics = new ChatMetrics(new SimpleMeterRegistry());
+		handler = new DistributedChatWebSocketHandler(
+				new UserInfoCache(null, null),
+				new ChatSessionRegistryService(null, null, null, null) {
+					@Override
+					public void registerUserConnection(long chatroomId, UserDTO userInfo) {
+					}
+
+					@Override
+					public long removeUserConnection(long chatroomId, long userId) {
+						return 1;
+					}
+
+					@Override
+					public Set<UserDTO> getUserConnections(long chatroomId) {
+						return users;
+					}
+
+					@Override
+					public UserDTO getUser(long chatroomId, long userId) {
+						// what RedisTemplate does with the stored value on every GET
+						return (UserDTO) redisSerializer.deserialize(storedUsers.get(userId));
+					}
+				},
+				new ChatMessageBroker(null, chatMetrics) {
+					@Override
+					public void sendToChatroom(long chatroomId, DistributedChatWebSocketHandler.ChatBroadcastMessage chatMessage) {
+					}
+				},
+				new ChatMessageService(BenchmarkFixtures.chatMessageRepository(List.of()), chatMetrics,
+						BenchmarkFixtures.sequenceRedisTemplate(), BenchmarkFixtures.chatroomSeqNextScript()) {
+					@Override
+					public long currentSequence(long chatroomId) {
+						return 0;
+					}
+				},
+				new RedisMessageListenerContainer() {
+					@Override
+					public void addMessageListener(MessageListener listener, Topic topic) {
+					}
+
+					@Override
+					public void removeMessageListener(MessageListener listener, Topic topic) {
+					}
+				},
+				chatMetrics);
+		ReflectionTestUtils.setField(handler, "sendTimeLimit", 10_000);
+		ReflectionTestUtils.setField(handler, "bufferSizeLimit", 512 * 1024);
+
+		for (UserDTO user : users) {
+			Map<String, Object> attributes = new HashMap<>();
+			attributes.put("chatroomId", CHATROOM_ID);
+			attributes.put("userId", user.getId());
+			attributes.put("userInfo", user);
+			WebSocketSession session = BenchmarkFixtures.webSocketSession("session-" + user.getId(), attributes);
+			handler.afterConnectionEstablished(session);
+			sessions.add(session);
+		}
+		sender = sessions.get(0);
+
+		// session de l'ancien chemin : l'utilisateur n'est jamais conservé localement
+		Map<String, Object> legacyAttributes = new HashMap<>() {
+			@Override
+			public Object put(String key, Object value) {
+				return "userInfo".equals(key) ? null : super.put(key, value);
+			}
+		};
+		legacyAttributes.put("chatroomId", CHATROOM_ID);
+		legacyAttributes.put("userId", sender.getAttributes().get("userId"));
+		legacySender = BenchmarkFixtures.webSocketSession("legacy-session", legacyAttributes);
+	}
+
+	@TearDown
+	public void tearDown() {
+		sessions.forEach(session -> handler.afterConnectionClosed(session, CloseStatus.NORMAL));
+		sessions.clear();
+	}
+
+	@Benchmark
+	public void sessionUserInfo() {
+		handler.handleTextMessage(sender, message);
+	}
+
+	@Benchmark
+	public void registryReadPerMessage() {
+		handler.handleTextMessage(legacySender, message);
+	}
+}
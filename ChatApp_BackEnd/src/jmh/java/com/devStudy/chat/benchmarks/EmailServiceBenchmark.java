@@ -0,0 +1,86 @@
+package com.devStudy.chat.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devStudy.chat.service.implementations.EmailService;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+/**
+ * Débit d'envoi de mails (mails/s) vers un serveur SMTP local en mémoire (GreenMail) :
+ * une session SMTP par mail (sendSimpleMessage), ou une session par lot de BATCH_SIZE mails (sendBatch)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailServiceBenchmark {
+
+	private static final int BATCH_SIZE = 20;
+
+	private GreenMail greenMail;
+	private EmailService emailService;
+	private List<SimpleMailMessage> mails;
+
+	@Setup
+	public void setUp() {
+		greenMail = new GreenMail(ServerSetupTest.SMTP.dynamicPort());
+		greenMail.start();
+		JavaMailSenderImpl sender = new JavaMailSenderImpl();
+		sender.setHost("127.0.0.1");
+		sender.setPort(greenMail.getSmtp().getPort());
+		emailService = new EmailService(sender, 4, 2, 5000);
+		ReflectionTestUtils.setField(emailService, "from", "noreply@chat.test");
+		mails = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			mails.add(emailService.buildMessage("user" + i + "@chat.test", "Verification Code", "code " + i));
+		}
+	}
+
+	// les mails reçus restent en mémoire dans GreenMail
+	@TearDown(Level.Iteration)
+	public void purge() throws Exception {
+		greenMail.purgeEmailFromAllMailboxes();
+	}
+
+	@TearDown
+	public void tearDown() {
+		greenMail.stop();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void oneSessionPerMail() {
+		for (SimpleMailMessage mail : mails) {
+			emailService.sendSimpleMessage(mail.getTo()[0], mail.getSubject(), mail.getText());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public Map<SimpleMailMessage, Exception> oneSessionPerBatch() {
+		return emailService.sendBatch(mails, true);
+	}
+}
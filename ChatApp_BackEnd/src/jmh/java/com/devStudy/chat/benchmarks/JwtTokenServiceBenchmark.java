@@ -0,0 +1,56 @@
+package com.devStudy.chat.benchmarks;
+
+import static com.devStudy.chat.service.utils.ConstantValues.TOKEN_FLAG_LOGIN;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devStudy.chat.service.implementations.JwtTokenService;
+
+/**
+ * Validation du JWT, exécutée par JwtAuthenticationFilter à chaque requête authentifiée
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenServiceBenchmark {
+
+	// same value as chatroomApp.jwt.secret in application.yml
+	private static final String SECRET = "dGhpcyBpcyBhIHRlc3Qgc2VjcmV0IGtleSBmb3IgZ2VuZXJhdGUgand0IHRva2Vucw==";
+
+	private JwtTokenService jwtTokenService;
+	private String token;
+
+	@Setup
+	public void setUp() {
+		jwtTokenService = new JwtTokenService();
+		ReflectionTestUtils.setField(jwtTokenService, "secretKey", SECRET);
+		ReflectionTestUtils.setField(jwtTokenService, "loginTokenExpirationTime", 120L);
+		ReflectionTestUtils.setField(jwtTokenService, "resetPwdTokenExpirationTime", 30L);
+		token = jwtTokenService.generateJwtToken("user1@example.com", TOKEN_FLAG_LOGIN);
+	}
+
+	@Benchmark
+	public String validateTokenAndGetEmail() {
+		return jwtTokenService.validateTokenAndGetEmail(token);
+	}
+
+	@Benchmark
+	public String generateJwtToken() {
+		return jwtTokenService.generateJwtToken("user1@example.com", TOKEN_FLAG_LOGIN);
+	}
+}
@@ -0,0 +1,80 @@
+package com.devStudy.chat.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.service.implementations.PasswordHashingService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Débit de vérification des mots de passe pendant un pic de connexions (16 requêtes concurrentes) :
+ * directement sur les threads appelants (ancien comportement) ou sur le pool borné de PasswordHashingService
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Threads(16)
+@Fork(1)
+public class LoginThroughputBenchmark {
+
+	@Param({ "bcrypt:10", "bcrypt:12", "argon2" })
+	private String encoder;
+
+	private PasswordEncoder passwordEncoder;
+	private PasswordHashingService passwordHashingService;
+	private String storedHash;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		String[] config = encoder.split(":");
+		BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(config.length > 1 ? Integer.parseInt(config[1]) : 10);
+		DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(config[0], Map.of(
+				"bcrypt", bcrypt,
+				"argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8()));
+		delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+		passwordEncoder = delegating;
+		storedHash = passwordEncoder.encode("Benchmark-Password-1");
+
+		// same sizing as the default configuration : half of the cores, long wait so that nothing is rejected
+		passwordHashingService = new PasswordHashingService(passwordEncoder, new ChatMetrics(new SimpleMeterRegistry()),
+				0, 1024, TimeUnit.MINUTES.toMillis(1));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		passwordHashingService.shutdown();
+	}
+
+	@Benchmark
+	public boolean loginOnCallerThread() {
+		return passwordEncoder.matches("Benchmark-Password-1", storedHash);
+	}
+
+	@Benchmark
+	public boolean loginOnHashingPool() {
+		return passwordHashingService.matches("Benchmark-Password-1", storedHash);
+	}
+}
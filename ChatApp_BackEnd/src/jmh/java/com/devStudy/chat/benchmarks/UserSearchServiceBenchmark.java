@@ -0,0 +1,70 @@
+package com.devStudy.chat.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.model.User;
+import com.devStudy.chat.service.implementations.UserSearchService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Latence d'une recherche d'utilisateurs à inviter (UserSearchService.search) dans l'index en mémoire :
+ * requêtes peu sélectives (un caractère), sur plusieurs termes, et par mail
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserSearchServiceBenchmark {
+
+	private static final String[] FIRST_NAMES = { "Jean", "Jeanne", "Léa", "Louis", "Zoé", "Hugo", "Chloé", "Lucas", "Emma", "Nathan" };
+	private static final String[] LAST_NAMES = { "Dupont", "Durand", "Martin", "Bernard", "Lefèvre", "Moreau", "Petit", "Roux" };
+
+	@Param({ "40000" })
+	private int users;
+
+	@Param({ "e", "jean", "jean d", "nat ber", "hugo roux4", "user3999" })
+	private String query;
+
+	private UserSearchService userSearchService;
+
+	@Setup
+	public void setUp() {
+		List<User> indexed = new ArrayList<>(users);
+		for (int i = 1; i <= users; i++) {
+			User user = BenchmarkFixtures.user(i);
+			user.setFirstName(FIRST_NAMES[i % FIRST_NAMES.length]);
+			user.setLastName(LAST_NAMES[i % LAST_NAMES.length] + (i % 500));
+			indexed.add(user);
+		}
+		userSearchService = new UserSearchService(BenchmarkFixtures.userRepository(indexed), null, null,
+				new ChatMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(userSearchService, "maxResults", 20);
+		ReflectionTestUtils.setField(userSearchService, "maxQueryLength", 64);
+		userSearchService.rebuild();
+	}
+
+	@Benchmark
+	public List<UserDTO> search() {
+		return userSearchService.search(query, 0);
+	}
+}
@@ -0,0 +1,53 @@
+package com.devStudy.chat.websocket.distributed;
+
+import static com.devStudy.chat.service.utils.ConstantValues.MESSAGE_TEXT;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.devStudy.chat.benchmarks.BenchmarkFixtures;
+import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.metrics.ChatMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Encodage d'une trame WebSocket (DistributedChatWebSocketHandler.setMessage), exécuté pour chaque message diffusé
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatFrameEncodingBenchmark {
+
+	private DistributedChatWebSocketHandler handler;
+	private UserDTO sender;
+	private Date now;
+
+	@Setup
+	public void setUp() {
+		// only setMessage is exercised, the collaborators are never called
+		handler = new DistributedChatWebSocketHandler(null, null, null, null, null,
+				new ChatMetrics(new SimpleMeterRegistry()));
+		sender = BenchmarkFixtures.userDTO(1L);
+		now = new Date();
+	}
+
+	@Benchmark
+	public String setMessage() {
+		return handler.setMessage(MESSAGE_TEXT, "Hello everyone, this is a benchmark message", sender, now);
+	}
+}
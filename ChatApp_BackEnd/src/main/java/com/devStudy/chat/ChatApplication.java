@@ -2,11 +2,13 @@ package com.devStudy.chat;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @EnableTransactionManagement
 @EnableScheduling
+@EnableAsync
 @SpringBootApplication
 public class ChatApplication {
     public static void main(String[] args) {
@@ -0,0 +1,42 @@
+package com.devStudy.chat.config;
+
+import java.sql.Connection;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/*
+ * Index partiels (CREATE INDEX ... WHERE) : @Index et ddl-auto ne savent pas les déclarer,
+ * ils sont créés au démarrage s'ils n'existent pas, sur PostgreSQL seulement.
+ */
+@Configuration
+public class DatabaseIndexConfig {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseIndexConfig.class);
+
+    private final DataSource dataSource;
+
+    public DatabaseIndexConfig(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createPartialIndexes() {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                return;
+            }
+            new ResourceDatabasePopulator(new ClassPathResource("db/chatroom_partial_indexes.sql")).populate(connection);
+            LOGGER.info("Partial indexes of the chatrooms table are in place");
+        } catch (Exception e) {
+            // the application still works without them, listings are just slower
+            LOGGER.error("Failed to create the partial indexes of the chatrooms table", e);
+        }
+    }
+}
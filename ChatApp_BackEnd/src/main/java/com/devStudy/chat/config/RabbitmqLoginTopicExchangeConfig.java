@@ -3,16 +3,36 @@ package com.devStudy.chat.config;
 import static com.devStudy.chat.service.utils.ConstantValues.RABBITMQ_QUEUE_Q1;
 import static com.devStudy.chat.service.utils.ConstantValues.RABBITMQ_QUEUE_Q2;
 import static com.devStudy.chat.service.utils.ConstantValues.RABBITMQ_EXCHANGE_NAME;
+import static com.devStudy.chat.service.utils.ConstantValues.RABBITMQ_MAIL_DEAD_LETTER_EXCHANGE;
+import static com.devStudy.chat.service.utils.ConstantValues.RABBITMQ_MAIL_DEAD_LETTER_QUEUE;
+import static com.devStudy.chat.service.utils.ConstantValues.RABBITMQ_MAIL_RETRY_EXCHANGE;
+import static com.devStudy.chat.service.utils.ConstantValues.RABBITMQ_MAIL_RETRY_QUEUE;
+import static com.devStudy.chat.service.utils.ConstantValues.HEADER_MAIL_RETRY_DELAY;
+import static com.devStudy.chat.service.utils.ConstantValues.ROUTING_KEY_ALL_MAILS;
 import static com.devStudy.chat.service.utils.ConstantValues.ROUTING_KEY_RET_PASSWORD;
 import static com.devStudy.chat.service.utils.ConstantValues.ROUTING_KEY_VERIFICATION_CODE;
 
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.HeadersExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.devStudy.chat.service.utils.RabbitMQUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 public class RabbitmqLoginTopicExchangeConfig {
     @Bean Queue queue() { return new Queue(RABBITMQ_QUEUE_Q1); }
@@ -31,4 +51,81 @@ public class RabbitmqLoginTopicExchangeConfig {
     Binding queueBinding2(){
         return BindingBuilder.bind(queue2()).to(exchange()).with(ROUTING_KEY_VERIFICATION_CODE);
     }
+
+    /*
+     * Retry queues : one queue per backoff delay, with a queue-level TTL. A failed mail request is routed by its
+     * HEADER_MAIL_RETRY_DELAY header to the queue of its delay, waits there, then is dead-lettered back to
+     * RABBITMQ_EXCHANGE_NAME with its original routing key, so it lands again in q1/q2.
+     * RabbitMQ only expires messages at the head of a queue : all messages of a queue share the same TTL,
+     * so a long backoff never holds back a shorter one (a per-message TTL on a single queue would).
+     * No consumer reads these queues, the consumers of q1/q2 are never blocked by a backoff.
+     */
+    @Bean(name = RABBITMQ_MAIL_RETRY_EXCHANGE)
+    HeadersExchange mailRetryExchange() { return new HeadersExchange(RABBITMQ_MAIL_RETRY_EXCHANGE); }
+
+    @Bean
+    Declarables mailRetryQueues(@Value("${chatroomApp.mail.retry.maxAttempts}") int maxAttempts,
+                                @Value("${chatroomApp.mail.retry.initialInterval}") long initialInterval,
+                                @Value("${chatroomApp.mail.retry.multiplier}") double multiplier,
+                                @Value("${chatroomApp.mail.retry.maxInterval}") long maxInterval) {
+        List<Declarable> declarables = new ArrayList<>();
+        // the last attempt goes to the dead letter queue, the delays capped by maxInterval share a queue
+        RabbitMQUtil.retryDelays(maxAttempts, initialInterval, multiplier, maxInterval).forEach(delay -> {
+            // the delay is part of the queue name : changing the backoff declares new queues instead of conflicting TTLs
+            Queue retryQueue = QueueBuilder.durable(String.format(RABBITMQ_MAIL_RETRY_QUEUE, delay))
+                    .ttl(Math.toIntExact(delay))
+                    .deadLetterExchange(RABBITMQ_EXCHANGE_NAME)
+                    .build();
+            declarables.add(retryQueue);
+            declarables.add(BindingBuilder.bind(retryQueue).to(mailRetryExchange())
+                    .whereAll(Map.of(HEADER_MAIL_RETRY_DELAY, String.valueOf(delay))).match());
+        });
+        return new Declarables(declarables);
+    }
+
+    // Requests still failing after the last attempt are parked here for inspection
+    @Bean(name = RABBITMQ_MAIL_DEAD_LETTER_EXCHANGE)
+    TopicExchange mailDeadLetterExchange() { return new TopicExchange(RABBITMQ_MAIL_DEAD_LETTER_EXCHANGE); }
+
+    @Bean
+    Queue mailDeadLetterQueue() { return QueueBuilder.durable(RABBITMQ_MAIL_DEAD_LETTER_QUEUE).build(); }
+
+    @Bean
+    Binding mailDeadLetterBinding() {
+        return BindingBuilder.bind(mailDeadLetterQueue()).to(mailDeadLetterExchange()).with(ROUTING_KEY_ALL_MAILS);
+    }
+
+    /*
+     * Batch consumers : up to batchSize requests are taken from the queue (the prefetch covers the batch)
+     * and sent over a single SMTP session. A partial batch is delivered once receiveTimeout elapses without
+     * a new message, so a verification code never waits more than a few ms for its batch to fill.
+     */
+    @Bean
+    SimpleRabbitListenerContainerFactory verificationCodeMailListenerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${chatroomApp.mail.verificationCode.batchSize}") int batchSize,
+            @Value("${chatroomApp.mail.verificationCode.receiveTimeout}") long receiveTimeout) {
+        return mailBatchListenerFactory(configurer, connectionFactory, batchSize, receiveTimeout);
+    }
+
+    @Bean
+    SimpleRabbitListenerContainerFactory resetPasswordMailListenerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${chatroomApp.mail.resetPassword.batchSize}") int batchSize,
+            @Value("${chatroomApp.mail.resetPassword.receiveTimeout}") long receiveTimeout) {
+        return mailBatchListenerFactory(configurer, connectionFactory, batchSize, receiveTimeout);
+    }
+
+    private static SimpleRabbitListenerContainerFactory mailBatchListenerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            int batchSize, long receiveTimeout) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(batchSize * 2);
+        factory.setReceiveTimeout(receiveTimeout);
+        return factory;
+    }
 }
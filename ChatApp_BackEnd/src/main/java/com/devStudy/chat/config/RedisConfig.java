@@ -1,9 +1,13 @@
 package com.devStudy.chat.config;
 
+import java.util.List;
+
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -25,4 +29,47 @@ public class RedisConfig {
         container.setConnectionFactory(connectionFactory);
         return container;
     }
+
+    // cooldown + token bucket par email pour les demandes de code de vérification, exécuté atomiquement côté Redis
+    @Bean
+    public RedisScript<Long> verificationCodeRateLimitScript() {
+        return RedisScript.of(new ClassPathResource("scripts/verification_code_rate_limit.lua"), Long.class);
+    }
+
+    // GET + comparaison + DEL des clés associées, un seul aller-retour : un code ne peut pas être consommé deux fois
+    @Bean
+    public RedisScript<Long> compareAndDeleteScript() {
+        return RedisScript.of(new ClassPathResource("scripts/compare_and_delete.lua"), Long.class);
+    }
+
+    // INCR + EXPIRE atomiques : un compteur n'est jamais laissé sans TTL
+    @Bean
+    public RedisScript<Long> incrWithExpireScript() {
+        return RedisScript.of(new ClassPathResource("scripts/incr_with_expire.lua"), Long.class);
+    }
+
+    // présence d'un utilisateur + instance propriétaire, posées ensemble
+    @Bean
+    public RedisScript<Long> presenceRegisterScript() {
+        return RedisScript.of(new ClassPathResource("scripts/presence_register.lua"), Long.class);
+    }
+
+    // retrait des présences dont l'instance appelante est encore propriétaire
+    @Bean
+    public RedisScript<Long> presenceRemoveScript() {
+        return RedisScript.of(new ClassPathResource("scripts/presence_remove.lua"), Long.class);
+    }
+
+    // purge atomique des présences d'une instance arrêtée
+    @SuppressWarnings("rawtypes")
+    @Bean
+    public RedisScript<List> presencePurgeScript() {
+        return RedisScript.of(new ClassPathResource("scripts/presence_purge.lua"), List.class);
+    }
+
+    // numéro de séquence des messages d'un chatroom, réamorcé depuis MongoDB si le compteur a disparu
+    @Bean
+    public RedisScript<Long> chatroomSeqNextScript() {
+        return RedisScript.of(new ClassPathResource("scripts/chatroom_seq_next.lua"), Long.class);
+    }
 }
@@ -13,6 +13,7 @@ import com.devStudy.chat.security.loginVerificationCode.VerificationCodeAuthenti
 import com.devStudy.chat.security.loginVerificationCode.VerificationCodeAuthenticationProvider;
 import com.devStudy.chat.service.implementations.BlackListService;
 import com.devStudy.chat.service.implementations.JwtTokenService;
+import com.devStudy.chat.service.implementations.PasswordHashingService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
@@ -24,7 +25,9 @@ import org.springframework.security.config.annotation.authentication.builders.Au
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -59,26 +62,42 @@ public class WebSecurityConfig {
     @Value("${chatroomApp.MAX_FAILED_ATTEMPTS}")
     private int maxFailedAttempts;
 
+    @Value("${chatroomApp.password.encoder}")
+    private String passwordEncoderId;
+
+    @Value("${chatroomApp.password.bcryptStrength}")
+    private int bcryptStrength;
+
+    @Value("${management.server.port}")
+    private int managementPort;
+
     /**
-     * C'est pour encoder le mot de passe
+     * C'est pour encoder le mot de passe avec l'algorithme configuré (bcrypt ou argon2),
+     * les anciens hash BCrypt sans préfixe {id} restent vérifiables et sont re-hachés à la connexion
      * @return PasswordEncoder
      */
     @Bean
     PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = Map.of(
+                "bcrypt", bcrypt,
+                "argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(passwordEncoderId, encoders);
+        passwordEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return passwordEncoder;
     }
 
     /**
      * C'est pour instancier le AccountAuthenticationProvider avec les dépendances
-     * @param passwordEncoder
+     * @param passwordHashingService
      * @param userService
      * @return AccountAuthenticationProvider
      */
     @Bean
     AccountAuthenticationProvider authProvider(
-            PasswordEncoder passwordEncoder,
+            PasswordHashingService passwordHashingService,
             UserService userService) {
-		return new AccountAuthenticationProvider(passwordEncoder, userService, maxFailedAttempts);
+		return new AccountAuthenticationProvider(passwordHashingService, userService, maxFailedAttempts);
 	}
 
     /**
@@ -164,6 +183,11 @@ public class WebSecurityConfig {
                 	auth
                 		.requestMatchers("/api/users/**","/api/chatrooms/**").hasRole("USER")
                         .requestMatchers("/api/login/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        // metrics : only on the management port (neither published nor proxied by nginx), scraped from the internal network
+                        .requestMatchers(request -> request.getLocalPort() == managementPort
+                                && "/actuator/prometheus".equals(request.getRequestURI())).permitAll()
+                        .requestMatchers("/actuator/**").denyAll()
                         .requestMatchers("/ws/chatroom/**").hasRole("USER")
                         .anyRequest().authenticated()
                 )
@@ -1,6 +1,8 @@
 package com.devStudy.chat.config;
 
+import com.devStudy.chat.websocket.distributed.ChatDrainService;
 import com.devStudy.chat.websocket.distributed.DistributedChatWebSocketHandler;
+import com.devStudy.chat.websocket.distributed.RoomAffinityService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,17 +25,22 @@ public class WebSocketConfig implements WebSocketConfigurer {
 		
 	//private final ChatWebSocketHandler chatWebSocketHandler;
 	private final DistributedChatWebSocketHandler chatWebSocketHandler;
+	private final RoomAffinityService roomAffinityService;
+	private final ChatDrainService chatDrainService;
 
 	@Autowired
-	public WebSocketConfig(DistributedChatWebSocketHandler chatWebSocketHandler) {
+	public WebSocketConfig(DistributedChatWebSocketHandler chatWebSocketHandler, RoomAffinityService roomAffinityService,
+						   ChatDrainService chatDrainService) {
 		this.chatWebSocketHandler = chatWebSocketHandler;
+		this.roomAffinityService = roomAffinityService;
+		this.chatDrainService = chatDrainService;
 	}
 
 	@Override
 	public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
 		logger.info("Registering WebSocket handlers with endpoint: {}", CHAT_ENDPOINT);
 		registry.addHandler(chatWebSocketHandler, CHAT_ENDPOINT)
-            	.addInterceptors(new ChatHandShakeInterceptor(CHAT_ENDPOINT))
+            	.addInterceptors(chatDrainService, new ChatHandShakeInterceptor(CHAT_ENDPOINT, roomAffinityService))
             	.setAllowedOrigins("*");
 		logger.info("WebSocket handlers registered successfully");
 	}
@@ -7,12 +7,14 @@ import org.springframework.web.bind.annotation.*;
 
 import com.devStudy.chat.dto.ChatMsgDTO;
 import com.devStudy.chat.dto.ChatroomRequestDTO;
+import com.devStudy.chat.dto.KeysetPageDTO;
 import com.devStudy.chat.dto.ModifyChatroomDTO;
 import com.devStudy.chat.dto.ModifyChatroomRequestDTO;
 import com.devStudy.chat.dto.UserDTO;
 import com.devStudy.chat.service.implementations.ChatMessageService;
 import com.devStudy.chat.service.implementations.ChatroomService;
 import com.devStudy.chat.service.implementations.UserService;
+import com.devStudy.chat.websocket.distributed.RoomAffinityService;
 
 import jakarta.annotation.Resource;
 import java.util.ArrayList;
@@ -32,6 +34,9 @@ public class ChatroomManageController {
 	@Resource
 	private ChatMessageService chatMessageService;
 
+	@Resource
+	private RoomAffinityService roomAffinityService;
+
 	/**
 	 * Cettet méthode permet créer une chatroom Si une chatroom existe déjà (ou il y
 	 * a des informations conflicts que les chatrooms existantes), on va retourner
@@ -104,6 +109,25 @@ public class ChatroomManageController {
 		return ResponseEntity.status(403).body(Page.empty());
 	}
 
+	/**
+	 * Cette méthode permet d'obtenir les utilisateurs non invités à une chatroom en pagination keyset :
+	 * sans curseur on obtient la première page, ensuite on renvoie le nextCursor de la page précédente.
+	 * Un curseur invalide donne un code 400, un utilisateur qui n'est pas le propriétaire un code 403
+	 */
+	@GetMapping("/{chatroomId}/users/not-invited/keyset")
+	public ResponseEntity<KeysetPageDTO<UserDTO>> getUsersNotInvitedInChatroomAfter(@PathVariable long chatroomId,
+			@RequestParam(required = false) String cursor, HttpServletRequest request) {
+		final long userId = userService.getUserId(request);
+		if (!chatroomService.checkUserIsOwnerOfChatroom(userId, chatroomId)) {
+			return ResponseEntity.status(403).body(new KeysetPageDTO<>(List.of(), null));
+		}
+		try {
+			return ResponseEntity.ok(userService.findUsersNotInvitedToChatroomAfter(chatroomId, userId, cursor));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body(new KeysetPageDTO<>(List.of(), null));
+		}
+	}
+
 	@PutMapping("/{chatroomId}")
 	public ResponseEntity<Boolean> updateChatroomDetails(@PathVariable long chatroomId,
 			@RequestBody ModifyChatroomRequestDTO chatroomRequest, HttpServletRequest request) {
@@ -154,4 +178,15 @@ public class ChatroomManageController {
 			@RequestParam(defaultValue = "0") int page) {
 		return ResponseEntity.ok(chatMessageService.getChatMessagesByChatroomIdByPage(chatroomId, page));
 	}
+
+	/**
+	 * Cette méthode permet d'obtenir l'adresse du noeud qui possède une chatroom,
+	 * le client la transmet à l'ouverture du WebSocket pour que le proxy l'envoie sur ce noeud
+	 */
+	@GetMapping("/{chatroomId}/node")
+	public ResponseEntity<String> getChatroomNode(@PathVariable long chatroomId) {
+		return roomAffinityService.ownerOf(chatroomId)
+				.map(ResponseEntity::ok)
+				.orElseGet(() -> ResponseEntity.status(404).body(""));
+	}
 }
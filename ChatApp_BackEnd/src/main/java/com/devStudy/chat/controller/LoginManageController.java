@@ -4,11 +4,15 @@ import com.devStudy.chat.model.User;
 import com.devStudy.chat.service.implementations.BlackListService;
 import com.devStudy.chat.service.implementations.VerificationCodeService;
 import com.devStudy.chat.service.utils.RabbitMQUtil;
+import com.devStudy.chat.service.utils.Exceptions.LoginOverloadedException;
 import jakarta.servlet.http.Cookie;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -25,6 +29,7 @@ import com.devStudy.chat.service.implementations.UserService;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
@@ -45,6 +50,9 @@ public class LoginManageController {
 
 	@Resource
 	private RabbitMQUtil rabbitMQUtil;
+
+	@Resource
+	private VerificationCodeService verificationCodeService;
 	
 	/**
      * Cette méthode permet d'obtenir le les informations de l'utilisateur connecté
@@ -67,6 +75,10 @@ public class LoginManageController {
 		return ResponseEntity.ok(new UserDTO());
     }
 
+	/**
+	 * Cette méthode permet de demander un code de vérification
+	 * Les demandes répétées sont refusées (cooldown + token bucket dans Redis) avant d'atteindre RabbitMQ et le SMTP
+	 */
 	@GetMapping("/verification-code")
 	public ResponseEntity<Map<String,String>> getVerificationCode(@RequestParam String email) {
 		Optional<User> user = userService.findUserOrAdmin(email, false);
@@ -76,6 +88,14 @@ public class LoginManageController {
 					Map.entry("msg", "User n'existe pas, veuillez vous inscrire"))
 			);
 		}
+		long retryAfter = verificationCodeService.acquireCodeRequest(email);
+		if (retryAfter > 0) {
+			return ResponseEntity.ok(Map.ofEntries(
+					Map.entry("status", "error"),
+					Map.entry("msg", String.format("Un code vient déjà d'être demandé, veuillez réessayer dans %d secondes",
+							TimeUnit.MILLISECONDS.toSeconds(retryAfter + 999))))
+			);
+		}
 		return ResponseEntity.ok(Map.ofEntries(Map.entry("status", "success"),
 				Map.entry("msg", rabbitMQUtil.sendVerificationCodeRequestToMQ(email))));
 	}
@@ -113,6 +133,17 @@ public class LoginManageController {
 		return ResponseEntity.ok(userService.addUser(createCompteDTO));
 	}
 
+	/**
+	 * Cette méthode permet de refuser la création de compte ou la réinitialisation du mot de passe
+	 * quand le pool de hachage est saturé : 503 avec Retry-After, comme pour la connexion
+	 */
+	@ExceptionHandler(LoginOverloadedException.class)
+	public ResponseEntity<Map<String, String>> handleHashingOverload(LoginOverloadedException exception) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+				.body(Map.of("message", exception.getMessage()));
+	}
+
 	@PostMapping(value = "/logout")
 	public ResponseEntity<?> logout(HttpServletRequest request){
 		String jwtToken = jwtTokenService.getTokenFromCookie(request);
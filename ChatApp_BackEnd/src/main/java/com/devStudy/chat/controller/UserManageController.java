@@ -13,10 +13,14 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.devStudy.chat.dto.ChatroomDTO;
 import com.devStudy.chat.dto.ChatroomWithOwnerAndStatusDTO;
+import com.devStudy.chat.dto.KeysetPageDTO;
 import com.devStudy.chat.dto.UserDTO;
 import com.devStudy.chat.service.implementations.ChatroomService;
+import com.devStudy.chat.service.implementations.UserSearchService;
 import com.devStudy.chat.service.implementations.UserService;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/users")
 public class UserManageController {
@@ -27,6 +31,9 @@ public class UserManageController {
 	@Resource
 	private ChatroomService chatroomService;
 
+	@Resource
+	private UserSearchService userSearchService;
+
 	/**
      * Cette méthode permet d'obtenir tous les informations des autres utilisateurs sauf l'utilisateur connecté
      * Elle va etre utilisée dans le processus du planificateur de chatroom (inviter des utilisateurs)
@@ -36,6 +43,15 @@ public class UserManageController {
         return ResponseEntity.ok(userService.findAllOtherUsersNotAdminByPage(page, userService.getUserId(request)));
     }
     
+    /**
+     * Cette méthode permet de rechercher les autres utilisateurs par début du prénom, du nom ou du mail
+     * (ex: "jea dup"), la réponse est limitée à chatroomApp.userSearch.maxResults utilisateurs
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<UserDTO>> searchUsers(@RequestParam(defaultValue = "") String q, HttpServletRequest request){
+        return ResponseEntity.ok(userSearchService.search(q, userService.getUserId(request)));
+    }
+
     /**
      * Cette méthode permet d'obtenir tous les chatrooms créés par l'utilisateur connecté
      */
@@ -57,4 +73,43 @@ public class UserManageController {
         }
         return ResponseEntity.status(403).body(Page.empty());
     }
+
+    /*
+     * Variantes keyset des listes ci-dessus : pas de numéro de page ni de total, on renvoie le nextCursor
+     * de la réponse précédente (absent pour la première page). Un curseur invalide donne un code 400
+     */
+    @GetMapping("/others/keyset")
+    public ResponseEntity<KeysetPageDTO<UserDTO>> getOtherUsersAfter(@RequestParam(required = false) String cursor, HttpServletRequest request){
+        try {
+            return ResponseEntity.ok(userService.findAllOtherUsersNotAdminAfter(cursor, userService.getUserId(request)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new KeysetPageDTO<>(List.of(), null));
+        }
+    }
+
+    @GetMapping("/{userId}/chatrooms/owned/keyset")
+    public ResponseEntity<KeysetPageDTO<ChatroomDTO>> getChatroomsOwnedByUserAfter(@PathVariable long userId,
+            @RequestParam(required = false) String cursor, HttpServletRequest request){
+        if(userId != userService.getUserId(request)){
+            return ResponseEntity.status(403).body(new KeysetPageDTO<>(List.of(), null));
+        }
+        try {
+            return ResponseEntity.ok(chatroomService.getChatroomsOwnedOfUserAfter(userId, cursor));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new KeysetPageDTO<>(List.of(), null));
+        }
+    }
+
+    @GetMapping("/{userId}/chatrooms/joined/keyset")
+    public ResponseEntity<KeysetPageDTO<ChatroomWithOwnerAndStatusDTO>> getChatroomsJoinedByUserAfter(@PathVariable long userId,
+            @RequestParam(required = false) String cursor, HttpServletRequest request){
+        if(userId != userService.getUserId(request)){
+            return ResponseEntity.status(403).body(new KeysetPageDTO<>(List.of(), null));
+        }
+        try {
+            return ResponseEntity.ok(chatroomService.getChatroomsJoinedOfUserAfter(userId, false, cursor));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new KeysetPageDTO<>(List.of(), null));
+        }
+    }
 }
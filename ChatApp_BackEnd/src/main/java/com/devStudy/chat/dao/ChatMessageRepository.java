@@ -1,6 +1,8 @@
 package com.devStudy.chat.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
@@ -15,4 +17,17 @@ public interface ChatMessageRepository extends MongoRepository<ChatMessage, Obje
 	List<ChatMessage> findByChatroomId(long chatroomId);
 	
 	Page<ChatMessage> findByChatroomId(long chatroomId, Pageable pageable);
+	
+	// seuls les _id sont lus, pour supprimer les messages d'un chatroom par lots
+	@Query(value = "{ chatroomId : ?0 }", fields = "{ _id : 1 }")
+	List<ChatMessage> findIdsByChatroomId(long chatroomId, Pageable pageable);
+	
+	// dernier numéro de séquence stocké, pour réamorcer le compteur Redis
+	Optional<ChatMessage> findFirstByChatroomIdOrderBySeqDesc(long chatroomId);
+	
+	// messages manqués depuis lastSeq (index chatroom_seq), triés par le Pageable
+	List<ChatMessage> findByChatroomIdAndSeqGreaterThan(long chatroomId, long seq, Pageable pageable);
+	
+	// un seul deleteMany sur les _id du lot
+	long deleteByIdIn(Collection<ObjectId> ids);
 }
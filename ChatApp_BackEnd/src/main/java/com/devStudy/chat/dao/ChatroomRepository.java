@@ -1,15 +1,28 @@
 package com.devStudy.chat.dao;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import com.devStudy.chat.dto.ChatroomDTO;
+import com.devStudy.chat.dto.ChatroomWithOwnerAndStatusDTO;
 import com.devStudy.chat.model.Chatroom;
+import com.devStudy.chat.model.ChatroomStatus;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ChatroomRepository extends JpaRepository<Chatroom, Long> {
+    String STATUS_ENUM = "com.devStudy.chat.model.ChatroomStatus.";
+    // même règle que chatroom.isActive() && chatroom.getStatus() == ACTIVE : le statut est lu, il n'est plus comparé à l'heure courante
+    String CHATROOM_STATUS = "CASE WHEN c.active = true AND c.status = " + STATUS_ENUM + "ACTIVE THEN true ELSE false END";
+    // prédicat des index partiels (db/chatroom_partial_indexes.sql) : les listes ne parcourent pas les chatrooms expirés
+    String NOT_EXPIRED = "c.status <> " + STATUS_ENUM + "EXPIRED";
+
     Optional<Chatroom> findById(long chatroomId);
     //Optional<Chatroom> findByTitreAndDescriptionAndHoraireCommenceAndHoraireTermine(String titre, String description, LocalDateTime horaireCommence, LocalDateTime horaireTermine);
 
@@ -18,16 +31,103 @@ public interface ChatroomRepository extends JpaRepository<Chatroom, Long> {
     @Query("update Chatroom c set c.active = ?2 where c.id = ?1")
     void updateActive(long chatroomId, boolean status);
 
-    //Cette méthode permet de trouver tous les chatrooms ouverts par un utilisateur, le chatroom doit être non expiré
-    //@Query(value = "select c.* from chatrooms c, user_chatroom_relationship r where c.horaire_termine >= CURRENT_TIMESTAMP and c.id = r.chatroom_id and r.user_id = ?1", nativeQuery = true)
-    @Query("SELECT c FROM Chatroom c JOIN c.members u WHERE u.id = ?1 AND c.horaireTermine >= CURRENT_TIMESTAMP")
-    Page<Chatroom> findChatroomsJoinedOfUserByPage(long userId, Pageable pageable);
-    
-    //Cette méthode permet de trouver tous les chatrooms créés par un utilisateur, le chatroom doit être non expiré
-    //@Query(value = "select c.* from chatrooms c where c.horaire_termine >= CURRENT_TIMESTAMP and c.creator_id = ?1", nativeQuery = true)
-    @Query("SELECT c FROM Chatroom c JOIN c.creator u WHERE u.id = ?1 AND c.horaireTermine >= CURRENT_TIMESTAMP")
-    Page<Chatroom> findChatroomsCreatedByUserByPage(long userId, Pageable pageable);
-	
+    //Projections des listes de chatrooms : une seule requête par page (plus le count), le propriétaire est lu dans la même jointure
+    //et le statut (actif et commencé) est calculé en SQL, aucune entité Chatroom/User n'est chargée
+    @Query(value = "SELECT new com.devStudy.chat.dto.ChatroomWithOwnerAndStatusDTO(c.id, c.titre, c.description, "
+            + CHATROOM_STATUS + ", o.id, o.firstName, o.lastName, o.mail) "
+            + "FROM Chatroom c JOIN c.creator o JOIN c.members u WHERE u.id = ?1 AND " + NOT_EXPIRED,
+           countQuery = "SELECT count(c) FROM Chatroom c JOIN c.members u WHERE u.id = ?1 AND " + NOT_EXPIRED)
+    Page<ChatroomWithOwnerAndStatusDTO> findChatroomDTOsJoinedOfUserByPage(long userId, Pageable pageable);
+
+    @Query(value = "SELECT new com.devStudy.chat.dto.ChatroomWithOwnerAndStatusDTO(c.id, c.titre, c.description, "
+            + CHATROOM_STATUS + ", o.id, o.firstName, o.lastName, o.mail) "
+            + "FROM Chatroom c JOIN c.creator o WHERE o.id = ?1 AND " + NOT_EXPIRED,
+           countQuery = "SELECT count(c) FROM Chatroom c WHERE c.creator.id = ?1 AND " + NOT_EXPIRED)
+    Page<ChatroomWithOwnerAndStatusDTO> findChatroomDTOsCreatedByUserByPage(long userId, Pageable pageable);
+
+    @Query(value = "SELECT new com.devStudy.chat.dto.ChatroomDTO(c.id, c.titre, c.description, " + CHATROOM_STATUS + ") "
+            + "FROM Chatroom c WHERE c.creator.id = ?1 AND " + NOT_EXPIRED,
+           countQuery = "SELECT count(c) FROM Chatroom c WHERE c.creator.id = ?1 AND " + NOT_EXPIRED)
+    Page<ChatroomDTO> findOwnedChatroomDTOsByPage(long userId, Pageable pageable);
+
+    //Variantes keyset des trois listes : triées par (titre, id) et reprises après le curseur, sans OFFSET ni count ;
+    //la première page part de ('', 0)
+    @Query("SELECT new com.devStudy.chat.dto.ChatroomWithOwnerAndStatusDTO(c.id, c.titre, c.description, "
+            + CHATROOM_STATUS + ", o.id, o.firstName, o.lastName, o.mail) "
+            + "FROM Chatroom c JOIN c.creator o JOIN c.members u WHERE u.id = ?1 AND " + NOT_EXPIRED + " "
+            + "AND (c.titre, c.id) > (?2, ?3) ORDER BY c.titre, c.id")
+    List<ChatroomWithOwnerAndStatusDTO> findChatroomDTOsJoinedOfUserAfter(long userId, String titre, long chatroomId, Limit limit);
+
+    @Query("SELECT new com.devStudy.chat.dto.ChatroomWithOwnerAndStatusDTO(c.id, c.titre, c.description, "
+            + CHATROOM_STATUS + ", o.id, o.firstName, o.lastName, o.mail) "
+            + "FROM Chatroom c JOIN c.creator o WHERE o.id = ?1 AND " + NOT_EXPIRED + " "
+            + "AND (c.titre, c.id) > (?2, ?3) ORDER BY c.titre, c.id")
+    List<ChatroomWithOwnerAndStatusDTO> findChatroomDTOsCreatedByUserAfter(long userId, String titre, long chatroomId, Limit limit);
+
+    @Query("SELECT new com.devStudy.chat.dto.ChatroomDTO(c.id, c.titre, c.description, " + CHATROOM_STATUS + ") "
+            + "FROM Chatroom c WHERE c.creator.id = ?1 AND " + NOT_EXPIRED + " "
+            + "AND (c.titre, c.id) > (?2, ?3) ORDER BY c.titre, c.id")
+    List<ChatroomDTO> findOwnedChatroomDTOsAfter(long userId, String titre, long chatroomId, Limit limit);
+
+    //Utilisateurs que addMembers ajouterait : ids connus et pas encore membres (mêmes conditions que l'INSERT)
+    @Query(value = "SELECT u.id FROM users u WHERE u.id IN ?2 "
+            + "AND NOT EXISTS (SELECT 1 FROM user_chatroom_relationship r WHERE r.chatroom_id = ?1 AND r.user_id = u.id)",
+           nativeQuery = true)
+    List<Long> findIdsToAdd(long chatroomId, Collection<Long> userIds);
+
+    //Utilisateurs que removeMembers retirerait : membres actuels, hors créateur (mêmes conditions que le DELETE)
+    @Query(value = "SELECT r.user_id FROM user_chatroom_relationship r WHERE r.chatroom_id = ?1 AND r.user_id IN ?2 "
+            + "AND r.user_id <> (SELECT c.creator_id FROM chatrooms c WHERE c.id = ?1)",
+           nativeQuery = true)
+    List<Long> findIdsToRemove(long chatroomId, Collection<Long> userIds);
+
+    //Ajout des membres en une seule requête ensembliste : les ids inconnus et les membres déjà présents sont ignorés,
+    //les collections members/joinedRooms ne sont pas chargées
+    @Modifying
+    @Query(value = "INSERT INTO user_chatroom_relationship (user_id, chatroom_id) "
+            + "SELECT u.id, ?1 FROM users u WHERE u.id IN ?2 "
+            + "AND NOT EXISTS (SELECT 1 FROM user_chatroom_relationship r WHERE r.chatroom_id = ?1 AND r.user_id = u.id)",
+           nativeQuery = true)
+    int addMembers(long chatroomId, Collection<Long> userIds);
+
+    //Suppression des membres en une seule requête, le créateur du chatroom n'est jamais retiré
+    @Modifying
+    @Query(value = "DELETE FROM user_chatroom_relationship WHERE chatroom_id = ?1 AND user_id IN ?2 "
+            + "AND user_id <> (SELECT c.creator_id FROM chatrooms c WHERE c.id = ?1)",
+           nativeQuery = true)
+    int removeMembers(long chatroomId, Collection<Long> userIds);
+
+    //Suppression d'un chatroom sans charger ses membres : Hibernate commence par un DELETE ensembliste
+    //sur user_chatroom_relationship (table de jointure de joinedRooms), puis supprime le chatroom
+    @Modifying
+    @Query("DELETE FROM Chatroom c WHERE c.id = ?1")
+    int deleteChatroomById(long chatroomId);
+
+    //Créateur et membres d'un chatroom : les utilisateurs dont les listes de chatrooms changent avec lui
+    @Query(value = "SELECT c.creator_id FROM chatrooms c WHERE c.id = ?1 "
+            + "UNION SELECT r.user_id FROM user_chatroom_relationship r WHERE r.chatroom_id = ?1",
+           nativeQuery = true)
+    List<Long> findAffectedUserIds(long chatroomId);
+
+    //Même chose pour un lot de chatrooms (changements de statut en masse)
+    @Query(value = "SELECT c.creator_id FROM chatrooms c WHERE c.id IN ?1 "
+            + "UNION SELECT r.user_id FROM user_chatroom_relationship r WHERE r.chatroom_id IN ?1",
+           nativeQuery = true)
+    List<Long> findAffectedUserIds(Collection<Long> chatroomIds);
+
+    //Cycle de vie : chatrooms programmés dont l'horaire de début est passé, et chatrooms non expirés dont l'horaire de fin est passé ;
+    //les deux lectures suivent un index partiel (horaire_commence des SCHEDULED, horaire_termine des non expirés)
+    @Query("SELECT c.id FROM Chatroom c WHERE c.status = " + STATUS_ENUM + "SCHEDULED AND c.horaireCommence <= ?1 AND c.horaireTermine >= ?1")
+    List<Long> findChatroomIdsToActivate(LocalDateTime now, Limit limit);
+
+    @Query("SELECT c.id FROM Chatroom c WHERE " + NOT_EXPIRED + " AND c.horaireTermine < ?1")
+    List<Long> findChatroomIdsToExpire(LocalDateTime now, Limit limit);
+
+    //Changement de statut en masse, une seule requête par lot ; les lignes déjà passées dans ce statut ne sont pas comptées
+    @Modifying
+    @Query("UPDATE Chatroom c SET c.status = ?2 WHERE c.id IN ?1 AND c.status <> ?2")
+    int updateStatus(Collection<Long> chatroomIds, ChatroomStatus status);
+
     @Query("SELECT c FROM Chatroom c JOIN c.creator u WHERE c.id = ?1 AND u.id = ?2")
     Optional<Chatroom> findByIdAndCreatorId(long chatroomId, long userId);
 }
@@ -1,16 +1,29 @@
 package com.devStudy.chat.dao;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.devStudy.chat.model.User;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+    //Utilisateurs non administrateurs, hors créateur (?2), sans ligne dans user_chatroom_relationship pour le chatroom ?1 :
+    //anti-jointure NOT EXISTS servie par idx_relationship_chatroom_user, parcours dans l'ordre de idx_users_admin_name
+    String USERS_NOT_INVITED = "FROM users u WHERE u.is_admin = false AND u.id <> ?2 "
+            + "AND NOT EXISTS (SELECT 1 FROM user_chatroom_relationship r WHERE r.chatroom_id = ?1 AND r.user_id = u.id)";
+    String USERS_NOT_INVITED_ORDER = " ORDER BY u.firstname, u.lastname, u.id";
+    String USERS_NOT_INVITED_BY_PAGE = "SELECT u.* " + USERS_NOT_INVITED + USERS_NOT_INVITED_ORDER;
+    //keyset : la page suivante reprend strictement après le dernier (prénom, nom, id) renvoyé, sans OFFSET ni count
+    String USERS_NOT_INVITED_FIRST = "SELECT u.* " + USERS_NOT_INVITED + USERS_NOT_INVITED_ORDER + " LIMIT ?3";
+    String USERS_NOT_INVITED_AFTER = "SELECT u.* " + USERS_NOT_INVITED
+            + " AND (u.firstname, u.lastname, u.id) > (?3, ?4, ?5)" + USERS_NOT_INVITED_ORDER + " LIMIT ?6";
 
     Optional<User> findByMailAndAdmin(String mail, boolean isAdmin);
 
@@ -18,6 +31,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     //Page<User> findByActive(boolean isActive, Pageable pageable);
 
+    //Cette méthode permet de parcourir les utilisateurs par lots ordonnés par id (chargement de l'index de recherche), sans OFFSET ni count
+    List<User> findByAdminAndIdGreaterThanOrderByIdAsc(boolean isAdmin, long afterId, Limit limit);
+
     //Cette méthode permet de mise à jour le statut d'un utilisateur
     @Modifying
     @Query("update User u set u.active = ?2 where u.mail = ?1")
@@ -28,6 +44,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("update User u set u.failedAttempts = ?2 where u.mail = ?1")
     void updateFailedAttempts(String userEmail, int failedAttempts);
 
+    //Cette méthode permet d'incrémenter le compteur d'essai de connexion en une seule requête et de renvoyer sa nouvelle valeur
+    //(UPDATE ... RETURNING est exécuté comme une requête, d'où l'absence de @Modifying)
+    @Transactional
+    @Query(value = "UPDATE users SET failed_attempts = failed_attempts + 1 WHERE mail = ?1 RETURNING failed_attempts", nativeQuery = true)
+    Optional<Integer> incrementFailedAttempts(String userEmail);
+
     //Cette méthode permet de mise à jour le mot de passe d'un utilisateur
     @Modifying
     @Query("update User u set u.pwd = ?2 where u.mail = ?1")
@@ -39,12 +61,28 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("select u from User u where u.id <> ?1 and u.admin = false")
     Page<User> findAllOtherUsersNotAdminByPage(long userId, Pageable pageable);
 
+    //Variante keyset de la requête précédente, dans l'ordre de idx_users_admin_name : reprend après (prénom, nom, id),
+    //la première page part de ('', '', 0)
+    @Query(value = "SELECT u.* FROM users u WHERE u.is_admin = false AND u.id <> ?1 "
+            + "AND (u.firstname, u.lastname, u.id) > (?2, ?3, ?4) ORDER BY u.firstname, u.lastname, u.id LIMIT ?5",
+           nativeQuery = true)
+    List<User> findAllOtherUsersNotAdminAfter(long userId, String firstName, String lastName, long id, int limit);
+
     //Cette méthode permet de trouver tous les utilisateurs qui ne sont pas administrateurs et qui sont invités à un chatroom
     //@Query(value = "select u from users u, user_chatroom_relationship r where u.id = r.user_id and r.chatroom_id = ?1", nativeQuery = true)
     @Query("SELECT u FROM User u JOIN u.joinedRooms c WHERE c.id = ?1 AND u.admin = false")
     Page<User> findUsersInvitedToChatroomByPage(long chatroomId, Pageable pageable);
 
     //Cette méthode permet de trouver tous les utilisateurs qui ne sont pas administrateurs et qui ne sont pas invités à un chatroom
-    @Query("SELECT u FROM User u WHERE u.id <> ?2 AND u.admin = false AND u.id NOT IN (SELECT u.id FROM User u JOIN u.joinedRooms c WHERE c.id = ?1)")
+    //(l'ordre est fixé par la requête, le Pageable ne doit porter que la page et sa taille)
+    @Query(value = USERS_NOT_INVITED_BY_PAGE, countQuery = "SELECT count(*) " + USERS_NOT_INVITED, nativeQuery = true)
     Page<User> findUsersNotInvitedToChatroomByPage(long chatroomId, long creatorId, Pageable pageable);
+
+    //Variante keyset de la requête précédente : première page, puis pages suivantes à partir du curseur (prénom, nom, id)
+    @Query(value = USERS_NOT_INVITED_FIRST, nativeQuery = true)
+    List<User> findUsersNotInvitedToChatroomFirst(long chatroomId, long creatorId, int limit);
+
+    @Query(value = USERS_NOT_INVITED_AFTER, nativeQuery = true)
+    List<User> findUsersNotInvitedToChatroomAfter(long chatroomId, long creatorId,
+                                                  String firstName, String lastName, long id, int limit);
 }
@@ -8,6 +8,18 @@ public class ChatroomDTO {
     public String titre;
     public String description;
     public boolean isActif;
+
+    public ChatroomDTO() {
+    }
+
+    // utilisé par les projections JPQL de ChatroomRepository (SELECT new ...)
+    public ChatroomDTO(long id, String titre, String description, boolean isActif) {
+        this.id = id;
+        this.titre = titre;
+        this.description = description;
+        this.isActif = isActif;
+    }
+
     //getters and setters
     public long getId() {
         return this.id;
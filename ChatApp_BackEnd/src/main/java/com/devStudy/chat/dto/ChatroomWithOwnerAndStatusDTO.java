@@ -3,6 +3,23 @@ package com.devStudy.chat.dto;
 public class ChatroomWithOwnerAndStatusDTO extends ChatroomDTO {
 	public UserDTO owner;
 	public boolean isActif;
+
+	public ChatroomWithOwnerAndStatusDTO() {
+	}
+
+	// utilisé par les projections JPQL de ChatroomRepository : le propriétaire vient de la même jointure
+	public ChatroomWithOwnerAndStatusDTO(long id, String titre, String description, boolean isActif,
+			long ownerId, String ownerFirstName, String ownerLastName, String ownerMail) {
+		super(id, titre, description, isActif);
+		this.isActif = isActif;
+		UserDTO ownerDTO = new UserDTO();
+		ownerDTO.setId(ownerId);
+		ownerDTO.setFirstName(ownerFirstName);
+		ownerDTO.setLastName(ownerLastName);
+		ownerDTO.setMail(ownerMail);
+		this.owner = ownerDTO;
+	}
+
 	//getters and setters
 	public UserDTO getOwner() {
 		return this.owner;
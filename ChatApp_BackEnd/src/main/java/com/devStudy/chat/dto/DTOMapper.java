@@ -5,6 +5,7 @@ import static com.devStudy.chat.service.utils.ConstantValues.ISO_LOCAL_DATETIME_
 import java.time.temporal.ChronoUnit;
 
 import com.devStudy.chat.model.Chatroom;
+import com.devStudy.chat.model.ChatroomStatus;
 import com.devStudy.chat.model.User;
 
 /**
@@ -47,7 +48,7 @@ public class DTOMapper {
 		dto.setDescription(chatroom.getDescription());
 		dto.setStartDate(chatroom.getHoraireCommence().format(ISO_LOCAL_DATETIME_MINUTES));
 		dto.setDuration((int) ChronoUnit.DAYS.between(chatroom.getHoraireCommence(), chatroom.getHoraireTermine()));
-		dto.setIsActif(chatroom.isActive() && !chatroom.hasNotStarted());
+		dto.setIsActif(chatroom.isActive() && chatroom.getStatus() == ChatroomStatus.ACTIVE);
 		return dto;
 	}
 }
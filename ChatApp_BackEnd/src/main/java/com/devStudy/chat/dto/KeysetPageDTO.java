@@ -0,0 +1,53 @@
+package com.devStudy.chat.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+import com.devStudy.chat.service.utils.KeysetCursor;
+
+/**
+ * Cette classe permet de représenter une page d'une pagination keyset : le contenu et le curseur de la page suivante
+ * (null s'il n'y en a pas). Contrairement à Page, aucun total n'est calculé.
+ */
+public class KeysetPageDTO<T> {
+    public List<T> content;
+    public String nextCursor;
+
+    public KeysetPageDTO() {
+    }
+
+    public KeysetPageDTO(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Cette méthode permet de construire une page à partir de pageSize + 1 lignes lues :
+     * la ligne en trop indique qu'il existe une page suivante, qui reprendra après la dernière ligne gardée
+     */
+    public static <E, T> KeysetPageDTO<T> fromRows(List<E> rows, int pageSize, Function<E, T> mapper, Function<E, KeysetCursor> cursorOf) {
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = cursorOf.apply(rows.get(pageSize - 1)).encode();
+        }
+        return new KeysetPageDTO<>(rows.stream().map(mapper).toList(), nextCursor);
+    }
+
+    //getters and setters
+    public List<T> getContent() {
+        return this.content;
+    }
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+    public String getNextCursor() {
+        return this.nextCursor;
+    }
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    public boolean isHasNext() {
+        return this.nextCursor != null;
+    }
+}
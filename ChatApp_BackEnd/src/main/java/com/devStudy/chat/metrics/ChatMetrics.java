@@ -0,0 +1,124 @@
+package com.devStudy.chat.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Cette classe regroupe les métriques du chemin critique du chat (exposées sur /actuator/prometheus).
+ * Les meters sont créés une seule fois au démarrage, le chemin d'un message ne fait aucune recherche dans le registry.
+ */
+@Component
+public class ChatMetrics {
+
+    public static final String DROP_SESSION_CLOSED = "session_closed";
+    public static final String DROP_SEND_ERROR = "send_error";
+    public static final String DROP_BUFFER_OVERFLOW = "buffer_overflow";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer messageBroadcastTimer;
+    private final Timer mongoInsertTimer;
+    private final Timer redisPublishTimer;
+    private final Timer pubSubDeliveryLagTimer;
+    private final Timer userSearchTimer;
+
+    private final Counter droppedOnClosedSession;
+    private final Counter droppedOnSendError;
+    private final Counter droppedOnBufferOverflow;
+
+    @Autowired
+    public ChatMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+
+        this.messageBroadcastTimer = Timer.builder("chat.message.broadcast")
+                .description("Time from receiving a chat message to the end of its broadcast")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.mongoInsertTimer = Timer.builder("chat.message.mongo.insert")
+                .description("Time to insert a chat message into MongoDB")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.redisPublishTimer = Timer.builder("chat.redis.publish")
+                .description("Time to publish a broadcast message on the chatroom channel")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.pubSubDeliveryLagTimer = Timer.builder("chat.pubsub.delivery.lag")
+                .description("Delay between the publication of a broadcast message and its reception by another instance")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.userSearchTimer = Timer.builder("user.search")
+                .description("Time to answer a user search from the in-memory prefix index")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        this.droppedOnClosedSession = droppedFramesCounter(DROP_SESSION_CLOSED);
+        this.droppedOnSendError = droppedFramesCounter(DROP_SEND_ERROR);
+        this.droppedOnBufferOverflow = droppedFramesCounter(DROP_BUFFER_OVERFLOW);
+    }
+
+    private Counter droppedFramesCounter(String reason) {
+        return Counter.builder("chat.frames.dropped")
+                .description("WebSocket frames that could not be delivered")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cette méthode permet d'enregistrer une jauge calculée à chaque lecture du registry (ex: scrape Prometheus)
+     */
+    public void registerGauge(String name, String description, Supplier<Number> value) {
+        Gauge.builder(name, value).description(description).register(meterRegistry);
+    }
+
+    public Counter registerCounter(String name, String description, String... tags) {
+        return Counter.builder(name).description(description).tags(tags).register(meterRegistry);
+    }
+
+    public Timer registerTimer(String name, String description) {
+        return Timer.builder(name).description(description).publishPercentileHistogram().register(meterRegistry);
+    }
+
+    public Timer.Sample startSample() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void recordMessageBroadcast(Timer.Sample sample) {
+        sample.stop(messageBroadcastTimer);
+    }
+
+    public Timer getMongoInsertTimer() {
+        return mongoInsertTimer;
+    }
+
+    public Timer getRedisPublishTimer() {
+        return redisPublishTimer;
+    }
+
+    public Timer getUserSearchTimer() {
+        return userSearchTimer;
+    }
+
+    public void recordPubSubDeliveryLag(long sentAtMillis) {
+        // messages published by an instance without the send time carry 0
+        if (sentAtMillis > 0) {
+            pubSubDeliveryLagTimer.record(Math.max(0, System.currentTimeMillis() - sentAtMillis), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void incrementDroppedFrames(String reason) {
+        switch (reason) {
+            case DROP_SESSION_CLOSED -> droppedOnClosedSession.increment();
+            case DROP_SEND_ERROR -> droppedOnSendError.increment();
+            case DROP_BUFFER_OVERFLOW -> droppedOnBufferOverflow.increment();
+            default -> droppedFramesCounter(reason).increment();
+        }
+    }
+}
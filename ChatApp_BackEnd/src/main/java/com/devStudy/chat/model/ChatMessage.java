@@ -4,6 +4,7 @@ import java.util.Date;
 
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.IndexDirection;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -12,6 +13,8 @@ import org.springframework.data.mongodb.core.mapping.Field;
 import com.devStudy.chat.dto.UserDTO;
 
 @Document(collection = "Chat_Messages")
+// reprise après reconnexion : messages d'un chatroom après un numéro de séquence, dans l'ordre
+@CompoundIndex(name = "chatroom_seq", def = "{ 'chatroomId' : 1, 'seq' : 1 }")
 public class ChatMessage {
 	
 	@Id
@@ -27,6 +30,10 @@ public class ChatMessage {
 	@Field("content")
 	private String content;
 	
+	// numéro croissant par chatroom, attribué à l'envoi (compteur Redis)
+	@Field("seq")
+	private long seq;
+	
 	@Field("timestamp")
 	@Indexed(direction = IndexDirection.DESCENDING)
 	private Date timestamp;
@@ -67,6 +74,14 @@ public class ChatMessage {
 		this.content = content;
 	}
 	
+	public long getSeq() {
+		return seq;
+	}
+	
+	public void setSeq(long seq) {
+		this.seq = seq;
+	}
+	
 	public Date getTimestamp() {
 		return timestamp;
 	}
@@ -5,8 +5,12 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
+import org.hibernate.annotations.ColumnDefault;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -17,6 +21,7 @@ import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 
 @Entity
+// les index de la table portent sur les seuls chatrooms non expirés (index partiels) : voir db/chatroom_partial_indexes.sql
 @Table(name = "chatrooms")
 public class Chatroom {
     @Id
@@ -37,6 +42,12 @@ public class Chatroom {
 
     @Column(name = "is_active")
     private boolean active;
+
+    // avancé en masse par ChatroomLifecycleService ; les lignes existantes partent de SCHEDULED et sont corrigées au premier passage
+    @Enumerated(EnumType.STRING)
+    @ColumnDefault("'SCHEDULED'")
+    @Column(name = "status", nullable = false, length = 16)
+    private ChatroomStatus status = ChatroomStatus.SCHEDULED;
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "creator_id", nullable = false) 
@@ -91,6 +102,10 @@ public class Chatroom {
     public boolean isActive() { return active; }
 
     public void setActive(boolean active) { this.active = active; }
+
+    public ChatroomStatus getStatus() { return status; }
+
+    public void setStatus(ChatroomStatus status) { this.status = status; }
     
 	public User getCreator() {
 		return creator;
@@ -108,10 +123,6 @@ public class Chatroom {
 		this.members = members;
 	}
 
-    public boolean hasNotStarted() {
-        return LocalDateTime.now().isBefore(this.horaireCommence);
-    }
-
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
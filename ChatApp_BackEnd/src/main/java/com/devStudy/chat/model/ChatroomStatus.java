@@ -0,0 +1,24 @@
+package com.devStudy.chat.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cycle de vie d'un chatroom selon ses horaires : SCHEDULED -> ACTIVE -> EXPIRED.
+ * Le statut est stocké avec le chatroom et avancé en masse par ChatroomLifecycleService,
+ * les requêtes de listes le lisent au lieu de comparer les horaires à l'heure courante ligne par ligne
+ */
+public enum ChatroomStatus {
+    SCHEDULED,
+    ACTIVE,
+    EXPIRED;
+
+    /**
+     * Cette méthode permet de calculer le statut d'un chatroom à l'instant now (création, modification des horaires)
+     */
+    public static ChatroomStatus at(LocalDateTime horaireCommence, LocalDateTime horaireTermine, LocalDateTime now) {
+        if (horaireTermine.isBefore(now)) {
+            return EXPIRED;
+        }
+        return horaireCommence.isAfter(now) ? SCHEDULED : ACTIVE;
+    }
+}
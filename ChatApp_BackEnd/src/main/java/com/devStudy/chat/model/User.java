@@ -13,7 +13,9 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
-@Table(name = "users", uniqueConstraints = {@UniqueConstraint(columnNames = {"mail","pwd"})})
+@Table(name = "users", uniqueConstraints = {@UniqueConstraint(columnNames = {"mail","pwd"})},
+       // listes d'utilisateurs non administrateurs triées par prénom, nom (dont la liste des non invités d'un chatroom)
+       indexes = {@Index(name = "idx_users_admin_name", columnList = "is_admin, firstname, lastname, id")})
 public class User implements UserDetails {
     @Serial
     private static final long serialVersionUID = 1L;
@@ -49,7 +51,9 @@ public class User implements UserDetails {
 	@ManyToMany
 	@JoinTable(name = "user_chatroom_relationship", 
 			   joinColumns = @JoinColumn(name="user_id"), 
-			   inverseJoinColumns = @JoinColumn(name="chatroom_id")) 
+			   inverseJoinColumns = @JoinColumn(name="chatroom_id"),
+			   // la clé primaire (user_id, chatroom_id) ne sert pas les recherches par chatroom
+			   indexes = @Index(name = "idx_relationship_chatroom_user", columnList = "chatroom_id, user_id")) 
 	private Set<Chatroom> joinedRooms = new HashSet<>();
 	 
     
@@ -1,8 +1,10 @@
 package com.devStudy.chat.security;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.authentication.AuthenticationFailureHandler;
 
+import com.devStudy.chat.service.utils.Exceptions.LoginOverloadedException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,7 +23,13 @@ public class LoginAuthenticationFailureHandler implements AuthenticationFailureH
     public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response,
                                         AuthenticationException exception) throws IOException {
     	response.setContentType("application/json;charset=UTF-8");
-    	response.setStatus(HttpServletResponse.SC_OK);
+    	if (exception instanceof LoginOverloadedException overloaded) {
+    		// the hashing pool is saturated : fail fast, the client retries later
+    		response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(overloaded.getRetryAfterSeconds()));
+    	} else {
+    		response.setStatus(HttpServletResponse.SC_OK);
+    	}
     	
     	Map<String, Object> result = new HashMap<>();
         result.put("status", "error");
@@ -3,7 +3,6 @@ package com.devStudy.chat.security.loginPassword;
 import com.devStudy.chat.model.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -11,10 +10,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 import com.devStudy.chat.service.implementations.UserService;
+import com.devStudy.chat.service.interfaces.PasswordHashingServiceInt;
 
 import java.util.Collection;
 
@@ -22,14 +20,14 @@ public class AccountAuthenticationProvider implements AuthenticationProvider {
 
     private final Logger logger = LoggerFactory.getLogger(AccountAuthenticationProvider.class);
 
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingServiceInt passwordHashingService;
     private final UserService userService;
 
     private final int MAX_FAILED_ATTEMPTS;
 
     //Here we don't use @Autowired for avoiding circular dependency of 'passwordEncoder'
-	public AccountAuthenticationProvider(PasswordEncoder passwordEncoder, UserService userService, int maxFailedAttempts) {
-		this.passwordEncoder = passwordEncoder;
+	public AccountAuthenticationProvider(PasswordHashingServiceInt passwordHashingService, UserService userService, int maxFailedAttempts) {
+		this.passwordHashingService = passwordHashingService;
 		this.userService = userService;
         this.MAX_FAILED_ATTEMPTS = maxFailedAttempts;
 	}
@@ -38,6 +36,7 @@ public class AccountAuthenticationProvider implements AuthenticationProvider {
      * Ce méthode est appelée par le filtre d'authentification pour authentifier l'utilisateur.
      * L'utilisateur est identifié comme admin/user
      * Si un utilisateur a essayé de se connecter plus de 5 fois sans succès, son compte est bloqué
+     * Une connexion réussie ne fait qu'une lecture : le compteur n'est remis à zéro que s'il n'y est pas déjà
      */
     @Override
     public Authentication authenticate(Authentication authentication) throws AuthenticationException {
@@ -45,17 +44,21 @@ public class AccountAuthenticationProvider implements AuthenticationProvider {
         String userEmail = authentication.getName();
         String password = authentication.getCredentials().toString();
         logger.info("userEmail : {}", userEmail);
-        logger.info("password : {}", password);
 
-        UserDetails account = userService.loadUserByUsername(userEmail);
+        User account = userService.loadUserByUsername(userEmail);
 
         Collection<? extends GrantedAuthority> AUTHORITIES = account.getAuthorities();
         
-        if (passwordEncoder.matches(password, account.getPassword())) {
-            userService.resetFailedAttemptsOfUser(account.getUsername());
-            User user = userService.findUserOrAdmin(account.getUsername(), false)
-                    .orElseThrow(() -> new UsernameNotFoundException("Internal error : " + account.getUsername() + " not found after checking password"));
-            return new UsernamePasswordAuthenticationToken(user, password, AUTHORITIES);
+        // BCrypt/Argon2 runs on the bounded hashing pool, LoginOverloadedException (503) if it is saturated
+        if (passwordHashingService.matches(password, account.getPassword())) {
+            if (account.getFailedAttempts() > 0) {
+                userService.resetFailedAttemptsOfUser(account.getUsername());
+                account.setFailedAttempts(0);
+            }
+            // migrate the stored hash toward the configured algorithm/cost, in background
+            passwordHashingService.rehashIfNeeded(password, account.getPassword(),
+                    newHash -> userService.updatePassword(account, newHash));
+            return new UsernamePasswordAuthenticationToken(account, password, AUTHORITIES);
         }
         throw FailedLoginAttemptsException(account);
     }
@@ -3,10 +3,9 @@ package com.devStudy.chat.security.loginPassword;
 import com.devStudy.chat.model.User;
 import com.devStudy.chat.service.implementations.BlackListService;
 import com.devStudy.chat.service.implementations.JwtTokenService;
-import com.devStudy.chat.service.implementations.UserService;
+import com.devStudy.chat.service.utils.UserInfoCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
@@ -14,27 +13,25 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.Optional;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger LOGGER = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
     private final JwtTokenService jwtTokenService;
-    private final UserService userService;
+    private final UserInfoCache userInfoCache;
     private final BlackListService blackListService;
 
     @Autowired
-    public JwtAuthenticationFilter(JwtTokenService jwtTokenService, UserService userService, BlackListService blackListService) {
+    public JwtAuthenticationFilter(JwtTokenService jwtTokenService, UserInfoCache userInfoCache, BlackListService blackListService) {
         this.jwtTokenService = jwtTokenService;
-        this.userService = userService;
+        this.userInfoCache = userInfoCache;
         this.blackListService = blackListService;
     }
 
@@ -51,12 +48,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String email = jwtTokenService.validateTokenAndGetEmail(jwtToken);
         if(email != null && SecurityContextHolder.getContext().getAuthentication() == null){
-            UserDetails userDetails = userService.loadUserByUsername(email);
-            UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
-                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-            usernamePasswordAuthenticationToken.setDetails(new WebAuthenticationDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
-            request.setAttribute("userId", ((User)userDetails).getId());
+            // served by the local cache : no query on each request (nor on each WebSocket handshake)
+            Optional<User> account = userInfoCache.getAccount(email);
+            if(account.isPresent() && account.get().isActive()){
+                User user = account.get();
+                UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
+                        new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+                usernamePasswordAuthenticationToken.setDetails(new WebAuthenticationDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
+                request.setAttribute("userId", user.getId());
+            }else{
+                LOGGER.info("Unknown or blocked account, the request stays anonymous");
+            }
         }
         filterChain.doFilter(request, response);
     }
@@ -1,5 +1,6 @@
 package com.devStudy.chat.service.implementations;
 
+import static com.devStudy.chat.service.utils.ConstantValues.CHATROOM_SEQ_KEY;
 import static com.devStudy.chat.service.utils.ConstantValues.ContentTimeStampFormat;
 import static com.devStudy.chat.service.utils.ConstantValues.DateSignFormat;
 import static com.devStudy.chat.service.utils.ConstantValues.MSG_CONTENT;
@@ -11,46 +12,109 @@ import java.util.Date;
 import java.util.List;
 import org.apache.commons.lang3.time.DateUtils;
 
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import com.devStudy.chat.dao.ChatMessageRepository;
 import com.devStudy.chat.dto.ChatMsgDTO;
 import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.metrics.ChatMetrics;
 import com.devStudy.chat.model.ChatMessage;
 import com.devStudy.chat.model.User;
 import com.devStudy.chat.service.interfaces.ChatMessageServiceInt;
+import com.devStudy.chat.service.utils.Events.RemoveChatroomEvent;
 
 @Component
 public class ChatMessageService implements ChatMessageServiceInt {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChatMessageService.class);
+
 	private final ChatMessageRepository chatMessageRepository;
+	private final ChatMetrics chatMetrics;
+	private final StringRedisTemplate redisTemplate;
+	private final RedisScript<Long> chatroomSeqNextScript;
 
 	@Value("${chatroomApp.pageable.DefaultPageSize_Messages}")
 	private int DefaultPageSize_Messages;
 
+	@Value("${chatroomApp.messages.deleteBatchSize}")
+	private int deleteBatchSize;
+
 	@Autowired
-	public ChatMessageService(ChatMessageRepository chatMessageRepository) {
+	public ChatMessageService(ChatMessageRepository chatMessageRepository, ChatMetrics chatMetrics,
+							  StringRedisTemplate redisTemplate, RedisScript<Long> chatroomSeqNextScript) {
 		this.chatMessageRepository = chatMessageRepository;
+		this.chatMetrics = chatMetrics;
+		this.redisTemplate = redisTemplate;
+		this.chatroomSeqNextScript = chatroomSeqNextScript;
 	}
 	
 	private Pageable getPageableSetting(int page) {
 		return PageRequest.of(page, DefaultPageSize_Messages, Sort.by(Sort.Direction.DESC, "timestamp"));
 	}
 
+	/**
+	 * Cette méthode permet d'enregistrer un message avec le numéro de séquence suivant du chatroom, et renvoie ce numéro.
+	 * Le numéro est pris avant l'insertion et la diffusion : deux expéditeurs concurrents peuvent livrer N+1 avant N,
+	 * le client ne renvoie donc à la reconnexion que le dernier numéro contigu reçu (et non le plus grand)
+	 */
 	@Override
-	public void saveMsgIntoCollection(long chatroomId, UserDTO sender, String content, Date timestamp) {
+	public long saveMsgIntoCollection(long chatroomId, UserDTO sender, String content, Date timestamp) {
 		ChatMessage chatMessage = new ChatMessage();
 		chatMessage.setChatroomId(chatroomId);
 		chatMessage.setUser(sender);
 		chatMessage.setContent(content);
 		chatMessage.setTimestamp(timestamp);
-		chatMessageRepository.insert(chatMessage);
+		chatMessage.setSeq(nextSequence(chatroomId));
+		chatMetrics.getMongoInsertTimer().record(() -> chatMessageRepository.insert(chatMessage));
+		return chatMessage.getSeq();
+	}
+
+	/*
+	 * INCR atomique du compteur Redis ; si le compteur a disparu (éviction, redémarrage de Redis), il repart du dernier numéro stocké dans MongoDB
+	 */
+	private long nextSequence(long chatroomId) {
+		List<String> keys = List.of(String.format(CHATROOM_SEQ_KEY, chatroomId));
+		Long seq = redisTemplate.execute(chatroomSeqNextScript, keys, "");
+		if (seq == null || seq < 0) {
+			seq = redisTemplate.execute(chatroomSeqNextScript, keys, String.valueOf(lastStoredSequence(chatroomId)));
+		}
+		return seq;
+	}
+
+	private long lastStoredSequence(long chatroomId) {
+		return chatMessageRepository.findFirstByChatroomIdOrderBySeqDesc(chatroomId).map(ChatMessage::getSeq).orElse(0L);
+	}
+
+	/**
+	 * Cette méthode permet d'obtenir le dernier numéro de séquence attribué dans un chatroom (0 si aucun message)
+	 */
+	@Override
+	public long currentSequence(long chatroomId) {
+		String seq = redisTemplate.opsForValue().get(String.format(CHATROOM_SEQ_KEY, chatroomId));
+		return seq != null ? Long.parseLong(seq) : lastStoredSequence(chatroomId);
+	}
+
+	/**
+	 * Cette méthode permet d'obtenir, dans l'ordre, au plus limit messages d'un chatroom postérieurs à lastSeq
+	 */
+	@Override
+	public List<ChatMessage> getChatMessagesAfterSeq(long chatroomId, long lastSeq, int limit) {
+		return chatMessageRepository.findByChatroomIdAndSeqGreaterThan(chatroomId, lastSeq,
+				PageRequest.of(0, limit, Sort.by(Sort.Direction.ASC, "seq")));
 	}
 
 	@Override
@@ -66,6 +130,40 @@ public class ChatMessageService implements ChatMessageServiceInt {
 		return setResMsgList(initialRes);
 	}
 	
+	/**
+	 * Cette méthode permet de supprimer les messages d'un chatroom par lots de deleteBatchSize :
+	 * chaque lot lit les _id puis les supprime avec un seul deleteMany, sans jamais tenir tout l'historique en mémoire
+	 */
+	@Override
+	public long deleteMessagesOfChatroom(long chatroomId) {
+		long deleted = 0;
+		Pageable firstBatch = PageRequest.of(0, deleteBatchSize);
+		List<ChatMessage> batch;
+		do {
+			batch = chatMessageRepository.findIdsByChatroomId(chatroomId, firstBatch);
+			if (!batch.isEmpty()) {
+				List<ObjectId> ids = batch.stream().map(ChatMessage::getId).toList();
+				deleted += chatMessageRepository.deleteByIdIn(ids);
+			}
+		} while (batch.size() == deleteBatchSize);
+		return deleted;
+	}
+
+	/*
+	 * Les messages d'un chatroom supprimé sont effacés hors de la requête HTTP, une fois la suppression commitée dans PostgreSQL
+	 */
+	@Async
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void removeChatroomEventListener(RemoveChatroomEvent event) {
+		long chatroomId = event.getEventMsg();
+		try {
+			LOGGER.info("{} messages of removed chatroom {} deleted", deleteMessagesOfChatroom(chatroomId), chatroomId);
+			redisTemplate.delete(String.format(CHATROOM_SEQ_KEY, chatroomId));
+		} catch (RuntimeException e) {
+			LOGGER.error("Error while deleting the messages of chatroom {} : {}", chatroomId, e.getMessage());
+		}
+	}
+	
 	private List<ChatMsgDTO> setResMsgList(List<ChatMessage> initialList){
 		List<ChatMsgDTO> res = new ArrayList<>();
 		ChatMsgDTO latestDateSign = new ChatMsgDTO();
@@ -0,0 +1,112 @@
+package com.devStudy.chat.service.implementations;
+
+import static com.devStudy.chat.service.utils.ConstantValues.CHATROOM_LIFECYCLE_LOCK_KEY;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devStudy.chat.dao.ChatroomRepository;
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.model.ChatroomStatus;
+import com.devStudy.chat.service.interfaces.ChatroomLifecycleServiceInt;
+import com.devStudy.chat.service.utils.Events.ChatroomLifecycleEvent;
+import com.devStudy.chat.websocket.distributed.ChatMessageBroker;
+
+import io.micrometer.core.instrument.Counter;
+
+/**
+ * Cette classe permet de faire avancer le cycle de vie des chatrooms (SCHEDULED -> ACTIVE -> EXPIRED) en tâche de fond :
+ * à chaque passage, les chatrooms dont l'horaire est passé sont lus par un index partiel puis changés en une requête par lot.
+ * Après le commit, un ChatroomLifecycleEvent invalide les listes en cache des utilisateurs concernés,
+ * et ferme les sessions WebSocket des chatrooms expirés.
+ */
+@Service
+public class ChatroomLifecycleService implements ChatroomLifecycleServiceInt {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatroomLifecycleService.class);
+
+    private final ChatroomRepository chatroomRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final ApplicationEventPublisher publisher;
+    private final Counter activated;
+    private final Counter expired;
+
+    // nombre maximal de chatrooms changés par transition et par passage, le reste est repris au passage suivant
+    @Value("${chatroomApp.chatroomLifecycle.batchSize}")
+    private int batchSize;
+
+    @Value("${chatroomApp.chatroomLifecycle.interval}")
+    private long interval;
+
+    @Autowired
+    public ChatroomLifecycleService(ChatroomRepository chatroomRepository, StringRedisTemplate redisTemplate,
+                                    ApplicationEventPublisher publisher, ChatMetrics chatMetrics) {
+        this.chatroomRepository = chatroomRepository;
+        this.redisTemplate = redisTemplate;
+        this.publisher = publisher;
+        String transitions = "chatroom.lifecycle.transitions";
+        this.activated = chatMetrics.registerCounter(transitions, "Chatrooms moved to a new lifecycle status", "status", "active");
+        this.expired = chatMetrics.registerCounter(transitions, "Chatrooms moved to a new lifecycle status", "status", "expired");
+    }
+
+    /**
+     * Cette méthode permet de lancer un passage si cette instance obtient le bail Redis (un passage par intervalle pour tout le cluster) ;
+     * sans Redis, le passage a lieu quand même : les mises à jour ne changent que les lignes encore dans l'ancien statut
+     */
+    @Scheduled(fixedDelayString = "${chatroomApp.chatroomLifecycle.interval}")
+    @Transactional
+    @Override
+    public void scheduledAdvance() {
+        try {
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(CHATROOM_LIFECYCLE_LOCK_KEY,
+                    ChatMessageBroker.getInstanceId(), Duration.ofMillis(Math.max(1, interval * 9 / 10)));
+            if (!Boolean.TRUE.equals(acquired)) {
+                return;
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Chatroom lifecycle lease unavailable, running without it : {}", e.getMessage());
+        }
+        int changed = advanceLifecycles(LocalDateTime.now());
+        if (changed > 0) {
+            LOGGER.info("{} chatroom(s) moved to a new lifecycle status", changed);
+        }
+    }
+
+    @Transactional
+    @Override
+    public int advanceLifecycles(LocalDateTime now) {
+        // un chatroom dont les deux horaires sont passés va directement de SCHEDULED à EXPIRED
+        int changed = advance(chatroomRepository.findChatroomIdsToExpire(now, Limit.of(batchSize)), ChatroomStatus.EXPIRED, expired);
+        changed += advance(chatroomRepository.findChatroomIdsToActivate(now, Limit.of(batchSize)), ChatroomStatus.ACTIVE, activated);
+        return changed;
+    }
+
+    private int advance(List<Long> chatroomIds, ChatroomStatus status, Counter counter) {
+        if (chatroomIds.isEmpty()) {
+            return 0;
+        }
+        int updated = chatroomRepository.updateStatus(chatroomIds, status);
+        if (updated > 0) {
+            counter.increment(updated);
+            publisher.publishEvent(new ChatroomLifecycleEvent(chatroomIds, status,
+                    Set.copyOf(chatroomRepository.findAffectedUserIds(chatroomIds))));
+        }
+        if (chatroomIds.size() == batchSize) {
+            LOGGER.debug("Chatroom lifecycle batch full for status {}, the rest is handled by the next run", status);
+        }
+        return updated;
+    }
+}
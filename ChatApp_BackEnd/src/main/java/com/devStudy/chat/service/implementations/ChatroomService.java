@@ -5,6 +5,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -18,20 +19,26 @@ import com.devStudy.chat.dto.ChatroomDTO;
 import com.devStudy.chat.dto.ChatroomRequestDTO;
 import com.devStudy.chat.dto.ChatroomWithOwnerAndStatusDTO;
 import com.devStudy.chat.dto.DTOMapper;
+import com.devStudy.chat.dto.KeysetPageDTO;
 import com.devStudy.chat.dto.ModifyChatroomDTO;
 import com.devStudy.chat.dto.ModifyChatroomRequestDTO;
 import com.devStudy.chat.dto.UserDTO;
 import com.devStudy.chat.model.Chatroom;
+import com.devStudy.chat.model.ChatroomStatus;
 import com.devStudy.chat.model.User;
 import com.devStudy.chat.service.interfaces.ChatroomServiceInt;
+import com.devStudy.chat.service.utils.ChatroomListCache;
 import com.devStudy.chat.service.utils.Events.ChangeChatroomMemberEvent;
+import com.devStudy.chat.service.utils.KeysetCursor;
 import com.devStudy.chat.service.utils.Events.RemoveChatroomEvent;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ChatroomService implements ChatroomServiceInt {
@@ -44,12 +51,15 @@ public class ChatroomService implements ChatroomServiceInt {
     private final UserRepository userRepository;
     private final ChatroomRepository chatroomRepository;
     private final ApplicationEventPublisher publisher;
+    private final ChatroomListCache chatroomListCache;
 
     @Autowired
-    public ChatroomService(UserRepository userRepository, ChatroomRepository chatroomRepository, ApplicationEventPublisher publisher) {
+    public ChatroomService(UserRepository userRepository, ChatroomRepository chatroomRepository, ApplicationEventPublisher publisher,
+                           ChatroomListCache chatroomListCache) {
         this.userRepository = userRepository;
         this.chatroomRepository = chatroomRepository;
         this.publisher = publisher;
+        this.chatroomListCache = chatroomListCache;
     }
 
     /**
@@ -79,6 +89,7 @@ public class ChatroomService implements ChatroomServiceInt {
             );
             chatroom.setHoraireCommence(dateStart);
             chatroom.setHoraireTermine(dateEnd);
+            chatroom.setStatus(ChatroomStatus.at(dateStart, dateEnd, LocalDateTime.now()));
 
             List<Chatroom> allChatrooms = chatroomRepository.findAll();
             for (Chatroom c : allChatrooms) {
@@ -94,13 +105,17 @@ public class ChatroomService implements ChatroomServiceInt {
             creator.getCreatedRooms().add(chatroom);
             
             // etape 2 : ajouter les utilisateurs invités
+            Set<Long> affectedUserIds = new HashSet<>(Set.of(creator.getId()));
             List<Long> invitedUserIds = chatroomRequestDTO.getUsersInvited().stream().map(UserDTO::getId).toList();
             for(var userInvited: userRepository.findAllById(invitedUserIds)) {
             	chatroom.getMembers().add(userInvited);
             	userInvited.getJoinedRooms().add(chatroom);
+            	affectedUserIds.add(userInvited.getId());
             }
             
             chatroomRepository.save(chatroom);
+            // aucun membre ajouté à diffuser (personne n'est encore connecté au chatroom), seules les listes en cache sont invalidées
+            publisher.publishEvent(new ChangeChatroomMemberEvent(chatroom.getId(), List.of(), List.of(), affectedUserIds));
             return true;
         } catch (Exception e) {
             logger.error("Error while creating chatroom : {}", e.getMessage());
@@ -109,31 +124,70 @@ public class ChatroomService implements ChatroomServiceInt {
     }
 
     /**
-     * Cette méthode permet de trouver les chatrooms crées/joints par un utilisateur en Page(size = 5)
+     * Cette méthode permet de construire la pagination des listes de chatrooms (size = 5, triées par titre)
      */
-    private Page<Chatroom> getChatroomsOwnedOrJoinedOfUserByPage(long userId, boolean isOwner, int page) {
-        Pageable pageable = PageRequest.of(page, DefaultPageSize_Chatrooms, Sort.sort(Chatroom.class).by(Chatroom::getTitre).ascending());
-        return isOwner? chatroomRepository.findChatroomsCreatedByUserByPage(userId, pageable) :
-        				chatroomRepository.findChatroomsJoinedOfUserByPage(userId,pageable);
+    private Pageable getChatroomsPageable(int page) {
+        return PageRequest.of(page, DefaultPageSize_Chatrooms, Sort.sort(Chatroom.class).by(Chatroom::getTitre).ascending());
     }
 
     @Transactional(readOnly = true)
     @Override
 	public Page<ChatroomDTO> getChatroomsOwnedOfUserByPage(long userId, int page) {
-		Page<Chatroom> chatrooms = getChatroomsOwnedOrJoinedOfUserByPage(userId, true, page);
-		return chatrooms.map(chatroom ->
-                DTOMapper.toChatroomDTO(chatroom, chatroom.isActive() && !chatroom.hasNotStarted())
-		);
+    	Pageable pageable = getChatroomsPageable(page);
+		return chatroomListCache.get(userId, ChatroomListCache.OWNED, pageable, ChatroomDTO.class,
+				() -> chatroomRepository.findOwnedChatroomDTOsByPage(userId, pageable));
 	}
 
+    /**
+     * Cette méthode permet de trouver les chatrooms crées/joints par un utilisateur en Page(size = 5),
+     * les DTO sont construits directement par la requête (propriétaire joint, statut calculé en SQL)
+     */
     @Transactional(readOnly = true)
     @Override
 	public Page<ChatroomWithOwnerAndStatusDTO> getChatroomsJoinedOfUserByPage(long userId, boolean isOwner, int page) {
-    	Page<Chatroom> chatrooms = getChatroomsOwnedOrJoinedOfUserByPage(userId, isOwner, page);
-    	return chatrooms.map(chatroom -> {
-    		boolean isActive = chatroom.isActive() && !chatroom.hasNotStarted();
-    		return DTOMapper.toChatroomWithOwnerAndStatusDTO(chatroom, isActive);
-    	});
+    	Pageable pageable = getChatroomsPageable(page);
+    	return chatroomListCache.get(userId, isOwner? ChatroomListCache.CREATED : ChatroomListCache.JOINED, pageable,
+    			ChatroomWithOwnerAndStatusDTO.class,
+    			() -> isOwner? chatroomRepository.findChatroomDTOsCreatedByUserByPage(userId, pageable) :
+    						chatroomRepository.findChatroomDTOsJoinedOfUserByPage(userId, pageable));
+    }
+
+    /**
+     * Cette méthode permet de lire le curseur (titre, id) d'une liste de chatrooms, sans curseur on part de ('', 0)
+     */
+    private static KeysetCursor chatroomCursor(String cursor) {
+        return cursor == null || cursor.isEmpty() ? KeysetCursor.of(0L, "") : KeysetCursor.decode(cursor, 1);
+    }
+
+    private static KeysetCursor chatroomCursor(ChatroomDTO chatroom) {
+        return KeysetCursor.of(chatroom.getId(), chatroom.getTitre());
+    }
+
+    /**
+     * Cette méthode permet de trouver les chatrooms crées par un utilisateur en pagination keyset (titre, id) :
+     * DefaultPageSize_Chatrooms + 1 lignes sont lues, sans OFFSET ni count(*)
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public KeysetPageDTO<ChatroomDTO> getChatroomsOwnedOfUserAfter(long userId, String cursor) {
+        KeysetCursor after = chatroomCursor(cursor);
+        return KeysetPageDTO.fromRows(
+                chatroomRepository.findOwnedChatroomDTOsAfter(userId, after.key(0), after.id(), Limit.of(DefaultPageSize_Chatrooms + 1)),
+                DefaultPageSize_Chatrooms, chatroom -> chatroom, ChatroomService::chatroomCursor);
+    }
+
+    /**
+     * Cette méthode permet de trouver les chatrooms crées/joints par un utilisateur en pagination keyset (titre, id)
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public KeysetPageDTO<ChatroomWithOwnerAndStatusDTO> getChatroomsJoinedOfUserAfter(long userId, boolean isOwner, String cursor) {
+        KeysetCursor after = chatroomCursor(cursor);
+        Limit limit = Limit.of(DefaultPageSize_Chatrooms + 1);
+        List<ChatroomWithOwnerAndStatusDTO> rows = isOwner ?
+                chatroomRepository.findChatroomDTOsCreatedByUserAfter(userId, after.key(0), after.id(), limit) :
+                chatroomRepository.findChatroomDTOsJoinedOfUserAfter(userId, after.key(0), after.id(), limit);
+        return KeysetPageDTO.fromRows(rows, DefaultPageSize_Chatrooms, chatroom -> chatroom, ChatroomService::chatroomCursor);
     }
 
     /**
@@ -153,27 +207,17 @@ public class ChatroomService implements ChatroomServiceInt {
     }
 
     /**
-     * Cette méthode permet de supprimer un chatroom
+     * Cette méthode permet de supprimer un chatroom avec deux requêtes DELETE (relations puis chatroom),
+     * sans charger les membres ; les messages sont supprimés de MongoDB en asynchrone après le commit (RemoveChatroomEvent)
      */
     @Transactional
     @Override
     public boolean deleteChatRoom(long chatroomId) {
         try{
-        	chatroomRepository.findById(chatroomId).ifPresent(
-        		chatroom -> {
-        			// supprimer les users invités
-        			chatroom.getMembers().forEach(
-	        			user -> {
-	        				chatroom.getMembers().remove(user);
-	        				user.getJoinedRooms().remove(chatroom);
-	        			}
-        			);
-        			// pour le créateur, on supprime le chatroom depuis sa liste de chatrooms créés
-        			chatroom.getCreator().getCreatedRooms().remove(chatroom);
-        			chatroomRepository.delete(chatroom);
-        		}
-        	);
-            publisher.publishEvent(new RemoveChatroomEvent(chatroomId));
+            Set<Long> affectedUserIds = Set.copyOf(chatroomRepository.findAffectedUserIds(chatroomId));
+            if(chatroomRepository.deleteChatroomById(chatroomId) > 0) {
+                publisher.publishEvent(new RemoveChatroomEvent(chatroomId, affectedUserIds));
+            }
             return true;
         }catch (Exception e){
             logger.error("Error while deleting chatroom with id {} : {}", chatroomId, e.getMessage());
@@ -187,7 +231,11 @@ public class ChatroomService implements ChatroomServiceInt {
     @Transactional
     @Override
     public void setStatusOfChatroom(long chatroomId, boolean status) {
-        chatroomRepository.findById(chatroomId).ifPresent(chatroom -> chatroomRepository.updateActive(chatroom.getId(), status));
+        chatroomRepository.findById(chatroomId).ifPresent(chatroom -> {
+        	chatroomRepository.updateActive(chatroom.getId(), status);
+        	publisher.publishEvent(new ChangeChatroomMemberEvent(chatroomId, List.of(), List.of(),
+        			Set.copyOf(chatroomRepository.findAffectedUserIds(chatroomId))));
+        });
     }
 
     /**
@@ -211,7 +259,7 @@ public class ChatroomService implements ChatroomServiceInt {
         	}else {
         		return false;
         	}
-            publisher.publishEvent(new ChangeChatroomMemberEvent(chatroomId, List.of(), List.of(user)));
+            publisher.publishEvent(new ChangeChatroomMemberEvent(chatroomId, List.of(), List.of(user), Set.of(userId)));
             return true;
         }catch (Exception e){
             logger.error("Error while deleting user with id {} from chatroom with id {} : {}", userId, chatroomId, e.getMessage());
@@ -249,45 +297,45 @@ public class ChatroomService implements ChatroomServiceInt {
                 chatroom.setHoraireTermine(dateEnd);
                 isChanged = true;
             }
-            // ajouter les utilisateurs invités
-			for (UserDTO user : chatroomRequestDTO.getListAddedUsers()) {
-                Optional<User> userOptional = userRepository.findById(user.getId());
-				if(userOptional.isEmpty()) {
-                    continue;
-                }
-                User userInvited = userOptional.get();
-				if(!chatroom.getMembers().contains(userInvited)) {
-					chatroom.getMembers().add(userInvited);
-					userInvited.getJoinedRooms().add(chatroom);
-					isChanged = true;
-				}
-			}
-            
-			// supprimer les utilisateurs invités
-			for (UserDTO user : chatroomRequestDTO.getListRemovedUsers()) {
-				Optional<User> userOptional = userRepository.findById(user.getId());
-                if(userOptional.isEmpty()) {
-                    continue;
-                }
-                User userRemoved = userOptional.get();
-				if (chatroom.getMembers().contains(userRemoved) && !chatroom.getCreator().equals(userRemoved)) {
-					chatroom.getMembers().remove(userRemoved);
-					userRemoved.getJoinedRooms().remove(chatroom);
-					isChanged = true;
-				}
-			}
+            // nouveaux horaires : le statut est recalculé tout de suite, sans attendre le prochain passage de ChatroomLifecycleService
+            chatroom.setStatus(ChatroomStatus.at(chatroom.getHoraireCommence(), chatroom.getHoraireTermine(), LocalDateTime.now()));
+            // ajouter / supprimer les utilisateurs invités : deux requêtes ensemblistes sur user_chatroom_relationship,
+            // sans charger les collections members et joinedRooms
+            // seuls les utilisateurs réellement ajoutés / retirés sont annoncés : ids inconnus, membres déjà présents et créateur exclus
+            List<Long> requestedAdded = chatroomRequestDTO.getListAddedUsers().stream().map(UserDTO::getId).toList();
+            Set<Long> addedUserIds = requestedAdded.isEmpty() ? Set.of() : new HashSet<>(chatroomRepository.findIdsToAdd(chatroomId, requestedAdded));
+            if(!addedUserIds.isEmpty()) {
+                chatroomRepository.addMembers(chatroomId, addedUserIds);
+            }
+            List<Long> requestedRemoved = chatroomRequestDTO.getListRemovedUsers().stream().map(UserDTO::getId).toList();
+            Set<Long> removedUserIds = requestedRemoved.isEmpty() ? Set.of() : new HashSet<>(chatroomRepository.findIdsToRemove(chatroomId, requestedRemoved));
+            if(!removedUserIds.isEmpty()) {
+                chatroomRepository.removeMembers(chatroomId, removedUserIds);
+            }
+            boolean membersChanged = !addedUserIds.isEmpty() || !removedUserIds.isEmpty();
 			
+            // listes en cache à invalider : tous les membres et le créateur si le chatroom lui-même a changé,
+            // sinon seulement les utilisateurs ajoutés / retirés
+            Set<Long> affectedUserIds = new HashSet<>();
             if(isChanged){
                 chatroomRepository.save(chatroom);
+                affectedUserIds.addAll(chatroomRepository.findAffectedUserIds(chatroomId));
+                affectedUserIds.addAll(removedUserIds);
+            }else if(membersChanged){
+                affectedUserIds.addAll(addedUserIds);
+                affectedUserIds.addAll(removedUserIds);
             }
             
-            publisher.publishEvent(
-            	new ChangeChatroomMemberEvent(
-            	  chatroomId,
-				  chatroomRequestDTO.getListAddedUsers(),
-				  chatroomRequestDTO.getListRemovedUsers()
-		        )
-            );
+            if(isChanged || membersChanged){
+                publisher.publishEvent(
+                	new ChangeChatroomMemberEvent(
+                	  chatroomId,
+                	  chatroomRequestDTO.getListAddedUsers().stream().filter(user -> addedUserIds.contains(user.getId())).toList(),
+                	  chatroomRequestDTO.getListRemovedUsers().stream().filter(user -> removedUserIds.contains(user.getId())).toList(),
+                	  affectedUserIds
+                    )
+                );
+            }
             return true;
         }catch (RuntimeException e){
             logger.error("Error while updating chatroom with id {} : {}", chatroomId, e.getMessage());
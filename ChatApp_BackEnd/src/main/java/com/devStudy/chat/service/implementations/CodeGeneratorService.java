@@ -0,0 +1,84 @@
+package com.devStudy.chat.service.implementations;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.devStudy.chat.service.interfaces.CodeGeneratorServiceInt;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Cette classe permet de générer les codes de vérification avec un SecureRandom partagé (thread-safe), amorcé au démarrage.
+ * Un thread de fond garde une réserve de codes pleine : le chemin de la requête prend un code déjà prêt
+ * et ne génère lui-même un code que si la réserve est vide.
+ */
+@Service
+public class CodeGeneratorService implements CodeGeneratorServiceInt {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CodeGeneratorService.class);
+
+    public static final int CODE_LENGTH = 6;
+    private static final int CODE_BOUND = 1_000_000;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final BlockingQueue<String> pool;
+    private final Thread refiller;
+
+    @Autowired
+    public CodeGeneratorService(@Value("${chatroomApp.verificationCode.poolSize}") int poolSize) {
+        // force the seeding now, at startup, instead of on the first login
+        secureRandom.nextInt();
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+        this.refiller = new Thread(this::refill, "verification-code-refill");
+        this.refiller.setDaemon(true);
+        this.refiller.start();
+    }
+
+    @Override
+    public String nextCode() {
+        String code = pool.poll();
+        return code != null ? code : generateCode();
+    }
+
+    /**
+     * Cette méthode permet de générer un code sans String.format : 6 chiffres, complétés par des zéros à gauche
+     */
+    public String generateCode() {
+        int value = secureRandom.nextInt(CODE_BOUND);
+        char[] digits = new char[CODE_LENGTH];
+        for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(digits);
+    }
+
+    public int getPoolSize() {
+        return pool.size();
+    }
+
+    // put() blocks while the pool is full, the thread only works after codes have been taken
+    private void refill() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                pool.put(generateCode());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOGGER.error("Verification code pool refill stopped, codes are now generated on the request path", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refiller.interrupt();
+    }
+}
@@ -5,12 +5,19 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 import com.devStudy.chat.service.interfaces.EmailServiceInt;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
 
 @Service
 public class EmailService implements EmailServiceInt {
@@ -19,25 +26,111 @@ public class EmailService implements EmailServiceInt {
 
     private final JavaMailSender emailSender;
 
+    // nombre de sessions SMTP ouvertes en même temps, toutes files confondues
+    private final Semaphore smtpSessions;
+    // les mails non prioritaires (réinitialisation de mot de passe) ne peuvent pas prendre les sessions réservées aux codes
+    private final Semaphore nonPrioritySessions;
+    private final long acquireTimeout;
+
     @Autowired
-    public EmailService(JavaMailSender emailSender) {
+    public EmailService(JavaMailSender emailSender,
+                        @Value("${chatroomApp.mail.maxConnections}") int maxConnections,
+                        @Value("${chatroomApp.mail.reservedForVerificationCodes}") int reservedForVerificationCodes,
+                        @Value("${chatroomApp.mail.acquireTimeout}") long acquireTimeout) {
+        if (reservedForVerificationCodes >= maxConnections) {
+            throw new IllegalArgumentException("chatroomApp.mail.reservedForVerificationCodes must be lower than maxConnections");
+        }
         this.emailSender = emailSender;
+        this.smtpSessions = new Semaphore(maxConnections, true);
+        this.nonPrioritySessions = new Semaphore(maxConnections - reservedForVerificationCodes, true);
+        this.acquireTimeout = acquireTimeout;
     }
 
     @Value("${spring.mail.username}")
     private String from;
 
     @Override
-    public void sendSimpleMessage(String to, String subject, String text) throws MailException {
+    public SimpleMailMessage buildMessage(String to, String subject, String text) {
         SimpleMailMessage message = new SimpleMailMessage();
         message.setFrom(from);
         message.setTo(to);
         //message.setCc(cc);
         message.setSubject(subject);
         message.setText(text);
-        emailSender.send(message);
-        logger.info("Email envoyé à {} avec succès.", to);
+        return message;
+    }
+
+    @Override
+    public void sendSimpleMessage(String to, String subject, String text) throws MailException {
+        Map<SimpleMailMessage, Exception> failures = sendBatch(List.of(buildMessage(to, subject, text)), true);
+        if (!failures.isEmpty()) {
+            Exception cause = failures.values().iterator().next();
+            throw cause instanceof MailException mailException ? mailException : new MailSendException("Email non envoyé à " + to, cause);
+        }
+    }
+
+    /**
+     * Cette méthode permet d'envoyer un lot de mails sur une seule session SMTP (une connexion, une authentification).
+     * Elle ne lève pas d'exception : les mails non envoyés sont renvoyés avec leur cause, à l'appelant de les réessayer
+     */
+    @Override
+    public Map<SimpleMailMessage, Exception> sendBatch(List<SimpleMailMessage> messages, boolean priority) {
+        if (messages.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            if (!priority && !nonPrioritySessions.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS)) {
+                return failAll(messages, new MailSendException("Aucune session SMTP disponible pour les mails non prioritaires"));
+            }
+            try {
+                if (!smtpSessions.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS)) {
+                    return failAll(messages, new MailSendException("Aucune session SMTP disponible"));
+                }
+                try {
+                    return send(messages);
+                } finally {
+                    smtpSessions.release();
+                }
+            } finally {
+                if (!priority) {
+                    nonPrioritySessions.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failAll(messages, e);
+        }
     }
 
+    private Map<SimpleMailMessage, Exception> send(List<SimpleMailMessage> messages) {
+        Map<SimpleMailMessage, Exception> failures = new LinkedHashMap<>();
+        try {
+            emailSender.send(messages.toArray(SimpleMailMessage[]::new));
+        } catch (MailSendException e) {
+            // JavaMailSenderImpl reports the failed messages one by one (all of them if the connection failed)
+            e.getFailedMessages().forEach((message, cause) -> {
+                if (message instanceof SimpleMailMessage simpleMessage) {
+                    failures.put(simpleMessage, cause);
+                }
+            });
+            if (failures.isEmpty()) {
+                return failAll(messages, e);
+            }
+        } catch (MailException e) {
+            return failAll(messages, e);
+        }
+        if (failures.isEmpty()) {
+            logger.info("{} email(s) envoyé(s) avec succès.", messages.size());
+        } else {
+            logger.warn("{} email(s) sur {} non envoyé(s)", failures.size(), messages.size());
+        }
+        return failures;
+    }
 
+    private Map<SimpleMailMessage, Exception> failAll(List<SimpleMailMessage> messages, Exception cause) {
+        logger.warn("{} email(s) non envoyé(s) : {}", messages.size(), cause.getMessage());
+        Map<SimpleMailMessage, Exception> failures = new LinkedHashMap<>();
+        messages.forEach(message -> failures.put(message, cause));
+        return failures;
+    }
 }
@@ -0,0 +1,135 @@
+package com.devStudy.chat.service.implementations;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.service.interfaces.PasswordHashingServiceInt;
+import com.devStudy.chat.service.utils.Exceptions.LoginOverloadedException;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Cette classe permet d'exécuter le hachage des mots de passe (BCrypt/Argon2) sur un pool de threads borné,
+ * pour qu'un pic de connexions fasse la queue au lieu d'occuper tous les coeurs au détriment du chat.
+ * Quand la file est pleine ou que l'attente dépasse waitTimeout, la connexion échoue tout de suite (503).
+ */
+@Service
+public class PasswordHashingService implements PasswordHashingServiceInt {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long waitTimeout;
+    private final long retryAfterSeconds;
+
+    @Autowired
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  ChatMetrics chatMetrics,
+                                  @Value("${chatroomApp.password.hashing.threads}") int threads,
+                                  @Value("${chatroomApp.password.hashing.queueCapacity}") int queueCapacity,
+                                  @Value("${chatroomApp.password.hashing.waitTimeout}") long waitTimeout) {
+        this.passwordEncoder = passwordEncoder;
+        this.waitTimeout = waitTimeout;
+        this.retryAfterSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitTimeout));
+
+        // 0 : leave half of the cores to the chat traffic
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+
+        chatMetrics.registerGauge("login.hashing.queue", "Password hashing tasks waiting for a thread",
+                () -> executor.getQueue().size());
+        chatMetrics.registerGauge("login.hashing.active", "Password hashing tasks running",
+                executor::getActiveCount);
+    }
+
+    private <T> T runOnPool(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new LoginOverloadedException("Too many login attempts in progress, please retry later", retryAfterSeconds, e);
+        }
+        try {
+            return future.get(waitTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new LoginOverloadedException("Too many login attempts in progress, please retry later", retryAfterSeconds, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new LoginOverloadedException("Login interrupted", retryAfterSeconds, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    @Override
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return runOnPool(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public String encode(String rawPassword) {
+        return runOnPool(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Cette méthode permet de migrer le hash d'un utilisateur après une connexion réussie,
+     * la tâche est abandonnée si le pool est occupé (elle sera retentée à la prochaine connexion)
+     */
+    @Override
+    public void rehashIfNeeded(String rawPassword, String encodedPassword, Consumer<String> storeNewHash) {
+        if (!passwordEncoder.upgradeEncoding(encodedPassword)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    storeNewHash.accept(passwordEncoder.encode(rawPassword));
+                } catch (RuntimeException e) {
+                    LOGGER.error("Failed to store the upgraded password hash : {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Hashing pool busy, password rehash postponed");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.devStudy.chat.service.implementations;
+
+import static com.devStudy.chat.service.utils.ConstantValues.USER_CHANGES_CHANNEL;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.devStudy.chat.dao.UserRepository;
+import com.devStudy.chat.dto.DTOMapper;
+import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.model.User;
+import com.devStudy.chat.service.interfaces.UserSearchServiceInt;
+import com.devStudy.chat.service.utils.Events.UserChangeEvent;
+import com.devStudy.chat.websocket.distributed.ChatMessageBroker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Cette classe permet de rechercher les utilisateurs à inviter par préfixe du prénom, du nom ou du mail,
+ * sans requête SQL : un index trié (mot -> ids) est tenu en mémoire sur chaque instance.
+ * Il est chargé depuis PostgreSQL au démarrage puis toutes les rebuildInterval ms, et mis à jour entre-temps
+ * par les UserChangeEvent locaux et ceux des autres instances (pub/sub Redis sur USER_CHANGES_CHANNEL).
+ */
+@Service
+public class UserSearchService implements UserSearchServiceInt {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserSearchService.class);
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+    // nombre maximal d'ids parcourus par recherche : borne la latence quand les autres termes écartent presque tout
+    private static final int MAX_SCANNED = 5000;
+    private static final Pattern SEPARATORS = Pattern.compile("[\\s\\-'.@_+]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private final UserRepository userRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final ChatMetrics chatMetrics;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${chatroomApp.userSearch.maxResults}")
+    private int maxResults;
+
+    @Value("${chatroomApp.userSearch.maxQueryLength}")
+    private int maxQueryLength;
+
+    private volatile PrefixIndex prefixIndex = new PrefixIndex();
+    // changements reçus pendant une reconstruction, rejoués sur le nouvel index avant de le publier (null hors reconstruction)
+    private List<UserDTO> changesDuringRebuild;
+
+    @Autowired
+    public UserSearchService(UserRepository userRepository, StringRedisTemplate redisTemplate,
+                             RedisMessageListenerContainer redisMessageListenerContainer, ChatMetrics chatMetrics) {
+        this.userRepository = userRepository;
+        this.redisTemplate = redisTemplate;
+        this.redisMessageListenerContainer = redisMessageListenerContainer;
+        this.chatMetrics = chatMetrics;
+        chatMetrics.registerGauge("user.search.indexed", "Users in the in-memory search index", this::getIndexedUsers);
+    }
+
+    @PostConstruct
+    public void subscribeToUserChanges() {
+        redisMessageListenerContainer.addMessageListener(
+                (message, pattern) -> handleRemoteChange(message.getBody()), new ChannelTopic(USER_CHANGES_CHANNEL));
+    }
+
+    /**
+     * Cette méthode permet de reconstruire l'index à partir de PostgreSQL (lots ordonnés par id),
+     * les recherches continuent sur l'ancien index jusqu'au remplacement
+     */
+    @Scheduled(fixedDelayString = "${chatroomApp.userSearch.rebuildInterval}")
+    @Override
+    public void rebuild() {
+        synchronized (this) {
+            changesDuringRebuild = new ArrayList<>();
+        }
+        PrefixIndex rebuilt = new PrefixIndex();
+        try {
+            long afterId = 0;
+            List<User> batch;
+            do {
+                batch = userRepository.findByAdminAndIdGreaterThanOrderByIdAsc(false, afterId, Limit.of(LOAD_BATCH_SIZE));
+                for (User user : batch) {
+                    rebuilt.put(DTOMapper.toUserDTO(user));
+                    afterId = user.getId();
+                }
+            } while (batch.size() == LOAD_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changesDuringRebuild = null;
+            }
+            LOGGER.error("Failed to rebuild the user search index : {}", e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            changesDuringRebuild.forEach(rebuilt::put);
+            changesDuringRebuild = null;
+            prefixIndex = rebuilt;
+        }
+        LOGGER.info("User search index rebuilt : {} users", rebuilt.size());
+    }
+
+    @Override
+    public synchronized void index(UserDTO user) {
+        prefixIndex.put(user);
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(user);
+        }
+    }
+
+    /*
+     * Un utilisateur créé sur cette instance est indexé ici puis diffusé aux autres instances ;
+     * si la publication échoue, il apparaîtra chez elles à la prochaine reconstruction
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void userChangeEventListener(UserChangeEvent event) {
+        index(event.getUser());
+        try {
+            redisTemplate.convertAndSend(USER_CHANGES_CHANNEL,
+                    objectMapper.writeValueAsString(new UserChangeMessage(ChatMessageBroker.getInstanceId(), event.getUser())));
+        } catch (Exception e) {
+            LOGGER.warn("Failed to publish the change of user {} : {}", event.getUser().getId(), e.getMessage());
+        }
+    }
+
+    void handleRemoteChange(byte[] body) {
+        try {
+            UserChangeMessage change = objectMapper.readValue(body, UserChangeMessage.class);
+            if (!ChatMessageBroker.getInstanceId().equals(change.instanceId())) {
+                index(change.user());
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error processing user change message", e);
+        }
+    }
+
+    /**
+     * Cette méthode permet de rechercher au plus maxResults utilisateurs (hors excludedUserId) dont un mot du prénom,
+     * du nom ou du mail commence par chacun des termes de la requête (casse et accents ignorés)
+     */
+    @Override
+    public List<UserDTO> search(String query, long excludedUserId) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        String bounded = query.length() > maxQueryLength ? query.substring(0, maxQueryLength) : query;
+        List<String> terms = new ArrayList<>(tokenize(bounded));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        // le terme le plus long est le plus sélectif : il choisit la plage parcourue, les autres filtrent
+        terms.sort(Comparator.comparingInt(String::length).reversed());
+        return chatMetrics.getUserSearchTimer().record(
+                () -> prefixIndex.search(terms.get(0), terms.subList(1, terms.size()), excludedUserId, maxResults));
+    }
+
+    @Override
+    public int getIndexedUsers() {
+        return prefixIndex.size();
+    }
+
+    static String normalize(String value) {
+        return DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> tokenize(String value) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : SEPARATORS.split(normalize(value).trim())) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // un utilisateur est retrouvé par chaque mot de ses champs et par le champ entier (ex. le mail complet)
+    static Set<String> tokensOf(UserDTO user) {
+        Set<String> tokens = new HashSet<>();
+        for (String field : new String[] { user.getFirstName(), user.getLastName(), user.getMail() }) {
+            if (field != null && !field.isBlank()) {
+                tokens.add(normalize(field.trim()));
+                tokens.addAll(tokenize(field));
+            }
+        }
+        return tokens;
+    }
+
+    record UserChangeMessage(String instanceId, UserDTO user) {
+    }
+
+    private record IndexedUser(UserDTO user, Set<String> tokens) {
+        boolean matchesAll(List<String> prefixes) {
+            for (String prefix : prefixes) {
+                if (tokens.stream().noneMatch(token -> token.startsWith(prefix))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /*
+     * mot normalisé -> ids des utilisateurs, trié : les mots commençant par un préfixe forment une plage contiguë.
+     * Les lectures se font sans verrou, les écritures sont sérialisées par le service.
+     */
+    private static final class PrefixIndex {
+        private final ConcurrentSkipListMap<String, Set<Long>> tokens = new ConcurrentSkipListMap<>();
+        private final Map<Long, IndexedUser> users = new ConcurrentHashMap<>();
+
+        void put(UserDTO user) {
+            IndexedUser indexed = new IndexedUser(user, tokensOf(user));
+            IndexedUser previous = users.put(user.getId(), indexed);
+            if (previous != null) {
+                for (String token : previous.tokens()) {
+                    if (!indexed.tokens().contains(token)) {
+                        tokens.computeIfPresent(token, (key, ids) -> {
+                            ids.remove(user.getId());
+                            return ids.isEmpty() ? null : ids;
+                        });
+                    }
+                }
+            }
+            for (String token : indexed.tokens()) {
+                tokens.computeIfAbsent(token, key -> ConcurrentHashMap.newKeySet()).add(user.getId());
+            }
+        }
+
+        List<UserDTO> search(String prefix, List<String> otherPrefixes, long excludedUserId, int limit) {
+            List<UserDTO> result = new ArrayList<>();
+            Set<Long> seen = new HashSet<>();
+            int scanned = 0;
+            for (Set<Long> ids : tokens.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                for (Long id : ids) {
+                    if (++scanned > MAX_SCANNED) {
+                        return result;
+                    }
+                    if (id == excludedUserId || !seen.add(id)) {
+                        continue;
+                    }
+                    IndexedUser user = users.get(id);
+                    if (user != null && user.matchesAll(otherPrefixes)) {
+                        result.add(user.user());
+                        if (result.size() >= limit) {
+                            return result;
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        int size() {
+            return users.size();
+        }
+    }
+}
@@ -5,23 +5,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.devStudy.chat.dao.UserRepository;
 import com.devStudy.chat.dto.CreateCompteDTO;
 import com.devStudy.chat.dto.DTOMapper;
+import com.devStudy.chat.dto.KeysetPageDTO;
 import com.devStudy.chat.dto.UserDTO;
 import com.devStudy.chat.model.User;
+import com.devStudy.chat.service.interfaces.PasswordHashingServiceInt;
 import com.devStudy.chat.service.interfaces.UserServiceInt;
+import com.devStudy.chat.service.utils.KeysetCursor;
+import com.devStudy.chat.service.utils.Events.UserChangeEvent;
 
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -33,22 +38,26 @@ import static com.devStudy.chat.service.utils.ConstantValues.CreationSuccess;
 
 
 @Service
-public class UserService implements UserServiceInt, UserDetailsService {
+public class UserService implements UserServiceInt, UserDetailsService, UserDetailsPasswordService {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(UserService.class);
 
     @Value("${chatroomApp.pageable.DefaultPageSize_Users}")
     private int DefaultPageSize_Users;
 
-    private final PasswordEncoder passwordEncoder;
+    // hachage sur le pool borné : un pool saturé renvoie un 503 au lieu de bloquer un thread Tomcat
+    private final PasswordHashingServiceInt passwordHashingService;
     private final UserRepository userRepository;
     private final JwtTokenService tokenService;
+    private final ApplicationEventPublisher publisher;
 
     @Autowired
-    public UserService(PasswordEncoder passwordEncoder, UserRepository userRepository, JwtTokenService tokenService) {
-        this.passwordEncoder = passwordEncoder;
+    public UserService(PasswordHashingServiceInt passwordHashingService, UserRepository userRepository, JwtTokenService tokenService,
+                       ApplicationEventPublisher publisher) {
+        this.passwordHashingService = passwordHashingService;
         this.userRepository = userRepository;
         this.tokenService = tokenService;
+        this.publisher = publisher;
     }
     
     private Pageable getPageableSetting(int page) {
@@ -98,9 +107,11 @@ public class UserService implements UserServiceInt, UserDetailsService {
         newUser.setFirstName(user.getFirstName());
         newUser.setLastName(user.getLastName());
         newUser.setMail(user.getMail());
-        newUser.setPwd(passwordEncoder.encode(user.getPassword()));
+        newUser.setPwd(passwordHashingService.encode(user.getPassword()));
         newUser.setAdmin(false);
         userRepository.save(newUser);
+        // le nouvel utilisateur devient trouvable par la recherche (/api/users/search) de toutes les instances
+        publisher.publishEvent(new UserChangeEvent(DTOMapper.toUserDTO(newUser)));
         user.setCreateMsg(CreationSuccess);
         return user;
     }
@@ -124,6 +135,18 @@ public class UserService implements UserServiceInt, UserDetailsService {
         		.map(DTOMapper::toUserDTO);
     }
 
+    /**
+     * Cette méthode permet de trouver les autres utilisateurs non administrateurs en pagination keyset (prénom, nom, id),
+     * sans OFFSET ni count(*) ; sans curseur on part du début de la liste
+     */
+    @Override
+    public KeysetPageDTO<UserDTO> findAllOtherUsersNotAdminAfter(String cursor, long userId) {
+        KeysetCursor after = cursor == null || cursor.isEmpty() ? KeysetCursor.of(0L, "", "") : KeysetCursor.decode(cursor, 2);
+        List<User> users = userRepository.findAllOtherUsersNotAdminAfter(userId,
+                after.key(0), after.key(1), after.id(), DefaultPageSize_Users + 1);
+        return KeysetPageDTO.fromRows(users, DefaultPageSize_Users, DTOMapper::toUserDTO, UserService::userCursor);
+    }
+
     /**
      * Cette méthode permet de trouver les utilisateurs invités à un chatroom
      */
@@ -138,19 +161,42 @@ public class UserService implements UserServiceInt, UserDetailsService {
      */
     @Override
     public Page<UserDTO> findUsersNotInvitedToChatroomByPage(long chatroomId, long userId, int page) {
-        return userRepository.findUsersNotInvitedToChatroomByPage(chatroomId, userId, this.getPageableSetting(page))
+        // tri (prénom, nom, id) écrit dans la requête native
+        return userRepository.findUsersNotInvitedToChatroomByPage(chatroomId, userId, PageRequest.of(page, DefaultPageSize_Users))
         		.map(DTOMapper::toUserDTO);
     }
 
+    /**
+     * Cette méthode permet de trouver les utilisateurs non invités à un chatroom en pagination keyset :
+     * la page reprend après le curseur (prénom, nom, id) de la page précédente, sans OFFSET ni count(*).
+     * Une ligne de plus que la taille de page est lue pour savoir s'il reste une page suivante
+     */
+    @Override
+    public KeysetPageDTO<UserDTO> findUsersNotInvitedToChatroomAfter(long chatroomId, long userId, String cursor) {
+        int limit = DefaultPageSize_Users + 1;
+        List<User> users;
+        if (cursor == null || cursor.isEmpty()) {
+            users = userRepository.findUsersNotInvitedToChatroomFirst(chatroomId, userId, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor, 2);
+            users = userRepository.findUsersNotInvitedToChatroomAfter(chatroomId, userId,
+                    after.key(0), after.key(1), after.id(), limit);
+        }
+        return KeysetPageDTO.fromRows(users, DefaultPageSize_Users, DTOMapper::toUserDTO, UserService::userCursor);
+    }
+
+    private static KeysetCursor userCursor(User user) {
+        return KeysetCursor.of(user.getId(), user.getFirstName(), user.getLastName());
+    }
+
     /**
      * Cette méthode permet de mise à jour le nombre d'essais de connexion d'un utilisateur
      */
     @Transactional
     @Override
     public int incrementFailedAttemptsOfUser(String userEmail) throws NoSuchElementException {
-    	int failedAttempts = findUserOrAdmin(userEmail, false).orElseThrow().getFailedAttempts();
-        userRepository.updateFailedAttempts(userEmail,failedAttempts+1);
-        return failedAttempts+1;
+        // incrément atomique : pas de lecture préalable, et deux échecs simultanés ne se perdent pas
+        return userRepository.incrementFailedAttempts(userEmail).orElseThrow();
     }
 
     /**
@@ -161,6 +207,7 @@ public class UserService implements UserServiceInt, UserDetailsService {
     public void lockUserAndResetFailedAttempts(String userEmail) {
         userRepository.updateActive(userEmail,false);
         resetFailedAttemptsOfUser(userEmail);
+        publishUserChange(userEmail);
     }
 
     /**
@@ -187,14 +234,19 @@ public class UserService implements UserServiceInt, UserDetailsService {
     public boolean resetPassword(String jwtToken, String password) {
 		String email = tokenService.validateTokenAndGetEmail(jwtToken);
 		if (!email.isEmpty()) {
-			userRepository.updatePwd(email, passwordEncoder.encode(password));
+			userRepository.updatePwd(email, passwordHashingService.encode(password));
+			publishUserChange(email);
 			return true;
 		}
 		return false;
     }
 
+	/**
+	 * Cette méthode renvoie l'entité User elle-même, le provider d'authentification s'en sert comme principal
+	 * sans la relire après la vérification du mot de passe
+	 */
 	@Override
-	public UserDetails loadUserByUsername(String userEmail) throws UsernameNotFoundException {
+	public User loadUserByUsername(String userEmail) throws UsernameNotFoundException {
 		Optional<User> account = findUserOrAdmin(userEmail, false);
 		if (account.isEmpty()) {
 			LOGGER.info("Identifiants incorrects");
@@ -208,10 +260,29 @@ public class UserService implements UserServiceInt, UserDetailsService {
         return account.get();
 	}
 
+	/**
+	 * Cette méthode permet d'enregistrer le nouveau hash d'un mot de passe re-haché à la connexion
+	 */
+	@Transactional
+	@Override
+	public UserDetails updatePassword(UserDetails user, String newPassword) {
+		userRepository.updatePwd(user.getUsername(), newPassword);
+		if (user instanceof User account) {
+			account.setPwd(newPassword);
+		}
+		return user;
+	}
+
 	@Transactional
 	@Override
 	public void resetFailedAttemptsOfUser(String username) {
         userRepository.updateFailedAttempts(username, 0);		
 	}
 
+	// le compte modifié est retiré du UserInfoCache de chaque instance (et ré-indexé pour la recherche)
+	private void publishUserChange(String userEmail) {
+		findUserOrAdmin(userEmail, false)
+				.ifPresent(user -> publisher.publishEvent(new UserChangeEvent(DTOMapper.toUserDTO(user))));
+	}
+
 }
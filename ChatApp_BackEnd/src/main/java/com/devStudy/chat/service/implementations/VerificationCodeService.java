@@ -6,13 +6,18 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.mail.SimpleMailMessage;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.stereotype.Service;
 
-import java.util.Random;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static com.devStudy.chat.service.utils.ConstantValues.ATTEMPTS_PREFIX;
+import static com.devStudy.chat.service.utils.ConstantValues.CODE_BUCKET_PREFIX;
+import static com.devStudy.chat.service.utils.ConstantValues.CODE_COOLDOWN_PREFIX;
 import static com.devStudy.chat.service.utils.ConstantValues.CODE_PREFIX;
 
 @Service
@@ -20,6 +25,7 @@ public class VerificationCodeService implements VerificationCodeServiceInt {
     private static final Logger logger = LoggerFactory.getLogger(VerificationCodeService.class);
 
     private final EmailService emailService;
+    private final CodeGeneratorService codeGeneratorService;
 
     //private final Map<String, VerificationCodeInfo> codeStorage = new ConcurrentHashMap<>();
     //private final Map<String, Integer> attemptsStorage = new ConcurrentHashMap<>();
@@ -29,15 +35,60 @@ public class VerificationCodeService implements VerificationCodeServiceInt {
     @Value("${chatroomApp.redis.expirationTime}")
     private int expirationTime;
 
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisScript<Long> rateLimitScript;
+    private final RedisScript<Long> compareAndDeleteScript;
+    private final RedisScript<Long> incrWithExpireScript;
+
+    @Value("${chatroomApp.verificationCode.cooldown}")
+    private long requestCooldown;
+
+    @Value("${chatroomApp.verificationCode.bucketCapacity}")
+    private int bucketCapacity;
+
+    @Value("${chatroomApp.verificationCode.refillInterval}")
+    private long refillInterval;
+
     @Autowired
-    VerificationCodeService(EmailService emailService, RedisTemplate<String, Object> redisTemplate) {
+    public VerificationCodeService(EmailService emailService, CodeGeneratorService codeGeneratorService, RedisTemplate<String, Object> redisTemplate,
+                            StringRedisTemplate stringRedisTemplate, RedisScript<Long> verificationCodeRateLimitScript,
+                            RedisScript<Long> compareAndDeleteScript, RedisScript<Long> incrWithExpireScript) {
         this.emailService = emailService;
+        this.codeGeneratorService = codeGeneratorService;
         this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.rateLimitScript = verificationCodeRateLimitScript;
+        this.compareAndDeleteScript = compareAndDeleteScript;
+        this.incrWithExpireScript = incrWithExpireScript;
+    }
+
+    /**
+     * Cette méthode permet de vérifier, avant de publier la demande dans RabbitMQ, qu'un email peut recevoir un nouveau code :
+     * un seul code par période de cooldown, et un nombre limité de codes par fenêtre (token bucket).
+     * Les deux contrôles sont faits en un seul aller-retour atomique (script Lua)
+     * Retourne 0 si la demande est acceptée, sinon le nombre de millisecondes à attendre
+     */
+    @Override
+    public long acquireCodeRequest(String email) {
+        Long retryAfter = stringRedisTemplate.execute(rateLimitScript,
+                List.of(CODE_COOLDOWN_PREFIX + email, CODE_BUCKET_PREFIX + email),
+                String.valueOf(requestCooldown), String.valueOf(bucketCapacity), String.valueOf(refillInterval));
+        return retryAfter == null ? 0 : retryAfter;
     }
 
     @Override
     public void sendCode(String email) {
-        String code = generateRandomCode();
+        SimpleMailMessage message = prepareCodeMail(email);
+        emailService.sendSimpleMessage(email, message.getSubject(), message.getText());
+    }
+
+    /**
+     * Cette méthode permet de générer et stocker un nouveau code, et de construire le mail qui le porte
+     * sans l'envoyer : les consommateurs RabbitMQ envoient ces mails par lots
+     */
+    @Override
+    public SimpleMailMessage prepareCodeMail(String email) {
+        String code = codeGeneratorService.nextCode();
         logger.info("Sending code to {}, code : {}", email, code);
 
         //codeStorage.put(email, new VerificationCodeInfo(code, System.currentTimeMillis() + 300000));
@@ -46,33 +97,29 @@ public class VerificationCodeService implements VerificationCodeServiceInt {
                                         expirationTime,
                                         TimeUnit.SECONDS);
 
-        sendEmailWithCode(email, code);
+        return buildEmailWithCode(email, code);
     }
 
+    /**
+     * Cette méthode permet de valider un code et de le consommer dans le même appel atomique (compare-and-delete) :
+     * deux requêtes concurrentes avec le bon code ne peuvent pas réussir toutes les deux
+     * Le code est passé par redisTemplate pour être sérialisé comme la valeur stockée
+     */
     @Override
     public boolean validateCode(String email, String code) throws BadCredentialsException {
         //VerificationCodeInfo storedInfo = codeStorage.get(email);
-        String storedCode = (String) redisTemplate.opsForValue().get(CODE_PREFIX + email);
-        if (storedCode == null) {
+        Long result = redisTemplate.execute(compareAndDeleteScript,
+                List.of(CODE_PREFIX + email, ATTEMPTS_PREFIX + email), code);
+        if (result == null || result < 0) {
             throw new BadCredentialsException("Il n'y a pas de code valable pour votre compte, veuillez le redemander");
         }
-        if (storedCode.equals(code)) {
-            invalideteCode(email);
-            return true;
-        }
-        return false;
+        return result == 1;
     }
 
     @Override
     public int incrementLoginAttempts(String email) {
         //return attemptsStorage.merge(email, 1, Integer::sum);
-        String key = ATTEMPTS_PREFIX + email;
-        Long attempts = redisTemplate.opsForValue().increment(key);
-
-        if (attempts != null && attempts == 1) {
-            redisTemplate.expire(key, expirationTime, TimeUnit.SECONDS);
-        }
-
+        Long attempts = redisTemplate.execute(incrWithExpireScript, List.of(ATTEMPTS_PREFIX + email), expirationTime);
         return attempts != null ? attempts.intValue() : 1;
     }
 
@@ -80,15 +127,10 @@ public class VerificationCodeService implements VerificationCodeServiceInt {
     public void invalideteCode(String email) {
         //codeStorage.remove(email);
         //attemptsStorage.remove(email);
-        redisTemplate.delete(CODE_PREFIX + email);
-        redisTemplate.delete(ATTEMPTS_PREFIX + email);
-    }
-
-    private String generateRandomCode() {
-        return String.format("%06d", new Random().nextInt(1000000)); // 生成6位随机数
+        redisTemplate.delete(List.of(CODE_PREFIX + email, ATTEMPTS_PREFIX + email));
     }
 
-    private void sendEmailWithCode(String email, String code) {
+    private SimpleMailMessage buildEmailWithCode(String email, String code) {
         String subject = "Verification Code";
         String body = String.format("""
                       Bonjour,
@@ -100,6 +142,6 @@ public class VerificationCodeService implements VerificationCodeServiceInt {
                       Cordialement,
                       Votre équipe de support
                       """, code);
-        emailService.sendSimpleMessage(email, subject, body);
+        return emailService.buildMessage(email, subject, body);
     }
 }
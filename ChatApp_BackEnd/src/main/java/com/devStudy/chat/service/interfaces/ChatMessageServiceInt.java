@@ -5,12 +5,19 @@ import java.util.List;
 
 import com.devStudy.chat.dto.ChatMsgDTO;
 import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.model.ChatMessage;
 
 public interface ChatMessageServiceInt {
 	
-	public void saveMsgIntoCollection(long chatroomId, UserDTO sender, String content, Date timestamp);
+	public long saveMsgIntoCollection(long chatroomId, UserDTO sender, String content, Date timestamp);
+	
+	public long currentSequence(long chatroomId);
+	
+	public List<ChatMessage> getChatMessagesAfterSeq(long chatroomId, long lastSeq, int limit);
 	
 	public List<ChatMsgDTO> getChatMessagesByChatroomId(long chatroomId);
 	
 	public List<ChatMsgDTO> getChatMessagesByChatroomIdByPage(long chatroomId, int page);
+	
+	public long deleteMessagesOfChatroom(long chatroomId);
 }
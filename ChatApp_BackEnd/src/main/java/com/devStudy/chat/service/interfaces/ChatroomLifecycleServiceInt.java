@@ -0,0 +1,12 @@
+package com.devStudy.chat.service.interfaces;
+
+import java.time.LocalDateTime;
+
+public interface ChatroomLifecycleServiceInt {
+
+    // avancer le statut des chatrooms dont l'horaire de début ou de fin est passé, renvoie le nombre de chatrooms changés
+    int advanceLifecycles(LocalDateTime now);
+
+    // passage planifié : une seule instance à la fois (bail Redis)
+    void scheduledAdvance();
+}
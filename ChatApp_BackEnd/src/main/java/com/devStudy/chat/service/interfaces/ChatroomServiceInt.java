@@ -5,6 +5,7 @@ import org.springframework.data.domain.Page;
 import com.devStudy.chat.dto.ChatroomDTO;
 import com.devStudy.chat.dto.ChatroomRequestDTO;
 import com.devStudy.chat.dto.ChatroomWithOwnerAndStatusDTO;
+import com.devStudy.chat.dto.KeysetPageDTO;
 import com.devStudy.chat.dto.ModifyChatroomDTO;
 import com.devStudy.chat.dto.ModifyChatroomRequestDTO;
 import com.devStudy.chat.dto.UserDTO;
@@ -20,6 +21,10 @@ public interface ChatroomServiceInt {
     Page<ChatroomDTO> getChatroomsOwnedOfUserByPage(long userId, int page);
     
     Page<ChatroomWithOwnerAndStatusDTO> getChatroomsJoinedOfUserByPage(long userId, boolean isOwner, int page);
+
+    KeysetPageDTO<ChatroomDTO> getChatroomsOwnedOfUserAfter(long userId, String cursor);
+
+    KeysetPageDTO<ChatroomWithOwnerAndStatusDTO> getChatroomsJoinedOfUserAfter(long userId, boolean isOwner, String cursor);
     
     List<UserDTO> getAllUsersInChatroom(long chatroomId);
 
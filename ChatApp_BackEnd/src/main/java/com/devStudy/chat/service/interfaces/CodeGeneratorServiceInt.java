@@ -0,0 +1,7 @@
+package com.devStudy.chat.service.interfaces;
+
+public interface CodeGeneratorServiceInt {
+
+    // obtenir un code de vérification à 6 chiffres, sans attendre l'entropie du système
+    String nextCode();
+}
@@ -1,8 +1,19 @@
 package com.devStudy.chat.service.interfaces;
 
+import org.springframework.mail.SimpleMailMessage;
+
+import java.util.List;
+import java.util.Map;
+
 public interface EmailServiceInt {
 
+    // construire un message simple avec l'expéditeur configuré
+    SimpleMailMessage buildMessage(String to, String subject, String text);
+
     // envoyer un message simple à l'adresse email spécifiée
     void sendSimpleMessage(String to, String subject, String text);
 
+    // envoyer un lot de messages sur une seule session SMTP, renvoie les messages non envoyés avec leur cause
+    Map<SimpleMailMessage, Exception> sendBatch(List<SimpleMailMessage> messages, boolean priority);
+
 }
@@ -0,0 +1,15 @@
+package com.devStudy.chat.service.interfaces;
+
+import java.util.function.Consumer;
+
+public interface PasswordHashingServiceInt {
+
+    // vérifier un mot de passe sur le pool dédié, LoginOverloadedException si le pool est saturé
+    boolean matches(String rawPassword, String encodedPassword);
+
+    // hacher un mot de passe sur le pool dédié
+    String encode(String rawPassword);
+
+    // re-hacher en arrière-plan un mot de passe dont le hash n'utilise plus l'algorithme/coût configuré
+    void rehashIfNeeded(String rawPassword, String encodedPassword, Consumer<String> storeNewHash);
+}
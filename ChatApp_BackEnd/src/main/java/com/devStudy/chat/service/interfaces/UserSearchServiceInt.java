@@ -0,0 +1,19 @@
+package com.devStudy.chat.service.interfaces;
+
+import java.util.List;
+
+import com.devStudy.chat.dto.UserDTO;
+
+public interface UserSearchServiceInt {
+
+    // rechercher les utilisateurs non administrateurs dont le prénom, le nom ou le mail commencent par chaque terme de la requête
+    List<UserDTO> search(String query, long excludedUserId);
+
+    // reconstruire l'index depuis PostgreSQL
+    void rebuild();
+
+    // ajouter ou mettre à jour un utilisateur dans l'index local
+    void index(UserDTO user);
+
+    int getIndexedUsers();
+}
@@ -4,6 +4,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.data.domain.Page;
 
 import com.devStudy.chat.dto.CreateCompteDTO;
+import com.devStudy.chat.dto.KeysetPageDTO;
 import com.devStudy.chat.dto.UserDTO;
 import com.devStudy.chat.model.User;
 
@@ -24,10 +25,14 @@ public interface UserServiceInt {
 
     Page<UserDTO> findAllOtherUsersNotAdminByPage(int page, long userId);
 
+    KeysetPageDTO<UserDTO> findAllOtherUsersNotAdminAfter(String cursor, long userId);
+
     Page<UserDTO> findUsersInvitedToChatroomByPage(long chatroomId, int page);
 
     Page<UserDTO> findUsersNotInvitedToChatroomByPage(long chatroomId, long userId, int page);
 
+    KeysetPageDTO<UserDTO> findUsersNotInvitedToChatroomAfter(long chatroomId, long userId, String cursor);
+
     int incrementFailedAttemptsOfUser(String userEmail);
 
     void lockUserAndResetFailedAttempts(String userEmail);
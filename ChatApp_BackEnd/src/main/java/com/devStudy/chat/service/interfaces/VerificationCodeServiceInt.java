@@ -1,9 +1,13 @@
 package com.devStudy.chat.service.interfaces;
 
+import org.springframework.mail.SimpleMailMessage;
+
 import java.util.Map;
 
 public interface VerificationCodeServiceInt {
+    long acquireCodeRequest(String email);
     void sendCode(String email);
+    SimpleMailMessage prepareCodeMail(String email);
     boolean validateCode(String email, String code);
     int incrementLoginAttempts(String email);
     void invalideteCode(String email);
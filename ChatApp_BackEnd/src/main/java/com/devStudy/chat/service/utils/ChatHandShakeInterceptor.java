@@ -1,52 +1,183 @@
 package com.devStudy.chat.service.utils;
 
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.server.HandshakeInterceptor;
-import org.springframework.web.util.UriTemplate;
+
+import com.devStudy.chat.dto.DTOMapper;
+import com.devStudy.chat.model.User;
+import com.devStudy.chat.websocket.distributed.RoomAffinityService;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 public class ChatHandShakeInterceptor implements HandshakeInterceptor {
 
-	private final String CHAT_ENDPOINT;
+	private static final long INVALID_ID = -1L;
+
+	// Template compiled once : literals[i] precedes variables[i], the last literal closes the path
+	private final String[] literals;
+	private final String[] variables;
+	private final int chatroomIdIndex;
+	private final int userIdIndex;
+	// null : pas d'indice de noeud dans la réponse
+	private final RoomAffinityService roomAffinityService;
 
 	public ChatHandShakeInterceptor(String CHAT_ENDPOINT){
-		this.CHAT_ENDPOINT = CHAT_ENDPOINT;
+		this(CHAT_ENDPOINT, null);
+	}
+
+	public ChatHandShakeInterceptor(String CHAT_ENDPOINT, RoomAffinityService roomAffinityService){
+		this.roomAffinityService = roomAffinityService;
+		List<String> literalParts = new ArrayList<>();
+		List<String> variableNames = new ArrayList<>();
+		int start = 0;
+		int open;
+		while ((open = CHAT_ENDPOINT.indexOf('{', start)) >= 0) {
+			int close = CHAT_ENDPOINT.indexOf('}', open);
+			if (close < 0) {
+				throw new IllegalArgumentException("Unclosed variable in chat endpoint : " + CHAT_ENDPOINT);
+			}
+			literalParts.add(CHAT_ENDPOINT.substring(start, open));
+			variableNames.add(CHAT_ENDPOINT.substring(open + 1, close));
+			start = close + 1;
+		}
+		literalParts.add(CHAT_ENDPOINT.substring(start));
+
+		this.literals = literalParts.toArray(new String[0]);
+		this.variables = variableNames.toArray(new String[0]);
+		this.chatroomIdIndex = variableNames.indexOf("chatroomId");
+		this.userIdIndex = variableNames.indexOf("userId");
+		if (chatroomIdIndex < 0 || userIdIndex < 0) {
+			throw new IllegalArgumentException("Chat endpoint must declare {chatroomId} and {userId} : " + CHAT_ENDPOINT);
+		}
 	}
 
 	@Override
-	public boolean beforeHandshake(ServerHttpRequest request, 
-								   ServerHttpResponse response, 
+	public boolean beforeHandshake(ServerHttpRequest request,
+								   ServerHttpResponse response,
 								   WebSocketHandler wsHandler,
 								   Map<String, Object> attributes) {
 
-		if(request instanceof ServletServerHttpRequest){
-			// Get URI template variables
-			UriTemplate uriTemplate = new UriTemplate(CHAT_ENDPOINT);
-			Map<String, String> uriTemplateVars = uriTemplate.match(request.getURI().toString());
-			if (!uriTemplateVars.isEmpty()) {
-				String chatroomId = uriTemplateVars.get("chatroomId");
-				String userId = uriTemplateVars.get("userId");
-
-				if(userId.contains("?")){
-					userId = userId.substring(0, userId.indexOf("?"));
-				}
-				// Put URI template variables in attributes
-				attributes.put("chatroomId", Long.parseLong(chatroomId));
-				attributes.put("userId", Long.parseLong(userId));
+		if(!(request instanceof ServletServerHttpRequest servletRequest)){
+			return true;
+		}
+		// Only the path is matched, the query string never reaches the parser
+		HttpServletRequest httpRequest = servletRequest.getServletRequest();
+		long[] values = matchPath(httpRequest.getRequestURI(), httpRequest.getContextPath().length());
+		if (values == null) {
+			response.setStatusCode(HttpStatus.BAD_REQUEST);
+			return false;
+		}
+		long chatroomId = values[chatroomIdIndex];
+		long userId = values[userIdIndex];
+
+		// The user in the path must be the authenticated one
+		User principal = getAuthenticatedUser(request.getPrincipal());
+		if (principal == null) {
+			response.setStatusCode(HttpStatus.UNAUTHORIZED);
+			return false;
+		}
+		if (principal.getId() != userId) {
+			response.setStatusCode(HttpStatus.FORBIDDEN);
+			return false;
+		}
+
+		// Put URI template variables in attributes
+		attributes.put("chatroomId", chatroomId);
+		attributes.put("userId", userId);
+		// The principal is already loaded by the security filter, no need to query the user again on connect
+		attributes.put("userInfo", DTOMapper.toUserDTO(principal));
+		// Reconnection : last message sequence seen by the client, the missed messages are replayed on connect
+		String lastSeq = httpRequest.getParameter("lastSeq");
+		if (lastSeq != null) {
+			long seq = parseId(lastSeq, 0, lastSeq.length());
+			if (seq != INVALID_ID) {
+				attributes.put("lastSeq", seq);
+			}
+		}
+
+		// The connection is accepted on any node : the hint lets the client / proxy reconnect to the chatroom owner next time
+		if (roomAffinityService != null) {
+			String owner = roomAffinityService.handshakeHint(chatroomId);
+			if (owner != null) {
+				response.getHeaders().set(ConstantValues.AFFINITY_NODE_HEADER, owner);
 			}
 		}
 		return true;
 	}
 
 	@Override
-	public void afterHandshake(ServerHttpRequest request, 
-							   ServerHttpResponse response, 
-							   WebSocketHandler wsHandler, 
+	public void afterHandshake(ServerHttpRequest request,
+							   ServerHttpResponse response,
+							   WebSocketHandler wsHandler,
 							   Exception exception) {}
 
+	/**
+	 * Cette méthode permet de parser le chemin de la requête avec le template pré-compilé,
+	 * elle retourne null si le chemin ne correspond pas au template (aucune exception levée)
+	 */
+	long[] matchPath(String path, int offset) {
+		if (path == null) {
+			return null;
+		}
+		long[] values = new long[variables.length];
+		int pos = offset;
+		for (int i = 0; i < variables.length; i++) {
+			if (!path.startsWith(literals[i], pos)) {
+				return null;
+			}
+			pos += literals[i].length();
+			String nextLiteral = literals[i + 1];
+			int end = nextLiteral.isEmpty() ? path.length() : path.indexOf(nextLiteral.charAt(0), pos);
+			if (end < 0) {
+				end = path.length();
+			}
+			long value = parseId(path, pos, end);
+			if (value == INVALID_ID) {
+				return null;
+			}
+			values[i] = value;
+			pos = end;
+		}
+		String lastLiteral = literals[variables.length];
+		if (path.length() - pos != lastLiteral.length() || !path.startsWith(lastLiteral, pos)) {
+			return null;
+		}
+		return values;
+	}
+
+	private static long parseId(CharSequence s, int start, int end) {
+		int length = end - start;
+		// 18 digits always fit in a long, longer ids are rejected rather than checked for overflow
+		if (length <= 0 || length > 18) {
+			return INVALID_ID;
+		}
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			char c = s.charAt(i);
+			if (c < '0' || c > '9') {
+				return INVALID_ID;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	private static User getAuthenticatedUser(Principal principal) {
+		if (principal instanceof Authentication authentication
+				&& authentication.isAuthenticated()
+				&& authentication.getPrincipal() instanceof User user) {
+			return user;
+		}
+		return null;
+	}
 }
@@ -0,0 +1,247 @@
+package com.devStudy.chat.service.utils;
+
+import static com.devStudy.chat.service.utils.ConstantValues.CHATROOM_LISTS_INVALIDATION_CHANNEL;
+import static com.devStudy.chat.service.utils.ConstantValues.CHATROOM_LISTS_KEY;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.service.utils.Events.ChangeChatroomMemberEvent;
+import com.devStudy.chat.service.utils.Events.ChatroomLifecycleEvent;
+import com.devStudy.chat.service.utils.Events.RemoveChatroomEvent;
+import com.devStudy.chat.websocket.distributed.ChatMessageBroker;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Cache à deux niveaux des premières pages des listes de chatrooms d'un utilisateur (créés / rejoints) :
+ * une map locale à courte durée de vie, puis un hash Redis par utilisateur (un champ par liste et par page), puis PostgreSQL.
+ * Les entrées d'un utilisateur sont supprimées après le commit de tout changement qui touche ses listes
+ * (ChangeChatroomMemberEvent, RemoveChatroomEvent, ChatroomLifecycleEvent), sur cette instance puis sur les autres via pub/sub Redis.
+ */
+@Component
+public class ChatroomListCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatroomListCache.class);
+
+    public static final String OWNED = "owned";
+    public static final String JOINED = "joined";
+    public static final String CREATED = "created";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // userId -> (liste:page -> page en cache) ; une invalidation retire l'objet entier,
+    // une lecture commencée avant ne peut donc pas y réécrire une page périmée
+    private final Map<Long, Map<String, CachedPage>> localCache = new ConcurrentHashMap<>();
+
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+    private final Counter invalidations;
+    private final Timer servedAge;
+
+    @Value("${chatroomApp.chatroomListCache.cachedPages}")
+    private int cachedPages;
+
+    @Value("${chatroomApp.chatroomListCache.localTtl}")
+    private long localTtl;
+
+    @Value("${chatroomApp.chatroomListCache.redisTtl}")
+    private long redisTtl;
+
+    @Value("${chatroomApp.chatroomListCache.maxUsers}")
+    private int maxUsers;
+
+    @Autowired
+    public ChatroomListCache(StringRedisTemplate redisTemplate, RedisMessageListenerContainer redisMessageListenerContainer,
+                             ChatMetrics chatMetrics) {
+        this.redisTemplate = redisTemplate;
+        this.redisMessageListenerContainer = redisMessageListenerContainer;
+        String requests = "chatroom.list.cache.requests";
+        this.localHits = chatMetrics.registerCounter(requests, "Chatroom list page requests by cache level", "result", "local_hit");
+        this.redisHits = chatMetrics.registerCounter(requests, "Chatroom list page requests by cache level", "result", "redis_hit");
+        this.misses = chatMetrics.registerCounter(requests, "Chatroom list page requests by cache level", "result", "miss");
+        this.invalidations = chatMetrics.registerCounter("chatroom.list.cache.invalidations",
+                "Users whose cached chatroom lists were invalidated");
+        // âge des pages servies depuis le cache : borne la fraîcheur des listes si une invalidation est perdue
+        this.servedAge = chatMetrics.registerTimer("chatroom.list.cache.served.age", "Age of the chatroom list pages served from the cache");
+        chatMetrics.registerGauge("chatroom.list.cache.hit.ratio", "Share of chatroom list page requests served from the cache",
+                this::getHitRatio);
+    }
+
+    @PostConstruct
+    public void subscribeToInvalidations() {
+        redisMessageListenerContainer.addMessageListener(
+                (message, pattern) -> handleRemoteInvalidation(message.getBody()), new ChannelTopic(CHATROOM_LISTS_INVALIDATION_CHANNEL));
+    }
+
+    /**
+     * Cette méthode permet de lire une page d'une liste de chatrooms depuis le cache, ou depuis loader en cas d'absence.
+     * Seules les cachedPages premières pages sont mises en cache
+     */
+    public <T> Page<T> get(long userId, String list, Pageable pageable, Class<T> type, Supplier<Page<T>> loader) {
+        if (pageable.getPageNumber() >= cachedPages) {
+            return loader.get();
+        }
+        String field = list + ":" + pageable.getPageNumber();
+        long now = System.currentTimeMillis();
+
+        Map<String, CachedPage> userPages = localUserPages(userId);
+        CachedPage cached = userPages.get(field);
+        if (cached != null && now - cached.cachedAt() < TimeUnit.SECONDS.toMillis(localTtl)) {
+            return hit(localHits, cached, pageable, type, now);
+        }
+
+        cached = readFromRedis(userId, field, now);
+        if (cached != null) {
+            userPages.put(field, cached);
+            return hit(redisHits, cached, pageable, type, now);
+        }
+
+        misses.increment();
+        Page<T> page = loader.get();
+        cached = new CachedPage(objectMapper.valueToTree(page.getContent()), page.getTotalElements(), now);
+        userPages.put(field, cached);
+        // pas d'écriture dans Redis si une invalidation est passée pendant la lecture en base
+        if (localCache.get(userId) == userPages) {
+            writeToRedis(userId, field, cached);
+        }
+        return page;
+    }
+
+    private Map<String, CachedPage> localUserPages(long userId) {
+        Map<String, CachedPage> userPages = localCache.get(userId);
+        if (userPages != null) {
+            return userPages;
+        }
+        if (localCache.size() >= maxUsers) {
+            // plein : on repart de zéro plutôt que de suivre un ordre d'éviction (les entrées vivent quelques secondes)
+            localCache.clear();
+        }
+        return localCache.computeIfAbsent(userId, id -> new ConcurrentHashMap<>());
+    }
+
+    private <T> Page<T> hit(Counter counter, CachedPage cached, Pageable pageable, Class<T> type, long now) {
+        counter.increment();
+        servedAge.record(now - cached.cachedAt(), TimeUnit.MILLISECONDS);
+        List<T> content = objectMapper.convertValue(cached.content(),
+                objectMapper.getTypeFactory().constructCollectionType(List.class, type));
+        return new PageImpl<>(content, pageable, cached.total());
+    }
+
+    private CachedPage readFromRedis(long userId, String field, long now) {
+        try {
+            Object json = redisTemplate.opsForHash().get(String.format(CHATROOM_LISTS_KEY, userId), field);
+            if (json == null) {
+                return null;
+            }
+            JsonNode node = objectMapper.readTree(json.toString());
+            long cachedAt = node.get("cachedAt").asLong();
+            // l'EXPIRE du hash est repoussé à chaque écriture d'un autre champ : l'âge de chaque page est donc vérifié ici
+            if (now - cachedAt >= TimeUnit.SECONDS.toMillis(redisTtl)) {
+                return null;
+            }
+            return new CachedPage(node.get("content"), node.get("total").asLong(), cachedAt);
+        } catch (Exception e) {
+            LOGGER.debug("Chatroom list cache read failed for user {} : {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToRedis(long userId, String field, CachedPage cached) {
+        try {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.set("content", cached.content());
+            node.put("total", cached.total());
+            node.put("cachedAt", cached.cachedAt());
+            String key = String.format(CHATROOM_LISTS_KEY, userId);
+            redisTemplate.opsForHash().put(key, field, objectMapper.writeValueAsString(node));
+            redisTemplate.expire(key, redisTtl, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            LOGGER.debug("Chatroom list cache write failed for user {} : {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Cette méthode permet de supprimer les listes en cache des utilisateurs donnés : localement, dans Redis (un seul DEL),
+     * puis sur les autres instances
+     */
+    public void evict(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        userIds.forEach(localCache::remove);
+        invalidations.increment(userIds.size());
+        try {
+            redisTemplate.delete(userIds.stream().map(userId -> String.format(CHATROOM_LISTS_KEY, userId)).toList());
+            redisTemplate.convertAndSend(CHATROOM_LISTS_INVALIDATION_CHANNEL,
+                    objectMapper.writeValueAsString(new InvalidationMessage(ChatMessageBroker.getInstanceId(), List.copyOf(userIds))));
+        } catch (Exception e) {
+            LOGGER.warn("Failed to invalidate the chatroom lists of {} users in Redis : {}", userIds.size(), e.getMessage());
+        }
+    }
+
+    void handleRemoteInvalidation(byte[] body) {
+        try {
+            InvalidationMessage invalidation = objectMapper.readValue(body, InvalidationMessage.class);
+            if (!ChatMessageBroker.getInstanceId().equals(invalidation.instanceId())) {
+                invalidation.userIds().forEach(localCache::remove);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error processing chatroom list invalidation message", e);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void changeChatroomMemberEventListener(ChangeChatroomMemberEvent event) {
+        evict(event.getAffectedUserIds());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void removeChatroomEventListener(RemoveChatroomEvent event) {
+        evict(event.getAffectedUserIds());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void chatroomLifecycleEventListener(ChatroomLifecycleEvent event) {
+        evict(event.getAffectedUserIds());
+    }
+
+    public double getHitRatio() {
+        double hits = localHits.count() + redisHits.count();
+        double total = hits + misses.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private record CachedPage(JsonNode content, long total, long cachedAt) {
+    }
+
+    record InvalidationMessage(String instanceId, List<Long> userIds) {
+    }
+}
@@ -38,6 +38,10 @@ public final class ConstantValues {
     public static final int MESSAGE_REMOVE_CHATROOM = 3;
     public static final int MESSAGE_ADD_CHATROOM_MEMBER = 4;
     public static final int MESSAGE_REMOVE_CHATROOM_MEMBER = 5;
+    // control frame : the node is draining, the client reconnects after "reconnectAfter" ms
+    public static final int MESSAGE_RECONNECT = 6;
+    // control frame sent after connect : current "seq" of the chatroom, "complete" false if the gap was too large to replay
+    public static final int MESSAGE_RESUME = 7;
 
     // Jwt token flag
     public static final String TOKEN_FLAG_RESET_PASSWORD = "resetPassword";
@@ -54,8 +58,38 @@ public final class ConstantValues {
     public static final String ROUTING_KEY_RET_PASSWORD = "mail.resetPassword";
     public static final String ROUTING_KEY_VERIFICATION_CODE = "mail.verificationCode";
 
+    // RabbitMQ mail retry (one queue per backoff delay with a queue-level TTL, then dead-lettered back to RABBITMQ_EXCHANGE_NAME) and parking queue
+    public static final String RABBITMQ_MAIL_RETRY_EXCHANGE = "mail-retry-delay-exchange";
+    public static final String RABBITMQ_MAIL_RETRY_QUEUE = "sendMail-retry-queue.%d";
+    public static final String HEADER_MAIL_RETRY_DELAY = "x-mail-retry-delay";
+    public static final String RABBITMQ_MAIL_DEAD_LETTER_EXCHANGE = "mail-dead-letter-exchange";
+    public static final String RABBITMQ_MAIL_DEAD_LETTER_QUEUE = "sendMail-dead-letter-queue";
+    public static final String ROUTING_KEY_ALL_MAILS = "mail.#";
+    public static final String HEADER_MAIL_ATTEMPTS = "x-mail-attempts";
+    public static final String HEADER_MAIL_LAST_ERROR = "x-mail-last-error";
+
     public static final String CHATROOM_CHANNEL = "channel:chatroom:%d";
     public static final String CHATROOM_USERS_KEY = "chatroom:%d:user:";
+    // backend instances : registry of known ids, short-TTL heartbeat, presence keys owned by each instance, purge lease of a dead one
+    public static final String INSTANCES_KEY = "chat:instances";
+    public static final String INSTANCE_HEARTBEAT_KEY = "chat:instance:%s:heartbeat";
+    public static final String INSTANCE_PRESENCE_KEY = "chat:instance:%s:presence";
+    public static final String INSTANCE_PURGE_LOCK_KEY = "chat:instance:%s:purge-lock";
+    // presence key -> owner instance id
+    public static final String PRESENCE_OWNERS_KEY = "chat:presence:owners";
+    // instance id -> address the frontend routes to, members of the room affinity ring
+    public static final String AFFINITY_NODES_KEY = "chat:affinity:nodes";
+    // handshake response header naming the node that owns the chatroom
+    public static final String AFFINITY_NODE_HEADER = "X-Chat-Room-Node";
+    // user created / updated on one instance, applied to the user search index of the others
+    public static final String USER_CHANGES_CHANNEL = "channel:users:changes";
+    // per-user cache of the first pages of the chatroom lists, and its cross-instance invalidation channel
+    public static final String CHATROOM_LISTS_KEY = "chatroom:lists:user:%d";
+    public static final String CHATROOM_LISTS_INVALIDATION_CHANNEL = "channel:chatroom-lists:invalidate";
+    // per-chatroom message sequence counter
+    public static final String CHATROOM_SEQ_KEY = "chatroom:%d:seq";
+    // lease taken by the instance running the chatroom lifecycle job (one instance per run)
+    public static final String CHATROOM_LIFECYCLE_LOCK_KEY = "chatroom:lifecycle:lock";
 
     // JWT token - cookie name
     public static final String JWT_TOKEN_COOKIE_NAME = "JWT-Token";
@@ -63,5 +97,7 @@ public final class ConstantValues {
     // Redis keys for verification code and attempts
     public static final String CODE_PREFIX = "verification:code:";
     public static final String ATTEMPTS_PREFIX = "verification:attempts:";
+    public static final String CODE_COOLDOWN_PREFIX = "verification:cooldown:";
+    public static final String CODE_BUCKET_PREFIX = "verification:bucket:";
     public static final String BLACKLIST_PREFIX = "token:blacklist:";
 }
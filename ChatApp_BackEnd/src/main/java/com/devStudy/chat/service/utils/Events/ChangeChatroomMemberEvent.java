@@ -2,6 +2,7 @@ package com.devStudy.chat.service.utils.Events;
 
 import java.io.Serial;
 import java.util.List;
+import java.util.Set;
 
 import org.springframework.context.ApplicationEvent;
 
@@ -17,12 +18,20 @@ public class ChangeChatroomMemberEvent extends ApplicationEvent {
 	private final List<UserDTO> addedMembers;
 	
 	private final List<UserDTO> removedMembers;
+	
+	// utilisateurs dont les listes de chatrooms (créés / rejoints) ont changé
+	private final Set<Long> affectedUserIds;
 
 	public ChangeChatroomMemberEvent(long chatroomId, List<UserDTO> addedMembers, List<UserDTO> removedMembers) {
+		this(chatroomId, addedMembers, removedMembers, Set.of());
+	}
+
+	public ChangeChatroomMemberEvent(long chatroomId, List<UserDTO> addedMembers, List<UserDTO> removedMembers, Set<Long> affectedUserIds) {
 		super(chatroomId);
 		this.chatroomId = chatroomId;
 		this.addedMembers = addedMembers;
 		this.removedMembers = removedMembers;
+		this.affectedUserIds = affectedUserIds;
 	}
 	
 	public long getChatroomId() {
@@ -36,5 +45,9 @@ public class ChangeChatroomMemberEvent extends ApplicationEvent {
 	public List<UserDTO> getRemovedMembers() {
 		return removedMembers;
 	}
+	
+	public Set<Long> getAffectedUserIds() {
+		return affectedUserIds;
+	}
 
 }
@@ -0,0 +1,42 @@
+package com.devStudy.chat.service.utils.Events;
+
+import java.io.Serial;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.context.ApplicationEvent;
+
+import com.devStudy.chat.model.ChatroomStatus;
+
+public class ChatroomLifecycleEvent extends ApplicationEvent {
+
+	@Serial
+	private static final long serialVersionUID = -2716348290571634127L;
+
+	// chatrooms passés au statut status dans le même lot
+	private final List<Long> chatroomIds;
+
+	private final ChatroomStatus status;
+
+	// créateurs et membres de ces chatrooms, dont les listes de chatrooms ont changé
+	private final Set<Long> affectedUserIds;
+
+	public ChatroomLifecycleEvent(List<Long> chatroomIds, ChatroomStatus status, Set<Long> affectedUserIds) {
+		super(status);
+		this.chatroomIds = chatroomIds;
+		this.status = status;
+		this.affectedUserIds = affectedUserIds;
+	}
+
+	public List<Long> getChatroomIds() {
+		return chatroomIds;
+	}
+
+	public ChatroomStatus getStatus() {
+		return status;
+	}
+
+	public Set<Long> getAffectedUserIds() {
+		return affectedUserIds;
+	}
+}
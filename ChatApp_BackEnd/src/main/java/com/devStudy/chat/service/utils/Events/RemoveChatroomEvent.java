@@ -3,20 +3,32 @@ package com.devStudy.chat.service.utils.Events;
 import org.springframework.context.ApplicationEvent;
 
 import java.io.Serial;
+import java.util.Set;
 
 public class RemoveChatroomEvent extends ApplicationEvent {
 	
 	@Serial
 	private static final long serialVersionUID = -4118480440900563692L;
 	private final long chatroomId;
+	// le créateur et les membres du chatroom supprimé, dont les listes de chatrooms changent
+	private final Set<Long> affectedUserIds;
 	
 	public RemoveChatroomEvent(long chatroomId) {
+		this(chatroomId, Set.of());
+	}
+	
+	public RemoveChatroomEvent(long chatroomId, Set<Long> affectedUserIds) {
 		super(chatroomId);
 		this.chatroomId = chatroomId;
+		this.affectedUserIds = affectedUserIds;
 	}
 	
 	public long getEventMsg() {
 		return this.chatroomId;
 	}
 	
+	public Set<Long> getAffectedUserIds() {
+		return affectedUserIds;
+	}
+	
 }
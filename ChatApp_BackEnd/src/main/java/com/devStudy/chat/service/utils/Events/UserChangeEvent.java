@@ -0,0 +1,24 @@
+package com.devStudy.chat.service.utils.Events;
+
+import java.io.Serial;
+
+import org.springframework.context.ApplicationEvent;
+
+import com.devStudy.chat.dto.UserDTO;
+
+public class UserChangeEvent extends ApplicationEvent {
+
+	@Serial
+	private static final long serialVersionUID = 3208475193624478185L;
+
+	private final UserDTO user;
+
+	public UserChangeEvent(UserDTO user) {
+		super(user.getId());
+		this.user = user;
+	}
+
+	public UserDTO getUser() {
+		return user;
+	}
+}
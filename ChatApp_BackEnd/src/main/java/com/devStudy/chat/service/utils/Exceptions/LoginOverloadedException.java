@@ -0,0 +1,29 @@
+package com.devStudy.chat.service.utils.Exceptions;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Levée quand le pool de hachage des mots de passe est saturé, la connexion est refusée avec un 503
+ */
+public class LoginOverloadedException extends AuthenticationServiceException {
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -3409227150125735092L;
+
+	private final long retryAfterSeconds;
+
+	public LoginOverloadedException(String message, long retryAfterSeconds) {
+		super(message);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public LoginOverloadedException(String message, long retryAfterSeconds, Throwable cause) {
+		super(message, cause);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+}
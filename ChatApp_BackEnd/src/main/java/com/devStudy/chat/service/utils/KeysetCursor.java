@@ -0,0 +1,68 @@
+package com.devStudy.chat.service.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Curseur opaque de la pagination keyset : les clés de tri de la dernière ligne renvoyée (ex. prénom, nom)
+ * suivies de son id, qui départage les égalités. Encodé en base64 url-safe pour passer tel quel en paramètre de requête.
+ */
+public record KeysetCursor(List<String> keys, long id) {
+
+    public KeysetCursor {
+        keys = List.copyOf(keys);
+    }
+
+    public static KeysetCursor of(long id, String... keys) {
+        return new KeysetCursor(List.of(keys), id);
+    }
+
+    public String key(int index) {
+        return keys.get(index);
+    }
+
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(keys.size());
+            for (String key : keys) {
+                out.writeUTF(key);
+            }
+            out.writeLong(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Cette méthode permet de relire un curseur envoyé par le client,
+     * un curseur illisible ou qui n'a pas le nombre de clés attendu lève une IllegalArgumentException
+     */
+    public static KeysetCursor decode(String cursor, int expectedKeys) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            int size = in.readUnsignedByte();
+            if (size != expectedKeys) {
+                throw new IllegalArgumentException("Invalid cursor : " + size + " keys, expected " + expectedKeys);
+            }
+            List<String> keys = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                keys.add(in.readUTF());
+            }
+            long id = in.readLong();
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("Invalid cursor : trailing bytes");
+            }
+            return new KeysetCursor(keys, id);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
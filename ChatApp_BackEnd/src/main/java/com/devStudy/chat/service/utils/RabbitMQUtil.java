@@ -6,17 +6,24 @@ import com.devStudy.chat.service.implementations.UserService;
 import com.devStudy.chat.service.implementations.VerificationCodeService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static com.devStudy.chat.service.utils.ConstantValues.*;
 import static com.devStudy.chat.service.utils.ConstantValues.TOKEN_FLAG_RESET_PASSWORD;
@@ -28,6 +35,18 @@ public class RabbitMQUtil {
     @Value("${chatroomApp.FrontEndURL}")
     private String FrontEndURL;
 
+    @Value("${chatroomApp.mail.retry.maxAttempts}")
+    private int mailRetryMaxAttempts;
+
+    @Value("${chatroomApp.mail.retry.initialInterval}")
+    private long mailRetryInitialInterval;
+
+    @Value("${chatroomApp.mail.retry.multiplier}")
+    private double mailRetryMultiplier;
+
+    @Value("${chatroomApp.mail.retry.maxInterval}")
+    private long mailRetryMaxInterval;
+
     private final RabbitTemplate rabbitTemplate;
     private final UserService userService;
     private final EmailService emailService;
@@ -71,37 +90,142 @@ public class RabbitMQUtil {
     }
 
     /**
-     * Cette méthode permet d'envoyer un mail de réinitialisation de mot de passe
+     * Cette méthode permet d'envoyer les mails de réinitialisation de mot de passe, par lots (une session SMTP par lot)
+     */
+    @RabbitListener(queues = RABBITMQ_QUEUE_Q1, concurrency = "1-3", containerFactory = "resetPasswordMailListenerFactory")
+    public void sendResetPasswordEmails(List<Message> requests) {
+        List<Message> accepted = new ArrayList<>();
+        List<SimpleMailMessage> mails = new ArrayList<>();
+        distinctByEmail(requests).forEach((email, request) -> {
+            try {
+                if(userService.findUserOrAdmin(email, false).isPresent()) {
+                    mails.add(buildResetPasswordEmail(email));
+                    accepted.add(request);
+                }
+            } catch (RuntimeException e) {
+                retryOrDeadLetter(request, e);
+            }
+        });
+        deliver(accepted, mails, false);
+    }
+
+    private SimpleMailMessage buildResetPasswordEmail(String email) {
+        String jwtToken = tokenService.generateJwtToken(email, TOKEN_FLAG_RESET_PASSWORD);
+        String ResetPasswordLink = String.format("%s/reset-password?token=%s", FrontEndURL, jwtToken);
+        logger.info("Reset Password Link : {}", ResetPasswordLink);
+        String subject = "Reset Password";
+        String content = String.format(
+                """
+                        Bonjour,
+                        
+                        Cliquer sur le lien ci-dessous pour réinitialiser votre mot de passe :
+                        %s
+                        
+                        Attention : ce lien n'est valide que pendant une demi-heure
+                        
+                        Bien cordialement,
+                        Chat Team"""
+                , ResetPasswordLink);
+        return emailService.buildMessage(email, subject, content);
+    }
+
+    /**
+     * Cette méthode permet d'envoyer les codes de vérification, par lots et en priorité sur les sessions SMTP
+     */
+    @RabbitListener(queues = RABBITMQ_QUEUE_Q2, concurrency = "1-5", containerFactory = "verificationCodeMailListenerFactory")
+    public void sendVerificationCodeEmails(List<Message> requests) {
+        List<Message> accepted = new ArrayList<>();
+        List<SimpleMailMessage> mails = new ArrayList<>();
+        distinctByEmail(requests).forEach((email, request) -> {
+            try {
+                mails.add(verificationCodeService.prepareCodeMail(email));
+                accepted.add(request);
+            } catch (RuntimeException e) {
+                retryOrDeadLetter(request, e);
+            }
+        });
+        deliver(accepted, mails, true);
+    }
+
+    private static String readEmail(Message request) {
+        return new String(request.getBody(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Plusieurs demandes pour le même email dans un lot (double clic, retry revenu en file) ne donnent qu'un seul mail :
+     * pour un code de vérification, seul le dernier code généré serait valable de toute façon
+     */
+    static Map<String, Message> distinctByEmail(List<Message> requests) {
+        Map<String, Message> distinct = new LinkedHashMap<>();
+        for (Message request : requests) {
+            distinct.putIfAbsent(readEmail(request), request);
+        }
+        if (distinct.size() < requests.size()) {
+            logger.info("{} duplicate mail request(s) dropped from the batch", requests.size() - distinct.size());
+        }
+        return distinct;
+    }
+
+    /**
+     * Cette méthode envoie le lot, puis remet en file (avec backoff) chaque demande dont le mail n'est pas parti
      */
-    @RabbitListener(queues = RABBITMQ_QUEUE_Q1, concurrency = "1-3")
-    public void sendResetPasswordEmail(String email) {
+    private void deliver(List<Message> requests, List<SimpleMailMessage> mails, boolean priority) {
+        Map<SimpleMailMessage, Exception> failures = emailService.sendBatch(mails, priority);
+        for (int i = 0; i < mails.size(); i++) {
+            Exception cause = failures.get(mails.get(i));
+            if (cause != null) {
+                retryOrDeadLetter(requests.get(i), cause);
+            }
+        }
+    }
+
+    /**
+     * Une demande en échec est publiée dans la file de retry de son backoff (TTL de la file),
+     * RabbitMQ la renvoie ensuite dans sa file d'origine. Après maxAttempts tentatives elle est garée dans la dead letter queue.
+     * Le consommateur n'attend jamais le backoff et ne rejette jamais le lot entier (ce qui renverrait les mails déjà partis)
+     */
+    void retryOrDeadLetter(Message request, Exception cause) {
+        MessageProperties received = request.getMessageProperties();
+        Integer previousAttempts = received.getHeader(HEADER_MAIL_ATTEMPTS);
+        int attempts = (previousAttempts == null ? 0 : previousAttempts) + 1;
+        String routingKey = received.getReceivedRoutingKey();
+
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader(HEADER_MAIL_ATTEMPTS, attempts);
+        properties.setHeader(HEADER_MAIL_LAST_ERROR, String.valueOf(cause.getMessage()));
         try {
-            if(userService.findUserOrAdmin(email, false).isPresent()) {
-                String jwtToken = tokenService.generateJwtToken(email, TOKEN_FLAG_RESET_PASSWORD);
-                String ResetPasswordLink = String.format("%s/reset-password?token=%s", FrontEndURL, jwtToken);
-                logger.info("Reset Password Link : {}", ResetPasswordLink);
-                String subject = "Reset Password";
-                String content = String.format(
-                        """
-                                Bonjour,
-                                
-                                Cliquer sur le lien ci-dessous pour réinitialiser votre mot de passe :
-                                %s
-                                
-                                Attention : ce lien n'est valide que pendant une demi-heure
-                                
-                                Bien cordialement,
-                                Chat Team"""
-                        , ResetPasswordLink);
-                emailService.sendSimpleMessage(email, subject, content);
+            if (attempts >= mailRetryMaxAttempts) {
+                logger.error("Mail request {} abandoned after {} attempts", routingKey, attempts, cause);
+                rabbitTemplate.send(RABBITMQ_MAIL_DEAD_LETTER_EXCHANGE, routingKey, new Message(request.getBody(), properties));
+                return;
             }
-        }catch (MailException mailException) {
-            logger.error("Error while sending email to {}", email, mailException);
+            long backoff = retryBackoff(attempts);
+            logger.warn("Mail request {} failed (attempt {}), retry in {} ms : {}", routingKey, attempts, backoff, cause.getMessage());
+            properties.setHeader(HEADER_MAIL_RETRY_DELAY, String.valueOf(backoff));
+            rabbitTemplate.send(RABBITMQ_MAIL_RETRY_EXCHANGE, routingKey, new Message(request.getBody(), properties));
+        } catch (AmqpException e) {
+            logger.error("Mail request {} lost, cannot republish it", routingKey, e);
         }
     }
 
-    @RabbitListener(queues = RABBITMQ_QUEUE_Q2, concurrency = "1-5")
-    public void sendVerificationCodeEmail(String email) {
-        verificationCodeService.sendCode(email);
+    long retryBackoff(int attempts) {
+        return retryBackoff(attempts, mailRetryInitialInterval, mailRetryMultiplier, mailRetryMaxInterval);
+    }
+
+    static long retryBackoff(int attempts, long initialInterval, double multiplier, long maxInterval) {
+        double backoff = initialInterval * Math.pow(multiplier, attempts - 1);
+        return (long) Math.min(backoff, maxInterval);
+    }
+
+    /**
+     * Cette méthode permet d'obtenir les backoffs distincts des tentatives qui sont remises en file (toutes sauf la dernière),
+     * une file de retry est déclarée pour chacun
+     */
+    public static Set<Long> retryDelays(int maxAttempts, long initialInterval, double multiplier, long maxInterval) {
+        Set<Long> delays = new LinkedHashSet<>();
+        for (int attempts = 1; attempts < maxAttempts; attempts++) {
+            delays.add(retryBackoff(attempts, initialInterval, multiplier, maxInterval));
+        }
+        return delays;
     }
 }
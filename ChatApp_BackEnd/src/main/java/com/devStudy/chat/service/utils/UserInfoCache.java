@@ -0,0 +1,157 @@
+package com.devStudy.chat.service.utils;
+
+import static com.devStudy.chat.service.utils.ConstantValues.USER_CHANGES_CHANNEL;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.devStudy.chat.dao.UserRepository;
+import com.devStudy.chat.dto.DTOMapper;
+import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.model.User;
+import com.devStudy.chat.service.utils.Events.UserChangeEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Petit cache local (read-through) des comptes utilisateurs, utilisé par le filtre JWT et lors de la connexion WebSocket
+ * pour éviter un aller-retour vers PostgreSQL à chaque requête authentifiée du même utilisateur.
+ * Seuls l'id, le nom, le mail et les indicateurs admin / actif sont gardés (ni le hash du mot de passe, ni les salons).
+ * Les entrées expirent après chatroomApp.userInfoCache.expirationTime secondes et sont invalidées, sur toutes les instances,
+ * par les UserChangeEvent (compte bloqué, mot de passe réinitialisé) : localement après le commit, puis via USER_CHANGES_CHANNEL.
+ */
+@Component
+public class UserInfoCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserInfoCache.class);
+
+    private final UserRepository userRepository;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<Long, CachedUserInfo> cache = new ConcurrentHashMap<>();
+    // mail (sujet du JWT) -> id
+    private final Map<String, Long> idsByMail = new ConcurrentHashMap<>();
+
+    @Value("${chatroomApp.userInfoCache.maxSize}")
+    private int maxSize;
+
+    @Value("${chatroomApp.userInfoCache.expirationTime}")
+    private long expirationTime;
+
+    @Autowired
+    public UserInfoCache(UserRepository userRepository, RedisMessageListenerContainer redisMessageListenerContainer) {
+        this.userRepository = userRepository;
+        this.redisMessageListenerContainer = redisMessageListenerContainer;
+    }
+
+    @PostConstruct
+    public void subscribeToUserChanges() {
+        redisMessageListenerContainer.addMessageListener(
+                (message, pattern) -> handleRemoteChange(message.getBody()), new ChannelTopic(USER_CHANGES_CHANNEL));
+    }
+
+    public Optional<UserDTO> get(long userId) {
+        CachedUserInfo cached = cache.get(userId);
+        if (cached != null && !cached.isExpired(System.nanoTime())) {
+            return Optional.of(DTOMapper.toUserDTO(cached.account()));
+        }
+        Optional<User> account = userRepository.findById(userId);
+        account.ifPresentOrElse(this::put, () -> evict(userId));
+        return account.map(DTOMapper::toUserDTO);
+    }
+
+    /**
+     * Cette méthode permet de récupérer le compte (non administrateur) associé au sujet d'un JWT,
+     * une copie est renvoyée à chaque appel : l'appelant peut s'en servir comme principal
+     */
+    public Optional<User> getAccount(String mail) {
+        Long userId = idsByMail.get(mail);
+        CachedUserInfo cached = userId == null ? null : cache.get(userId);
+        if (cached != null && !cached.isExpired(System.nanoTime())) {
+            return Optional.of(copyOf(cached.account()));
+        }
+        Optional<User> account = userRepository.findByMailAndAdmin(mail, false);
+        account.ifPresentOrElse(this::put, () -> {
+            if (userId != null) {
+                evict(userId);
+            }
+        });
+        return account.map(UserInfoCache::copyOf);
+    }
+
+    public void put(User account) {
+        long now = System.nanoTime();
+        if (cache.size() >= maxSize) {
+            cache.values().removeIf(cached -> cached.isExpired(now));
+            if (cache.size() >= maxSize) {
+                // still full of live entries : start over rather than tracking an eviction order
+                cache.clear();
+            }
+            idsByMail.values().retainAll(cache.keySet());
+        }
+        CachedUserInfo previous = cache.put(account.getId(), new CachedUserInfo(copyOf(account), now + TimeUnit.SECONDS.toNanos(expirationTime)));
+        if (previous != null && !previous.account().getMail().equals(account.getMail())) {
+            idsByMail.remove(previous.account().getMail(), account.getId());
+        }
+        idsByMail.put(account.getMail(), account.getId());
+    }
+
+    public void evict(long userId) {
+        CachedUserInfo removed = cache.remove(userId);
+        if (removed != null) {
+            idsByMail.remove(removed.account().getMail(), userId);
+        }
+    }
+
+    /*
+     * Publié par UserService après la modification d'un compte : évincé une fois la transaction validée,
+     * une lecture concurrente ne peut donc pas remettre l'ancienne valeur en cache
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void userChangeEventListener(UserChangeEvent event) {
+        evict(event.getUser().getId());
+    }
+
+    // message publié par UserSearchService sur USER_CHANGES_CHANNEL : {"instanceId":..., "user":{"id":...}}
+    void handleRemoteChange(byte[] body) {
+        try {
+            long userId = objectMapper.readTree(body).path("user").path("id").asLong(0);
+            if (userId != 0) {
+                evict(userId);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error processing user change message", e);
+        }
+    }
+
+    private static User copyOf(User account) {
+        User copy = new User();
+        copy.setId(account.getId());
+        copy.setFirstName(account.getFirstName());
+        copy.setLastName(account.getLastName());
+        copy.setMail(account.getMail());
+        copy.setAdmin(account.isAdmin());
+        copy.setActive(account.isActive());
+        return copy;
+    }
+
+    private record CachedUserInfo(User account, long expiresAt) {
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
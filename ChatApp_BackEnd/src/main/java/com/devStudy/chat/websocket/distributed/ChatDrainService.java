@@ -0,0 +1,105 @@
+package com.devStudy.chat.websocket.distributed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+
+/**
+ * Drain de l'instance à l'arrêt (déploiement) : au lieu de couper toutes les sessions d'un coup, l'instance refuse les nouveaux
+ * handshakes (503), quitte l'anneau d'affinité, demande à chaque client de se reconnecter après un délai aléatoire
+ * et ferme ses sessions au fil de la fenêtre, puis purge sa présence en un appel.
+ * Le drain s'exécute à l'arrêt du contexte, avant celui du serveur web (phase SmartLifecycle par défaut),
+ * la fenêtre doit donc rester inférieure à spring.lifecycle.timeout-per-shutdown-phase.
+ */
+@Service
+public class ChatDrainService implements SmartLifecycle, HandshakeInterceptor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatDrainService.class);
+
+    private final DistributedChatWebSocketHandler chatWebSocketHandler;
+    private final RoomAffinityService roomAffinityService;
+
+    // durée (ms) sur laquelle les reconnexions des clients sont étalées
+    @Value("${chatroomApp.websocket.drain.window}")
+    private long window;
+
+    private volatile boolean running;
+    private volatile boolean draining;
+
+    @Autowired
+    public ChatDrainService(DistributedChatWebSocketHandler chatWebSocketHandler, RoomAffinityService roomAffinityService) {
+        this.chatWebSocketHandler = chatWebSocketHandler;
+        this.roomAffinityService = roomAffinityService;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        try {
+            drain();
+        } finally {
+            running = false;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Cette méthode permet de lancer le drain une seule fois, elle ne rend la main qu'une fois toutes les sessions fermées
+     */
+    public void drain() {
+        if (draining) {
+            return;
+        }
+        draining = true;
+        long start = System.currentTimeMillis();
+        try {
+            roomAffinityService.leave();
+            int sessions = chatWebSocketHandler.drain(window);
+            LOGGER.info("Drain finished : {} session(s) handed off in {} ms", sessions, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            LOGGER.error("Drain failed, remaining sessions are closed with the server", e);
+        }
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request,
+                                   ServerHttpResponse response,
+                                   WebSocketHandler wsHandler,
+                                   Map<String, Object> attributes) {
+        if (!draining) {
+            return true;
+        }
+        // the client retries on another node (the proxy / the affinity hint no longer points here)
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(DistributedChatWebSocketHandler.retryAfterSeconds(window)));
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request,
+                               ServerHttpResponse response,
+                               WebSocketHandler wsHandler,
+                               Exception exception) {}
+}
@@ -1,6 +1,7 @@
 package com.devStudy.chat.websocket.distributed;
 
 import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.metrics.ChatMetrics;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,11 +22,13 @@ public class ChatMessageBroker {
 
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
+    private final ChatMetrics chatMetrics;
 
     @Autowired
-    public ChatMessageBroker(StringRedisTemplate redisTemplate) {
+    public ChatMessageBroker(StringRedisTemplate redisTemplate, ChatMetrics chatMetrics) {
         this.redisTemplate = redisTemplate;
         this.objectMapper = new ObjectMapper();
+        this.chatMetrics = chatMetrics;
     }
 
     /**
@@ -35,7 +38,7 @@ public class ChatMessageBroker {
         try {
             String channel = String.format(CHATROOM_CHANNEL, chatroomId);
             String messageJson = objectMapper.writeValueAsString(message);
-            redisTemplate.convertAndSend(channel, messageJson);
+            chatMetrics.getRedisPublishTimer().record(() -> redisTemplate.convertAndSend(channel, messageJson));
             logger.debug("Message sent to channel {}: {}", channel, messageJson);
         } catch (Exception e) {
             logger.error("Failed to send message to chatroom", e);
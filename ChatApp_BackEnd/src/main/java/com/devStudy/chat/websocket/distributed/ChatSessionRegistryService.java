@@ -5,36 +5,96 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import static com.devStudy.chat.service.utils.ConstantValues.CHATROOM_USERS_KEY;
+import static com.devStudy.chat.service.utils.ConstantValues.INSTANCES_KEY;
+import static com.devStudy.chat.service.utils.ConstantValues.INSTANCE_HEARTBEAT_KEY;
+import static com.devStudy.chat.service.utils.ConstantValues.INSTANCE_PRESENCE_KEY;
+import static com.devStudy.chat.service.utils.ConstantValues.INSTANCE_PURGE_LOCK_KEY;
+import static com.devStudy.chat.service.utils.ConstantValues.PRESENCE_OWNERS_KEY;
 
+/**
+ * Registre Redis des utilisateurs connectés à chaque chatroom, toutes instances confondues.
+ * Chaque présence est marquée avec l'instance qui tient la session (PRESENCE_OWNERS_KEY + un ensemble par instance),
+ * et chaque instance entretient une clé de heartbeat à courte durée de vie :
+ * quand une instance s'arrête sans fermer ses sessions, une instance survivante purge ses présences en un appel.
+ */
 @Service
 public class ChatSessionRegistryService {
     private static final Logger LOGGER = LoggerFactory.getLogger(ChatSessionRegistryService.class);
 
+    private static final StringRedisSerializer STRING_SERIALIZER = StringRedisSerializer.UTF_8;
+
     private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisScript<Long> presenceRegisterScript;
+    private final RedisScript<Long> presenceRemoveScript;
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> presencePurgeScript;
 
     @Value("${chatroomApp.CHAT_SESSION_EXPIRY}")
     private long chatSessionExpiry;
 
+    // durée de vie (s) du heartbeat : une instance sans heartbeat depuis ce délai est considérée arrêtée
+    @Value("${chatroomApp.websocket.heartbeat.ttl}")
+    private long heartbeatTtl;
+
+    @Value("${chatroomApp.websocket.heartbeat.interval}")
+    private long heartbeatInterval;
+
+    private volatile boolean heartbeatStopped;
+    // thread dédié : un job @Scheduled long (reconstruction de l'index, cycle de vie des chatrooms) ne retarde jamais le heartbeat
+    private ScheduledExecutorService heartbeatExecutor;
+
     @Autowired
-    public ChatSessionRegistryService(RedisTemplate<String, Object> redisTemplate) {
+    public ChatSessionRegistryService(RedisTemplate<String, Object> redisTemplate,
+                                      RedisScript<Long> presenceRegisterScript,
+                                      RedisScript<Long> presenceRemoveScript,
+                                      @SuppressWarnings("rawtypes") RedisScript<List> presencePurgeScript) {
         this.redisTemplate = redisTemplate;
+        this.presenceRegisterScript = presenceRegisterScript;
+        this.presenceRemoveScript = presenceRemoveScript;
+        this.presencePurgeScript = presencePurgeScript;
     }
 
     private String buildUserKey(long chatroomId, long userId) {
         return String.format(CHATROOM_USERS_KEY + "%d", chatroomId, userId);
     }
 
+    private static String instancePresenceKey(String instanceId) {
+        return String.format(INSTANCE_PRESENCE_KEY, instanceId);
+    }
+
+    // clés et arguments en chaînes brutes : les scripts comparent les identifiants d'instance et réécrivent les valeurs telles quelles
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <T> T executeScript(RedisScript<T> script, List<String> keys, Object... args) {
+        return (T) redisTemplate.execute(script, STRING_SERIALIZER, (RedisSerializer) STRING_SERIALIZER, keys, args);
+    }
+
     public void registerUserConnection(long chatroomId, UserDTO userInfo) {
         try {
             String key = buildUserKey(chatroomId, userInfo.getId());
-            redisTemplate.opsForValue().set(key, userInfo, chatSessionExpiry, TimeUnit.SECONDS);
+            // même sérialisation que les lectures (multiGet / get) du template
+            @SuppressWarnings("unchecked")
+            byte[] value = ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(userInfo);
+            String instanceId = ChatMessageBroker.getInstanceId();
+            executeScript(presenceRegisterScript, List.of(key, PRESENCE_OWNERS_KEY, instancePresenceKey(instanceId)),
+                    new String(value, StandardCharsets.UTF_8), String.valueOf(chatSessionExpiry), instanceId);
         } catch (Exception e) {
             LOGGER.error("Failed to register user connection", e);
             throw new RuntimeException("Failed to register user connection", e);
@@ -43,11 +103,155 @@ public class ChatSessionRegistryService {
 
     public long removeUserConnection(long chatroomId, long userId){
         //remove user from chatroom, and return the number of users in the chatroom after removing
-        String key = buildUserKey(chatroomId, userId);
-        redisTemplate.delete(key);
+        removeUserConnections(chatroomId, List.of(userId));
         return getUserCount(chatroomId);
     }
 
+    /**
+     * Cette méthode permet de retirer plusieurs utilisateurs d'un chatroom en un seul appel, sans recompter les présents ;
+     * une présence reprise entre-temps par une autre instance (reconnexion) n'est pas supprimée
+     */
+    public void removeUserConnections(long chatroomId, Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        String instanceId = ChatMessageBroker.getInstanceId();
+        List<String> keys = new ArrayList<>(List.of(PRESENCE_OWNERS_KEY, instancePresenceKey(instanceId)));
+        userIds.forEach(userId -> keys.add(buildUserKey(chatroomId, userId)));
+        executeScript(presenceRemoveScript, keys, instanceId);
+    }
+
+    /**
+     * Cette méthode permet de prolonger la présence des utilisateurs encore connectés à cette instance (un EXPIRE par clé, en pipeline) :
+     * les entrées d'une instance arrêtée sans fermer ses sessions ne sont plus prolongées et expirent après chatSessionExpiry secondes.
+     * Renvoie les utilisateurs dont la présence a disparu (purgée à tort, expirée) : à réenregistrer par l'appelant
+     */
+    public List<Long> refreshUserConnections(long chatroomId, List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object> refreshed = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (long userId : userIds) {
+                connection.keyCommands().expire(buildUserKey(chatroomId, userId).getBytes(StandardCharsets.UTF_8), chatSessionExpiry);
+            }
+            return null;
+        });
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < userIds.size() && i < refreshed.size(); i++) {
+            if (!Boolean.TRUE.equals(refreshed.get(i))) {
+                missing.add(userIds.get(i));
+            }
+        }
+        return missing;
+    }
+
+    @PostConstruct
+    public void startHeartbeat() {
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "instance-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatExecutor.scheduleAtFixedRate(this::heartbeat, 0, heartbeatInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdownHeartbeat() {
+        if (heartbeatExecutor != null) {
+            heartbeatExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Cette méthode permet de signaler que l'instance est en vie, bien plus souvent que la durée de vie du heartbeat ;
+     * l'instance se réinscrit à chaque fois, y compris après avoir été purgée à tort (longue pause)
+     */
+    public void heartbeat() {
+        if (heartbeatStopped) {
+            return;
+        }
+        String instanceId = ChatMessageBroker.getInstanceId();
+        try {
+            redisTemplate.opsForValue().set(String.format(INSTANCE_HEARTBEAT_KEY, instanceId), instanceId, Duration.ofSeconds(heartbeatTtl));
+            redisTemplate.opsForSet().add(INSTANCES_KEY, instanceId);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to publish the heartbeat of instance {} : {}", instanceId, e.getMessage());
+        }
+    }
+
+    /**
+     * Cette méthode permet de purger les présences des instances qui n'ont plus de heartbeat.
+     * Une seule instance survivante purge une instance donnée (bail Redis) ; renvoie les utilisateurs retirés par chatroom,
+     * pour diffuser leurs déconnexions
+     */
+    public Map<Long, List<UserDTO>> purgeDeadInstances() {
+        Set<Object> instances = redisTemplate.opsForSet().members(INSTANCES_KEY);
+        if (instances == null || instances.isEmpty()) {
+            return Map.of();
+        }
+        String self = ChatMessageBroker.getInstanceId();
+        Map<Long, List<UserDTO>> purged = new HashMap<>();
+        for (Object instance : instances) {
+            String instanceId = String.valueOf(instance);
+            if (instanceId.equals(self) || Boolean.TRUE.equals(redisTemplate.hasKey(String.format(INSTANCE_HEARTBEAT_KEY, instanceId)))) {
+                continue;
+            }
+            int count = purgeInstance(instanceId, purged);
+            if (count >= 0) {
+                LOGGER.warn("Instance {} stopped sending heartbeats, {} presence(s) purged", instanceId, count);
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * Cette méthode permet à l'instance de retirer toutes ses présences en un appel à la fin d'un drain,
+     * après avoir arrêté son heartbeat ; les utilisateurs déjà reconnectés ailleurs ne sont pas touchés
+     */
+    public Map<Long, List<UserDTO>> purgeOwnPresence() {
+        Map<Long, List<UserDTO>> purged = new HashMap<>();
+        purgeInstance(ChatMessageBroker.getInstanceId(), purged);
+        return purged;
+    }
+
+    // -1 si une autre instance tient déjà le bail de purge
+    private int purgeInstance(String instanceId, Map<Long, List<UserDTO>> purged) {
+        Boolean lease = redisTemplate.opsForValue().setIfAbsent(String.format(INSTANCE_PURGE_LOCK_KEY, instanceId),
+                ChatMessageBroker.getInstanceId(), Duration.ofSeconds(heartbeatTtl));
+        if (!Boolean.TRUE.equals(lease)) {
+            return -1;
+        }
+        List<?> entries = executeScript(presencePurgeScript,
+                List.of(PRESENCE_OWNERS_KEY, instancePresenceKey(instanceId)), instanceId);
+        redisTemplate.opsForSet().remove(INSTANCES_KEY, instanceId);
+        return collectPurged(entries, purged);
+    }
+
+    /**
+     * Cette méthode permet d'arrêter le heartbeat de l'instance (drain) : les autres instances la considèrent arrêtée
+     */
+    public void stopHeartbeat() {
+        heartbeatStopped = true;
+        redisTemplate.delete(String.format(INSTANCE_HEARTBEAT_KEY, ChatMessageBroker.getInstanceId()));
+    }
+
+    private int collectPurged(List<?> entries, Map<Long, List<UserDTO>> purged) {
+        if (entries == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i + 1 < entries.size(); i += 2) {
+            // chatroom:%d:user:%d
+            String[] key = String.valueOf(entries.get(i)).split(":");
+            Object value = redisTemplate.getValueSerializer().deserialize(String.valueOf(entries.get(i + 1)).getBytes(StandardCharsets.UTF_8));
+            if (key.length == 4 && value instanceof UserDTO user) {
+                purged.computeIfAbsent(Long.parseLong(key[1]), chatroomId -> new ArrayList<>()).add(user);
+                count++;
+            }
+        }
+        return count;
+    }
+
     public long getUserCount(long chatroomId) {
         Set<String> keys = redisTemplate.keys(String.format(CHATROOM_USERS_KEY + "*", chatroomId));
         return keys.size();
@@ -0,0 +1,66 @@
+package com.devStudy.chat.websocket.distributed;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Anneau de hachage cohérent (immuable) qui attribue chaque chatroom à un noeud.
+ * Chaque noeud est placé virtualNodes fois sur l'anneau : l'arrivée ou le départ d'un noeud
+ * ne déplace qu'environ 1/N des chatrooms, et tous les noeuds qui voient les mêmes membres calculent la même attribution.
+ */
+public final class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final Set<String> nodes;
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        this.nodes = Set.copyOf(new TreeSet<>(nodes));
+        MessageDigest md5 = md5();
+        for (String node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                byte[] digest = md5.digest((node + "#" + i).getBytes(StandardCharsets.UTF_8));
+                ring.put(ByteBuffer.wrap(digest).getLong(), node);
+            }
+        }
+    }
+
+    /**
+     * Cette méthode permet de trouver le noeud propriétaire d'un chatroom (le premier point de l'anneau après son hash),
+     * null si l'anneau est vide
+     */
+    public String nodeFor(long chatroomId) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(mix(chatroomId));
+        return (entry != null ? entry : ring.firstEntry()).getValue();
+    }
+
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    // finaliseur de SplitMix64 : des ids consécutifs sont répartis sur tout l'anneau
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
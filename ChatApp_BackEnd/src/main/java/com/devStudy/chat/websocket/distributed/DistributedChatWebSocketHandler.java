@@ -1,28 +1,37 @@
 package com.devStudy.chat.websocket.distributed;
 
-import com.devStudy.chat.dto.DTOMapper;
 import com.devStudy.chat.dto.UserDTO;
-import com.devStudy.chat.model.User;
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.model.ChatMessage;
 import com.devStudy.chat.service.implementations.ChatMessageService;
-import com.devStudy.chat.service.implementations.UserService;
+import com.devStudy.chat.model.ChatroomStatus;
 import com.devStudy.chat.service.utils.Events.ChangeChatroomMemberEvent;
+import com.devStudy.chat.service.utils.Events.ChatroomLifecycleEvent;
 import com.devStudy.chat.service.utils.Events.RemoveChatroomEvent;
 import com.devStudy.chat.service.utils.Exceptions.WebSocketException;
+import com.devStudy.chat.service.utils.UserInfoCache;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.event.TransactionPhase;
 import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
@@ -30,6 +39,8 @@ import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import static com.devStudy.chat.service.utils.ConstantValues.*;
 import static com.devStudy.chat.service.utils.ConstantValues.TO_OTHERS_IN_CHATROOM;
@@ -41,38 +52,125 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
     private static final ObjectMapper MAPPER = new ObjectMapper();
     private static final Map<Long, Map<Long, WebSocketSession>> localSessions = new ConcurrentHashMap<>();
     private static final Map<Long, MessageListener> chatroomListeners = new ConcurrentHashMap<>();
-
-    private final UserService userService;
+    // sessions fermées par le serveur avec leur chatroom (supprimé / expiré) : rien à diffuser à leur fermeture
+    private static final String CHATROOM_CLOSED_ATTRIBUTE = "chatroomClosed";
+    private static final CloseStatus CHATROOM_CLOSED = CloseStatus.NORMAL.withReason("Chatroom closed");
+    // sessions fermées par un drain : leur présence est purgée en un appel à la fin du drain
+    private static final String DRAINED_ATTRIBUTE = "drained";
+    private static final long DRAIN_HEARTBEAT_PERIOD = 1000;
+    private static final CloseStatus NODE_DRAINING = CloseStatus.SERVICE_RESTARTED.withReason("Node draining");
+
+    private final UserInfoCache userInfoCache;
     private final ChatSessionRegistryService chatSessionRegistryService;
     private final ChatMessageBroker chatMessageBroker;
     private final ChatMessageService chatMessageService;
     private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final ChatMetrics chatMetrics;
+    private final Counter reclaimedSessions;
+    private final Counter reclaimedRooms;
+    private final Counter reclaimedSubscriptions;
+    private final Counter restoredSubscriptions;
+    private final Counter purgedPresences;
+    private final Counter drainedSessions;
+    private final Counter replayedMessages;
+
+    @Value("${chatroomApp.websocket.sendTimeLimit}")
+    private int sendTimeLimit;
+
+    @Value("${chatroomApp.websocket.bufferSizeLimit}")
+    private int bufferSizeLimit;
+
+    // au-delà, le trou n'est pas rejoué : le client recharge l'historique par l'API REST
+    @Value("${chatroomApp.messages.resumeLimit}")
+    private int resumeLimit;
 
     @Autowired
     public DistributedChatWebSocketHandler(
-            UserService userService,
+            UserInfoCache userInfoCache,
             ChatSessionRegistryService chatSessionRegistryService,
             ChatMessageBroker chatMessageBroker,
             ChatMessageService chatMessageService,
-            RedisMessageListenerContainer redisMessageListenerContainer) {
-        this.userService = userService;
+            RedisMessageListenerContainer redisMessageListenerContainer,
+            ChatMetrics chatMetrics) {
+        this.userInfoCache = userInfoCache;
         this.chatSessionRegistryService = chatSessionRegistryService;
         this.chatMessageBroker = chatMessageBroker;
         this.chatMessageService = chatMessageService;
         this.redisMessageListenerContainer = redisMessageListenerContainer;
+        this.chatMetrics = chatMetrics;
+
+        chatMetrics.registerGauge("chat.sessions.local", "WebSocket sessions opened on this instance",
+                () -> localSessions.values().stream().mapToInt(Map::size).sum());
+        chatMetrics.registerGauge("chat.rooms.subscribed", "Chatroom channels this instance is subscribed to",
+                chatroomListeners::size);
+        chatMetrics.registerGauge("chat.sessions.outbound.queue", "Bytes waiting in the send buffers of local sessions",
+                DistributedChatWebSocketHandler::getOutboundQueueSize);
+
+        String reclaimed = "chat.reaper.reclaimed";
+        this.reclaimedSessions = chatMetrics.registerCounter(reclaimed, "Local resources released by the idle reaper", "resource", "closed_session");
+        this.reclaimedRooms = chatMetrics.registerCounter(reclaimed, "Local resources released by the idle reaper", "resource", "empty_room");
+        this.reclaimedSubscriptions = chatMetrics.registerCounter(reclaimed, "Local resources released by the idle reaper", "resource", "subscription");
+        this.restoredSubscriptions = chatMetrics.registerCounter("chat.reaper.resubscribed",
+                "Chatroom channels the idle reaper subscribed again for rooms with local sessions");
+        this.purgedPresences = chatMetrics.registerCounter("chat.presence.purged",
+                "Presence entries of stopped instances purged by this instance");
+        this.drainedSessions = chatMetrics.registerCounter("chat.drain.sessions",
+                "Sessions closed by a drain of this instance after a reconnect hint");
+        this.replayedMessages = chatMetrics.registerCounter("chat.resume.replayed",
+                "Messages replayed to reconnecting clients from their last sequence number");
+    }
+
+    private static long getOutboundQueueSize() {
+        long size = 0;
+        for (Map<Long, WebSocketSession> sessionsInChatroom : localSessions.values()) {
+            for (WebSocketSession session : sessionsInChatroom.values()) {
+                if (session instanceof ConcurrentWebSocketSessionDecorator decorator) {
+                    size += decorator.getBufferSize();
+                }
+            }
+        }
+        return size;
     }
 
-    private UserDTO getUserInfo(long userId){
+    private UserDTO getUserInfo(WebSocketSession session, long userId){
+        // set by ChatHandShakeInterceptor from the authenticated principal
+        if (session.getAttributes().get("userInfo") instanceof UserDTO userInfo) {
+            return userInfo;
+        }
         try {
-            Optional<User> user = userService.findUserById(userId);
-            return user.map(DTOMapper::toUserDTO).orElseThrow(() -> new WebSocketException("User not found"));
+            UserDTO userInfo = userInfoCache.get(userId).orElseThrow(() -> new WebSocketException("User not found"));
+            session.getAttributes().put("userInfo", userInfo);
+            return userInfo;
+        } catch (WebSocketException e) {
+            throw e;
         } catch (Exception e) {
             throw new WebSocketException("Failed to get user info", e);
         }
     }
 
-    private String setMessage(int messageType, String message, UserDTO userInfo, Date now) {
-        //format : {user: {id: 1, username: "user1 user1"}, messageType: 0, message: "hello" , timestamp : "18:00"}
+    /**
+     * Cette méthode permet de récupérer l'utilisateur de la session sans passer par Redis,
+     * le registre n'est consulté que si la copie locale est absente
+     */
+    private UserDTO getSessionUserInfo(WebSocketSession session, long chatroomId, long userId) {
+        if (session.getAttributes().get("userInfo") instanceof UserDTO userInfo) {
+            return userInfo;
+        }
+        UserDTO userInfo = chatSessionRegistryService.getUser(chatroomId, userId);
+        if (userInfo == null) {
+            return getUserInfo(session, userId);
+        }
+        session.getAttributes().put("userInfo", userInfo);
+        return userInfo;
+    }
+
+    String setMessage(int messageType, String message, UserDTO userInfo, Date now) {
+        return setMessage(messageType, message, userInfo, now, 0);
+    }
+
+    String setMessage(int messageType, String message, UserDTO userInfo, Date now, long seq) {
+        //format : {user: {id: 1, username: "user1 user1"}, messageType: 0, message: "hello" , timestamp : "18:00", seq : 12}
+        //seq : only on the messages stored in the chatroom (messageType 2)
         try {
             //Date now = new Date();
             SimpleDateFormat sdf = new SimpleDateFormat("HH:mm");
@@ -87,6 +185,9 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
             finalNode.put("messageType", messageType);
             finalNode.put("message", message);
             finalNode.put("timestamp", sdf.format(now));
+            if (seq > 0) {
+                finalNode.put("seq", seq);
+            }
 
             return MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(finalNode);
         } catch (JsonProcessingException e) {
@@ -96,12 +197,19 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
     }
 
     private void sendMessageToSession(WebSocketSession session, String message) {
+        if (!session.isOpen()) {
+            chatMetrics.incrementDroppedFrames(ChatMetrics.DROP_SESSION_CLOSED);
+            return;
+        }
         try {
-            if (session.isOpen()) {
-                TextMessage textMessage = new TextMessage(message);
-                session.sendMessage(textMessage);
-            }
+            TextMessage textMessage = new TextMessage(message);
+            session.sendMessage(textMessage);
+        } catch (SessionLimitExceededException e) {
+            // the decorator has already closed the slow session, the other receivers are not affected
+            chatMetrics.incrementDroppedFrames(ChatMetrics.DROP_BUFFER_OVERFLOW);
+            LOGGER.warn("Send buffer limit exceeded for session {} : {}", session.getId(), e.getMessage());
         } catch (IOException e) {
+            chatMetrics.incrementDroppedFrames(ChatMetrics.DROP_SEND_ERROR);
             throw new WebSocketException("Error while sending message to session", e);
         }
     }
@@ -113,8 +221,8 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
             return;
         }
         boolean allInLocalSessions = true;
+        Map<Long , WebSocketSession> localSessionsInChatroom = localSessions.getOrDefault(chatroomId, Map.of());
         for (UserDTO user : userSet) {
-            Map<Long , WebSocketSession> localSessionsInChatroom = localSessions.get(chatroomId);
             if(localSessionsInChatroom.containsKey(user.getId())) {
                 WebSocketSession session = localSessionsInChatroom.get(user.getId());
                 switch (broadcastType) {
@@ -147,15 +255,20 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
                     message,
                     sender,
                     new SimpleDateFormat("HH:mm").format(new Date()),
-                    ChatMessageBroker.getInstanceId()
+                    ChatMessageBroker.getInstanceId(),
+                    System.currentTimeMillis()
             ));
         }
     }
 
     private void closeSessionQuietly(WebSocketSession session) {
+        closeSessionQuietly(session, CloseStatus.NORMAL);
+    }
+
+    private void closeSessionQuietly(WebSocketSession session, CloseStatus status) {
         try {
             if (session.isOpen()) {
-                session.close();
+                session.close(status);
             }
         } catch (IOException e) {
             LOGGER.error("Error while closing session", e);
@@ -164,12 +277,12 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
 
     private void removeSession(long chatroomId, long userId) {
         Map<Long, WebSocketSession> localSessionsInChatroom = localSessions.get(chatroomId);
-        WebSocketSession session = localSessionsInChatroom.remove(userId);
-        if (session != null) {
-            closeSessionQuietly(session);
-        }
-        if(localSessionsInChatroom.isEmpty()) {
-            localSessions.remove(chatroomId);
+        if (localSessionsInChatroom != null) {
+            WebSocketSession session = localSessionsInChatroom.remove(userId);
+            if (session != null) {
+                closeSessionQuietly(session);
+            }
+            localSessions.computeIfPresent(chatroomId, (id, sessions) -> sessions.isEmpty() ? null : sessions);
         }
         long userCount = chatSessionRegistryService.removeUserConnection(chatroomId, userId);
         if (userCount == 0) {
@@ -177,6 +290,24 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    /**
+     * Cette méthode permet de libérer tout ce que cette instance tient pour un chatroom supprimé ou expiré :
+     * sessions locales (fermées sans message de déconnexion), entrées du registre et abonnement au canal Redis
+     */
+    void closeChatroomLocally(long chatroomId) {
+        unsubscribeFromChatroomChannel(chatroomId);
+        Map<Long, WebSocketSession> localSessionsInChatroom = localSessions.remove(chatroomId);
+        if (localSessionsInChatroom == null) {
+            return;
+        }
+        chatSessionRegistryService.removeUserConnections(chatroomId, localSessionsInChatroom.keySet());
+        localSessionsInChatroom.values().forEach(session -> {
+            session.getAttributes().put(CHATROOM_CLOSED_ATTRIBUTE, true);
+            closeSessionQuietly(session, CHATROOM_CLOSED);
+        });
+        LOGGER.info("Closed {} local session(s) of chatroom {}", localSessionsInChatroom.size(), chatroomId);
+    }
+
     private void unsubscribeFromChatroomChannel(long chatroomId) {
         MessageListener listener = chatroomListeners.remove(chatroomId);
         if (listener != null) {
@@ -187,7 +318,14 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
     }
 
     private void addLocalSession(long chatroomId, long userId, WebSocketSession session) {
-        localSessions.computeIfAbsent(chatroomId, k -> new ConcurrentHashMap<>()).put(userId, session);
+        // the decorator serializes concurrent sends and bounds the outbound buffer of slow clients
+        WebSocketSession concurrentSession = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimit, bufferSizeLimit);
+        // compute : the reaper cannot drop the room map between its lookup and the put
+        localSessions.compute(chatroomId, (id, sessionsInChatroom) -> {
+            Map<Long, WebSocketSession> sessions = sessionsInChatroom != null ? sessionsInChatroom : new ConcurrentHashMap<>();
+            sessions.put(userId, concurrentSession);
+            return sessions;
+        });
     }
 
     @Override
@@ -196,7 +334,7 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
         long userId = (long) session.getAttributes().get("userId");
 
         // Register the user connection
-        UserDTO userInfo = getUserInfo(userId);
+        UserDTO userInfo = getUserInfo(session, userId);
         chatSessionRegistryService.registerUserConnection(chatroomId, userInfo);
 
         addLocalSession(chatroomId, userId, session);
@@ -221,10 +359,54 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
                         userInfo
                 );
         });
+
+        // after the subscription : a message sent meanwhile may arrive twice, the client drops the seq it has already seen
+        resume(session, chatroomId, userId);
+    }
+
+    /**
+     * Cette méthode permet d'envoyer à un client qui se reconnecte les messages publiés depuis son dernier numéro de séquence
+     * (paramètre lastSeq du handshake), suivis d'un message RESUME avec le numéro courant du chatroom ;
+     * si le trou dépasse resumeLimit, rien n'est rejoué et RESUME indique que l'historique doit être rechargé
+     */
+    private void resume(WebSocketSession session, long chatroomId, long userId) {
+        WebSocketSession target = localSessions.getOrDefault(chatroomId, Map.of()).getOrDefault(userId, session);
+        try {
+            if (!(session.getAttributes().get("lastSeq") instanceof Long lastSeq)) {
+                sendMessageToSession(target, setResumeMessage(chatMessageService.currentSequence(chatroomId), true));
+                return;
+            }
+            List<ChatMessage> gap = chatMessageService.getChatMessagesAfterSeq(chatroomId, lastSeq, resumeLimit + 1);
+            if (gap.size() > resumeLimit) {
+                sendMessageToSession(target, setResumeMessage(chatMessageService.currentSequence(chatroomId), false));
+                return;
+            }
+            long seq = lastSeq;
+            for (ChatMessage message : gap) {
+                sendMessageToSession(target, setMessage(MESSAGE_TEXT, message.getContent(), message.getUser(), message.getTimestamp(), message.getSeq()));
+                seq = message.getSeq();
+            }
+            replayedMessages.increment(gap.size());
+            sendMessageToSession(target, setResumeMessage(seq, true));
+        } catch (Exception e) {
+            // the client keeps the live stream, only the missed messages are lost
+            LOGGER.warn("Failed to resume session {} of chatroom {} : {}", session.getId(), chatroomId, e.getMessage());
+        }
+    }
+
+    String setResumeMessage(long seq, boolean complete) {
+        //format : {messageType: 7, seq: 12, complete: true, timestamp : "18:00"}
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("messageType", MESSAGE_RESUME);
+        node.put("seq", seq);
+        node.put("complete", complete);
+        node.put("timestamp", new SimpleDateFormat("HH:mm").format(new Date()));
+        return node.toString();
     }
 
     private void subscribeToChatroomChannel(long chatroomId) {
-        if (!chatroomListeners.containsKey(chatroomId)) {
+        // computeIfAbsent : atomique avec le retrait des abonnements inutiles par reapIdleResources
+        chatroomListeners.computeIfAbsent(chatroomId, id -> {
             String channelName = String.format(CHATROOM_CHANNEL, chatroomId);
 
             MessageListener listener = (message, pattern) -> {
@@ -238,9 +420,9 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
             };
 
             redisMessageListenerContainer.addMessageListener(listener, new ChannelTopic(channelName));
-            chatroomListeners.put(chatroomId, listener);
             LOGGER.info("Subscribed to channel: {}", channelName);
-        }
+            return listener;
+        });
     }
 
     private void broadcastMessageLocally(
@@ -260,17 +442,23 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
     }
 
     private void handleRedisMessage(ChatBroadcastMessage chatMessage, long chatroomId) {
-        if(localSessions.get(chatroomId).isEmpty()) {
+        Map<Long, WebSocketSession> localSessionsInChatroom = localSessions.get(chatroomId);
+        if(localSessionsInChatroom == null || localSessionsInChatroom.isEmpty()) {
             unsubscribeFromChatroomChannel(chatroomId);
             return;
         }
         if(!Objects.equals(chatMessage.instanceId, ChatMessageBroker.getInstanceId())) {
+            chatMetrics.recordPubSubDeliveryLag(chatMessage.sentAtMillis);
             broadcastMessageLocally(
                     chatMessage.message,
                     chatroomId,
                     chatMessage.broadcastType,
                     chatMessage.sender
             );
+            // chatroom supprimé / expiré sur une autre instance : ses sessions locales sont fermées ici
+            if (chatMessage.messageType == MESSAGE_REMOVE_CHATROOM) {
+                closeChatroomLocally(chatroomId);
+            }
         }
     }
 
@@ -278,7 +466,11 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
         long chatroomId = (long) session.getAttributes().get("chatroomId");
         long userId = (long) session.getAttributes().get("userId");
-        UserDTO userInfo = chatSessionRegistryService.getUser(chatroomId, userId);
+        if (session.getAttributes().containsKey(CHATROOM_CLOSED_ATTRIBUTE) || session.getAttributes().containsKey(DRAINED_ATTRIBUTE)) {
+            // déjà retirée par closeChatroomLocally, ou purgée à la fin du drain
+            return;
+        }
+        UserDTO userInfo = getSessionUserInfo(session, chatroomId, userId);
 
         // on envoie un message de déconnexion à tous les utilisateurs connect
         broadcastMessage(
@@ -294,23 +486,25 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     public void handleTextMessage(WebSocketSession session, TextMessage message) {
+        Timer.Sample sample = chatMetrics.startSample();
         long chatroomId = (long) session.getAttributes().get("chatroomId");
         long userId = (long) session.getAttributes().get("userId");
-        //UserDTO userInfo = getUserInfo(userId);
-        UserDTO userInfo = chatSessionRegistryService.getUser(chatroomId, userId);
+        // resolved once at connect, Redis is only consulted if the local copy is missing
+        UserDTO userInfo = getSessionUserInfo(session, chatroomId, userId);
 
         String msg = message.getPayload();
 
         Date date = new Date();
-        chatMessageService.saveMsgIntoCollection(chatroomId, userInfo, msg, date);
+        long seq = chatMessageService.saveMsgIntoCollection(chatroomId, userInfo, msg, date);
         //on envoie le message à tous les utilisateurs connectés
         broadcastMessage(
                 MESSAGE_TEXT,
-                setMessage(MESSAGE_TEXT, msg, userInfo, date),
+                setMessage(MESSAGE_TEXT, msg, userInfo, date, seq),
                 chatroomId,
                 TO_ALL_IN_CHATROOM,
                 userInfo
         );
+        chatMetrics.recordMessageBroadcast(sample);
     }
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) {
@@ -331,6 +525,28 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
                 TO_ALL_IN_CHATROOM,
                 null
         );
+        closeChatroomLocally(chatroomId);
+    }
+
+    /**
+     * Cette méthode permet de prévenir les utilisateurs connectés aux chatrooms expirés (même message qu'une suppression),
+     * puis de fermer leurs sessions ; les autres instances ferment les leurs à la réception du message
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void chatroomLifecycleEventListener(ChatroomLifecycleEvent event) {
+        if (event.getStatus() != ChatroomStatus.EXPIRED) {
+            return;
+        }
+        for (long chatroomId : event.getChatroomIds()) {
+            broadcastMessage(
+                    MESSAGE_REMOVE_CHATROOM,
+                    setMessage(MESSAGE_REMOVE_CHATROOM, "This chatroom has expired!", new UserDTO(), new Date()),
+                    chatroomId,
+                    TO_ALL_IN_CHATROOM,
+                    null
+            );
+            closeChatroomLocally(chatroomId);
+        }
     }
 
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
@@ -356,15 +572,218 @@ public class DistributedChatWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    /**
+     * Cette méthode permet de réconcilier périodiquement l'état local de l'instance, sans attendre un message ou une fermeture :
+     * sessions fermées jamais retirées, chatrooms sans session locale, abonnements Redis de ces chatrooms (ou manquants),
+     * et prolongation de la présence Redis des sessions ouvertes (celle d'une instance arrêtée brutalement expire seule)
+     */
+    @Scheduled(fixedDelayString = "${chatroomApp.websocket.reaper.interval}")
+    public void reapIdleResources() {
+        try {
+            ReapResult result = reap();
+            if (result.hasReclaimed()) {
+                LOGGER.info("Idle reaper : {} closed session(s), {} empty room(s), {} subscription(s) released, {} restored",
+                        result.closedSessions(), result.emptyRooms(), result.subscriptions(), result.resubscribed());
+            }
+        } catch (Exception e) {
+            LOGGER.error("Idle reaper run failed", e);
+        }
+    }
+
+    ReapResult reap() {
+        int closedSessions = 0;
+        for (Map.Entry<Long, Map<Long, WebSocketSession>> room : localSessions.entrySet()) {
+            long chatroomId = room.getKey();
+            List<Long> openUserIds = new ArrayList<>();
+            List<Long> closedUserIds = new ArrayList<>();
+            room.getValue().forEach((userId, session) -> {
+                if (session.isOpen()) {
+                    openUserIds.add(userId);
+                } else if (room.getValue().remove(userId, session)) {
+                    closedUserIds.add(userId);
+                }
+            });
+            chatSessionRegistryService.removeUserConnections(chatroomId, closedUserIds);
+            // présence disparue alors que la session est ouverte (instance purgée à tort après une longue pause) : réenregistrée
+            for (long userId : chatSessionRegistryService.refreshUserConnections(chatroomId, openUserIds)) {
+                WebSocketSession session = room.getValue().get(userId);
+                if (session != null && session.getAttributes().get("userInfo") instanceof UserDTO userInfo) {
+                    chatSessionRegistryService.registerUserConnection(chatroomId, userInfo);
+                }
+            }
+            closedSessions += closedUserIds.size();
+        }
+
+        int emptyRooms = 0;
+        for (long chatroomId : localSessions.keySet()) {
+            if (localSessions.computeIfPresent(chatroomId, (id, sessions) -> sessions.isEmpty() ? null : sessions) == null) {
+                emptyRooms++;
+            }
+        }
+
+        int subscriptions = 0;
+        for (long chatroomId : chatroomListeners.keySet()) {
+            boolean[] released = {false};
+            // computeIfPresent : atomique avec subscribeToChatroomChannel pour le même chatroom
+            chatroomListeners.computeIfPresent(chatroomId, (id, listener) -> {
+                if (localSessions.containsKey(id)) {
+                    return listener;
+                }
+                redisMessageListenerContainer.removeMessageListener(listener, new ChannelTopic(String.format(CHATROOM_CHANNEL, id)));
+                released[0] = true;
+                return null;
+            });
+            if (released[0]) {
+                subscriptions++;
+            }
+        }
+
+        int resubscribed = 0;
+        for (long chatroomId : localSessions.keySet()) {
+            if (!chatroomListeners.containsKey(chatroomId)) {
+                subscribeToChatroomChannel(chatroomId);
+                resubscribed++;
+            }
+        }
+
+        reclaimedSessions.increment(closedSessions);
+        reclaimedRooms.increment(emptyRooms);
+        reclaimedSubscriptions.increment(subscriptions);
+        restoredSubscriptions.increment(resubscribed);
+        return new ReapResult(closedSessions, emptyRooms, subscriptions, resubscribed);
+    }
+
+    /**
+     * Cette méthode permet de purger la présence des instances arrêtées sans fermer leurs sessions (plus de heartbeat),
+     * puis de prévenir les autres utilisateurs de ces chatrooms comme pour une déconnexion normale
+     */
+    @Scheduled(fixedDelayString = "${chatroomApp.websocket.heartbeat.interval}")
+    public void purgeDeadInstances() {
+        try {
+            broadcastPurged(chatSessionRegistryService.purgeDeadInstances());
+        } catch (Exception e) {
+            LOGGER.error("Dead instance purge failed", e);
+        }
+    }
+
+    private void broadcastPurged(Map<Long, List<UserDTO>> purged) {
+        purged.forEach((chatroomId, users) -> {
+            for (UserDTO user : users) {
+                broadcastMessage(
+                        MESSAGE_DISCONNECT,
+                        setMessage(MESSAGE_DISCONNECT, TO_OTHERS_IN_CHATROOM, user, new Date()),
+                        chatroomId,
+                        TO_OTHERS_IN_CHATROOM,
+                        user
+                );
+            }
+            purgedPresences.increment(users.size());
+        });
+    }
+
+    /**
+     * Cette méthode permet de vider l'instance avant son arrêt : chaque session reçoit un message MESSAGE_RECONNECT
+     * avec un délai tiré dans [0, windowMillis), puis est fermée à ce délai. Les reconnexions sont ainsi étalées sur la fenêtre
+     * au lieu d'arriver toutes en même temps sur les autres instances ; la présence restante est ensuite purgée en un appel
+     * (les utilisateurs déjà reconnectés ailleurs ne sont pas touchés) et leurs déconnexions diffusées
+     */
+    public int drain(long windowMillis) {
+        List<DrainedSession> drained = new ArrayList<>();
+        localSessions.forEach((chatroomId, sessionsInChatroom) -> sessionsInChatroom.forEach((userId, session) ->
+                drained.add(new DrainedSession(chatroomId, userId, session,
+                        windowMillis > 0 ? ThreadLocalRandom.current().nextLong(windowMillis) : 0))));
+        drained.sort(Comparator.comparingLong(DrainedSession::reconnectAfter));
+        LOGGER.info("Draining {} local session(s) over {} ms", drained.size(), windowMillis);
+
+        for (DrainedSession drainedSession : drained) {
+            drainedSession.session().getAttributes().put(DRAINED_ATTRIBUTE, true);
+            try {
+                sendMessageToSession(drainedSession.session(), setReconnectMessage(drainedSession.reconnectAfter(), windowMillis));
+            } catch (WebSocketException e) {
+                LOGGER.debug("Reconnect hint not delivered to session {} : {}", drainedSession.session().getId(), e.getMessage());
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        boolean interrupted = false;
+        for (DrainedSession drainedSession : drained) {
+            if (!interrupted) {
+                interrupted = !waitUntil(start + drainedSession.reconnectAfter());
+            }
+            localSessions.computeIfPresent(drainedSession.chatroomId(), (id, sessionsInChatroom) -> {
+                sessionsInChatroom.remove(drainedSession.userId(), drainedSession.session());
+                return sessionsInChatroom.isEmpty() ? null : sessionsInChatroom;
+            });
+            closeSessionQuietly(drainedSession.session(), NODE_DRAINING);
+            drainedSessions.increment();
+        }
+
+        new ArrayList<>(chatroomListeners.keySet()).forEach(this::unsubscribeFromChatroomChannel);
+        chatSessionRegistryService.stopHeartbeat();
+        broadcastPurged(chatSessionRegistryService.purgeOwnPresence());
+        return drained.size();
+    }
+
+    /**
+     * Cette méthode permet d'attendre l'échéance d'une session en continuant le heartbeat :
+     * le planificateur peut s'arrêter avant la fin du drain, et sans heartbeat les autres instances purgeraient
+     * les sessions encore ouvertes ici. Renvoie false si l'attente a été interrompue (arrêt forcé)
+     */
+    private boolean waitUntil(long deadline) {
+        long wait;
+        while ((wait = deadline - System.currentTimeMillis()) > 0) {
+            try {
+                Thread.sleep(Math.min(wait, DRAIN_HEARTBEAT_PERIOD));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            chatSessionRegistryService.heartbeat();
+        }
+        return true;
+    }
+
+    /**
+     * Retry-After (s) des handshakes refusés pendant un drain : le navigateur ne voit pas l'en-tête d'un handshake WebSocket,
+     * la même valeur est donc aussi envoyée dans le message MESSAGE_RECONNECT
+     */
+    static long retryAfterSeconds(long windowMillis) {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(windowMillis));
+    }
+
+    String setReconnectMessage(long reconnectAfter, long windowMillis) {
+        //format : {messageType: 6, message: "...", reconnectAfter: 1234, retryAfter: 20000, timestamp : "18:00"}
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("messageType", MESSAGE_RECONNECT);
+        node.put("message", "This server is restarting, reconnecting...");
+        node.put("reconnectAfter", reconnectAfter);
+        // upper bound (ms) of the client backoff when its reconnection is refused by a draining node
+        node.put("retryAfter", TimeUnit.SECONDS.toMillis(retryAfterSeconds(windowMillis)));
+        node.put("timestamp", new SimpleDateFormat("HH:mm").format(new Date()));
+        return node.toString();
+    }
+
+    private record DrainedSession(long chatroomId, long userId, WebSocketSession session, long reconnectAfter) {
+    }
+
+    record ReapResult(int closedSessions, int emptyRooms, int subscriptions, int resubscribed) {
+        boolean hasReclaimed() {
+            return closedSessions + emptyRooms + subscriptions + resubscribed > 0;
+        }
+    }
+
     /**
      * 聊天消息类
+     * 未知字段被忽略 : 滚动升级时, 旧版本实例可以读取新版本实例发布的消息 (例如新增的 sentAtMillis)
      */
+    @JsonIgnoreProperties(ignoreUnknown = true)
     public record ChatBroadcastMessage (
             int messageType,        // 消息类型: MESSAGE_TEXT, MESSAGE_CONNECT, MESSAGE_DISCONNECT
             String broadcastType,        // 目标类型: TO_ALL_IN_CHATROOM, TO_OTHERS_IN_CHATROOM, TO_SELF_IN_CHATROOM
             String message,           // 消息内容
             UserDTO sender,             // 发送者信息
             String timestamp,         // 时间戳
-            String instanceId // 实例ID
+            String instanceId, // 实例ID
+            long sentAtMillis // 发送时间(毫秒), 用于统计 pub/sub 延迟
     ) implements Serializable {}
 }
@@ -0,0 +1,139 @@
+package com.devStudy.chat.websocket.distributed;
+
+import com.devStudy.chat.metrics.ChatMetrics;
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+import static com.devStudy.chat.service.utils.ConstantValues.AFFINITY_NODES_KEY;
+import static com.devStudy.chat.service.utils.ConstantValues.INSTANCE_HEARTBEAT_KEY;
+
+/**
+ * Affinité chatroom -> noeud : chaque instance publie dans Redis l'adresse par laquelle le frontend peut la joindre,
+ * et toutes les instances construisent le même anneau de hachage cohérent à partir des instances vivantes (heartbeat présent).
+ * Le noeud propriétaire d'un chatroom est indiqué au client (en-tête de handshake, endpoint REST) pour que les utilisateurs
+ * d'un même chatroom se retrouvent sur le même noeud ; le pub/sub Redis reste le chemin de secours (rééquilibrage, client sans indice).
+ */
+@Service
+public class RoomAffinityService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoomAffinityService.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Counter localHandshakes;
+    private final Counter remoteHandshakes;
+    private final int virtualNodes;
+    private final String address;
+
+    private volatile ConsistentHashRing ring;
+    private volatile Map<String, String> addresses;
+    // drain : l'instance n'est plus proposée comme propriétaire de chatrooms
+    private volatile boolean leaving;
+
+    @Autowired
+    public RoomAffinityService(StringRedisTemplate redisTemplate, ChatMetrics chatMetrics,
+                               @Value("${chatroomApp.websocket.affinity.virtualNodes}") int virtualNodes,
+                               @Value("${chatroomApp.websocket.affinity.address}") String address) {
+        this.redisTemplate = redisTemplate;
+        this.virtualNodes = virtualNodes;
+        this.address = address;
+        // seul jusqu'au premier rafraîchissement : toutes les chatrooms sont locales
+        this.ring = new ConsistentHashRing(List.of(ChatMessageBroker.getInstanceId()), virtualNodes);
+        this.addresses = Map.of(ChatMessageBroker.getInstanceId(), address);
+
+        String handshakes = "chat.affinity.handshakes";
+        this.localHandshakes = chatMetrics.registerCounter(handshakes, "WebSocket handshakes by placement of the chatroom owner", "placement", "local");
+        this.remoteHandshakes = chatMetrics.registerCounter(handshakes, "WebSocket handshakes by placement of the chatroom owner", "placement", "remote");
+        chatMetrics.registerGauge("chat.affinity.ring.nodes", "Nodes in the room affinity ring", () -> ring.getNodes().size());
+    }
+
+    /**
+     * Cette méthode permet de republier l'adresse de l'instance et de reconstruire l'anneau avec les instances qui ont un heartbeat ;
+     * les adresses des instances sans heartbeat sont retirées de Redis
+     */
+    @Scheduled(fixedDelayString = "${chatroomApp.websocket.heartbeat.interval}")
+    public void refreshRing() {
+        String self = ChatMessageBroker.getInstanceId();
+        try {
+            if (!leaving) {
+                redisTemplate.opsForHash().put(AFFINITY_NODES_KEY, self, address);
+            }
+            Map<Object, Object> published = redisTemplate.opsForHash().entries(AFFINITY_NODES_KEY);
+            List<String> instanceIds = published.keySet().stream().map(String::valueOf).toList();
+            List<String> heartbeats = redisTemplate.opsForValue()
+                    .multiGet(instanceIds.stream().map(id -> String.format(INSTANCE_HEARTBEAT_KEY, id)).toList());
+
+            Map<String, String> live = new HashMap<>();
+            List<Object> stale = new ArrayList<>();
+            for (int i = 0; i < instanceIds.size(); i++) {
+                String instanceId = instanceIds.get(i);
+                if (instanceId.equals(self) || (heartbeats != null && heartbeats.get(i) != null)) {
+                    live.put(instanceId, String.valueOf(published.get(instanceId)));
+                } else {
+                    stale.add(instanceId);
+                }
+            }
+            if (!stale.isEmpty()) {
+                redisTemplate.opsForHash().delete(AFFINITY_NODES_KEY, stale.toArray());
+            }
+            update(live);
+        } catch (Exception e) {
+            // l'anneau précédent reste valable, le pub/sub couvre les écarts entre instances
+            LOGGER.warn("Failed to refresh the room affinity ring : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Cette méthode permet de retirer l'instance de l'anneau avant un drain : les indices de handshake
+     * (ici comme sur les autres instances au prochain rafraîchissement) désignent les nouveaux propriétaires
+     */
+    public void leave() {
+        leaving = true;
+        Map<String, String> others = new HashMap<>(addresses);
+        others.remove(ChatMessageBroker.getInstanceId());
+        update(others);
+        try {
+            redisTemplate.opsForHash().delete(AFFINITY_NODES_KEY, ChatMessageBroker.getInstanceId());
+        } catch (Exception e) {
+            LOGGER.warn("Failed to leave the room affinity ring : {}", e.getMessage());
+        }
+    }
+
+    void update(Map<String, String> liveAddresses) {
+        if (!liveAddresses.keySet().equals(ring.getNodes())) {
+            ring = new ConsistentHashRing(liveAddresses.keySet(), virtualNodes);
+            LOGGER.info("Room affinity ring rebuilt with {} node(s)", liveAddresses.size());
+        }
+        addresses = Map.copyOf(liveAddresses);
+    }
+
+    /**
+     * Cette méthode permet d'obtenir l'adresse du noeud propriétaire d'un chatroom
+     */
+    public Optional<String> ownerOf(long chatroomId) {
+        return Optional.ofNullable(ring.nodeFor(chatroomId)).map(addresses::get);
+    }
+
+    public boolean isLocal(long chatroomId) {
+        return ChatMessageBroker.getInstanceId().equals(ring.nodeFor(chatroomId));
+    }
+
+    /**
+     * Cette méthode permet de compter un handshake selon le placement du chatroom,
+     * et renvoie l'adresse du noeud propriétaire quand ce n'est pas cette instance (null sinon)
+     */
+    public String handshakeHint(long chatroomId) {
+        if (isLocal(chatroomId)) {
+            localHandshakes.increment();
+            return null;
+        }
+        remoteHandshakes.increment();
+        return ownerOf(chatroomId).orElse(null);
+    }
+}
@@ -0,0 +1,13 @@
+-- Index partiels de la table chatrooms (PostgreSQL), exécutés au démarrage par DatabaseIndexConfig, après la mise à jour du schéma par Hibernate.
+-- Le prédicat reprend celui des requêtes (ChatroomRepository.NOT_EXPIRED) : les chatrooms expirés, qui s'accumulent,
+-- ne sont ni indexés ni parcourus par les listes.
+
+-- remplacé par idx_chatrooms_live_creator_titre
+DROP INDEX IF EXISTS idx_chatrooms_creator_titre;
+
+-- listes des chatrooms créés par un utilisateur, triées par titre (pages et keyset)
+CREATE INDEX IF NOT EXISTS idx_chatrooms_live_creator_titre ON chatrooms (creator_id, titre, id) WHERE status <> 'EXPIRED';
+
+-- ChatroomLifecycleService : chatrooms programmés à activer, chatrooms non expirés à expirer
+CREATE INDEX IF NOT EXISTS idx_chatrooms_scheduled_start ON chatrooms (horaire_commence) WHERE status = 'SCHEDULED';
+CREATE INDEX IF NOT EXISTS idx_chatrooms_live_end ON chatrooms (horaire_termine) WHERE status <> 'EXPIRED';
@@ -0,0 +1,12 @@
+-- Numéro de séquence suivant d'un chatroom, sans jamais repartir de 1 si le compteur a été perdu
+-- KEYS[1] : compteur du chatroom
+-- ARGV[1] : "" au premier appel ; sinon le plus grand numéro déjà stocké dans MongoDB, posé si le compteur n'existe pas
+-- Retourne le nouveau numéro, ou -1 si le compteur n'existe pas et qu'aucune valeur de départ n'est fournie
+
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    if ARGV[1] == '' then
+        return -1
+    end
+    redis.call('SET', KEYS[1], ARGV[1])
+end
+return redis.call('INCR', KEYS[1])
@@ -0,0 +1,15 @@
+-- Compare-and-delete : consomme une valeur seulement si elle est égale à la valeur attendue
+-- KEYS[1] : clé comparée
+-- KEYS[2..n] : clés supprimées avec elle (ex. compteur d'essais)
+-- ARGV[1] : valeur attendue, sérialisée comme la valeur stockée
+-- Retourne 1 si la valeur correspondait (toutes les clés sont supprimées), 0 si elle ne correspondait pas, -1 si la clé n'existe pas
+
+local stored = redis.call('GET', KEYS[1])
+if not stored then
+    return -1
+end
+if stored == ARGV[1] then
+    redis.call('DEL', unpack(KEYS))
+    return 1
+end
+return 0
@@ -0,0 +1,10 @@
+-- INCR et EXPIRE en un seul appel atomique
+-- KEYS[1] : compteur
+-- ARGV[1] : durée de vie en secondes, posée à la création (ou si le compteur n'a pas de TTL)
+-- Retourne la nouvelle valeur du compteur
+
+local value = redis.call('INCR', KEYS[1])
+if redis.call('TTL', KEYS[1]) == -1 then
+    redis.call('EXPIRE', KEYS[1], ARGV[1])
+end
+return value
@@ -0,0 +1,21 @@
+-- Purge les présences d'une instance arrêtée (plus de heartbeat), en un seul appel atomique
+-- KEYS[1] : hash clé de présence -> instance propriétaire
+-- KEYS[2] : ensemble des clés de présence de l'instance arrêtée
+-- ARGV[1] : id de l'instance arrêtée
+-- Les clés reprises depuis par une autre instance sont laissées en place
+-- Retourne la liste à plat { clé, UserDTO sérialisé, ... } des présences supprimées, pour diffuser les déconnexions
+
+local purged = {}
+for _, key in ipairs(redis.call('SMEMBERS', KEYS[2])) do
+    if redis.call('HGET', KEYS[1], key) == ARGV[1] then
+        local value = redis.call('GET', key)
+        if value then
+            redis.call('DEL', key)
+            table.insert(purged, key)
+            table.insert(purged, value)
+        end
+        redis.call('HDEL', KEYS[1], key)
+    end
+end
+redis.call('DEL', KEYS[2])
+return purged
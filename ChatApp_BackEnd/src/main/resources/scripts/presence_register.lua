@@ -0,0 +1,11 @@
+-- Enregistre la présence d'un utilisateur dans un chatroom au nom de l'instance qui tient sa session
+-- KEYS[1] : clé de présence (chatroom:%d:user:%d)
+-- KEYS[2] : hash clé de présence -> instance propriétaire
+-- KEYS[3] : ensemble des clés de présence de l'instance
+-- ARGV[1] : UserDTO sérialisé, ARGV[2] : durée de vie en secondes, ARGV[3] : id de l'instance
+-- Une reconnexion sur une autre instance change simplement le propriétaire
+
+redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2])
+redis.call('HSET', KEYS[2], KEYS[1], ARGV[3])
+redis.call('SADD', KEYS[3], KEYS[1])
+return 1
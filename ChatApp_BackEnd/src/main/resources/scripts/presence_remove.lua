@@ -0,0 +1,18 @@
+-- Retire des présences seulement si elles appartiennent encore à l'instance appelante :
+-- la fermeture tardive d'une ancienne session n'efface pas la présence ouverte depuis sur une autre instance
+-- KEYS[1] : hash clé de présence -> instance propriétaire
+-- KEYS[2] : ensemble des clés de présence de l'instance
+-- KEYS[3..n] : clés de présence à retirer
+-- ARGV[1] : id de l'instance
+-- Retourne le nombre de présences supprimées
+
+local removed = 0
+for i = 3, #KEYS do
+    local owner = redis.call('HGET', KEYS[1], KEYS[i])
+    if not owner or owner == ARGV[1] then
+        removed = removed + redis.call('DEL', KEYS[i])
+        redis.call('HDEL', KEYS[1], KEYS[i])
+    end
+    redis.call('SREM', KEYS[2], KEYS[i])
+end
+return removed
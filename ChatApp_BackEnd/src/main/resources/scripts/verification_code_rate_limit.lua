@@ -0,0 +1,35 @@
+-- Limiteur des demandes de code de vérification, pour un email
+-- KEYS[1] : clé du délai minimal entre deux codes (cooldown)
+-- KEYS[2] : clé du seau de jetons (hash tokens/ts)
+-- ARGV[1] : cooldown en ms
+-- ARGV[2] : capacité du seau
+-- ARGV[3] : intervalle de recharge d'un jeton en ms
+-- Retourne 0 si la demande est acceptée, sinon le nombre de ms à attendre
+
+local cooldownTtl = redis.call('PTTL', KEYS[1])
+if cooldownTtl > 0 then
+    return cooldownTtl
+end
+
+local cooldown = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local refillInterval = tonumber(ARGV[3])
+
+-- horloge du serveur Redis, commune à toutes les instances du backend
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local bucket = redis.call('HMGET', KEYS[2], 'tokens', 'ts')
+local tokens = tonumber(bucket[1]) or capacity
+local lastRefill = tonumber(bucket[2]) or now
+tokens = math.min(capacity, tokens + (now - lastRefill) / refillInterval)
+
+if tokens < 1 then
+    return math.ceil((1 - tokens) * refillInterval)
+end
+
+redis.call('HSET', KEYS[2], 'tokens', tostring(tokens - 1), 'ts', tostring(now))
+-- un seau plein n'a plus besoin d'être gardé
+redis.call('PEXPIRE', KEYS[2], math.ceil(capacity * refillInterval))
+redis.call('SET', KEYS[1], '1', 'PX', cooldown)
+return 0
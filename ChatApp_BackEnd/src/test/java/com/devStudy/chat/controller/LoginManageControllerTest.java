@@ -8,6 +8,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -37,6 +38,7 @@ import com.devStudy.chat.dto.CreateCompteDTO;
 import com.devStudy.chat.dto.UserDTO;
 import com.devStudy.chat.service.implementations.JwtTokenService;
 import com.devStudy.chat.service.implementations.UserService;
+import com.devStudy.chat.service.utils.Exceptions.LoginOverloadedException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @SpringBootTest
@@ -171,4 +173,17 @@ public class LoginManageControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.mail").value("test@example.com"));
     }
+
+    // the hashing pool is saturated : the account creation is refused with 503 and Retry-After
+    @Test
+    void testCreateUserCompteOverloaded() throws Exception {
+        when(userService.addUser(any(CreateCompteDTO.class))).thenThrow(new LoginOverloadedException("Password hashing pool saturated", 2));
+
+        mockMvc.perform(post("/api/login/compte/create")
+        		.contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CreateCompteDTO()))
+                .with(csrf()))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"));
+    }
 }
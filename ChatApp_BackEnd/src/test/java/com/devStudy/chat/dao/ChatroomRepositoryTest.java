@@ -0,0 +1,208 @@
+package com.devStudy.chat.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.devStudy.chat.dto.ChatroomDTO;
+import com.devStudy.chat.dto.ChatroomWithOwnerAndStatusDTO;
+import com.devStudy.chat.dto.DTOMapper;
+import com.devStudy.chat.model.Chatroom;
+import com.devStudy.chat.model.ChatroomStatus;
+import com.devStudy.chat.model.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ChatroomRepositoryTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChatroomRepositoryTest.class);
+
+	private static final int OWNERS = 4;
+	private static final int ROOMS_PER_OWNER = 3;
+	private static final int PAGE_SIZE = 5;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private ChatroomRepository chatroomRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+	private User member;
+	private User firstOwner;
+	private final Pageable firstPage = PageRequest.of(0, PAGE_SIZE, Sort.by("titre").ascending());
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test ChatroomRepository started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test ChatroomRepository ended-------------------------------------------------");
+	}
+
+	private User user(String name) {
+		User user = new User();
+		user.setFirstName(name);
+		user.setLastName("Test");
+		user.setMail(name + "@example.com");
+		user.setPwd("pwd-" + name);
+		return entityManager.persist(user);
+	}
+
+	private Chatroom chatroom(String titre, User owner, boolean active, LocalDateTime start) {
+		Chatroom chatroom = new Chatroom();
+		chatroom.setTitre(titre);
+		chatroom.setDescription("description " + titre);
+		chatroom.setHoraireCommence(start);
+		chatroom.setHoraireTermine(LocalDateTime.now().plusDays(1));
+		chatroom.setActive(active);
+		// as ChatroomService / ChatroomLifecycleService would have stored it
+		chatroom.setStatus(ChatroomStatus.at(start, chatroom.getHoraireTermine(), LocalDateTime.now()));
+		chatroom.setCreator(owner);
+		return entityManager.persist(chatroom);
+	}
+
+	@BeforeEach
+	void setUp() {
+		member = user("member");
+		for (int o = 0; o < OWNERS; o++) {
+			User owner = user("owner" + o);
+			if (o == 0) {
+				firstOwner = owner;
+			}
+			for (int r = 0; r < ROOMS_PER_OWNER; r++) {
+				// "a-…" : room 0 of each owner sorts first, it has not started yet
+				String titre = (r == 0 ? "a-" : "b-") + o + "-" + r;
+				LocalDateTime start = r == 0 ? LocalDateTime.now().plusHours(1) : LocalDateTime.now().minusHours(1);
+				member.getJoinedRooms().add(chatroom(titre, owner, r != 2 || o % 2 == 0, start));
+			}
+		}
+		entityManager.flush();
+		entityManager.clear();
+
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void testJoinedChatroomsPageIsOneSelectPlusCount() {
+		Page<ChatroomWithOwnerAndStatusDTO> page = chatroomRepository.findChatroomDTOsJoinedOfUserByPage(member.getId(), firstPage);
+
+		assertEquals(PAGE_SIZE, page.getNumberOfElements());
+		assertEquals(OWNERS * ROOMS_PER_OWNER, page.getTotalElements());
+		// one select for the page, one count, whatever the number of owners on the page
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertEquals(0, statistics.getEntityLoadCount());
+
+		ChatroomWithOwnerAndStatusDTO first = page.getContent().get(0);
+		assertEquals("a-0-0", first.getTitre());
+		assertEquals("owner0", first.getOwner().getFirstName());
+		assertEquals("owner0@example.com", first.getOwner().getMail());
+		assertFalse(first.getIsActif(), "a chatroom that has not started is not active");
+	}
+
+	@Test
+	void testStatusIsComputedInQuery() {
+		List<ChatroomWithOwnerAndStatusDTO> rooms = chatroomRepository
+				.findChatroomDTOsCreatedByUserByPage(firstOwner.getId(), firstPage).getContent();
+
+		assertEquals(ROOMS_PER_OWNER, rooms.size());
+		assertFalse(rooms.get(0).getIsActif());
+		assertTrue(rooms.get(1).getIsActif());
+		assertTrue(rooms.get(2).getIsActif());
+		// short page : Spring Data skips the count query
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void testOwnedChatroomDTOs() {
+		Page<ChatroomDTO> page = chatroomRepository.findOwnedChatroomDTOsByPage(firstOwner.getId(), firstPage);
+
+		assertEquals(ROOMS_PER_OWNER, page.getTotalElements());
+		assertEquals(List.of("a-0-0", "b-0-1", "b-0-2"), page.getContent().stream().map(ChatroomDTO::getTitre).toList());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void testEntityMappingWasNPlusOne() {
+		// previous implementation : entity page, then DTOMapper touches the lazy creator of each chatroom
+		List<Chatroom> rooms = entityManager.getEntityManager()
+				.createQuery("SELECT c FROM Chatroom c JOIN c.members u WHERE u.id = ?1 ORDER BY c.titre", Chatroom.class)
+				.setParameter(1, member.getId())
+				.setMaxResults(PAGE_SIZE)
+				.getResultList();
+		rooms.forEach(chatroom -> DTOMapper.toChatroomWithOwnerAndStatusDTO(chatroom, chatroom.isActive()));
+
+		LOGGER.info("Entity mapping of one page : {} statements, projection : 2", statistics.getPrepareStatementCount());
+		assertEquals(1 + OWNERS, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void testJoinedChatroomsKeysetTraversalSkipsCount() {
+		List<String> titres = new ArrayList<>();
+		String titre = "";
+		long lastId = 0;
+		int pages = 0;
+		List<ChatroomWithOwnerAndStatusDTO> rows;
+		do {
+			// page size + 1 : the extra row only tells that a next page exists
+			rows = chatroomRepository.findChatroomDTOsJoinedOfUserAfter(member.getId(), titre, lastId, Limit.of(PAGE_SIZE + 1));
+			List<ChatroomWithOwnerAndStatusDTO> page = rows.subList(0, Math.min(PAGE_SIZE, rows.size()));
+			page.forEach(room -> titres.add(room.getTitre()));
+			if (!page.isEmpty()) {
+				titre = page.get(page.size() - 1).getTitre();
+				lastId = page.get(page.size() - 1).getId();
+			}
+			pages++;
+		} while (rows.size() > PAGE_SIZE);
+		// one select per keyset page, and no count
+		assertEquals(pages, statistics.getPrepareStatementCount());
+
+		List<String> expected = chatroomRepository.findChatroomDTOsJoinedOfUserByPage(member.getId(),
+				PageRequest.of(0, OWNERS * ROOMS_PER_OWNER, Sort.by("titre").ascending())).getContent()
+				.stream().map(ChatroomDTO::getTitre).toList();
+		assertEquals(expected, titres);
+	}
+
+	@Test
+	void testOwnedAndCreatedKeysetPages() {
+		List<ChatroomDTO> owned = chatroomRepository.findOwnedChatroomDTOsAfter(firstOwner.getId(), "a-0-0", Long.MAX_VALUE, Limit.of(PAGE_SIZE + 1));
+		assertEquals(List.of("b-0-1", "b-0-2"), owned.stream().map(ChatroomDTO::getTitre).toList());
+
+		List<ChatroomWithOwnerAndStatusDTO> created = chatroomRepository.findChatroomDTOsCreatedByUserAfter(firstOwner.getId(), "", 0, Limit.of(2));
+		assertEquals(List.of("a-0-0", "b-0-1"), created.stream().map(ChatroomDTO::getTitre).toList());
+		assertEquals("owner0", created.get(0).getOwner().getFirstName());
+	}
+}
@@ -0,0 +1,109 @@
+package com.devStudy.chat.dao;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+/**
+ * Test de non-régression des plans d'exécution de la liste des utilisateurs non invités, sur un vrai PostgreSQL
+ * (par ex. le conteneur postgres du docker-compose). Il ne tourne que si CHATAPP_EXPLAIN_DB_URL est défini :
+ *   CHATAPP_EXPLAIN_DB_URL=jdbc:postgresql://localhost:5432/chatAppDB CHATAPP_EXPLAIN_DB_USERNAME=user CHATAPP_EXPLAIN_DB_PASSWORD=password
+ * Les tables sont créées puis supprimées dans le schéma dédié chatapp_explain, les données de l'application ne sont pas touchées.
+ */
+@DataJpaTest(properties = {
+		"spring.datasource.url=${CHATAPP_EXPLAIN_DB_URL:}",
+		"spring.datasource.username=${CHATAPP_EXPLAIN_DB_USERNAME:postgres}",
+		"spring.datasource.password=${CHATAPP_EXPLAIN_DB_PASSWORD:}",
+		"spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.default_schema=chatapp_explain",
+		"spring.jpa.properties.hibernate.hbm2ddl.create_namespaces=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfEnvironmentVariable(named = "CHATAPP_EXPLAIN_DB_URL", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UserRepositoryExplainTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(UserRepositoryExplainTest.class);
+
+	private static final int USERS = 50_000;
+	private static final int CHATROOMS = 200;
+	private static final long CHATROOM_ID = 1;
+	private static final long CREATOR_ID = 1;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test UserRepository EXPLAIN started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test UserRepository EXPLAIN ended-------------------------------------------------");
+	}
+
+	private void execute(String sql) {
+		entityManager.getEntityManager().createNativeQuery(sql).executeUpdate();
+	}
+
+	@BeforeEach
+	void setUp() {
+		execute("SET search_path TO chatapp_explain");
+		execute("INSERT INTO users (firstname, lastname, mail, pwd, is_admin, is_active, failed_attempts) "
+				+ "SELECT 'first' || md5(g::text), 'last' || md5((g * 7)::text), 'user' || g || '@example.com', 'pwd' || g, g % 1000 = 0, true, 0 "
+				+ "FROM generate_series(1, " + USERS + ") g");
+		execute("INSERT INTO chatrooms (titre, description, horaire_commence, horaire_termine, is_active, creator_id) "
+				+ "SELECT 'room' || g, 'room', now(), now() + interval '1 day', true, (SELECT min(id) FROM users) "
+				+ "FROM generate_series(1, " + CHATROOMS + ") g");
+		// 20 membres en moyenne par chatroom
+		execute("INSERT INTO user_chatroom_relationship (user_id, chatroom_id) "
+				+ "SELECT u.id, c.id FROM users u JOIN chatrooms c ON (u.id + c.id) % 2500 = 0");
+		execute("ANALYZE users");
+		execute("ANALYZE user_chatroom_relationship");
+	}
+
+	private String explain(String query, Object... parameters) {
+		var explain = entityManager.getEntityManager().createNativeQuery("EXPLAIN " + query);
+		for (int i = 0; i < parameters.length; i++) {
+			explain.setParameter(i + 1, parameters[i]);
+		}
+		@SuppressWarnings("unchecked")
+		List<String> lines = explain.getResultList();
+		String plan = String.join("\n", lines);
+		LOGGER.info("Plan :\n{}", plan);
+		return plan;
+	}
+
+	private static void assertIndexedAntiJoin(String plan) {
+		assertTrue(plan.contains("Anti Join"), "NOT EXISTS must be planned as an anti-join");
+		assertTrue(plan.contains("idx_users_admin_name"), "users must be read in index order");
+		assertFalse(plan.contains("Seq Scan on users"), "users must not be scanned sequentially");
+		assertFalse(plan.contains("Seq Scan on user_chatroom_relationship"), "memberships must be probed by index");
+	}
+
+	@Test
+	void testFirstPageUsesIndexedAntiJoin() {
+		assertIndexedAntiJoin(explain(UserRepository.USERS_NOT_INVITED_BY_PAGE + " LIMIT 5", CHATROOM_ID, CREATOR_ID));
+	}
+
+	@Test
+	void testKeysetPageUsesIndexedAntiJoin() {
+		assertIndexedAntiJoin(explain(UserRepository.USERS_NOT_INVITED_AFTER,
+				CHATROOM_ID, CREATOR_ID, "first8", "last0", 0L, 6));
+	}
+}
@@ -0,0 +1,169 @@
+package com.devStudy.chat.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.devStudy.chat.model.Chatroom;
+import com.devStudy.chat.model.User;
+
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UserRepositoryTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(UserRepositoryTest.class);
+
+	private static final int USERS = 23;
+	private static final int PAGE_SIZE = 5;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	private User creator;
+	private Chatroom chatroom;
+	// non administrateurs, ni créateur ni membres, dans l'ordre (prénom, nom, id)
+	private final List<Long> expectedIds = new ArrayList<>();
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test UserRepository started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test UserRepository ended-------------------------------------------------");
+	}
+
+	private int mails;
+
+	private User user(String firstName, String lastName, boolean admin) {
+		User user = new User();
+		user.setFirstName(firstName);
+		user.setLastName(lastName);
+		user.setMail(firstName + "." + lastName + "." + (mails++) + "@example.com");
+		user.setPwd("pwd-" + firstName + lastName);
+		user.setAdmin(admin);
+		return entityManager.persist(user);
+	}
+
+	@BeforeEach
+	void setUp() {
+		expectedIds.clear();
+		creator = user("Aaron", "Owner", false);
+		user("Aaron", "Admin", true);
+		chatroom = new Chatroom();
+		chatroom.setTitre("room");
+		chatroom.setDescription("room");
+		chatroom.setHoraireCommence(LocalDateTime.now());
+		chatroom.setHoraireTermine(LocalDateTime.now().plusDays(1));
+		chatroom.setActive(true);
+		chatroom.setCreator(creator);
+		entityManager.persist(chatroom);
+
+		// prénoms répétés pour que le nom et l'id départagent la pagination
+		List<User> candidates = new ArrayList<>();
+		for (int i = 0; i < USERS; i++) {
+			User user = user("First" + (i % 4), "Last" + (i % 3), false);
+			if (i % 5 == 0) {
+				user.getJoinedRooms().add(chatroom);
+			} else {
+				candidates.add(user);
+			}
+		}
+		candidates.sort((a, b) -> {
+			int cmp = a.getFirstName().compareTo(b.getFirstName());
+			cmp = cmp != 0 ? cmp : a.getLastName().compareTo(b.getLastName());
+			return cmp != 0 ? cmp : Long.compare(a.getId(), b.getId());
+		});
+		candidates.forEach(user -> expectedIds.add(user.getId()));
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void testNotInvitedByPageExcludesMembersAdminsAndCreator() {
+		List<Long> ids = new ArrayList<>();
+		Page<User> page;
+		int index = 0;
+		do {
+			page = userRepository.findUsersNotInvitedToChatroomByPage(chatroom.getId(), creator.getId(), PageRequest.of(index++, PAGE_SIZE));
+			page.forEach(user -> ids.add(user.getId()));
+		} while (page.hasNext());
+
+		assertEquals(expectedIds.size(), page.getTotalElements());
+		assertEquals(expectedIds, ids);
+	}
+
+	@Test
+	void testKeysetTraversalMatchesOffsetOrder() {
+		List<Long> ids = new ArrayList<>();
+		List<User> batch = userRepository.findUsersNotInvitedToChatroomFirst(chatroom.getId(), creator.getId(), PAGE_SIZE);
+		while (!batch.isEmpty()) {
+			batch.forEach(user -> ids.add(user.getId()));
+			User last = batch.get(batch.size() - 1);
+			batch = userRepository.findUsersNotInvitedToChatroomAfter(chatroom.getId(), creator.getId(),
+					last.getFirstName(), last.getLastName(), last.getId(), PAGE_SIZE);
+		}
+
+		assertEquals(expectedIds, ids);
+	}
+
+	@Test
+	void testIndexesAreDeclaredOnTheSchema() {
+		@SuppressWarnings("unchecked")
+		List<String> indexes = entityManager.getEntityManager()
+				.createNativeQuery("SELECT lower(index_name) FROM information_schema.indexes")
+				.getResultList();
+
+		assertTrue(indexes.contains("idx_users_admin_name"));
+		assertTrue(indexes.contains("idx_relationship_chatroom_user"));
+		assertFalse(indexes.isEmpty());
+	}
+
+	@Test
+	void testOtherUsersKeysetTraversal() {
+		List<Long> ids = new ArrayList<>();
+		String firstName = "";
+		String lastName = "";
+		long lastId = 0;
+		List<User> batch;
+		do {
+			batch = userRepository.findAllOtherUsersNotAdminAfter(creator.getId(), firstName, lastName, lastId, PAGE_SIZE);
+			batch.forEach(user -> ids.add(user.getId()));
+			if (!batch.isEmpty()) {
+				User last = batch.get(batch.size() - 1);
+				firstName = last.getFirstName();
+				lastName = last.getLastName();
+				lastId = last.getId();
+			}
+		} while (batch.size() == PAGE_SIZE);
+
+		List<Long> expected = userRepository.findAllOtherUsersNotAdminByPage(creator.getId(),
+				PageRequest.of(0, USERS + 2, Sort.by("firstName", "lastName", "id"))).map(User::getId).getContent();
+		assertEquals(USERS, ids.size());
+		assertEquals(expected, ids);
+	}
+}
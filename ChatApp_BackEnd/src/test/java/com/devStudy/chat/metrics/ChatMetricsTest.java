@@ -0,0 +1,56 @@
+package com.devStudy.chat.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ChatMetricsTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChatMetricsTest.class);
+
+	private final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+	private final ChatMetrics chatMetrics = new ChatMetrics(registry);
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test ChatMetrics started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		registry.close();
+		LOGGER.info("-----------------------------------------Test ChatMetrics ended-------------------------------------------------");
+	}
+
+	@Test
+	void testMetersAreExposedToPrometheus() {
+		AtomicInteger sessions = new AtomicInteger(3);
+		chatMetrics.registerGauge("chat.sessions.local", "WebSocket sessions opened on this instance", sessions::get);
+		chatMetrics.recordMessageBroadcast(chatMetrics.startSample());
+		chatMetrics.getMongoInsertTimer().record(() -> {});
+		chatMetrics.getRedisPublishTimer().record(() -> {});
+		chatMetrics.recordPubSubDeliveryLag(System.currentTimeMillis() - 15);
+		chatMetrics.recordPubSubDeliveryLag(0);
+		chatMetrics.incrementDroppedFrames(ChatMetrics.DROP_BUFFER_OVERFLOW);
+
+		String scrape = registry.scrape();
+		assertTrue(scrape.contains("chat_message_broadcast_seconds_count"));
+		assertTrue(scrape.contains("chat_message_mongo_insert_seconds_count"));
+		assertTrue(scrape.contains("chat_redis_publish_seconds_count"));
+		assertTrue(scrape.contains("chat_sessions_local 3.0"));
+		assertTrue(scrape.contains("chat_frames_dropped_total{reason=\"buffer_overflow\"} 1.0"));
+		// the message without send time is not recorded
+		assertEquals(1, registry.get("chat.pubsub.delivery.lag").timer().count());
+	}
+}
@@ -0,0 +1,111 @@
+package com.devStudy.chat.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import com.devStudy.chat.model.User;
+import com.devStudy.chat.security.loginPassword.AccountAuthenticationProvider;
+import com.devStudy.chat.service.implementations.UserService;
+import com.devStudy.chat.service.interfaces.PasswordHashingServiceInt;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AccountAuthenticationProviderTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AccountAuthenticationProviderTest.class);
+
+	private static final String MAIL = "test@example.com";
+	private static final int MAX_FAILED_ATTEMPTS = 5;
+
+	private PasswordHashingServiceInt passwordHashingService;
+	private UserService userService;
+	private AccountAuthenticationProvider provider;
+	private User testUser;
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test AccountAuthenticationProvider started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test AccountAuthenticationProvider ended-------------------------------------------------");
+	}
+
+	@BeforeEach
+	void setUp() {
+		passwordHashingService = mock(PasswordHashingServiceInt.class);
+		userService = mock(UserService.class);
+		provider = new AccountAuthenticationProvider(passwordHashingService, userService, MAX_FAILED_ATTEMPTS);
+
+		testUser = new User();
+		testUser.setId(1L);
+		testUser.setMail(MAIL);
+		testUser.setPwd("encodedPassword");
+		testUser.setActive(true);
+		testUser.setFailedAttempts(0);
+		when(userService.loadUserByUsername(MAIL)).thenReturn(testUser);
+	}
+
+	@Test
+	void testSuccessfulLoginReadsOnce() {
+		when(passwordHashingService.matches("password", "encodedPassword")).thenReturn(true);
+
+		Authentication result = provider.authenticate(new UsernamePasswordAuthenticationToken(MAIL, "password"));
+
+		//le principal est l'entité lue par loadUserByUsername, sans deuxième lecture ni écriture
+		assertSame(testUser, result.getPrincipal());
+		verify(userService).loadUserByUsername(MAIL);
+		verifyNoMoreInteractions(userService);
+	}
+
+	@Test
+	void testSuccessfulLoginResetsPreviousFailures() {
+		testUser.setFailedAttempts(2);
+		when(passwordHashingService.matches("password", "encodedPassword")).thenReturn(true);
+
+		provider.authenticate(new UsernamePasswordAuthenticationToken(MAIL, "password"));
+
+		verify(userService).resetFailedAttemptsOfUser(MAIL);
+		assertEquals(0, testUser.getFailedAttempts());
+	}
+
+	@Test
+	void testFailedLoginIncrementsAtomically() {
+		when(passwordHashingService.matches("wrong", "encodedPassword")).thenReturn(false);
+		when(userService.incrementFailedAttemptsOfUser(MAIL)).thenReturn(2);
+
+		BadCredentialsException thrown = assertThrows(BadCredentialsException.class,
+				() -> provider.authenticate(new UsernamePasswordAuthenticationToken(MAIL, "wrong")));
+
+		assertEquals("Mot de passe incorrect. Plus que 3 tentatives avant blocage", thrown.getMessage());
+		verify(userService, never()).lockUserAndResetFailedAttempts(anyString());
+	}
+
+	@Test
+	void testFailedLoginLocksAccount() {
+		when(passwordHashingService.matches("wrong", "encodedPassword")).thenReturn(false);
+		when(userService.incrementFailedAttemptsOfUser(MAIL)).thenReturn(MAX_FAILED_ATTEMPTS);
+
+		assertThrows(BadCredentialsException.class,
+				() -> provider.authenticate(new UsernamePasswordAuthenticationToken(MAIL, "wrong")));
+
+		verify(userService).lockUserAndResetFailedAttempts(MAIL);
+	}
+}
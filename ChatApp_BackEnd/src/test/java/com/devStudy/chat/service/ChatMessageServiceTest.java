@@ -0,0 +1,210 @@
+package com.devStudy.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devStudy.chat.dao.ChatMessageRepository;
+import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.model.ChatMessage;
+import com.devStudy.chat.service.implementations.ChatMessageService;
+import com.devStudy.chat.service.utils.Events.RemoveChatroomEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ChatMessageServiceTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChatMessageServiceTest.class);
+
+	private static final long CHATROOM_ID = 42L;
+	private static final int BATCH_SIZE = 100;
+
+	private ChatMessageRepository chatMessageRepository;
+	private ChatMessageService chatMessageService;
+	// collection simulée : les messages restants du chatroom
+	private List<ChatMessage> stored;
+	// Redis simulé : compteurs de séquence par clé
+	private Map<String, Long> counters;
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test ChatMessageService started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test ChatMessageService ended-------------------------------------------------");
+	}
+
+	@BeforeEach
+	void setUp() {
+		chatMessageRepository = mock(ChatMessageRepository.class);
+		counters = new HashMap<>();
+		chatMessageService = new ChatMessageService(chatMessageRepository, new ChatMetrics(new SimpleMeterRegistry()),
+				sequenceRedis(), RedisScript.of("-- chatroom_seq_next", Long.class));
+		ReflectionTestUtils.setField(chatMessageService, "deleteBatchSize", BATCH_SIZE);
+
+		stored = new ArrayList<>();
+		when(chatMessageRepository.findIdsByChatroomId(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+			Pageable pageable = invocation.getArgument(1);
+			return new ArrayList<>(stored.subList(0, Math.min(pageable.getPageSize(), stored.size())));
+		});
+		when(chatMessageRepository.deleteByIdIn(anyCollection())).thenAnswer(invocation -> {
+			Collection<ObjectId> ids = invocation.getArgument(0);
+			int before = stored.size();
+			stored.removeIf(message -> ids.contains(message.getId()));
+			return (long) (before - stored.size());
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private StringRedisTemplate sequenceRedis() {
+		StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+		// même contrat que chatroom_seq_next.lua
+		when(redisTemplate.execute(any(RedisScript.class), anyList(), anyString())).thenAnswer(invocation -> {
+			String key = invocation.<List<String>>getArgument(1).get(0);
+			String seed = invocation.getArgument(2);
+			if (!counters.containsKey(key)) {
+				if (seed.isEmpty()) {
+					return -1L;
+				}
+				counters.put(key, Long.parseLong(seed));
+			}
+			return counters.merge(key, 1L, Long::sum);
+		});
+		ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+		when(valueOperations.get(anyString())).thenAnswer(invocation -> {
+			Long seq = counters.get(invocation.<String>getArgument(0));
+			return seq != null ? String.valueOf(seq) : null;
+		});
+		when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+		when(redisTemplate.delete(anyString())).thenAnswer(invocation -> counters.remove(invocation.<String>getArgument(0)) != null);
+		return redisTemplate;
+	}
+
+	private long send(String content) {
+		UserDTO sender = new UserDTO();
+		sender.setId(1L);
+		return chatMessageService.saveMsgIntoCollection(CHATROOM_ID, sender, content, new Date());
+	}
+
+	private void storeMessages(int count) {
+		for (int i = 0; i < count; i++) {
+			ChatMessage message = new ChatMessage();
+			message.setId(new ObjectId());
+			message.setChatroomId(CHATROOM_ID);
+			stored.add(message);
+		}
+	}
+
+	@Test
+	void testMessagesAreDeletedInBatches() {
+		storeMessages(BATCH_SIZE * 2 + 50);
+
+		assertEquals(BATCH_SIZE * 2 + 50, chatMessageService.deleteMessagesOfChatroom(CHATROOM_ID));
+		assertEquals(0, stored.size());
+		verify(chatMessageRepository, times(3)).deleteByIdIn(anyCollection());
+	}
+
+	@Test
+	void testExactMultipleOfBatchSizeStopsOnEmptyBatch() {
+		storeMessages(BATCH_SIZE);
+
+		assertEquals(BATCH_SIZE, chatMessageService.deleteMessagesOfChatroom(CHATROOM_ID));
+		verify(chatMessageRepository, times(2)).findIdsByChatroomId(anyLong(), any(Pageable.class));
+		verify(chatMessageRepository, times(1)).deleteByIdIn(anyCollection());
+	}
+
+	@Test
+	void testRemoveChatroomEventDeletesMessages() {
+		storeMessages(10);
+
+		chatMessageService.removeChatroomEventListener(new RemoveChatroomEvent(CHATROOM_ID));
+		assertEquals(0, stored.size());
+	}
+
+	@Test
+	void testMongoFailureIsNotPropagated() {
+		when(chatMessageRepository.findIdsByChatroomId(anyLong(), any(Pageable.class))).thenThrow(new IllegalStateException("mongo down"));
+
+		chatMessageService.removeChatroomEventListener(new RemoveChatroomEvent(CHATROOM_ID));
+	}
+
+	@Test
+	void testSequenceIsIncreasingPerChatroom() {
+		assertEquals(0, chatMessageService.currentSequence(CHATROOM_ID));
+		assertEquals(1, send("a"));
+		assertEquals(2, send("b"));
+		assertEquals(3, send("c"));
+		assertEquals(3, chatMessageService.currentSequence(CHATROOM_ID));
+
+		ArgumentCaptor<ChatMessage> inserted = ArgumentCaptor.forClass(ChatMessage.class);
+		verify(chatMessageRepository, times(3)).insert(inserted.capture());
+		assertEquals(List.of(1L, 2L, 3L), inserted.getAllValues().stream().map(ChatMessage::getSeq).toList());
+	}
+
+	@Test
+	void testLostCounterResumesFromMongo() {
+		ChatMessage last = new ChatMessage();
+		last.setChatroomId(CHATROOM_ID);
+		last.setSeq(57);
+		when(chatMessageRepository.findFirstByChatroomIdOrderBySeqDesc(CHATROOM_ID)).thenReturn(Optional.of(last));
+
+		// Redis vidé : pas de retour à 1, les clients qui ont déjà vu 57 ne perdent pas les messages suivants
+		assertEquals(57, chatMessageService.currentSequence(CHATROOM_ID));
+		assertEquals(58, send("after restart"));
+		assertEquals(59, send("next"));
+		verify(chatMessageRepository, times(2)).findFirstByChatroomIdOrderBySeqDesc(CHATROOM_ID);
+	}
+
+	@Test
+	void testGapIsReadInSequenceOrder() {
+		chatMessageService.getChatMessagesAfterSeq(CHATROOM_ID, 12, 200);
+
+		ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+		verify(chatMessageRepository).findByChatroomIdAndSeqGreaterThan(eq(CHATROOM_ID), eq(12L), pageable.capture());
+		assertEquals(200, pageable.getValue().getPageSize());
+		assertEquals(Sort.Direction.ASC, pageable.getValue().getSort().getOrderFor("seq").getDirection());
+	}
+
+	@Test
+	void testRemoveChatroomEventDeletesSequence() {
+		send("a");
+		chatMessageService.removeChatroomEventListener(new RemoveChatroomEvent(CHATROOM_ID));
+		assertNull(counters.get("chatroom:" + CHATROOM_ID + ":seq"));
+	}
+}
@@ -0,0 +1,189 @@
+package com.devStudy.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devStudy.chat.dao.ChatroomRepository;
+import com.devStudy.chat.dto.ChatroomDTO;
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.model.Chatroom;
+import com.devStudy.chat.model.ChatroomStatus;
+import com.devStudy.chat.model.User;
+import com.devStudy.chat.service.implementations.ChatroomLifecycleService;
+import com.devStudy.chat.service.utils.Events.ChatroomLifecycleEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ChatroomLifecycleServiceTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChatroomLifecycleServiceTest.class);
+
+	// rooms of each kind
+	private static final int ROOMS = 20;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private ChatroomRepository chatroomRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private ChatroomLifecycleService lifecycleService;
+	private Statistics statistics;
+	private User owner;
+	private User member;
+	private final LocalDateTime now = LocalDateTime.now();
+	private final List<Object> events = new ArrayList<>();
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test ChatroomLifecycleService started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test ChatroomLifecycleService ended-------------------------------------------------");
+	}
+
+	private User user(String name) {
+		User user = new User();
+		user.setFirstName(name);
+		user.setLastName("Test");
+		user.setMail(name + "@example.com");
+		user.setPwd("pwd-" + name);
+		return entityManager.persist(user);
+	}
+
+	private void chatroom(String titre, LocalDateTime start, LocalDateTime end, ChatroomStatus status) {
+		Chatroom chatroom = new Chatroom();
+		chatroom.setTitre(titre);
+		chatroom.setDescription("description " + titre);
+		chatroom.setHoraireCommence(start);
+		chatroom.setHoraireTermine(end);
+		chatroom.setActive(true);
+		chatroom.setStatus(status);
+		chatroom.setCreator(owner);
+		entityManager.persist(chatroom);
+		member.getJoinedRooms().add(chatroom);
+	}
+
+	@BeforeEach
+	void setUp() {
+		events.clear();
+		lifecycleService = new ChatroomLifecycleService(chatroomRepository, mock(StringRedisTemplate.class), events::add,
+				new ChatMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(lifecycleService, "batchSize", 500);
+
+		owner = user("owner");
+		member = user("member");
+		for (int i = 0; i < ROOMS; i++) {
+			chatroom("future-" + i, now.plusHours(1), now.plusDays(1), ChatroomStatus.SCHEDULED);
+			chatroom("started-" + i, now.minusHours(1), now.plusDays(1), ChatroomStatus.SCHEDULED);
+			chatroom("running-" + i, now.minusHours(1), now.plusDays(1), ChatroomStatus.ACTIVE);
+			chatroom("ended-" + i, now.minusDays(2), now.minusDays(1), ChatroomStatus.ACTIVE);
+			// never seen active by the job (rows created before the status column, or a missed run)
+			chatroom("missed-" + i, now.minusDays(2), now.minusDays(1), ChatroomStatus.SCHEDULED);
+		}
+		entityManager.flush();
+		entityManager.clear();
+
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	private long count(ChatroomStatus status) {
+		return entityManager.getEntityManager()
+				.createQuery("SELECT count(c) FROM Chatroom c WHERE c.status = ?1", Long.class)
+				.setParameter(1, status)
+				.getSingleResult();
+	}
+
+	@Test
+	void testLifecyclesAdvanceInBulk() {
+		assertEquals(3 * ROOMS, lifecycleService.advanceLifecycles(now));
+		entityManager.flush();
+
+		long statements = statistics.getPrepareStatementCount();
+		LOGGER.info("Lifecycle run over {} rooms : {} statements", 5 * ROOMS, statements);
+		// per transition : SELECT ids + UPDATE + SELECT affected users, whatever the number of rooms
+		assertEquals(6, statements);
+		assertEquals(ROOMS, count(ChatroomStatus.SCHEDULED));
+		assertEquals(2 * ROOMS, count(ChatroomStatus.ACTIVE));
+		assertEquals(2 * ROOMS, count(ChatroomStatus.EXPIRED));
+
+		assertEquals(2, events.size());
+		ChatroomLifecycleEvent expired = assertInstanceOf(ChatroomLifecycleEvent.class, events.get(0));
+		assertEquals(ChatroomStatus.EXPIRED, expired.getStatus());
+		assertEquals(2 * ROOMS, expired.getChatroomIds().size());
+		assertEquals(Set.of(owner.getId(), member.getId()), expired.getAffectedUserIds());
+		ChatroomLifecycleEvent activated = assertInstanceOf(ChatroomLifecycleEvent.class, events.get(1));
+		assertEquals(ChatroomStatus.ACTIVE, activated.getStatus());
+		assertEquals(ROOMS, activated.getChatroomIds().size());
+
+		// a second run has nothing left to do
+		events.clear();
+		assertEquals(0, lifecycleService.advanceLifecycles(now));
+		assertTrue(events.isEmpty());
+	}
+
+	@Test
+	void testBatchesAreDrainedOverRuns() {
+		ReflectionTestUtils.setField(lifecycleService, "batchSize", ROOMS / 2);
+		int runs = 0;
+		while (lifecycleService.advanceLifecycles(now) > 0) {
+			runs++;
+		}
+		assertEquals(2 * ROOMS, count(ChatroomStatus.EXPIRED));
+		assertEquals(4, runs);
+	}
+
+	@Test
+	void testListingsReadTheStoredStatus() {
+		lifecycleService.advanceLifecycles(now);
+		entityManager.clear();
+
+		List<ChatroomDTO> owned = chatroomRepository
+				.findOwnedChatroomDTOsByPage(owner.getId(), PageRequest.of(0, 5 * ROOMS)).getContent();
+		// expired rooms are no longer listed, started rooms are shown active once the job has run
+		assertEquals(3 * ROOMS, owned.size());
+		owned.forEach(room -> assertEquals(!room.getTitre().startsWith("future-"), room.getIsActif(), room.getTitre()));
+	}
+
+	@Test
+	void testStatusAt() {
+		assertEquals(ChatroomStatus.SCHEDULED, ChatroomStatus.at(now.plusHours(1), now.plusDays(1), now));
+		assertEquals(ChatroomStatus.ACTIVE, ChatroomStatus.at(now, now.plusDays(1), now));
+		assertEquals(ChatroomStatus.EXPIRED, ChatroomStatus.at(now.minusDays(2), now.minusDays(1), now));
+	}
+}
@@ -0,0 +1,237 @@
+package com.devStudy.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.devStudy.chat.dao.ChatroomRepository;
+import com.devStudy.chat.dao.UserRepository;
+import com.devStudy.chat.dto.ModifyChatroomRequestDTO;
+import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.model.Chatroom;
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.model.User;
+import com.devStudy.chat.service.implementations.ChatroomService;
+import com.devStudy.chat.service.utils.ChatroomListCache;
+import com.devStudy.chat.service.utils.Events.ChangeChatroomMemberEvent;
+import com.devStudy.chat.service.utils.Events.RemoveChatroomEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ChatroomServiceMembershipTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChatroomServiceMembershipTest.class);
+
+	private static final int USERS = 300;
+	private static final int EXISTING_MEMBERS = 100;
+	private static final int REMOVED = 50;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private ChatroomRepository chatroomRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private ChatroomService chatroomService;
+	private Statistics statistics;
+	private Chatroom chatroom;
+	private final List<User> users = new ArrayList<>();
+	private final List<Object> events = new ArrayList<>();
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test ChatroomService membership started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test ChatroomService membership ended-------------------------------------------------");
+	}
+
+	private User user(String name) {
+		User user = new User();
+		user.setFirstName(name);
+		user.setLastName("Test");
+		user.setMail(name + "@example.com");
+		user.setPwd("pwd-" + name);
+		return entityManager.persist(user);
+	}
+
+	@BeforeEach
+	void setUp() {
+		chatroomService = new ChatroomService(userRepository, chatroomRepository, events::add,
+				new ChatroomListCache(mock(StringRedisTemplate.class), mock(RedisMessageListenerContainer.class),
+						new ChatMetrics(new SimpleMeterRegistry())));
+		users.clear();
+		events.clear();
+
+		User owner = user("owner");
+		chatroom = new Chatroom();
+		chatroom.setTitre("roster");
+		chatroom.setDescription("large roster");
+		chatroom.setHoraireCommence(LocalDateTime.of(2030, 1, 1, 10, 0));
+		chatroom.setHoraireTermine(LocalDateTime.of(2030, 1, 2, 10, 0));
+		chatroom.setActive(true);
+		chatroom.setCreator(owner);
+		entityManager.persist(chatroom);
+		for (int i = 0; i < USERS; i++) {
+			User user = user("user" + i);
+			if (i < EXISTING_MEMBERS) {
+				user.getJoinedRooms().add(chatroom);
+			}
+			users.add(user);
+		}
+		entityManager.flush();
+		entityManager.clear();
+
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	private static List<UserDTO> dtos(List<User> users) {
+		return users.stream().map(user -> {
+			UserDTO dto = new UserDTO();
+			dto.setId(user.getId());
+			return dto;
+		}).toList();
+	}
+
+	// all users not yet members (plus the existing ones again) are added, the first REMOVED members are removed
+	private ModifyChatroomRequestDTO request() {
+		ModifyChatroomRequestDTO request = new ModifyChatroomRequestDTO();
+		request.setTitre("roster");
+		request.setDescription("large roster");
+		request.setStartDate("");
+		request.setDuration(1);
+		List<UserDTO> added = new ArrayList<>(dtos(users.subList(REMOVED, USERS)));
+		UserDTO unknown = new UserDTO();
+		unknown.setId(-1);
+		added.add(unknown);
+		request.setListAddedUsers(added);
+		request.setListRemovedUsers(dtos(users.subList(0, REMOVED)));
+		return request;
+	}
+
+	private long countMembers() {
+		return entityManager.getEntityManager()
+				.createQuery("SELECT count(u) FROM User u JOIN u.joinedRooms c WHERE c.id = ?1", Long.class)
+				.setParameter(1, chatroom.getId())
+				.getSingleResult();
+	}
+
+	@Test
+	void testUpdateChatroomAppliesMembershipInBulk() {
+		assertTrue(chatroomService.updateChatroom(request(), chatroom.getId()));
+		entityManager.flush();
+
+		long statements = statistics.getPrepareStatementCount();
+		LOGGER.info("Bulk membership update of {} users : {} statements", USERS, statements);
+		// findById + SELECT ids to add + INSERT ... SELECT + SELECT ids to remove + DELETE
+		assertEquals(5, statements);
+		assertEquals(USERS - REMOVED, countMembers());
+		// only the users actually inserted / deleted are announced : not the unknown id nor the existing members
+		ChangeChatroomMemberEvent event = assertInstanceOf(ChangeChatroomMemberEvent.class, events.get(0));
+		assertEquals(USERS - EXISTING_MEMBERS, event.getAddedMembers().size());
+		assertEquals(REMOVED, event.getRemovedMembers().size());
+	}
+
+	@Test
+	void testUnchangedChatroomPublishesNothing() {
+		ModifyChatroomRequestDTO request = request();
+		// existing members, the creator and an unknown id : no row changes
+		request.setListAddedUsers(dtos(users.subList(0, EXISTING_MEMBERS)));
+		UserDTO owner = new UserDTO();
+		owner.setId(chatroom.getCreator().getId());
+		UserDTO unknown = new UserDTO();
+		unknown.setId(-1);
+		request.setListRemovedUsers(List.of(owner, unknown));
+
+		assertTrue(chatroomService.updateChatroom(request, chatroom.getId()));
+		assertEquals(EXISTING_MEMBERS, countMembers());
+		assertTrue(events.isEmpty());
+	}
+
+	@Test
+	void testPerUserUpdateBaseline() {
+		// previous implementation : one findById per user, then the members / joinedRooms collections are loaded and mutated
+		ModifyChatroomRequestDTO request = request();
+		Chatroom loaded = chatroomRepository.findById(chatroom.getId()).orElseThrow();
+		for (UserDTO dto : request.getListAddedUsers()) {
+			Optional<User> user = userRepository.findById(dto.getId());
+			if (user.isPresent() && !loaded.getMembers().contains(user.get())) {
+				loaded.getMembers().add(user.get());
+				user.get().getJoinedRooms().add(loaded);
+			}
+		}
+		for (UserDTO dto : request.getListRemovedUsers()) {
+			Optional<User> user = userRepository.findById(dto.getId());
+			if (user.isPresent() && loaded.getMembers().contains(user.get())) {
+				loaded.getMembers().remove(user.get());
+				user.get().getJoinedRooms().remove(loaded);
+			}
+		}
+		entityManager.flush();
+
+		long statements = statistics.getPrepareStatementCount();
+		LOGGER.info("Per-user membership update of {} users : {} statements", USERS, statements);
+		assertTrue(statements > USERS);
+		assertEquals(USERS - REMOVED, countMembers());
+	}
+
+	@Test
+	void testDeleteChatroomWithBulkStatements() {
+		assertTrue(chatroomService.deleteChatRoom(chatroom.getId()));
+		entityManager.flush();
+
+		long statements = statistics.getPrepareStatementCount();
+		LOGGER.info("Deletion of a chatroom with {} members : {} statements", EXISTING_MEMBERS, statements);
+		// SELECT affected users + DELETE user_chatroom_relationship + DELETE chatrooms
+		assertEquals(3, statements);
+		assertEquals(0, countMembers());
+		assertTrue(chatroomRepository.findById(chatroom.getId()).isEmpty());
+		assertEquals(USERS + 1, userRepository.count());
+		assertEquals(1, events.size());
+		RemoveChatroomEvent event = assertInstanceOf(RemoveChatroomEvent.class, events.get(0));
+		// members and creator : their cached chatroom lists are invalidated
+		assertEquals(EXISTING_MEMBERS + 1, event.getAffectedUserIds().size());
+	}
+
+	@Test
+	void testDeleteUnknownChatroomPublishesNothing() {
+		assertTrue(chatroomService.deleteChatRoom(-1));
+		assertTrue(events.isEmpty());
+	}
+}
@@ -0,0 +1,74 @@
+package com.devStudy.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.devStudy.chat.service.implementations.CodeGeneratorService;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CodeGeneratorServiceTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(CodeGeneratorServiceTest.class);
+
+	private static final int POOL_SIZE = 32;
+
+	private CodeGeneratorService codeGeneratorService;
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test CodeGeneratorService started-----------------------------------------------");
+		codeGeneratorService = new CodeGeneratorService(POOL_SIZE);
+	}
+
+	@AfterAll
+	void TestEnd() {
+		codeGeneratorService.shutdown();
+		LOGGER.info("-----------------------------------------Test CodeGeneratorService ended-------------------------------------------------");
+	}
+
+	private void awaitFullPool() throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (codeGeneratorService.getPoolSize() < POOL_SIZE && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(POOL_SIZE, codeGeneratorService.getPoolSize());
+	}
+
+	@Test
+	void testCodesAreSixDigits() {
+		for (int i = 0; i < 1000; i++) {
+			String code = codeGeneratorService.nextCode();
+			assertEquals(CodeGeneratorService.CODE_LENGTH, code.length());
+			assertTrue(code.chars().allMatch(Character::isDigit), code);
+		}
+	}
+
+	@Test
+	void testLeadingZerosAreKept() {
+		Set<Character> firstDigits = new HashSet<>();
+		for (int i = 0; i < 10_000; i++) {
+			firstDigits.add(codeGeneratorService.generateCode().charAt(0));
+		}
+		// 10 000 codes : every first digit, '0' included, shows up
+		assertEquals(10, firstDigits.size());
+	}
+
+	@Test
+	void testPoolIsRefilledInBackground() throws InterruptedException {
+		awaitFullPool();
+		for (int i = 0; i < POOL_SIZE * 3; i++) {
+			codeGeneratorService.nextCode();
+		}
+		awaitFullPool();
+	}
+}
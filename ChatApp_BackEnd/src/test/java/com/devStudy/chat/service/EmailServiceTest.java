@@ -0,0 +1,126 @@
+package com.devStudy.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devStudy.chat.service.implementations.EmailService;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class EmailServiceTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EmailServiceTest.class);
+
+	private static final int BATCH_SIZE = 20;
+
+	// serveur SMTP local, en mémoire
+	private GreenMail greenMail;
+	private EmailService emailService;
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test EmailService started-----------------------------------------------");
+		greenMail = new GreenMail(ServerSetupTest.SMTP.dynamicPort());
+		greenMail.start();
+	}
+
+	@AfterAll
+	void TestEnd() {
+		greenMail.stop();
+		LOGGER.info("-----------------------------------------Test EmailService ended-------------------------------------------------");
+	}
+
+	@BeforeEach
+	void setUp() throws Exception {
+		greenMail.purgeEmailFromAllMailboxes();
+		JavaMailSenderImpl sender = new JavaMailSenderImpl();
+		sender.setHost("127.0.0.1");
+		sender.setPort(greenMail.getSmtp().getPort());
+		emailService = emailService(sender, 4, 2, 5000);
+	}
+
+	private static EmailService emailService(JavaMailSender sender, int maxConnections, int reserved, long acquireTimeout) {
+		EmailService service = new EmailService(sender, maxConnections, reserved, acquireTimeout);
+		ReflectionTestUtils.setField(service, "from", "noreply@chat.test");
+		return service;
+	}
+
+	private List<SimpleMailMessage> mails(int count) {
+		List<SimpleMailMessage> mails = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			mails.add(emailService.buildMessage("user" + i + "@chat.test", "Verification Code", "code " + i));
+		}
+		return mails;
+	}
+
+	@Test
+	void testBatchIsDeliveredOverOneSession() {
+		Map<SimpleMailMessage, Exception> failures = emailService.sendBatch(mails(BATCH_SIZE), true);
+
+		assertTrue(failures.isEmpty());
+		assertTrue(greenMail.waitForIncomingEmail(5000, BATCH_SIZE));
+		assertEquals(BATCH_SIZE, greenMail.getReceivedMessages().length);
+	}
+
+	@Test
+	void testUnreachableServerFailsWholeBatch() {
+		JavaMailSenderImpl sender = new JavaMailSenderImpl();
+		sender.setHost("127.0.0.1");
+		sender.setPort(1);
+		EmailService unreachable = emailService(sender, 1, 0, 1000);
+
+		List<SimpleMailMessage> mails = mails(3);
+		Map<SimpleMailMessage, Exception> failures = unreachable.sendBatch(mails, true);
+
+		assertEquals(mails.size(), failures.size());
+		assertTrue(failures.keySet().containsAll(mails));
+	}
+
+	@Test
+	void testReservedSessionsStayAvailableForVerificationCodes() throws Exception {
+		CountDownLatch sending = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		JavaMailSender slowSender = mock(JavaMailSender.class);
+		doAnswer(invocation -> {
+			sending.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return null;
+		}).when(slowSender).send(any(SimpleMailMessage[].class));
+		// 2 sessions, 1 reserved : a single reset password batch saturates the non priority share
+		EmailService service = emailService(slowSender, 2, 1, 200);
+
+		CompletableFuture<Map<SimpleMailMessage, Exception>> blocking =
+				CompletableFuture.supplyAsync(() -> service.sendBatch(mails(1), false));
+		assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+		assertEquals(1, service.sendBatch(mails(1), false).size(), "a second reset password batch must wait for a session");
+		CompletableFuture<Map<SimpleMailMessage, Exception>> priority =
+				CompletableFuture.supplyAsync(() -> service.sendBatch(mails(1), true));
+
+		release.countDown();
+		assertTrue(priority.get(5, TimeUnit.SECONDS).isEmpty(), "verification codes use the reserved session");
+		assertTrue(blocking.get(5, TimeUnit.SECONDS).isEmpty());
+	}
+}
@@ -0,0 +1,137 @@
+package com.devStudy.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.service.implementations.PasswordHashingService;
+import com.devStudy.chat.service.utils.Exceptions.LoginOverloadedException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PasswordHashingServiceTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(PasswordHashingServiceTest.class);
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test PasswordHashingService started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test PasswordHashingService ended-------------------------------------------------");
+	}
+
+	// same construction as WebSecurityConfig.passwordEncoder()
+	private static PasswordEncoder delegatingEncoder(String idForEncode, int bcryptStrength) {
+		BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+		DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(idForEncode, Map.of(
+				"bcrypt", bcrypt,
+				"argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8()));
+		encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+		return encoder;
+	}
+
+	private static PasswordHashingService hashingService(PasswordEncoder encoder, int threads, int queueCapacity, long waitTimeout) {
+		return new PasswordHashingService(encoder, new ChatMetrics(new SimpleMeterRegistry()), threads, queueCapacity, waitTimeout);
+	}
+
+	@Test
+	void testMatchesLegacyHash() {
+		PasswordHashingService service = hashingService(delegatingEncoder("bcrypt", 4), 1, 4, 5000);
+		String legacyHash = new BCryptPasswordEncoder(4).encode("password");
+
+		assertTrue(service.matches("password", legacyHash));
+		assertFalse(service.matches("wrong", legacyHash));
+		assertTrue(service.encode("password").startsWith("{bcrypt}$2a$04$"));
+		service.shutdown();
+	}
+
+	@Test
+	void testRehashTowardsConfiguredCost() throws Exception {
+		PasswordHashingService service = hashingService(delegatingEncoder("bcrypt", 5), 1, 4, 5000);
+		String oldHash = new BCryptPasswordEncoder(4).encode("password");
+
+		CompletableFuture<String> newHash = new CompletableFuture<>();
+		service.rehashIfNeeded("password", oldHash, newHash::complete);
+		String upgraded = newHash.get(5, TimeUnit.SECONDS);
+		assertTrue(upgraded.startsWith("{bcrypt}$2a$05$"));
+		assertTrue(service.matches("password", upgraded));
+
+		// an up to date hash is left as is
+		CompletableFuture<String> noRehash = new CompletableFuture<>();
+		service.rehashIfNeeded("password", upgraded, noRehash::complete);
+		TimeUnit.MILLISECONDS.sleep(200);
+		assertFalse(noRehash.isDone());
+		service.shutdown();
+	}
+
+	@Test
+	void testRehashToArgon2() throws Exception {
+		PasswordHashingService service = hashingService(delegatingEncoder("argon2", 4), 1, 4, 5000);
+		String bcryptHash = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("password");
+
+		CompletableFuture<String> newHash = new CompletableFuture<>();
+		service.rehashIfNeeded("password", bcryptHash, newHash::complete);
+		String upgraded = newHash.get(10, TimeUnit.SECONDS);
+		assertTrue(upgraded.startsWith("{argon2}"));
+		assertTrue(service.matches("password", upgraded));
+		service.shutdown();
+	}
+
+	@Test
+	void testFailFastWhenPoolIsSaturated() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		PasswordEncoder blockingEncoder = new BCryptPasswordEncoder(4) {
+			@Override
+			public boolean matches(CharSequence rawPassword, String encodedPassword) {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return true;
+			}
+		};
+		// one thread, one slot in the queue
+		PasswordHashingService service = hashingService(blockingEncoder, 1, 1, 300);
+
+		CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> service.matches("a", "hash"));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> service.matches("b", "hash"));
+		TimeUnit.MILLISECONDS.sleep(50);
+
+		LoginOverloadedException rejected = assertThrows(LoginOverloadedException.class, () -> service.matches("c", "hash"));
+		assertEquals(1, rejected.getRetryAfterSeconds());
+
+		// the queued login gives up after waitTimeout instead of waiting forever
+		Exception timeout = assertThrows(Exception.class, () -> queued.get(5, TimeUnit.SECONDS));
+		assertTrue(timeout.getCause() instanceof LoginOverloadedException);
+
+		// the running login has been blocked longer than waitTimeout too
+		release.countDown();
+		assertThrows(Exception.class, () -> running.get(5, TimeUnit.SECONDS));
+		service.shutdown();
+	}
+}
@@ -0,0 +1,152 @@
+package com.devStudy.chat.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devStudy.chat.dao.UserRepository;
+import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.model.User;
+import com.devStudy.chat.service.implementations.UserSearchService;
+import com.devStudy.chat.service.utils.Events.UserChangeEvent;
+import com.devStudy.chat.websocket.distributed.ChatMessageBroker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UserSearchServiceTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(UserSearchServiceTest.class);
+
+	private static final int USERS = 40_000;
+	private static final int MAX_RESULTS = 20;
+	private static final String[] FIRST_NAMES = { "Jean", "Jeanne", "Léa", "Louis", "Zoé", "Hugo", "Chloé", "Lucas", "Emma", "Nathan" };
+	private static final String[] LAST_NAMES = { "Dupont", "Durand", "Martin", "Bernard", "Lefèvre", "Moreau", "Petit", "Roux" };
+
+	private final List<User> users = new ArrayList<>();
+	private UserRepository userRepository;
+	private StringRedisTemplate redisTemplate;
+	private UserSearchService userSearchService;
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test UserSearchService started-----------------------------------------------");
+		for (int i = 1; i <= USERS; i++) {
+			User user = new User();
+			user.setId(i);
+			user.setFirstName(FIRST_NAMES[i % FIRST_NAMES.length]);
+			user.setLastName(LAST_NAMES[i % LAST_NAMES.length] + (i % 500));
+			user.setMail("user" + i + "@example.com");
+			users.add(user);
+		}
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test UserSearchService ended-------------------------------------------------");
+	}
+
+	@BeforeEach
+	void setUp() {
+		userRepository = mock(UserRepository.class);
+		when(userRepository.findByAdminAndIdGreaterThanOrderByIdAsc(eq(false), anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+			long afterId = invocation.getArgument(1);
+			Limit limit = invocation.getArgument(2);
+			return users.stream().filter(user -> user.getId() > afterId).limit(limit.max()).toList();
+		});
+		redisTemplate = mock(StringRedisTemplate.class);
+		userSearchService = new UserSearchService(userRepository, redisTemplate, mock(RedisMessageListenerContainer.class),
+				new ChatMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(userSearchService, "maxResults", MAX_RESULTS);
+		ReflectionTestUtils.setField(userSearchService, "maxQueryLength", 64);
+		userSearchService.rebuild();
+	}
+
+	private static UserDTO dto(long id, String firstName, String lastName, String mail) {
+		UserDTO user = new UserDTO();
+		user.setId(id);
+		user.setFirstName(firstName);
+		user.setLastName(lastName);
+		user.setMail(mail);
+		return user;
+	}
+
+	@Test
+	void testRebuildLoadsAllUsersInBatches() {
+		assertEquals(USERS, userSearchService.getIndexedUsers());
+	}
+
+	@Test
+	void testPrefixSearchIsCappedAndIgnoresCaseAndAccents() {
+		List<UserDTO> result = userSearchService.search("LEA", 0);
+
+		assertEquals(MAX_RESULTS, result.size());
+		assertTrue(result.stream().allMatch(user -> user.getFirstName().equals("Léa")));
+	}
+
+	@Test
+	void testEveryTermMustMatch() {
+		List<UserDTO> result = userSearchService.search("jea dup", 0);
+
+		assertFalse(result.isEmpty());
+		assertTrue(result.stream().allMatch(user -> user.getFirstName().startsWith("Jean") && user.getLastName().startsWith("Dupont")));
+		assertTrue(userSearchService.search("jean zzz", 0).isEmpty());
+	}
+
+	@Test
+	void testSearchByMailAndExcludedUser() {
+		// les mots sont parcourus dans l'ordre : le mot exact vient avant ceux qui le prolongent (user12340...)
+		List<UserDTO> result = userSearchService.search("user1234@example", 0);
+		assertEquals(11, result.size());
+		assertEquals(1234L, result.get(0).getId());
+		assertTrue(userSearchService.search("user1234@example", 1234).stream().noneMatch(user -> user.getId() == 1234));
+		assertTrue(userSearchService.search("   ", 0).isEmpty());
+	}
+
+	@Test
+	void testLocalChangeIsIndexedAndPublished() {
+		userSearchService.userChangeEventListener(new UserChangeEvent(dto(USERS + 1, "Anaïs", "Quintero", "anais@example.com")));
+
+		assertEquals(List.of((long) USERS + 1), userSearchService.search("anai quin", 0).stream().map(UserDTO::getId).toList());
+		verify(redisTemplate).convertAndSend(anyString(), anyString());
+
+		// un changement de nom retire les anciens mots de l'index
+		userSearchService.index(dto(USERS + 1, "Anaïs", "Rivera", "anais@example.com"));
+		assertTrue(userSearchService.search("quintero", 0).isEmpty());
+		assertEquals(1, userSearchService.search("rivera", 0).size());
+	}
+
+	@Test
+	void testRemoteChangesOfOtherInstancesOnly() {
+		String remote = "{\"instanceId\":\"other\",\"user\":{\"id\":99999,\"firstName\":\"Remote\",\"lastName\":\"User\",\"mail\":\"r@x.io\"}}";
+		String own = remote.replace("other", ChatMessageBroker.getInstanceId()).replace("99999", "99998").replace("Remote", "Own");
+		ReflectionTestUtils.invokeMethod(userSearchService, "handleRemoteChange", (Object) remote.getBytes(StandardCharsets.UTF_8));
+		ReflectionTestUtils.invokeMethod(userSearchService, "handleRemoteChange", (Object) own.getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(1, userSearchService.search("remote", 0).size());
+		assertTrue(userSearchService.search("own", 0).isEmpty());
+	}
+}
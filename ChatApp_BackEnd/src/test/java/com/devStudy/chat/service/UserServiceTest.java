@@ -1,6 +1,7 @@
 package com.devStudy.chat.service;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.argThat;
@@ -220,14 +221,15 @@ public class UserServiceTest {
     
     @Test
     void testIncrementFailedAttemptsOfUser() {
-        testUser.setFailedAttempts(2);
-        when(userRepository.findByMailAndAdmin("test@example.com", false))
-            .thenReturn(Optional.of(testUser));
+        when(userRepository.incrementFailedAttempts("test@example.com"))
+            .thenReturn(Optional.of(3));
         
         int result = userService.incrementFailedAttemptsOfUser("test@example.com");
         
         assertEquals(3, result);
-        verify(userRepository).updateFailedAttempts("test@example.com", 3);
+        //l'incrément est fait en base, sans lecture préalable
+        verify(userRepository, never()).findByMailAndAdmin(anyString(), eq(false));
+        verify(userRepository, never()).updateFailedAttempts(anyString(), anyInt());
     }
     
     @Test
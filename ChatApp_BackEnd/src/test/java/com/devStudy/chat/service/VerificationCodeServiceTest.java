@@ -0,0 +1,107 @@
+package com.devStudy.chat.service;
+
+import static com.devStudy.chat.service.utils.ConstantValues.ATTEMPTS_PREFIX;
+import static com.devStudy.chat.service.utils.ConstantValues.CODE_PREFIX;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devStudy.chat.config.RedisConfig;
+import com.devStudy.chat.service.implementations.CodeGeneratorService;
+import com.devStudy.chat.service.implementations.EmailService;
+import com.devStudy.chat.service.implementations.VerificationCodeService;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class VerificationCodeServiceTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(VerificationCodeServiceTest.class);
+
+	private static final String MAIL = "test@example.com";
+	private static final List<String> CODE_KEYS = List.of(CODE_PREFIX + MAIL, ATTEMPTS_PREFIX + MAIL);
+
+	private final RedisConfig redisConfig = new RedisConfig();
+	private final RedisScript<Long> compareAndDeleteScript = redisConfig.compareAndDeleteScript();
+	private final RedisScript<Long> incrWithExpireScript = redisConfig.incrWithExpireScript();
+
+	private RedisTemplate<String, Object> redisTemplate;
+	private VerificationCodeService verificationCodeService;
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test VerificationCodeService started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test VerificationCodeService ended-------------------------------------------------");
+	}
+
+	@SuppressWarnings("unchecked")
+	@BeforeEach
+	void setUp() {
+		redisTemplate = mock(RedisTemplate.class);
+		verificationCodeService = new VerificationCodeService(mock(EmailService.class), mock(CodeGeneratorService.class), redisTemplate, mock(StringRedisTemplate.class),
+				redisConfig.verificationCodeRateLimitScript(), compareAndDeleteScript, incrWithExpireScript);
+		ReflectionTestUtils.setField(verificationCodeService, "expirationTime", 300);
+	}
+
+	@Test
+	void testScriptsAreLoadedFromClasspath() {
+		assertTrue(compareAndDeleteScript.getScriptAsString().contains("redis.call('DEL'"));
+		assertTrue(incrWithExpireScript.getScriptAsString().contains("redis.call('EXPIRE'"));
+		assertEquals(Long.class, compareAndDeleteScript.getResultType());
+	}
+
+	@Test
+	void testValidateCodeIsOneRoundTrip() {
+		when(redisTemplate.execute(compareAndDeleteScript, CODE_KEYS, "123456")).thenReturn(1L);
+
+		assertTrue(verificationCodeService.validateCode(MAIL, "123456"));
+		// ni GET préalable ni DEL séparés
+		verify(redisTemplate, never()).opsForValue();
+		verify(redisTemplate, never()).delete(anyString());
+	}
+
+	@Test
+	void testValidateWrongCode() {
+		when(redisTemplate.execute(compareAndDeleteScript, CODE_KEYS, "000000")).thenReturn(0L);
+
+		assertFalse(verificationCodeService.validateCode(MAIL, "000000"));
+	}
+
+	@Test
+	void testValidateWithoutCode() {
+		when(redisTemplate.execute(compareAndDeleteScript, CODE_KEYS, "123456")).thenReturn(-1L);
+
+		assertThrows(BadCredentialsException.class, () -> verificationCodeService.validateCode(MAIL, "123456"));
+	}
+
+	@Test
+	void testIncrementLoginAttempts() {
+		when(redisTemplate.execute(incrWithExpireScript, List.of(ATTEMPTS_PREFIX + MAIL), 300)).thenReturn(2L);
+
+		assertEquals(2, verificationCodeService.incrementLoginAttempts(MAIL));
+		verify(redisTemplate, never()).expire(anyString(), any());
+	}
+}
@@ -0,0 +1,183 @@
+package com.devStudy.chat.service.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.model.User;
+import com.devStudy.chat.websocket.distributed.RoomAffinityService;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ChatHandShakeInterceptorTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChatHandShakeInterceptorTest.class);
+
+	private static final String CHAT_ENDPOINT = "/ws/chatroom/{chatroomId}/user/{userId}";
+	private static final int RECONNECT_STORM_SIZE = 200;
+
+	private final ChatHandShakeInterceptor interceptor = new ChatHandShakeInterceptor(CHAT_ENDPOINT);
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test ChatHandShakeInterceptor started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test ChatHandShakeInterceptor ended-------------------------------------------------");
+	}
+
+	private static MockHttpServletRequest handshakeRequest(String uri, Long authenticatedUserId) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+		int query = uri.indexOf('?');
+		if (query >= 0) {
+			request.setRequestURI(uri.substring(0, query));
+			request.setQueryString(uri.substring(query + 1));
+			for (String parameter : uri.substring(query + 1).split("&")) {
+				String[] pair = parameter.split("=", 2);
+				request.addParameter(pair[0], pair.length > 1 ? pair[1] : "");
+			}
+		}
+		if (authenticatedUserId != null) {
+			User user = new User();
+			user.setId(authenticatedUserId);
+			user.setMail("user" + authenticatedUserId + "@example.com");
+			request.setUserPrincipal(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+		}
+		return request;
+	}
+
+	private boolean handshake(MockHttpServletRequest request, MockHttpServletResponse response, Map<String, Object> attributes) {
+		return interceptor.beforeHandshake(
+				new ServletServerHttpRequest(request),
+				new ServletServerHttpResponse(response),
+				null,
+				attributes);
+	}
+
+	@Test
+	void testValidHandshake() {
+		Map<String, Object> attributes = new HashMap<>();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertTrue(handshake(handshakeRequest("/ws/chatroom/12/user/34?lastSeq=5", 34L), response, attributes));
+		assertEquals(12L, attributes.get("chatroomId"));
+		assertEquals(34L, attributes.get("userId"));
+		assertEquals(5L, attributes.get("lastSeq"));
+		UserDTO userInfo = (UserDTO) attributes.get("userInfo");
+		assertEquals(34L, userInfo.getId());
+		assertEquals("user34@example.com", userInfo.getMail());
+		assertEquals(200, response.getStatus());
+	}
+
+	@Test
+	void testInvalidLastSeqIsIgnored() {
+		Map<String, Object> attributes = new HashMap<>();
+		assertTrue(handshake(handshakeRequest("/ws/chatroom/12/user/34?lastSeq=abc", 34L), new MockHttpServletResponse(), attributes));
+		assertFalse(attributes.containsKey("lastSeq"));
+	}
+
+	@Test
+	void testHandshakeHintsTheChatroomOwner() {
+		RoomAffinityService affinity = mock(RoomAffinityService.class);
+		when(affinity.handshakeHint(12L)).thenReturn("backend-2:53050");
+		ChatHandShakeInterceptor affineInterceptor = new ChatHandShakeInterceptor(CHAT_ENDPOINT, affinity);
+
+		ServletServerHttpResponse response = new ServletServerHttpResponse(new MockHttpServletResponse());
+		assertTrue(affineInterceptor.beforeHandshake(
+				new ServletServerHttpRequest(handshakeRequest("/ws/chatroom/12/user/34", 34L)), response, null, new HashMap<>()));
+		assertEquals("backend-2:53050", response.getHeaders().getFirst(ConstantValues.AFFINITY_NODE_HEADER));
+
+		// owned by this node : no hint
+		ServletServerHttpResponse localResponse = new ServletServerHttpResponse(new MockHttpServletResponse());
+		assertTrue(affineInterceptor.beforeHandshake(
+				new ServletServerHttpRequest(handshakeRequest("/ws/chatroom/13/user/34", 34L)), localResponse, null, new HashMap<>()));
+		assertNull(localResponse.getHeaders().getFirst(ConstantValues.AFFINITY_NODE_HEADER));
+	}
+
+	@Test
+	void testHandshakeRejectedWhenUserIdIsNotThePrincipal() {
+		Map<String, Object> attributes = new HashMap<>();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertFalse(handshake(handshakeRequest("/ws/chatroom/12/user/35", 34L), response, attributes));
+		assertEquals(403, response.getStatus());
+		assertTrue(attributes.isEmpty());
+	}
+
+	@Test
+	void testHandshakeRejectedWithoutPrincipal() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertFalse(handshake(handshakeRequest("/ws/chatroom/12/user/34", null), response, new HashMap<>()));
+		assertEquals(401, response.getStatus());
+	}
+
+	@Test
+	void testHandshakeRejectedForMalformedPath() {
+		String[] malformedPaths = {
+				"/ws/chatroom/abc/user/34",
+				"/ws/chatroom/12/user/",
+				"/ws/chatroom//user/34",
+				"/ws/chatroom/12/user/34/extra",
+				"/ws/chatroom/12/member/34",
+				"/ws/chatroom/12/user/1234567890123456789"
+		};
+		for (String path : malformedPaths) {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			assertFalse(handshake(handshakeRequest(path, 34L), response, new HashMap<>()), path);
+			assertEquals(400, response.getStatus(), path);
+		}
+	}
+
+	@Test
+	void testMatchPathWithContextPath() {
+		long[] values = interceptor.matchPath("/chat/ws/chatroom/7/user/8", "/chat".length());
+		assertEquals(7L, values[0]);
+		assertEquals(8L, values[1]);
+		assertNull(interceptor.matchPath("/ws/chatroom/7/user/8", "/chat".length()));
+	}
+
+	@Test
+	void testInvalidEndpointTemplate() {
+		assertThrows(IllegalArgumentException.class, () -> new ChatHandShakeInterceptor("/ws/chatroom/{chatroomId}"));
+		assertThrows(IllegalArgumentException.class, () -> new ChatHandShakeInterceptor("/ws/chatroom/{chatroomId/user/{userId}"));
+	}
+
+	/**
+	 * Reconnect storm : un handshake sur 10 arrive avec un id utilisateur falsifié, seuls les autres sont acceptés
+	 * (le débit est mesuré par ChatHandShakeInterceptorBenchmark, profil benchmarks)
+	 */
+	@Test
+	void testReconnectStormAcceptsOnlyThePrincipals() {
+		int accepted = 0;
+		for (int i = 0; i < RECONNECT_STORM_SIZE; i++) {
+			long userId = i + 1;
+			long pathUserId = i % 10 == 0 ? userId + 1 : userId;
+			if (handshake(handshakeRequest("/ws/chatroom/" + (i % 20) + "/user/" + pathUserId + "?t=" + i, userId),
+					new MockHttpServletResponse(), new HashMap<>())) {
+				accepted++;
+			}
+		}
+		assertEquals(RECONNECT_STORM_SIZE - RECONNECT_STORM_SIZE / 10, accepted);
+	}
+}
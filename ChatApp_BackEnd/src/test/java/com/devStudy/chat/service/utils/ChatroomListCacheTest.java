@@ -0,0 +1,189 @@
+package com.devStudy.chat.service.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devStudy.chat.dto.ChatroomWithOwnerAndStatusDTO;
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.service.utils.Events.ChangeChatroomMemberEvent;
+import com.devStudy.chat.service.utils.Events.RemoveChatroomEvent;
+import com.devStudy.chat.websocket.distributed.ChatMessageBroker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ChatroomListCacheTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChatroomListCacheTest.class);
+
+	private static final long USER_ID = 7;
+	private final Pageable firstPage = PageRequest.of(0, 5);
+
+	// contenu du hash Redis simulé : clé -> (champ -> json)
+	private final Map<String, Map<Object, Object>> redis = new HashMap<>();
+	private StringRedisTemplate redisTemplate;
+	private ChatroomListCache cache;
+	private AtomicInteger loads;
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test ChatroomListCache started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test ChatroomListCache ended-------------------------------------------------");
+	}
+
+	@SuppressWarnings("unchecked")
+	@BeforeEach
+	void setUp() {
+		redis.clear();
+		loads = new AtomicInteger();
+		redisTemplate = mock(StringRedisTemplate.class);
+		HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+		when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+		when(hashOperations.get(anyString(), any())).thenAnswer(invocation ->
+				redis.getOrDefault(invocation.getArgument(0), Map.of()).get(invocation.getArgument(1)));
+		doAnswer(invocation -> redis.computeIfAbsent(invocation.getArgument(0), key -> new HashMap<>())
+				.put(invocation.getArgument(1), invocation.getArgument(2)))
+				.when(hashOperations).put(anyString(), any(), any());
+		doAnswer(invocation -> {
+			((Collection<String>) invocation.getArgument(0)).forEach(redis::remove);
+			return 1L;
+		}).when(redisTemplate).delete(any(Collection.class));
+
+		cache = new ChatroomListCache(redisTemplate, mock(RedisMessageListenerContainer.class), new ChatMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(cache, "cachedPages", 1);
+		ReflectionTestUtils.setField(cache, "localTtl", 15L);
+		ReflectionTestUtils.setField(cache, "redisTtl", 60L);
+		ReflectionTestUtils.setField(cache, "maxUsers", 100);
+	}
+
+	private Page<ChatroomWithOwnerAndStatusDTO> load(Pageable pageable) {
+		loads.incrementAndGet();
+		ChatroomWithOwnerAndStatusDTO room = new ChatroomWithOwnerAndStatusDTO(3, "room", "description", true, 1, "Jean", "Dupont", "jean@example.com");
+		return new PageImpl<>(List.of(room), pageable, 12);
+	}
+
+	private Page<ChatroomWithOwnerAndStatusDTO> get(ChatroomListCache cache, Pageable pageable) {
+		return cache.get(USER_ID, ChatroomListCache.JOINED, pageable, ChatroomWithOwnerAndStatusDTO.class, () -> load(pageable));
+	}
+
+	@Test
+	void testLocalThenRedisHit() {
+		get(cache, firstPage);
+		get(cache, firstPage);
+		assertEquals(1, loads.get(), "the second read is served by the local map");
+
+		// another instance : empty local map, same Redis
+		ChatroomListCache other = new ChatroomListCache(redisTemplate, mock(RedisMessageListenerContainer.class), new ChatMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(other, "cachedPages", 1);
+		ReflectionTestUtils.setField(other, "localTtl", 15L);
+		ReflectionTestUtils.setField(other, "redisTtl", 60L);
+		ReflectionTestUtils.setField(other, "maxUsers", 100);
+		Page<ChatroomWithOwnerAndStatusDTO> page = get(other, firstPage);
+		assertEquals(1, loads.get(), "the other instance reads the page from Redis");
+
+		// JSON round trip of the projection
+		assertEquals(12, page.getTotalElements());
+		ChatroomWithOwnerAndStatusDTO room = page.getContent().get(0);
+		assertEquals(3, room.getId());
+		assertEquals("room", room.getTitre());
+		assertTrue(room.getIsActif());
+		assertEquals("jean@example.com", room.getOwner().getMail());
+		assertEquals(0.5, cache.getHitRatio(), 1e-9);
+		assertEquals(1.0, other.getHitRatio(), 1e-9);
+	}
+
+	@Test
+	void testRedisFieldOlderThanTtlIsReloaded() {
+		get(cache, firstPage);
+		// the hash key is kept alive by writes of other fields, this field is older than redisTtl
+		Map<Object, Object> hash = redis.get(String.format(ConstantValues.CHATROOM_LISTS_KEY, USER_ID));
+		String field = ChatroomListCache.JOINED + ":0";
+		long old = System.currentTimeMillis() - 61_000;
+		hash.put(field, hash.get(field).toString().replaceFirst("\"cachedAt\":\\d+", "\"cachedAt\":" + old));
+
+		ChatroomListCache other = new ChatroomListCache(redisTemplate, mock(RedisMessageListenerContainer.class), new ChatMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(other, "cachedPages", 1);
+		ReflectionTestUtils.setField(other, "localTtl", 15L);
+		ReflectionTestUtils.setField(other, "redisTtl", 60L);
+		ReflectionTestUtils.setField(other, "maxUsers", 100);
+		get(other, firstPage);
+		assertEquals(2, loads.get(), "a stale field is a miss, the page is read again");
+		assertFalse(hash.get(field).toString().contains("\"cachedAt\":" + old), "and rewritten");
+	}
+
+	@Test
+	void testOnlyFirstPagesAreCached() {
+		Pageable secondPage = PageRequest.of(1, 5);
+		get(cache, secondPage);
+		get(cache, secondPage);
+		assertEquals(2, loads.get());
+		assertTrue(redis.isEmpty());
+	}
+
+	@Test
+	void testEvictionAfterMembershipChange() {
+		get(cache, firstPage);
+		cache.changeChatroomMemberEventListener(new ChangeChatroomMemberEvent(3, List.of(), List.of(), Set.of(USER_ID)));
+		assertTrue(redis.isEmpty());
+		verify(redisTemplate).convertAndSend(eq(ConstantValues.CHATROOM_LISTS_INVALIDATION_CHANNEL), anyString());
+
+		get(cache, firstPage);
+		assertEquals(2, loads.get());
+
+		cache.removeChatroomEventListener(new RemoveChatroomEvent(3, Set.of(USER_ID)));
+		get(cache, firstPage);
+		assertEquals(3, loads.get());
+		assertEquals(0.0, cache.getHitRatio());
+	}
+
+	@Test
+	void testRemoteInvalidation() {
+		get(cache, firstPage);
+		String own = "{\"instanceId\":\"" + ChatMessageBroker.getInstanceId() + "\",\"userIds\":[" + USER_ID + "]}";
+		cache.handleRemoteInvalidation(own.getBytes(StandardCharsets.UTF_8));
+		get(cache, firstPage);
+		assertEquals(1, loads.get(), "a message published by this instance is ignored");
+
+		redis.clear();
+		String remote = "{\"instanceId\":\"other-instance\",\"userIds\":[" + USER_ID + "]}";
+		cache.handleRemoteInvalidation(remote.getBytes(StandardCharsets.UTF_8));
+		get(cache, firstPage);
+		assertEquals(2, loads.get(), "a message of another instance clears the local map");
+		assertFalse(redis.isEmpty());
+	}
+}
@@ -0,0 +1,46 @@
+package com.devStudy.chat.service.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class KeysetCursorTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(KeysetCursorTest.class);
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test KeysetCursor started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test KeysetCursor ended-------------------------------------------------");
+	}
+
+	@Test
+	void testRoundTrip() {
+		KeysetCursor cursor = KeysetCursor.of(42L, "Zoé", "D'Artagnan / &?=");
+		String encoded = cursor.encode();
+
+		assertTrue(encoded.matches("[A-Za-z0-9_-]+"), "the cursor must be usable as a query parameter without escaping");
+		assertEquals(cursor, KeysetCursor.decode(encoded, 2));
+	}
+
+	@Test
+	void testInvalidCursorsAreRejected() {
+		String encoded = KeysetCursor.of(1L, "a", "b").encode();
+
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(encoded, 1));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not a cursor", 2));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(encoded.substring(0, encoded.length() - 3), 2));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(encoded + "AAAA", 2));
+	}
+}
@@ -0,0 +1,137 @@
+package com.devStudy.chat.service.utils;
+
+import static com.devStudy.chat.service.utils.ConstantValues.HEADER_MAIL_ATTEMPTS;
+import static com.devStudy.chat.service.utils.ConstantValues.HEADER_MAIL_RETRY_DELAY;
+import static com.devStudy.chat.service.utils.ConstantValues.RABBITMQ_MAIL_DEAD_LETTER_EXCHANGE;
+import static com.devStudy.chat.service.utils.ConstantValues.RABBITMQ_MAIL_RETRY_EXCHANGE;
+import static com.devStudy.chat.service.utils.ConstantValues.RABBITMQ_QUEUE_Q2;
+import static com.devStudy.chat.service.utils.ConstantValues.ROUTING_KEY_VERIFICATION_CODE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devStudy.chat.service.implementations.EmailService;
+import com.devStudy.chat.service.implementations.JwtTokenService;
+import com.devStudy.chat.service.implementations.UserService;
+import com.devStudy.chat.service.implementations.VerificationCodeService;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RabbitMQUtilTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RabbitMQUtilTest.class);
+
+	private RabbitTemplate rabbitTemplate;
+	private EmailService emailService;
+	private VerificationCodeService verificationCodeService;
+	private RabbitMQUtil rabbitMQUtil;
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test RabbitMQUtil started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test RabbitMQUtil ended-------------------------------------------------");
+	}
+
+	@BeforeEach
+	void setUp() {
+		rabbitTemplate = mock(RabbitTemplate.class);
+		emailService = mock(EmailService.class);
+		verificationCodeService = mock(VerificationCodeService.class);
+		rabbitMQUtil = new RabbitMQUtil(rabbitTemplate, mock(UserService.class), emailService, mock(JwtTokenService.class), verificationCodeService);
+		ReflectionTestUtils.setField(rabbitMQUtil, "mailRetryMaxAttempts", 3);
+		ReflectionTestUtils.setField(rabbitMQUtil, "mailRetryInitialInterval", 1000L);
+		ReflectionTestUtils.setField(rabbitMQUtil, "mailRetryMultiplier", 2.0);
+		ReflectionTestUtils.setField(rabbitMQUtil, "mailRetryMaxInterval", 3000L);
+	}
+
+	private static Message request(String email, Integer attempts) {
+		MessageProperties properties = new MessageProperties();
+		properties.setConsumerQueue(RABBITMQ_QUEUE_Q2);
+		properties.setReceivedRoutingKey(ROUTING_KEY_VERIFICATION_CODE);
+		if (attempts != null) {
+			properties.setHeader(HEADER_MAIL_ATTEMPTS, attempts);
+		}
+		return new Message(email.getBytes(StandardCharsets.UTF_8), properties);
+	}
+
+	@Test
+	void testRetryBackoff() {
+		assertEquals(1000, rabbitMQUtil.retryBackoff(1));
+		assertEquals(2000, rabbitMQUtil.retryBackoff(2));
+		assertEquals(3000, rabbitMQUtil.retryBackoff(3));
+		// one retry queue per distinct delay : attempts 1 and 2 are retried, the cap merges the later delays
+		assertEquals(List.of(1000L, 2000L), List.copyOf(RabbitMQUtil.retryDelays(3, 1000, 2.0, 3000)));
+		assertEquals(List.of(2000L, 4000L, 5000L), List.copyOf(RabbitMQUtil.retryDelays(6, 2000, 2.0, 5000)));
+	}
+
+	@Test
+	void testOnlyFailedMailsOfABatchAreRetried() {
+		SimpleMailMessage sent = new SimpleMailMessage();
+		sent.setTo("ok@chat.test");
+		SimpleMailMessage failed = new SimpleMailMessage();
+		failed.setTo("ko@chat.test");
+		when(verificationCodeService.prepareCodeMail("ok@chat.test")).thenReturn(sent);
+		when(verificationCodeService.prepareCodeMail("ko@chat.test")).thenReturn(failed);
+		when(emailService.sendBatch(anyList(), eq(true))).thenReturn(Map.of(failed, new MailSendException("550")));
+
+		rabbitMQUtil.sendVerificationCodeEmails(List.of(request("ok@chat.test", null), request("ko@chat.test", null)));
+
+		ArgumentCaptor<Message> retried = ArgumentCaptor.forClass(Message.class);
+		verify(rabbitTemplate).send(eq(RABBITMQ_MAIL_RETRY_EXCHANGE), eq(ROUTING_KEY_VERIFICATION_CODE), retried.capture());
+		assertEquals("ko@chat.test", new String(retried.getValue().getBody(), StandardCharsets.UTF_8));
+		assertEquals(1, (Integer) retried.getValue().getMessageProperties().getHeader(HEADER_MAIL_ATTEMPTS));
+		// routed to the retry queue of its delay, no per-message TTL
+		assertEquals("1000", retried.getValue().getMessageProperties().getHeader(HEADER_MAIL_RETRY_DELAY));
+		assertNull(retried.getValue().getMessageProperties().getExpiration());
+		verify(rabbitTemplate, never()).send(eq(RABBITMQ_MAIL_DEAD_LETTER_EXCHANGE), anyString(), any(Message.class));
+	}
+
+	@Test
+	void testDuplicateRequestsOfABatchSendOneMail() {
+		SimpleMailMessage mail = new SimpleMailMessage();
+		when(verificationCodeService.prepareCodeMail("dup@chat.test")).thenReturn(mail);
+		when(emailService.sendBatch(anyList(), eq(true))).thenReturn(Map.of());
+
+		rabbitMQUtil.sendVerificationCodeEmails(List.of(request("dup@chat.test", null), request("dup@chat.test", null), request("dup@chat.test", 1)));
+
+		// un seul code généré (et stocké dans Redis), un seul mail envoyé
+		verify(verificationCodeService).prepareCodeMail("dup@chat.test");
+		verify(emailService).sendBatch(List.of(mail), true);
+	}
+
+	@Test
+	void testLastAttemptGoesToDeadLetterQueue() {
+		rabbitMQUtil.retryOrDeadLetter(request("ko@chat.test", 2), new MailSendException("550"));
+
+		verify(rabbitTemplate).send(eq(RABBITMQ_MAIL_DEAD_LETTER_EXCHANGE), eq(ROUTING_KEY_VERIFICATION_CODE), any(Message.class));
+		verify(rabbitTemplate, never()).send(eq(RABBITMQ_MAIL_RETRY_EXCHANGE), anyString(), any(Message.class));
+	}
+}
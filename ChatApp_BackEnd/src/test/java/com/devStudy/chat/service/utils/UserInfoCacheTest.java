@@ -0,0 +1,132 @@
+package com.devStudy.chat.service.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devStudy.chat.dao.UserRepository;
+import com.devStudy.chat.dto.DTOMapper;
+import com.devStudy.chat.model.User;
+import com.devStudy.chat.service.utils.Events.UserChangeEvent;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UserInfoCacheTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(UserInfoCacheTest.class);
+
+	private UserRepository userRepository;
+	private UserInfoCache userInfoCache;
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test UserInfoCache started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test UserInfoCache ended-------------------------------------------------");
+	}
+
+	@BeforeEach
+	void setUp() {
+		userRepository = mock(UserRepository.class);
+		userInfoCache = new UserInfoCache(userRepository, mock(RedisMessageListenerContainer.class));
+		ReflectionTestUtils.setField(userInfoCache, "maxSize", 2);
+		ReflectionTestUtils.setField(userInfoCache, "expirationTime", 600L);
+	}
+
+	private static User user(long id) {
+		User user = new User();
+		user.setId(id);
+		user.setFirstName("first" + id);
+		user.setLastName("last" + id);
+		user.setMail("user" + id + "@example.com");
+		return user;
+	}
+
+	@Test
+	void testReadThroughHitsRepositoryOnce() {
+		when(userRepository.findById(1L)).thenReturn(Optional.of(user(1L)));
+
+		assertEquals("user1@example.com", userInfoCache.get(1L).orElseThrow().getMail());
+		assertEquals("user1@example.com", userInfoCache.get(1L).orElseThrow().getMail());
+		verify(userRepository, times(1)).findById(1L);
+	}
+
+	@Test
+	void testUnknownUserIsNotCached() {
+		when(userRepository.findById(2L)).thenReturn(Optional.empty());
+
+		assertTrue(userInfoCache.get(2L).isEmpty());
+		assertTrue(userInfoCache.get(2L).isEmpty());
+		verify(userRepository, times(2)).findById(2L);
+	}
+
+	@Test
+	void testAccountOfJwtSubjectIsCached() {
+		User stored = user(1L);
+		stored.setPwd("hash");
+		when(userRepository.findByMailAndAdmin("user1@example.com", false)).thenReturn(Optional.of(stored));
+
+		User account = userInfoCache.getAccount("user1@example.com").orElseThrow();
+		assertEquals(1L, account.getId());
+		assertTrue(account.isActive());
+		// no password hash kept in memory, and each caller gets its own copy
+		assertNull(account.getPwd());
+		account.setActive(false);
+		assertTrue(userInfoCache.getAccount("user1@example.com").orElseThrow().isActive());
+		// the same entry serves the WebSocket connection
+		assertEquals("first1", userInfoCache.get(1L).orElseThrow().getFirstName());
+		verify(userRepository, times(1)).findByMailAndAdmin("user1@example.com", false);
+		verify(userRepository, times(0)).findById(1L);
+	}
+
+	@Test
+	void testEvictedOnUserChange() {
+		User locked = user(1L);
+		locked.setActive(false);
+		when(userRepository.findByMailAndAdmin("user1@example.com", false)).thenReturn(Optional.of(user(1L)), Optional.of(locked));
+		userInfoCache.getAccount("user1@example.com");
+
+		// local change, published by UserService after the account is blocked
+		userInfoCache.userChangeEventListener(new UserChangeEvent(DTOMapper.toUserDTO(user(1L))));
+		assertFalse(userInfoCache.getAccount("user1@example.com").orElseThrow().isActive());
+		verify(userRepository, times(2)).findByMailAndAdmin("user1@example.com", false);
+
+		// change made on another instance
+		String remote = "{\"instanceId\":\"other-instance\",\"user\":{\"id\":1,\"mail\":\"user1@example.com\"}}";
+		userInfoCache.handleRemoteChange(remote.getBytes(StandardCharsets.UTF_8));
+		userInfoCache.getAccount("user1@example.com");
+		verify(userRepository, times(3)).findByMailAndAdmin("user1@example.com", false);
+	}
+
+	@Test
+	void testMaxSizeIsRespected() {
+		for (long id = 1; id <= 5; id++) {
+			userInfoCache.put(user(id));
+		}
+		when(userRepository.findById(5L)).thenReturn(Optional.of(user(5L)));
+		userInfoCache.get(5L);
+		verify(userRepository, times(0)).findById(5L);
+		assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(userInfoCache, "cache")).size() <= 2);
+		assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(userInfoCache, "idsByMail")).size() <= 2);
+	}
+}
@@ -0,0 +1,156 @@
+package com.devStudy.chat.websocket.distributed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.service.implementations.ChatMessageService;
+import com.devStudy.chat.service.utils.ConstantValues;
+import com.devStudy.chat.service.utils.UserInfoCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ChatDrainServiceTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChatDrainServiceTest.class);
+
+	private static final long CHATROOM_ID = 5151L;
+	private static final long WINDOW = 1_500;
+	private static final int USERS = 6;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test ChatDrainService started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test ChatDrainService ended-------------------------------------------------");
+	}
+
+	@Test
+	void testDrainSpreadsReconnectsAndPurgesPresence() throws Exception {
+		ChatSessionRegistryService registry = mock(ChatSessionRegistryService.class);
+		Set<UserDTO> users = new HashSet<>();
+		when(registry.getUserConnections(CHATROOM_ID)).thenReturn(users);
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		DistributedChatWebSocketHandler handler = new DistributedChatWebSocketHandler(
+				mock(UserInfoCache.class, withSettings().stubOnly()),
+				registry,
+				mock(ChatMessageBroker.class, withSettings().stubOnly()),
+				mock(ChatMessageService.class, withSettings().stubOnly()),
+				mock(RedisMessageListenerContainer.class, withSettings().stubOnly()),
+				new ChatMetrics(meterRegistry));
+		ReflectionTestUtils.setField(handler, "sendTimeLimit", 10_000);
+		ReflectionTestUtils.setField(handler, "bufferSizeLimit", 512 * 1024);
+		RoomAffinityService affinity = mock(RoomAffinityService.class);
+		ChatDrainService drainService = new ChatDrainService(handler, affinity);
+		ReflectionTestUtils.setField(drainService, "window", WINDOW);
+
+		List<WebSocketSession> sessions = new ArrayList<>();
+		for (long userId = 1; userId <= USERS; userId++) {
+			UserDTO user = new UserDTO();
+			user.setId(userId);
+			users.add(user);
+			Map<String, Object> attributes = new HashMap<>();
+			attributes.put("chatroomId", CHATROOM_ID);
+			attributes.put("userId", userId);
+			attributes.put("userInfo", user);
+			WebSocketSession session = mock(WebSocketSession.class);
+			when(session.getAttributes()).thenReturn(attributes);
+			when(session.isOpen()).thenReturn(true);
+			handler.afterConnectionEstablished(session);
+			sessions.add(session);
+		}
+
+		long start = System.currentTimeMillis();
+		drainService.stop();
+		long elapsed = System.currentTimeMillis() - start;
+
+		assertTrue(drainService.isDraining());
+		for (WebSocketSession session : sessions) {
+			ArgumentCaptor<TextMessage> frames = ArgumentCaptor.forClass(TextMessage.class);
+			verify(session, atLeastOnce()).sendMessage(frames.capture());
+			JsonNode reconnect = mapper.readTree(frames.getAllValues().get(frames.getAllValues().size() - 1).getPayload());
+			assertEquals(ConstantValues.MESSAGE_RECONNECT, reconnect.get("messageType").asInt());
+			long reconnectAfter = reconnect.get("reconnectAfter").asLong();
+			assertTrue(reconnectAfter >= 0 && reconnectAfter < WINDOW, "delay inside the window : " + reconnectAfter);
+			// Retry-After of the refused handshakes, unreadable by the browser
+			assertEquals(TimeUnit.SECONDS.toMillis(DistributedChatWebSocketHandler.retryAfterSeconds(WINDOW)), reconnect.get("retryAfter").asLong());
+			verify(session).close(CloseStatus.SERVICE_RESTARTED.withReason("Node draining"));
+			// the container reports the closure : the presence is purged in bulk, nothing is removed one by one
+			handler.afterConnectionClosed(session, CloseStatus.SERVICE_RESTARTED);
+		}
+		assertTrue(elapsed < WINDOW + 1_000, "closures spread over the window : " + elapsed);
+		assertEquals(USERS, meterRegistry.counter("chat.drain.sessions").count());
+
+		InOrder order = inOrder(affinity, registry);
+		order.verify(affinity).leave();
+		order.verify(registry).stopHeartbeat();
+		order.verify(registry).purgeOwnPresence();
+		verify(registry, never()).removeUserConnection(any(Long.class), any(Long.class));
+
+		// a second stop does not drain again
+		drainService.drain();
+		verify(registry).purgeOwnPresence();
+	}
+
+	@Test
+	void testHandshakesRejectedWhileDraining() {
+		DistributedChatWebSocketHandler handler = mock(DistributedChatWebSocketHandler.class);
+		ChatDrainService drainService = new ChatDrainService(handler, mock(RoomAffinityService.class));
+		ReflectionTestUtils.setField(drainService, "window", 20_000L);
+		ServletServerHttpRequest request = new ServletServerHttpRequest(new MockHttpServletRequest("GET", "/ws/chatroom/1/user/2"));
+
+		MockHttpServletResponse accepted = new MockHttpServletResponse();
+		assertTrue(drainService.beforeHandshake(request, new ServletServerHttpResponse(accepted), null, new HashMap<>()));
+
+		drainService.drain();
+		MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+		ServletServerHttpResponse rejected = new ServletServerHttpResponse(servletResponse);
+		assertFalse(drainService.beforeHandshake(request, rejected, null, new HashMap<>()));
+		assertEquals(503, servletResponse.getStatus());
+		assertEquals("20", rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+	}
+}
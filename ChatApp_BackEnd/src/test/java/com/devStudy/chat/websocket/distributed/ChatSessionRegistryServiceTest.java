@@ -0,0 +1,139 @@
+package com.devStudy.chat.websocket.distributed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.service.utils.ConstantValues;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ChatSessionRegistryServiceTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChatSessionRegistryServiceTest.class);
+
+	private static final String DEAD = "dead-instance";
+	private static final String ALIVE = "alive-instance";
+
+	private final GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+	private final RedisScript<Long> registerScript = RedisScript.of("register", Long.class);
+	private final RedisScript<Long> removeScript = RedisScript.of("remove", Long.class);
+	@SuppressWarnings("rawtypes")
+	private final RedisScript<List> purgeScript = RedisScript.of("purge", List.class);
+
+	private RedisTemplate<String, Object> redisTemplate;
+	private ValueOperations<String, Object> valueOperations;
+	private SetOperations<String, Object> setOperations;
+	private ChatSessionRegistryService registry;
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test ChatSessionRegistryService started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test ChatSessionRegistryService ended-------------------------------------------------");
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	@BeforeEach
+	void setUp() {
+		redisTemplate = mock(RedisTemplate.class);
+		valueOperations = mock(ValueOperations.class);
+		setOperations = mock(SetOperations.class);
+		when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+		when(redisTemplate.opsForSet()).thenReturn(setOperations);
+		when(redisTemplate.getValueSerializer()).thenReturn((RedisSerializer) serializer);
+		registry = new ChatSessionRegistryService(redisTemplate, registerScript, removeScript, purgeScript);
+		ReflectionTestUtils.setField(registry, "chatSessionExpiry", 120L);
+		ReflectionTestUtils.setField(registry, "heartbeatTtl", 10L);
+	}
+
+	private String json(UserDTO user) {
+		return new String(serializer.serialize(user), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void testHeartbeatRegistersTheInstance() {
+		registry.heartbeat();
+		String self = ChatMessageBroker.getInstanceId();
+		verify(valueOperations).set(String.format(ConstantValues.INSTANCE_HEARTBEAT_KEY, self), self, Duration.ofSeconds(10));
+		verify(setOperations).add(ConstantValues.INSTANCES_KEY, self);
+	}
+
+	@Test
+	void testHeartbeatRunsOnItsOwnThread() {
+		ReflectionTestUtils.setField(registry, "heartbeatInterval", 20L);
+		registry.startHeartbeat();
+		try {
+			// no Spring task scheduler here : the heartbeat does not depend on the @Scheduled pool
+			verify(setOperations, timeout(2_000).atLeast(3)).add(ConstantValues.INSTANCES_KEY, ChatMessageBroker.getInstanceId());
+		} finally {
+			registry.shutdownHeartbeat();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	void testOnlyInstancesWithoutHeartbeatArePurged() {
+		UserDTO user = new UserDTO();
+		user.setId(5);
+		user.setFirstName("Jean");
+		user.setLastName("Dupont");
+		when(setOperations.members(ConstantValues.INSTANCES_KEY)).thenReturn(Set.of(DEAD, ALIVE, ChatMessageBroker.getInstanceId()));
+		when(redisTemplate.hasKey(String.format(ConstantValues.INSTANCE_HEARTBEAT_KEY, ALIVE))).thenReturn(true);
+		when(redisTemplate.hasKey(String.format(ConstantValues.INSTANCE_HEARTBEAT_KEY, DEAD))).thenReturn(false);
+		when(valueOperations.setIfAbsent(anyString(), any(), any(Duration.class))).thenReturn(true);
+		// flat list returned by presence_purge.lua : key, value, key, value...
+		when(redisTemplate.execute(eq(purgeScript), any(RedisSerializer.class), any(RedisSerializer.class), anyList(), eq(DEAD)))
+				.thenReturn(List.of("chatroom:12:user:5", json(user), "chatroom:13:user:5", json(user)));
+
+		Map<Long, List<UserDTO>> purged = registry.purgeDeadInstances();
+
+		assertEquals(Set.of(12L, 13L), purged.keySet());
+		assertEquals(5, purged.get(12L).get(0).getId());
+		assertEquals("Dupont", purged.get(13L).get(0).getLastName());
+		verify(setOperations).remove(ConstantValues.INSTANCES_KEY, DEAD);
+		verify(setOperations, never()).remove(ConstantValues.INSTANCES_KEY, ALIVE);
+		verify(valueOperations, never()).setIfAbsent(eq(String.format(ConstantValues.INSTANCE_PURGE_LOCK_KEY, ALIVE)), any(), any(Duration.class));
+	}
+
+	@Test
+	void testPurgeLeaseHeldByAnotherInstance() {
+		when(setOperations.members(ConstantValues.INSTANCES_KEY)).thenReturn(Set.of(DEAD));
+		when(redisTemplate.hasKey(anyString())).thenReturn(false);
+		when(valueOperations.setIfAbsent(anyString(), any(), any(Duration.class))).thenReturn(false);
+
+		assertTrue(registry.purgeDeadInstances().isEmpty());
+		verify(setOperations, never()).remove(ConstantValues.INSTANCES_KEY, DEAD);
+	}
+}
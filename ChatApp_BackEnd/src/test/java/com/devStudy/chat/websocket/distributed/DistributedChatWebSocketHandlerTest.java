@@ -0,0 +1,366 @@
+package com.devStudy.chat.websocket.distributed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import com.devStudy.chat.dto.UserDTO;
+import com.devStudy.chat.metrics.ChatMetrics;
+import com.devStudy.chat.model.ChatMessage;
+import com.devStudy.chat.model.ChatroomStatus;
+import com.devStudy.chat.service.implementations.ChatMessageService;
+import com.devStudy.chat.service.utils.ConstantValues;
+import com.devStudy.chat.service.utils.Events.ChatroomLifecycleEvent;
+import com.devStudy.chat.service.utils.UserInfoCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Benchmark du chemin d'un message texte : l'expéditeur est lu depuis les attributs de la session
+ * au lieu d'un GET Redis + désérialisation JSON par message.
+ * Le registre est simulé, seul le coût de désérialisation est mesuré (pas l'aller-retour réseau vers Redis).
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class DistributedChatWebSocketHandlerTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DistributedChatWebSocketHandlerTest.class);
+
+	private static final long CHATROOM_ID = 4242L;
+	private static final int USERS_IN_CHATROOM = 10;
+	private static final int MESSAGES = 20;
+
+	private final GenericJackson2JsonRedisSerializer redisSerializer = new GenericJackson2JsonRedisSerializer();
+	private final AtomicLong registryReads = new AtomicLong();
+	private final List<WebSocketSession> sessions = new ArrayList<>();
+
+	private DistributedChatWebSocketHandler handler;
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test DistributedChatWebSocketHandler started-----------------------------------------------");
+
+		Set<UserDTO> users = new HashSet<>();
+		Map<Long, byte[]> storedUsers = new HashMap<>();
+		for (long id = 1; id <= USERS_IN_CHATROOM; id++) {
+			UserDTO user = new UserDTO();
+			user.setId(id);
+			user.setFirstName("first" + id);
+			user.setLastName("last" + id);
+			user.setMail("user" + id + "@example.com");
+			users.add(user);
+			storedUsers.put(id, redisSerializer.serialize(user));
+		}
+
+		ChatSessionRegistryService registry = mock(ChatSessionRegistryService.class, withSettings().stubOnly());
+		when(registry.getUserConnections(CHATROOM_ID)).thenReturn(users);
+		when(registry.getUser(anyLong(), anyLong())).thenAnswer(invocation -> {
+			registryReads.incrementAndGet();
+			// what RedisTemplate does with the stored value on every GET
+			return redisSerializer.deserialize(storedUsers.get(invocation.<Long>getArgument(1)));
+		});
+
+		handler = new DistributedChatWebSocketHandler(
+				mock(UserInfoCache.class, withSettings().stubOnly()),
+				registry,
+				mock(ChatMessageBroker.class, withSettings().stubOnly()),
+				mock(ChatMessageService.class, withSettings().stubOnly()),
+				mock(RedisMessageListenerContainer.class, withSettings().stubOnly()),
+				new ChatMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(handler, "sendTimeLimit", 10_000);
+		ReflectionTestUtils.setField(handler, "bufferSizeLimit", 512 * 1024);
+
+		for (UserDTO user : users) {
+			Map<String, Object> attributes = new HashMap<>();
+			attributes.put("chatroomId", CHATROOM_ID);
+			attributes.put("userId", user.getId());
+			attributes.put("userInfo", user);
+			WebSocketSession session = openSession(attributes);
+			handler.afterConnectionEstablished(session);
+			sessions.add(session);
+		}
+	}
+
+	@AfterAll
+	void TestEnd() {
+		sessions.forEach(session -> handler.afterConnectionClosed(session, CloseStatus.NORMAL));
+		LOGGER.info("-----------------------------------------Test DistributedChatWebSocketHandler ended-------------------------------------------------");
+	}
+
+	private static WebSocketSession openSession(Map<String, Object> attributes) {
+		WebSocketSession session = mock(WebSocketSession.class, withSettings().stubOnly());
+		when(session.getAttributes()).thenReturn(attributes);
+		when(session.isOpen()).thenReturn(true);
+		return session;
+	}
+
+	/**
+	 * Session de l'ancien chemin : l'utilisateur n'est jamais conservé localement
+	 */
+	private static WebSocketSession sessionWithoutLocalUser(long userId) {
+		Map<String, Object> attributes = new HashMap<>() {
+			@Override
+			public Object put(String key, Object value) {
+				return "userInfo".equals(key) ? null : super.put(key, value);
+			}
+		};
+		attributes.put("chatroomId", CHATROOM_ID);
+		attributes.put("userId", userId);
+		return openSession(attributes);
+	}
+
+	private void sendMessages(WebSocketSession sender, TextMessage message) {
+		for (int i = 0; i < MESSAGES; i++) {
+			handler.handleTextMessage(sender, message);
+		}
+	}
+
+	@Test
+	void testRegistryOnlyReadWhenLocalCopyIsMissing() {
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put("chatroomId", CHATROOM_ID);
+		attributes.put("userId", 3L);
+		WebSocketSession sender = openSession(attributes);
+
+		long readsBefore = registryReads.get();
+		handler.handleTextMessage(sender, new TextMessage("hello"));
+		handler.handleTextMessage(sender, new TextMessage("hello again"));
+
+		assertEquals(readsBefore + 1, registryReads.get());
+		assertEquals(3L, ((UserDTO) attributes.get("userInfo")).getId());
+	}
+
+	@Test
+	void testExpiredChatroomSessionsAreClosed() throws Exception {
+		long expiredChatroomId = CHATROOM_ID + 1;
+		List<WebSocketSession> expiredSessions = new ArrayList<>();
+		for (long userId = 1; userId <= 3; userId++) {
+			Map<String, Object> attributes = new HashMap<>();
+			attributes.put("chatroomId", expiredChatroomId);
+			attributes.put("userId", userId);
+			attributes.put("userInfo", new UserDTO());
+			WebSocketSession session = mock(WebSocketSession.class);
+			when(session.getAttributes()).thenReturn(attributes);
+			when(session.isOpen()).thenReturn(true);
+			handler.afterConnectionEstablished(session);
+			expiredSessions.add(session);
+		}
+
+		handler.chatroomLifecycleEventListener(new ChatroomLifecycleEvent(List.of(expiredChatroomId), ChatroomStatus.EXPIRED, Set.of()));
+
+		for (WebSocketSession session : expiredSessions) {
+			verify(session).close(CloseStatus.NORMAL.withReason("Chatroom closed"));
+			// the container then reports the closure : nothing is left to release or broadcast
+			handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+		}
+	}
+
+	@Test
+	void testReaperReleasesIdleRoomResources() {
+		long idleChatroomId = CHATROOM_ID + 2;
+		List<WebSocketSession> idleSessions = new ArrayList<>();
+		for (long userId = 1; userId <= 2; userId++) {
+			Map<String, Object> attributes = new HashMap<>();
+			attributes.put("chatroomId", idleChatroomId);
+			attributes.put("userId", userId);
+			attributes.put("userInfo", new UserDTO());
+			WebSocketSession session = mock(WebSocketSession.class);
+			when(session.getAttributes()).thenReturn(attributes);
+			when(session.isOpen()).thenReturn(true);
+			handler.afterConnectionEstablished(session);
+			idleSessions.add(session);
+		}
+		assertEquals(new DistributedChatWebSocketHandler.ReapResult(0, 0, 0, 0), handler.reap());
+
+		// the transport died without afterConnectionClosed being called
+		when(idleSessions.get(0).isOpen()).thenReturn(false);
+		assertEquals(new DistributedChatWebSocketHandler.ReapResult(1, 0, 0, 0), handler.reap());
+
+		// last local session gone : the room map and its channel subscription are released
+		when(idleSessions.get(1).isOpen()).thenReturn(false);
+		assertEquals(new DistributedChatWebSocketHandler.ReapResult(1, 1, 1, 0), handler.reap());
+		assertEquals(new DistributedChatWebSocketHandler.ReapResult(0, 0, 0, 0), handler.reap());
+	}
+
+	@Test
+	void testPurgedPresenceIsBroadcastAsDisconnect() {
+		UserDTO crashed = new UserDTO();
+		crashed.setId(USERS_IN_CHATROOM + 1);
+		crashed.setFirstName("first");
+		crashed.setLastName("last");
+		Set<UserDTO> users = new HashSet<>(Set.of(crashed));
+		ChatSessionRegistryService registry = mock(ChatSessionRegistryService.class);
+		when(registry.getUserConnections(CHATROOM_ID)).thenReturn(users);
+		when(registry.purgeDeadInstances()).thenReturn(Map.of(CHATROOM_ID, List.of(crashed)));
+		ChatMessageBroker broker = mock(ChatMessageBroker.class);
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		DistributedChatWebSocketHandler survivor = new DistributedChatWebSocketHandler(
+				mock(UserInfoCache.class, withSettings().stubOnly()),
+				registry,
+				broker,
+				mock(ChatMessageService.class, withSettings().stubOnly()),
+				mock(RedisMessageListenerContainer.class, withSettings().stubOnly()),
+				new ChatMetrics(meterRegistry));
+
+		survivor.purgeDeadInstances();
+
+		// the purged user is not connected here : the disconnect goes to the other instances of the chatroom
+		verify(broker).sendToChatroom(eq(CHATROOM_ID), argThat(message ->
+				message.messageType() == ConstantValues.MESSAGE_DISCONNECT && message.sender().getId() == crashed.getId()));
+		assertEquals(1.0, meterRegistry.counter("chat.presence.purged").count());
+	}
+
+	@Test
+	void testReconnectReplaysTheGap() throws Exception {
+		long resumedChatroomId = CHATROOM_ID + 3;
+		int resumeLimit = 3;
+		Set<UserDTO> users = new HashSet<>();
+		ChatSessionRegistryService registry = mock(ChatSessionRegistryService.class, withSettings().stubOnly());
+		when(registry.getUserConnections(resumedChatroomId)).thenReturn(users);
+		ChatMessageService chatMessageService = mock(ChatMessageService.class);
+		List<ChatMessage> stored = new ArrayList<>();
+		for (long seq = 1; seq <= 13; seq++) {
+			ChatMessage message = new ChatMessage();
+			message.setChatroomId(resumedChatroomId);
+			message.setUser(new UserDTO());
+			message.setContent("message " + seq);
+			message.setTimestamp(new Date());
+			message.setSeq(seq);
+			stored.add(message);
+		}
+		when(chatMessageService.currentSequence(resumedChatroomId)).thenReturn(13L);
+		when(chatMessageService.getChatMessagesAfterSeq(eq(resumedChatroomId), anyLong(), eq(resumeLimit + 1))).thenAnswer(invocation ->
+				stored.stream().filter(message -> message.getSeq() > invocation.<Long>getArgument(1)).limit(resumeLimit + 1).toList());
+		when(chatMessageService.saveMsgIntoCollection(eq(resumedChatroomId), any(UserDTO.class), anyString(), any(Date.class))).thenReturn(14L);
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		DistributedChatWebSocketHandler resumingHandler = new DistributedChatWebSocketHandler(
+				mock(UserInfoCache.class, withSettings().stubOnly()),
+				registry,
+				mock(ChatMessageBroker.class, withSettings().stubOnly()),
+				chatMessageService,
+				mock(RedisMessageListenerContainer.class, withSettings().stubOnly()),
+				new ChatMetrics(meterRegistry));
+		ReflectionTestUtils.setField(resumingHandler, "sendTimeLimit", 10_000);
+		ReflectionTestUtils.setField(resumingHandler, "bufferSizeLimit", 512 * 1024);
+		ReflectionTestUtils.setField(resumingHandler, "resumeLimit", resumeLimit);
+
+		// user 1 missed 3 messages, user 2 missed more than resumeLimit, user 3 connects for the first time
+		Long[] lastSeqs = {10L, 2L, null};
+		List<WebSocketSession> resumedSessions = new ArrayList<>();
+		for (long userId = 1; userId <= lastSeqs.length; userId++) {
+			UserDTO user = new UserDTO();
+			user.setId(userId);
+			users.add(user);
+			Map<String, Object> attributes = new HashMap<>();
+			attributes.put("chatroomId", resumedChatroomId);
+			attributes.put("userId", userId);
+			attributes.put("userInfo", user);
+			if (lastSeqs[(int) userId - 1] != null) {
+				attributes.put("lastSeq", lastSeqs[(int) userId - 1]);
+			}
+			WebSocketSession session = mock(WebSocketSession.class);
+			when(session.getAttributes()).thenReturn(attributes);
+			when(session.isOpen()).thenReturn(true);
+			resumingHandler.afterConnectionEstablished(session);
+			resumedSessions.add(session);
+		}
+		try {
+			resumingHandler.handleTextMessage(resumedSessions.get(2), new TextMessage("live"));
+
+			List<JsonNode> gapReplay = frames(resumedSessions.get(0));
+			assertEquals(List.of(11L, 12L, 13L, 13L, 14L), gapReplay.stream().map(frame -> frame.get("seq").asLong()).toList());
+			assertEquals("message 11", gapReplay.get(0).get("message").asText());
+			assertEquals(ConstantValues.MESSAGE_RESUME, gapReplay.get(3).get("messageType").asInt());
+			assertTrue(gapReplay.get(3).get("complete").asBoolean());
+
+			List<JsonNode> tooFar = frames(resumedSessions.get(1));
+			assertEquals(2, tooFar.size());
+			assertEquals(13L, tooFar.get(0).get("seq").asLong());
+			assertFalse(tooFar.get(0).get("complete").asBoolean(), "gap too large : the client reloads the history");
+
+			List<JsonNode> firstConnect = frames(resumedSessions.get(2));
+			assertEquals(ConstantValues.MESSAGE_RESUME, firstConnect.get(0).get("messageType").asInt());
+			assertEquals(13L, firstConnect.get(0).get("seq").asLong());
+			assertEquals(14L, firstConnect.get(1).get("seq").asLong());
+			assertEquals(3.0, meterRegistry.counter("chat.resume.replayed").count());
+		} finally {
+			resumedSessions.forEach(session -> resumingHandler.afterConnectionClosed(session, CloseStatus.NORMAL));
+		}
+	}
+
+	/**
+	 * Messages reçus par une session qui portent un numéro de séquence (texte et RESUME)
+	 */
+	private static List<JsonNode> frames(WebSocketSession session) throws Exception {
+		ObjectMapper mapper = new ObjectMapper();
+		ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+		verify(session, atLeastOnce()).sendMessage(captor.capture());
+		List<JsonNode> frames = new ArrayList<>();
+		for (TextMessage frame : captor.getAllValues()) {
+			JsonNode node = mapper.readTree(frame.getPayload());
+			if (node.has("seq")) {
+				frames.add(node);
+			}
+		}
+		return frames;
+	}
+
+	@Test
+	void testBroadcastMessageWithUnknownFieldIsRead() throws Exception {
+		// published by a newer instance during a rolling upgrade
+		String json = "{\"messageType\":0,\"broadcastType\":\"toAll\",\"message\":\"hi\",\"sender\":null,"
+				+ "\"timestamp\":\"10:00\",\"instanceId\":\"other-instance\",\"sentAtMillis\":1,\"addedLater\":true}";
+		DistributedChatWebSocketHandler.ChatBroadcastMessage message =
+				new ObjectMapper().readValue(json, DistributedChatWebSocketHandler.ChatBroadcastMessage.class);
+		assertEquals("hi", message.message());
+		assertEquals("other-instance", message.instanceId());
+	}
+
+	// throughput of both paths : DistributedChatWebSocketHandlerBenchmark (benchmarks profile)
+	@Test
+	void testSenderIsReadFromTheSession() {
+		WebSocketSession sender = sessions.get(0);
+		WebSocketSession legacySender = sessionWithoutLocalUser((long) sender.getAttributes().get("userId"));
+		TextMessage message = new TextMessage("Hello everyone");
+
+		long readsBefore = registryReads.get();
+		sendMessages(sender, message);
+		assertEquals(readsBefore, registryReads.get());
+
+		sendMessages(legacySender, message);
+		assertEquals(readsBefore + MESSAGES, registryReads.get());
+	}
+}
@@ -0,0 +1,148 @@
+package com.devStudy.chat.websocket.distributed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.devStudy.chat.metrics.ChatMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Simulation du routage des connexions : part des messages qui doivent passer par le pub/sub Redis
+ * (au moins un destinataire sur un autre noeud que l'expéditeur), avec un placement aléatoire puis avec l'affinité.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RoomAffinityServiceTest {
+	private static final Logger LOGGER = LoggerFactory.getLogger(RoomAffinityServiceTest.class);
+
+	private static final int VIRTUAL_NODES = 160;
+	private static final int NODES = 4;
+	private static final int ROOMS = 2_000;
+	private static final int MESSAGES_PER_ROOM = 50;
+	// part des clients qui ignorent l'indice (ancienne version, proxy sans routage)
+	private static final double CLIENTS_WITHOUT_HINT = 0.05;
+
+	private final List<String> nodes = IntStream.rangeClosed(1, NODES).mapToObj(i -> "node-" + i).toList();
+
+	@BeforeAll
+	void TestStart() {
+		LOGGER.info("-----------------------------------------Test RoomAffinityService started-----------------------------------------------");
+	}
+
+	@AfterAll
+	void TestEnd() {
+		LOGGER.info("-----------------------------------------Test RoomAffinityService ended-------------------------------------------------");
+	}
+
+	private RoomAffinityService service(SimpleMeterRegistry meterRegistry) {
+		return new RoomAffinityService(mock(StringRedisTemplate.class), new ChatMetrics(meterRegistry), VIRTUAL_NODES, "self:53050");
+	}
+
+	@Test
+	void testHandshakeHintNamesTheOwner() {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		RoomAffinityService affinity = service(meterRegistry);
+		assertTrue(affinity.isLocal(42), "alone in the ring until the first refresh");
+
+		affinity.update(Map.of(ChatMessageBroker.getInstanceId(), "self:53050", "other", "other:53050"));
+		long local = IntStream.range(0, 1_000).filter(affinity::isLocal).count();
+		assertTrue(local > 300 && local < 700, "two nodes share the rooms : " + local);
+
+		long remoteRoom = IntStream.range(0, 1_000).filter(id -> !affinity.isLocal(id)).findFirst().orElseThrow();
+		long localRoom = IntStream.range(0, 1_000).filter(affinity::isLocal).findFirst().orElseThrow();
+		assertEquals("other:53050", affinity.handshakeHint(remoteRoom));
+		assertNull(affinity.handshakeHint(localRoom));
+		assertEquals("self:53050", affinity.ownerOf(localRoom).orElseThrow());
+		assertEquals(1.0, meterRegistry.counter("chat.affinity.handshakes", "placement", "remote").count());
+		assertEquals(1.0, meterRegistry.counter("chat.affinity.handshakes", "placement", "local").count());
+	}
+
+	@Test
+	void testAddingANodeMovesAFractionOfTheRooms() {
+		ConsistentHashRing before = new ConsistentHashRing(nodes, VIRTUAL_NODES);
+		List<String> scaled = new ArrayList<>(nodes);
+		scaled.add("node-" + (NODES + 1));
+		ConsistentHashRing after = new ConsistentHashRing(scaled, VIRTUAL_NODES);
+		// same members in another order : same assignment on every instance
+		List<String> reversed = new ArrayList<>(nodes);
+		Collections.reverse(reversed);
+		assertEquals(before.nodeFor(7), new ConsistentHashRing(reversed, VIRTUAL_NODES).nodeFor(7));
+
+		Map<String, Integer> load = new HashMap<>();
+		int moved = 0;
+		for (long chatroomId = 0; chatroomId < ROOMS; chatroomId++) {
+			String owner = after.nodeFor(chatroomId);
+			load.merge(owner, 1, Integer::sum);
+			if (!owner.equals(before.nodeFor(chatroomId))) {
+				moved++;
+				assertEquals("node-" + (NODES + 1), owner, "rooms only move to the new node");
+			}
+		}
+		double movedShare = (double) moved / ROOMS;
+		assertTrue(movedShare > 0.1 && movedShare < 0.3, "about 1/5 of the rooms move : " + movedShare);
+		load.values().forEach(rooms -> assertTrue(rooms > ROOMS / (NODES + 1) / 2, "balanced load : " + load));
+		LOGGER.info("Adding a 5th node moves {}% of {} rooms, load per node {}", Math.round(movedShare * 100), ROOMS, load);
+	}
+
+	@Test
+	void testCrossNodeMessageSimulation() {
+		ConsistentHashRing ring = new ConsistentHashRing(nodes, VIRTUAL_NODES);
+		double withoutAffinity = crossNodeShare(new Random(42), chatroomId -> null);
+		double withAffinity = crossNodeShare(new Random(42), ring::nodeFor);
+
+		assertTrue(withoutAffinity > 0.9, "random placement : almost every message crosses nodes");
+		assertTrue(withAffinity < withoutAffinity / 2, withAffinity + " vs " + withoutAffinity);
+		LOGGER.info("{} rooms on {} nodes : {}% of the messages cross nodes with random placement, {}% with room affinity ({}% of clients without hint)",
+				ROOMS, NODES, Math.round(withoutAffinity * 100), Math.round(withAffinity * 100), Math.round(CLIENTS_WITHOUT_HINT * 100));
+	}
+
+	private interface Owner {
+		String of(long chatroomId);
+	}
+
+	/**
+	 * Part des messages qui ont au moins un destinataire sur un autre noeud que l'expéditeur (publication Redis nécessaire)
+	 */
+	private double crossNodeShare(Random random, Owner owner) {
+		long messages = 0;
+		long crossNode = 0;
+		for (long chatroomId = 0; chatroomId < ROOMS; chatroomId++) {
+			int users = 2 + random.nextInt(19);
+			String ownerNode = owner.of(chatroomId);
+			String[] placement = new String[users];
+			for (int user = 0; user < users; user++) {
+				boolean followsHint = ownerNode != null && random.nextDouble() >= CLIENTS_WITHOUT_HINT;
+				placement[user] = followsHint ? ownerNode : nodes.get(random.nextInt(NODES));
+			}
+			for (int message = 0; message < MESSAGES_PER_ROOM; message++) {
+				String senderNode = placement[random.nextInt(users)];
+				messages++;
+				for (String node : placement) {
+					if (!node.equals(senderNode)) {
+						crossNode++;
+						break;
+					}
+				}
+			}
+		}
+		return (double) crossNode / messages;
+	}
+}
@@ -46,11 +46,12 @@ export class ChatroomComponent implements OnInit, OnDestroy{
   ngOnInit(): void {
     this.userId$ = combineLatest([
       this.sharedUserInfoService.currentUserInfo$,
-      this.chatroomService.getAllUsersInChatroom(parseInt(this.chatroomId!))
+      this.chatroomService.getAllUsersInChatroom(parseInt(this.chatroomId!)),
+      this.chatroomService.getChatroomNode(parseInt(this.chatroomId!))
     ]).pipe(
       take(1),
-      map(([currentUser, allUsersInChatroom]) => {
-        this.webSocketService.connectToWebSocket(parseInt(this.chatroomId!), currentUser.id);
+      map(([currentUser, allUsersInChatroom, node]) => {
+        this.webSocketService.connectToWebSocket(parseInt(this.chatroomId!), currentUser.id, node);
         if(allUsersInChatroom.find(user => user.id === currentUser.id)){
             //change allUsersInChatroom from UserModel[] to UserInChatroomModel[]
             allUsersInChatroom = allUsersInChatroom.map(user => {
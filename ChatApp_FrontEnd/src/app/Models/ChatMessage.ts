@@ -11,6 +11,8 @@ export interface InitialMessage {
     messageType: InitialMessageType;
     message: string;
     timestamp: string;
+    // per-chatroom sequence number, on the text messages only
+    seq?: number;
 }
 
 export interface HistoryMessage {
@@ -29,7 +31,9 @@ export enum InitialMessageType {
   DISCONNECT = 2,
   REMOVE_CHATROOM = 3,
   ADD_MEMBER = 4,
-  REMOVE_MEMBER = 5
+  REMOVE_MEMBER = 5,
+  RECONNECT = 6,
+  RESUME = 7
 };
 
 export enum HistoryMessageType {
@@ -3,7 +3,7 @@ import { Injectable } from '@angular/core';
 import { Page } from '../../Models/PageableModel';
 import { ModifyChatroomModel } from '../../Models/ChatroomModel';
 import properties from '../../properties.json';
-import { Observable } from 'rxjs';
+import { catchError, Observable, of } from 'rxjs';
 import { ModifiedChatroomModel, NewChatroomModel } from '../../Models/NewChatroomModel';
 import { UserModel } from '../../Models/UserModel';
 import { HistoryMessage } from '../../Models/ChatMessage';
@@ -81,6 +81,14 @@ export class ChatroomService {
     );
   }
 
+  // address of the node owning the chatroom, empty if unknown : the WebSocket then goes to any node
+  getChatroomNode(chatroomId: number): Observable<string>{
+    return this.httpClient.get(
+      this.ChatroomApi + '/' + chatroomId + properties.ChatroomApi.Node,
+      {withCredentials: true, responseType: 'text'}
+    ).pipe(catchError(() => of('')));
+  }
+
   getHistoryMessages(chatroomId: number): Observable<HistoryMessage[]>{
     return this.httpClient.get<HistoryMessage[]>(
       this.ChatroomApi + '/' + chatroomId + properties.ChatroomApi.HistoryMessages,
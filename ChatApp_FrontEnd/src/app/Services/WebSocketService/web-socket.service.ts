@@ -3,32 +3,168 @@ import properties from '../../properties.json';
 import routerLinkList from '../../routerLinkList.json';
 import { Router } from '@angular/router';
 import { Subject } from 'rxjs';
-import { InitialMessage } from '../../Models/ChatMessage';
+import { InitialMessage, InitialMessageType } from '../../Models/ChatMessage';
+import { ChatroomService } from '../ChatroomService/chatroom.service';
 
 @Injectable({
   providedIn: 'root'
 })
 export class WebSocketService {
+  private static readonly GAP_TIMEOUT = 10000;
+  // reconnection refused by a draining node : exponential backoff from RETRY_INITIAL_DELAY, capped by the Retry-After of the drain ;
+  // even with the jitter, the retries span more than the drain window (1+2+4+8+16+20 s halved at worst)
+  private static readonly RETRY_INITIAL_DELAY = 1000;
+  private static readonly RETRY_MAX_ATTEMPTS = 7;
   private webSocketClient!: WebSocket;
   private messageSubject = new Subject<InitialMessage>();
   public message$ = this.messageSubject.asObservable();
+  private reconnectTimer?: ReturnType<typeof setTimeout>;
+  // > 0 from a RECONNECT frame until a new connection opens
+  private reconnectAttempts = 0;
+  // Retry-After (ms) of the draining node, sent in the RECONNECT frame : the browser does not expose the status of a refused handshake
+  private retryAfter = 0;
+  // contiguous high-water mark of the current chatroom : every seq up to lastSeq has been received.
+  // The server takes a seq before storing and broadcasting the message, so concurrent senders can deliver N+1 before N :
+  // lastSeq stays below N until N arrives, and a reconnect in between replays N instead of skipping it
+  private chatroomId?: number;
+  private lastSeq?: number;
+  // seqs received above lastSeq : the ones up to lastSeq are dropped as the mark advances
+  private seenSeqs = new Set<number>();
+  // since when seq lastSeq+1 is missing while later ones arrived : a seq whose message was never stored leaves a hole
+  private gapSince?: number;
 
-  constructor(private router: Router) {}
+  constructor(private router: Router, private chatroomService: ChatroomService) {}
 
-  connectToWebSocket(chatroomId: number, userId: number): void {
-    this.webSocketClient = new WebSocket(properties.WebSocketApi + window.location.host + "/ws/chatroom/" + chatroomId + "/user/" + userId);
-    this.webSocketClient.onopen = (event) => console.log("WebSocket connection opened");
+  connectToWebSocket(chatroomId: number, userId: number, node: string = ''): void {
+    if (this.chatroomId !== chatroomId) {
+      this.resetSequence();
+      this.chatroomId = chatroomId;
+    }
+    const params = new URLSearchParams();
+    // the proxy routes to the node owning the chatroom when the hint is given
+    if (node) {
+      params.set("node", node);
+    }
+    if (this.lastSeq !== undefined) {
+      params.set("lastSeq", String(this.lastSeq));
+    }
+    const query = params.toString() ? "?" + params.toString() : "";
+    const client = new WebSocket(properties.WebSocketApi + window.location.host + "/ws/chatroom/" + chatroomId + "/user/" + userId + query);
+    this.webSocketClient = client;
+    this.webSocketClient.onopen = (event) => {
+      console.log("WebSocket connection opened");
+      this.reconnectAttempts = 0;
+    };
     this.webSocketClient.onclose = (event) => {
       console.log("WebSocket connection closed");
       //this.router.navigate([routerLinkList[0].path]);
     };
     this.webSocketClient.onerror = (event) => {
       console.error("WebSocket error: ", event);
+      if (client !== this.webSocketClient) {
+        // the connection replaced by a reconnection
+        return;
+      }
+      if (this.reconnectAttempts > 0) {
+        // handshake refused (503) while the node drains : retry instead of leaving the chatroom
+        this.retryReconnect(chatroomId, userId);
+        return;
+      }
       this.router.navigate([routerLinkList[0].path]);
     }
     this.webSocketClient.onmessage = (event) => {
-      this.messageSubject.next(JSON.parse(event.data));
+      const message = JSON.parse(event.data);
+      if (message.messageType === InitialMessageType.RECONNECT) {
+        this.retryAfter = message.retryAfter ?? 0;
+        this.reconnectAttempts = 1;
+        this.scheduleReconnect(chatroomId, userId, message.reconnectAfter);
+        return;
+      }
+      if (message.messageType === InitialMessageType.RESUME) {
+        this.resume(chatroomId, message.seq, message.complete);
+        return;
+      }
+      if (message.seq !== undefined) {
+        // a replayed message, or one sent while the gap was replayed, can arrive twice
+        if ((this.lastSeq !== undefined && message.seq <= this.lastSeq) || this.seenSeqs.has(message.seq)) {
+          return;
+        }
+        this.seenSeqs.add(message.seq);
+        this.advanceLastSeq();
+      }
+      this.messageSubject.next(message);
+    }
+  }
+
+  // the server is draining : reconnect after the delay it picked, so that its clients do not all come back at once
+  private scheduleReconnect(chatroomId: number, userId: number, reconnectAfter: number): void {
+    clearTimeout(this.reconnectTimer);
+    this.reconnectTimer = setTimeout(() => {
+      this.webSocketClient.close();
+      this.chatroomService.getChatroomNode(chatroomId).subscribe(
+        node => this.connectToWebSocket(chatroomId, userId, node)
+      );
+    }, reconnectAfter);
+  }
+
+  // a reconnection can land on a node that is draining too, or on the same one before the proxy stops routing to it
+  private retryReconnect(chatroomId: number, userId: number): void {
+    if (this.reconnectAttempts >= WebSocketService.RETRY_MAX_ATTEMPTS) {
+      this.reconnectAttempts = 0;
+      this.router.navigate([routerLinkList[0].path]);
+      return;
+    }
+    const backoff = WebSocketService.RETRY_INITIAL_DELAY * 2 ** (this.reconnectAttempts - 1);
+    const delay = this.retryAfter > 0 ? Math.min(backoff, this.retryAfter) : backoff;
+    this.reconnectAttempts++;
+    // jitter : the clients refused together do not retry together
+    this.scheduleReconnect(chatroomId, userId, delay / 2 + Math.random() * delay / 2);
+  }
+
+  // the gap has been replayed, or was too large : the chatroom page is reloaded with the history
+  private resume(chatroomId: number, seq: number, complete: boolean): void {
+    if (!complete) {
+      this.router.navigateByUrl('/', { skipLocationChange: true }).then(
+        () => this.router.navigate([routerLinkList[5].path + chatroomId])
+      );
+      return;
+    }
+    // first connection : the history is loaded over REST up to the current seq
+    if (this.lastSeq === undefined) {
+      this.lastSeq = seq;
+    }
+    this.advanceLastSeq();
+  }
+
+  private advanceLastSeq(): void {
+    if (this.lastSeq === undefined) {
+      return;
     }
+    while (this.seenSeqs.has(this.lastSeq + 1)) {
+      this.lastSeq++;
+    }
+    for (const seq of this.seenSeqs) {
+      if (seq <= this.lastSeq) {
+        this.seenSeqs.delete(seq);
+      }
+    }
+    if (this.seenSeqs.size === 0) {
+      this.gapSince = undefined;
+    } else if (this.gapSince === undefined) {
+      this.gapSince = Date.now();
+    } else if (Date.now() - this.gapSince > WebSocketService.GAP_TIMEOUT) {
+      // storing and broadcasting take milliseconds : after the timeout the missing seq was never stored (failed insert)
+      this.lastSeq++;
+      this.gapSince = undefined;
+      this.advanceLastSeq();
+    }
+  }
+
+  private resetSequence(): void {
+    this.chatroomId = undefined;
+    this.lastSeq = undefined;
+    this.seenSeqs.clear();
+    this.gapSince = undefined;
   }
 
   get webSocketClientState(): number {
@@ -40,6 +176,10 @@ export class WebSocketService {
   }
 
   closeWebSocket(): void {
+    clearTimeout(this.reconnectTimer);
+    this.reconnectAttempts = 0;
+    // leaving the chatroom : the next visit loads the history from the REST api
+    this.resetSequence();
     this.webSocketClient.close();
   }
 }
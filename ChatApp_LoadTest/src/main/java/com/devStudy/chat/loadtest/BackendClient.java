@@ -0,0 +1,163 @@
+package com.devStudy.chat.loadtest;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Client REST d'un utilisateur du test : chaque instance garde ses propres cookies (XSRF-TOKEN et JWT-Token),
+ * comme un navigateur
+ */
+public class BackendClient {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final DateTimeFormatter START_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+    private static final String CSRF_COOKIE = "XSRF-TOKEN";
+    private static final String CSRF_HEADER = "X-XSRF-TOKEN";
+    private static final String JWT_COOKIE = "JWT-Token";
+
+    private final String baseUrl;
+    private final CookieManager cookieManager = new CookieManager();
+    private final HttpClient httpClient;
+
+    private long userId = -1;
+
+    public BackendClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.httpClient = HttpClient.newBuilder()
+                .cookieHandler(cookieManager)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public String getJwtToken() {
+        return findCookie(JWT_COOKIE).orElseThrow(() -> new IllegalStateException("Not logged in"));
+    }
+
+    private Optional<String> findCookie(String name) {
+        return cookieManager.getCookieStore().getCookies().stream()
+                .filter(cookie -> cookie.getName().equals(name))
+                .map(HttpCookie::getValue)
+                .findFirst();
+    }
+
+    /**
+     * Le filtre CSRF du backend pose le cookie XSRF-TOKEN sur n'importe quelle réponse
+     */
+    private String csrfToken() throws IOException, InterruptedException {
+        Optional<String> token = findCookie(CSRF_COOKIE);
+        if (token.isPresent()) {
+            return token.get();
+        }
+        send(HttpRequest.newBuilder(uri("/api/login/check-login")).GET());
+        return findCookie(CSRF_COOKIE).orElseThrow(() -> new IllegalStateException("No CSRF cookie returned by " + baseUrl));
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return httpClient.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> sendWithCsrf(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return send(request.header(CSRF_HEADER, csrfToken()));
+    }
+
+    private static JsonNode readJson(HttpResponse<String> response, String action) throws IOException {
+        if (response.statusCode() >= 400) {
+            throw new IOException(action + " failed with HTTP " + response.statusCode() + " : " + response.body());
+        }
+        return MAPPER.readTree(response.body());
+    }
+
+    /**
+     * Cette méthode permet de créer le compte s'il n'existe pas encore (un compte existant n'est pas une erreur)
+     */
+    public void createAccountIfAbsent(String firstName, String lastName, String mail, String password)
+            throws IOException, InterruptedException {
+        String body = MAPPER.writeValueAsString(Map.of(
+                "firstName", firstName,
+                "lastName", lastName,
+                "mail", mail,
+                "password", password));
+        readJson(sendWithCsrf(HttpRequest.newBuilder(uri("/api/login/compte/create"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))), "Account creation");
+    }
+
+    /**
+     * Cette méthode permet de se connecter par /api/login/login-process, le JWT est gardé dans le cookie JWT-Token
+     */
+    public void login(String mail, String password) throws IOException, InterruptedException {
+        String form = "username=" + URLEncoder.encode(mail, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8);
+        JsonNode result = readJson(sendWithCsrf(HttpRequest.newBuilder(uri("/api/login/login-process"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))), "Login");
+        if (!result.path("isAuthenticated").asBoolean(false)) {
+            throw new IOException("Login refused for " + mail + " : " + result.path("msg").asText());
+        }
+        this.userId = result.path("UserInfo").path("id").asLong();
+    }
+
+    public void createChatroom(String titre, List<Long> invitedUserIds) throws IOException, InterruptedException {
+        List<Map<String, Object>> usersInvited = new ArrayList<>();
+        for (long id : invitedUserIds) {
+            usersInvited.add(Map.of("id", id));
+        }
+        String body = MAPPER.writeValueAsString(Map.of(
+                "titre", titre,
+                "description", "Chatroom created by the load test",
+                "startDate", LocalDateTime.now().minusMinutes(1).format(START_DATE_FORMAT),
+                "duration", 1,
+                "usersInvited", usersInvited));
+        HttpResponse<String> response = sendWithCsrf(HttpRequest.newBuilder(uri("/api/chatrooms/create"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+        if (response.statusCode() != 200) {
+            throw new IOException("Chatroom creation failed with HTTP " + response.statusCode() + " : " + response.body());
+        }
+    }
+
+    /**
+     * Cette méthode permet de retrouver l'id d'un chatroom créé par l'utilisateur à partir de son titre
+     */
+    public long findOwnedChatroomId(String titre) throws IOException, InterruptedException {
+        int page = 0;
+        int totalPages;
+        do {
+            JsonNode result = readJson(send(HttpRequest.newBuilder(
+                    uri("/api/users/" + userId + "/chatrooms/owned?page=" + page)).GET()), "Owned chatrooms");
+            for (JsonNode chatroom : result.path("content")) {
+                if (titre.equals(chatroom.path("titre").asText())) {
+                    return chatroom.path("id").asLong();
+                }
+            }
+            totalPages = result.path("page").path("totalPages").asInt(0);
+            page++;
+        } while (page < totalPages);
+        throw new IOException("Chatroom not found after creation : " + titre);
+    }
+}
@@ -0,0 +1,111 @@
+package com.devStudy.chat.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Une session WebSocket du test, connectée sur CHAT_ENDPOINT avec le cookie JWT de son utilisateur
+ */
+public class ChatClient implements WebSocket.Listener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatClient.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // même valeur que ConstantValues.MESSAGE_TEXT côté backend
+    private static final int MESSAGE_TEXT = 0;
+
+    private final long chatroomId;
+    private final DeliveryTracker tracker;
+    private final StringBuilder partialMessage = new StringBuilder();
+
+    private WebSocket webSocket;
+    // java.net.http.WebSocket refuse un envoi tant que le précédent n'est pas terminé
+    private CompletableFuture<WebSocket> lastSend = CompletableFuture.completedFuture(null);
+
+    public ChatClient(long chatroomId, DeliveryTracker tracker) {
+        this.chatroomId = chatroomId;
+        this.tracker = tracker;
+    }
+
+    public long getChatroomId() {
+        return chatroomId;
+    }
+
+    public void connect(HttpClient httpClient, String url, String jwtToken) {
+        this.webSocket = httpClient.newWebSocketBuilder()
+                .header("Cookie", "JWT-Token=" + jwtToken)
+                .connectTimeout(Duration.ofSeconds(10))
+                .buildAsync(URI.create(url), this)
+                .orTimeout(30, TimeUnit.SECONDS)
+                .join();
+    }
+
+    /**
+     * Cette méthode permet d'envoyer un message, un envoi encore en cours est compté comme un échec
+     * plutôt que d'être mis en file (le générateur garde ainsi son débit)
+     */
+    public synchronized void send(String payload) {
+        if (webSocket == null || webSocket.isOutputClosed() || !lastSend.isDone()) {
+            tracker.onSendFailure();
+            return;
+        }
+        lastSend = webSocket.sendText(payload, true);
+        lastSend.exceptionally(e -> {
+            tracker.onSendFailure();
+            return null;
+        });
+    }
+
+    public void close() {
+        if (webSocket != null && !webSocket.isOutputClosed()) {
+            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "load test finished")
+                    .orTimeout(5, TimeUnit.SECONDS)
+                    .exceptionally(e -> null)
+                    .join();
+        }
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        partialMessage.append(data);
+        if (last) {
+            String frame = partialMessage.toString();
+            partialMessage.setLength(0);
+            handleFrame(frame);
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    private void handleFrame(String frame) {
+        try {
+            JsonNode message = MAPPER.readTree(frame);
+            if (message.path("messageType").asInt(-1) == MESSAGE_TEXT) {
+                tracker.onReceived(message.path("message").asText());
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Unreadable frame in chatroom {} : {}", chatroomId, e.getMessage());
+        }
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        LOGGER.debug("Session closed in chatroom {} : {} {}", chatroomId, statusCode, reason);
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        LOGGER.warn("Session error in chatroom {} : {}", chatroomId, error.getMessage());
+    }
+}
@@ -0,0 +1,122 @@
+package com.devStudy.chat.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Cette classe permet de mesurer la latence de livraison et les pertes.
+ * Chaque message envoyé porte son instant d'envoi (System.nanoTime, les clients tournent dans la même JVM),
+ * chaque réception enregistre la différence dans un Recorder HdrHistogram.
+ */
+public class DeliveryTracker {
+
+    // latences enregistrées en microsecondes, jusqu'à 1 minute
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final String PAYLOAD_PREFIX = "lt";
+    private static final char SEPARATOR = ':';
+
+    private final String runId;
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder expected = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+
+    private volatile boolean measuring;
+
+    public DeliveryTracker(String runId) {
+        this.runId = runId;
+    }
+
+    public void startMeasuring() {
+        // throw away what was recorded during the warm up
+        recorder.getIntervalHistogram();
+        measuring = true;
+    }
+
+    public void stopMeasuring() {
+        measuring = false;
+    }
+
+    /**
+     * Cette méthode permet de construire le contenu d'un message et de compter les livraisons attendues
+     */
+    public String newPayload(int receiversInChatroom) {
+        boolean measured = measuring;
+        if (measured) {
+            sent.increment();
+            expected.add(receiversInChatroom);
+        }
+        return encode(runId, sequence.incrementAndGet(), System.nanoTime(), measured);
+    }
+
+    public void onSendFailure() {
+        sendFailures.increment();
+    }
+
+    /**
+     * Cette méthode est appelée pour chaque message texte reçu par une session
+     */
+    public void onReceived(String payload) {
+        long now = System.nanoTime();
+        Payload decoded = decode(payload);
+        if (decoded == null || !decoded.measured() || !runId.equals(decoded.runId())) {
+            return;
+        }
+        received.increment();
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(now - decoded.sentAtNanos());
+        recorder.recordValue(Math.min(Math.max(latencyMicros, 0), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    public Histogram intervalHistogram() {
+        return recorder.getIntervalHistogram();
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getExpected() {
+        return expected.sum();
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getSendFailures() {
+        return sendFailures.sum();
+    }
+
+    public double getLossRatio() {
+        long expectedDeliveries = getExpected();
+        return expectedDeliveries == 0 ? 0 : Math.max(0, expectedDeliveries - getReceived()) / (double) expectedDeliveries;
+    }
+
+    static String encode(String runId, long sequence, long sentAtNanos, boolean measured) {
+        return PAYLOAD_PREFIX + SEPARATOR + runId + SEPARATOR + sequence + SEPARATOR + sentAtNanos + SEPARATOR + (measured ? 'm' : 'w');
+    }
+
+    static Payload decode(String payload) {
+        if (payload == null || !payload.startsWith(PAYLOAD_PREFIX + SEPARATOR)) {
+            return null;
+        }
+        String[] parts = payload.split(String.valueOf(SEPARATOR));
+        if (parts.length != 5) {
+            return null;
+        }
+        try {
+            return new Payload(parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3]), "m".equals(parts[4]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    record Payload(String runId, long sequence, long sentAtNanos, boolean measured) {}
+}
@@ -0,0 +1,125 @@
+package com.devStudy.chat.loadtest;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import org.HdrHistogram.EncodableHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.HdrHistogram.HistogramLogWriter;
+
+/**
+ * Cette classe permet d'écrire les histogrammes d'un tir (.hlog par intervalle, .hgrm cumulé)
+ * et de comparer deux tirs entre deux releases
+ */
+public class HistogramReport implements AutoCloseable {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99, 100};
+    // les valeurs sont enregistrées en microsecondes, affichées en millisecondes
+    private static final double OUTPUT_SCALING_RATIO = 1000.0;
+
+    private final Path hlogFile;
+    private final Path hgrmFile;
+    private final PrintStream hlogStream;
+    private final HistogramLogWriter logWriter;
+    private final Histogram accumulated;
+
+    public HistogramReport(Path outputDir, String label, long highestTrackableValue) throws IOException {
+        Files.createDirectories(outputDir);
+        this.hlogFile = outputDir.resolve(label + ".hlog");
+        this.hgrmFile = outputDir.resolve(label + ".hgrm");
+        this.hlogStream = new PrintStream(Files.newOutputStream(hlogFile), true);
+        this.logWriter = new HistogramLogWriter(hlogStream);
+        this.accumulated = new Histogram(highestTrackableValue, 3);
+
+        long now = System.currentTimeMillis();
+        logWriter.outputLogFormatVersion();
+        logWriter.outputComment("chat delivery latency in microseconds, label=" + label);
+        logWriter.outputStartTime(now);
+        logWriter.setBaseTime(now);
+        logWriter.outputLegend();
+    }
+
+    public Path getHlogFile() {
+        return hlogFile;
+    }
+
+    public Path getHgrmFile() {
+        return hgrmFile;
+    }
+
+    public void addInterval(Histogram interval) {
+        logWriter.outputIntervalHistogram(interval);
+        accumulated.add(interval);
+    }
+
+    public Histogram getAccumulated() {
+        return accumulated;
+    }
+
+    public void writePercentileDistribution() throws FileNotFoundException {
+        try (PrintStream out = new PrintStream(hgrmFile.toFile())) {
+            accumulated.outputPercentileDistribution(out, OUTPUT_SCALING_RATIO);
+        }
+    }
+
+    @Override
+    public void close() {
+        hlogStream.close();
+    }
+
+    public static String summary(Histogram histogram) {
+        StringBuilder summary = new StringBuilder();
+        for (double percentile : PERCENTILES) {
+            summary.append(String.format(Locale.ROOT, "p%s=%.3fms ", formatPercentile(percentile),
+                    histogram.getValueAtPercentile(percentile) / OUTPUT_SCALING_RATIO));
+        }
+        return summary.append("count=").append(histogram.getTotalCount()).toString();
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+
+    /**
+     * Cette méthode permet de relire un fichier .hlog et de cumuler tous ses intervalles
+     */
+    public static Histogram readAccumulated(Path hlogFile) throws FileNotFoundException {
+        HistogramLogReader reader = new HistogramLogReader(hlogFile.toFile());
+        Histogram accumulated = null;
+        EncodableHistogram interval;
+        while ((interval = reader.nextIntervalHistogram()) != null) {
+            if (interval instanceof Histogram histogram) {
+                if (accumulated == null) {
+                    accumulated = new Histogram(histogram.getHighestTrackableValue(), histogram.getNumberOfSignificantValueDigits());
+                }
+                accumulated.add(histogram);
+            }
+        }
+        if (accumulated == null) {
+            throw new IllegalArgumentException("No interval histogram in " + hlogFile);
+        }
+        return accumulated;
+    }
+
+    /**
+     * Cette méthode permet de comparer deux tirs percentile par percentile
+     */
+    public static String compare(Histogram baseline, Histogram candidate) {
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT,
+                "%-10s %14s %14s %10s%n", "percentile", "baseline(ms)", "candidate(ms)", "delta"));
+        for (double percentile : PERCENTILES) {
+            double before = baseline.getValueAtPercentile(percentile) / OUTPUT_SCALING_RATIO;
+            double after = candidate.getValueAtPercentile(percentile) / OUTPUT_SCALING_RATIO;
+            String delta = before == 0 ? "n/a" : String.format(Locale.ROOT, "%+.1f%%", (after - before) * 100 / before);
+            report.append(String.format(Locale.ROOT, "%-10s %14.3f %14.3f %10s%n",
+                    "p" + formatPercentile(percentile), before, after, delta));
+        }
+        report.append(String.format(Locale.ROOT, "%-10s %14d %14d%n", "count", baseline.getTotalCount(), candidate.getTotalCount()));
+        return report.toString();
+    }
+}
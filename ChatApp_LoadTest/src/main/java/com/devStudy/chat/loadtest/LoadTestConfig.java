@@ -0,0 +1,73 @@
+package com.devStudy.chat.loadtest;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Paramètres d'un tir de charge, lus depuis les arguments "--clé=valeur" de la ligne de commande
+ */
+public record LoadTestConfig(
+        String baseUrl,             // ex: http://localhost:53050
+        String chatEndpoint,        // même template que chatroomApp.CHAT_ENDPOINT
+        int sessions,               // N sessions WebSocket, un utilisateur par session
+        int chatrooms,              // M chatrooms, les sessions sont réparties en round-robin
+        int messagesPerSecond,      // débit total d'envoi, toutes sessions confondues
+        int warmupSeconds,
+        int durationSeconds,
+        int drainSeconds,           // attente des derniers messages avant de compter les pertes
+        String userPrefix,
+        String password,
+        String label,               // nom de la release testée, utilisé pour les fichiers de sortie
+        Path outputDir
+) {
+
+    public static LoadTestConfig fromArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int separator = arg.indexOf('=');
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        LoadTestConfig config = new LoadTestConfig(
+                options.getOrDefault("baseUrl", "http://localhost:53050"),
+                options.getOrDefault("chatEndpoint", "/ws/chatroom/{chatroomId}/user/{userId}"),
+                Integer.parseInt(options.getOrDefault("sessions", "100")),
+                Integer.parseInt(options.getOrDefault("chatrooms", "10")),
+                Integer.parseInt(options.getOrDefault("rate", "200")),
+                Integer.parseInt(options.getOrDefault("warmup", "10")),
+                Integer.parseInt(options.getOrDefault("duration", "60")),
+                Integer.parseInt(options.getOrDefault("drain", "5")),
+                options.getOrDefault("userPrefix", "loadtest"),
+                options.getOrDefault("password", "LoadTest-Pwd-1"),
+                options.getOrDefault("label", "current"),
+                Path.of(options.getOrDefault("output", "results"))
+        );
+        config.validate();
+        return config;
+    }
+
+    private void validate() {
+        if (sessions <= 0 || chatrooms <= 0 || messagesPerSecond <= 0 || durationSeconds <= 0) {
+            throw new IllegalArgumentException("sessions, chatrooms, rate and duration must be positive");
+        }
+        if (chatrooms > sessions) {
+            throw new IllegalArgumentException("Each chatroom needs at least one session : chatrooms <= sessions");
+        }
+        if (!chatEndpoint.contains("{chatroomId}") || !chatEndpoint.contains("{userId}")) {
+            throw new IllegalArgumentException("chatEndpoint must declare {chatroomId} and {userId} : " + chatEndpoint);
+        }
+    }
+
+    public String webSocketUrl(long chatroomId, long userId) {
+        String wsBase = baseUrl.replaceFirst("^http", "ws");
+        return wsBase + chatEndpoint
+                .replace("{chatroomId}", Long.toString(chatroomId))
+                .replace("{userId}", Long.toString(userId));
+    }
+
+    public String userMail(int index) {
+        return userPrefix + index + "@loadtest.local";
+    }
+}
@@ -0,0 +1,203 @@
+package com.devStudy.chat.loadtest;
+
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Générateur de charge headless pour le endpoint WebSocket du chat.
+ * <ul>
+ *     <li>run (par défaut) : crée les comptes et les chatrooms, ouvre N sessions sur M chatrooms, envoie au débit demandé,
+ *     puis écrit results/&lt;label&gt;.hlog et results/&lt;label&gt;.hgrm</li>
+ *     <li>compare &lt;baseline.hlog&gt; &lt;candidate.hlog&gt; : compare deux tirs percentile par percentile</li>
+ * </ul>
+ */
+public class LoadTestRunner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private static final int PROVISIONING_THREADS = 16;
+    private static final long TICK_MILLIS = 10;
+
+    private final LoadTestConfig config;
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final DeliveryTracker tracker = new DeliveryTracker(runId);
+
+    public LoadTestRunner(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "compare".equals(args[0])) {
+            if (args.length != 3) {
+                throw new IllegalArgumentException("Usage : compare <baseline.hlog> <candidate.hlog>");
+            }
+            System.out.print(HistogramReport.compare(
+                    HistogramReport.readAccumulated(Path.of(args[1])),
+                    HistogramReport.readAccumulated(Path.of(args[2]))));
+            return;
+        }
+        new LoadTestRunner(LoadTestConfig.fromArgs(args)).run();
+    }
+
+    public void run() throws Exception {
+        LOGGER.info("Load test {} against {} : {} sessions, {} chatrooms, {} msg/s, {}s warm up, {}s measured",
+                runId, config.baseUrl(), config.sessions(), config.chatrooms(), config.messagesPerSecond(),
+                config.warmupSeconds(), config.durationSeconds());
+
+        List<BackendClient> users = provisionUsers();
+        long[] chatroomIds = provisionChatrooms(users);
+        List<ChatClient> sessions = openSessions(users, chatroomIds);
+        int[] sessionsPerChatroom = new int[config.chatrooms()];
+        for (int i = 0; i < sessions.size(); i++) {
+            sessionsPerChatroom[i % config.chatrooms()]++;
+        }
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        try (HistogramReport report = new HistogramReport(config.outputDir(), config.label(), TimeUnit.MINUTES.toMicros(1))) {
+            scheduler.scheduleAtFixedRate(new SendTick(sessions, sessionsPerChatroom), 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+
+            TimeUnit.SECONDS.sleep(config.warmupSeconds());
+            tracker.startMeasuring();
+            for (int second = 0; second < config.durationSeconds(); second++) {
+                TimeUnit.SECONDS.sleep(1);
+                report.addInterval(tracker.intervalHistogram());
+            }
+            tracker.stopMeasuring();
+            // late deliveries of measured messages still land in the last interval
+            TimeUnit.SECONDS.sleep(config.drainSeconds());
+            report.addInterval(tracker.intervalHistogram());
+            report.writePercentileDistribution();
+
+            printSummary(report);
+        } finally {
+            scheduler.shutdownNow();
+            sessions.forEach(ChatClient::close);
+        }
+    }
+
+    private void printSummary(HistogramReport report) {
+        Histogram latency = report.getAccumulated();
+        LOGGER.info("Delivery latency : {}", HistogramReport.summary(latency));
+        LOGGER.info(String.format(Locale.ROOT,
+                "Sent %d messages (%.1f msg/s), expected %d deliveries, received %d, loss %.4f%%, send failures %d",
+                tracker.getSent(), tracker.getSent() / (double) config.durationSeconds(),
+                tracker.getExpected(), tracker.getReceived(), tracker.getLossRatio() * 100, tracker.getSendFailures()));
+        LOGGER.info("Histograms written to {} and {}", report.getHlogFile(), report.getHgrmFile());
+    }
+
+    /**
+     * Cette méthode permet de créer (si besoin) et connecter un utilisateur par session
+     */
+    private List<BackendClient> provisionUsers() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PROVISIONING_THREADS);
+        try {
+            List<Future<BackendClient>> futures = new ArrayList<>();
+            for (int i = 0; i < config.sessions(); i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    BackendClient client = new BackendClient(config.baseUrl());
+                    String mail = config.userMail(index);
+                    client.createAccountIfAbsent("Load", "Tester" + index, mail, config.password());
+                    client.login(mail, config.password());
+                    return client;
+                }));
+            }
+            List<BackendClient> users = new ArrayList<>();
+            for (Future<BackendClient> future : futures) {
+                users.add(future.get());
+            }
+            LOGGER.info("{} users logged in", users.size());
+            return users;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * L'utilisateur i rejoint le chatroom i % M, les M premiers utilisateurs en sont les propriétaires
+     */
+    private long[] provisionChatrooms(List<BackendClient> users) throws Exception {
+        long[] chatroomIds = new long[config.chatrooms()];
+        for (int room = 0; room < config.chatrooms(); room++) {
+            List<Long> invited = new ArrayList<>();
+            for (int i = room + config.chatrooms(); i < users.size(); i += config.chatrooms()) {
+                invited.add(users.get(i).getUserId());
+            }
+            BackendClient owner = users.get(room);
+            String titre = "loadtest-" + runId + "-" + room;
+            owner.createChatroom(titre, invited);
+            chatroomIds[room] = owner.findOwnedChatroomId(titre);
+        }
+        LOGGER.info("{} chatrooms created", chatroomIds.length);
+        return chatroomIds;
+    }
+
+    private List<ChatClient> openSessions(List<BackendClient> users, long[] chatroomIds) throws Exception {
+        HttpClient webSocketClient = HttpClient.newHttpClient();
+        ExecutorService executor = Executors.newFixedThreadPool(PROVISIONING_THREADS);
+        try {
+            List<Future<ChatClient>> futures = new ArrayList<>();
+            for (int i = 0; i < users.size(); i++) {
+                BackendClient user = users.get(i);
+                long chatroomId = chatroomIds[i % chatroomIds.length];
+                futures.add(executor.submit(() -> {
+                    ChatClient session = new ChatClient(chatroomId, tracker);
+                    session.connect(webSocketClient, config.webSocketUrl(chatroomId, user.getUserId()), user.getJwtToken());
+                    return session;
+                }));
+            }
+            List<ChatClient> sessions = new ArrayList<>();
+            for (Future<ChatClient> future : futures) {
+                sessions.add(future.get());
+            }
+            LOGGER.info("{} WebSocket sessions opened", sessions.size());
+            return sessions;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Envoie rate * TICK_MILLIS / 1000 messages par tick, les sessions émettrices tournent en round-robin
+     */
+    private final class SendTick implements Runnable {
+        private final List<ChatClient> sessions;
+        private final int[] sessionsPerChatroom;
+        private final double messagesPerTick = config.messagesPerSecond() * TICK_MILLIS / 1000.0;
+        private double credit;
+        private int next;
+
+        SendTick(List<ChatClient> sessions, int[] sessionsPerChatroom) {
+            this.sessions = sessions;
+            this.sessionsPerChatroom = sessionsPerChatroom;
+        }
+
+        @Override
+        public void run() {
+            try {
+                credit += messagesPerTick;
+                while (credit >= 1) {
+                    credit--;
+                    int index = next;
+                    next = (next + 1) % sessions.size();
+                    // the sender receives its own message too (TO_ALL_IN_CHATROOM)
+                    sessions.get(index).send(tracker.newPayload(sessionsPerChatroom[index % sessionsPerChatroom.length]));
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Send tick failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.devStudy.chat.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DeliveryTrackerTest {
+
+	@Test
+	void testPayloadRoundTrip() {
+		DeliveryTracker.Payload payload = DeliveryTracker.decode(DeliveryTracker.encode("run1", 42, 123456789L, true));
+		assertEquals("run1", payload.runId());
+		assertEquals(42, payload.sequence());
+		assertEquals(123456789L, payload.sentAtNanos());
+		assertTrue(payload.measured());
+
+		assertFalse(DeliveryTracker.decode(DeliveryTracker.encode("run1", 1, 1, false)).measured());
+		assertNull(DeliveryTracker.decode("hello"));
+		assertNull(DeliveryTracker.decode("lt:run1:x:1:m"));
+	}
+
+	@Test
+	void testLossAndWarmupAccounting() {
+		DeliveryTracker tracker = new DeliveryTracker("run1");
+		String warmup = tracker.newPayload(3);
+		tracker.startMeasuring();
+		String measured = tracker.newPayload(3);
+
+		tracker.onReceived(warmup);
+		tracker.onReceived(measured);
+		tracker.onReceived(measured);
+		// message of another run on the same backend
+		tracker.onReceived(DeliveryTracker.encode("run2", 1, System.nanoTime(), true));
+
+		assertEquals(1, tracker.getSent());
+		assertEquals(3, tracker.getExpected());
+		assertEquals(2, tracker.getReceived());
+		assertEquals(1 / 3.0, tracker.getLossRatio(), 1e-9);
+		assertEquals(2, tracker.intervalHistogram().getTotalCount());
+	}
+
+	@Test
+	void testReportIsReadBackForComparison(@TempDir Path outputDir) throws Exception {
+		Histogram interval = new Histogram(60_000_000L, 3);
+		interval.recordValue(1_500);
+		interval.recordValue(2_500);
+		try (HistogramReport report = new HistogramReport(outputDir, "baseline", 60_000_000L)) {
+			report.addInterval(interval);
+			report.writePercentileDistribution();
+		}
+		assertTrue(Files.size(outputDir.resolve("baseline.hgrm")) > 0);
+
+		Histogram readBack = HistogramReport.readAccumulated(outputDir.resolve("baseline.hlog"));
+		assertEquals(2, readBack.getTotalCount());
+		assertTrue(HistogramReport.compare(readBack, readBack).contains("+0.0%"));
+	}
+}